@@ -0,0 +1,48 @@
+package com.sentinelgate.configs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.utils.AuditEventSink;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.RabbitAuditEventSink;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * RabbitMQ destination of audit events. Exchange, queue and binding are declared on the first
+ * connection, nothing connects at startup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "audit.enabled", havingValue = "true")
+public class AuditAmqpConfiguration {
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    @Bean
+    public TopicExchange auditExchange() {
+        return new TopicExchange(configUtils.getAuditExchange(), true, false);
+    }
+
+    @Bean
+    public Queue auditQueue() {
+        return new Queue(configUtils.getAuditQueue(), true);
+    }
+
+    @Bean
+    public Binding auditBinding(TopicExchange auditExchange, Queue auditQueue) {
+        return BindingBuilder.bind(auditQueue).to(auditExchange).with(configUtils.getAuditRoutingKey());
+    }
+
+    @Bean
+    public AuditEventSink auditEventSink(RabbitTemplate rabbitTemplate, ObjectMapper objectMapper) {
+        return new RabbitAuditEventSink(rabbitTemplate, objectMapper, configUtils);
+    }
+
+}
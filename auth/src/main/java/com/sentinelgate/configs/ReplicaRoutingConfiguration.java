@@ -0,0 +1,88 @@
+package com.sentinelgate.configs;
+
+import com.sentinelgate.database.mysql.ReplicaRoutingDataSource;
+import com.sentinelgate.utils.ConfigUtils;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the spring.datasource pool with a primary plus read replicas, read-only transactions
+ * (e.g. UserDao lookups) go to a replica. Replicas share the primary's driver and, unless
+ * datasource-routing.username is set, its credentials.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource-routing.enabled", havingValue = "true")
+public class ReplicaRoutingConfiguration {
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        boolean ownCredentials = StringUtils.isNotBlank(configUtils.getDatasourceRoutingUsername());
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : configUtils.getDatasourceRoutingReplicas().split(",")) {
+            if (StringUtils.isBlank(url)) {
+                continue;
+            }
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(ownCredentials ? configUtils.getDatasourceRoutingUsername() : properties.determineUsername())
+                    .password(ownCredentials ? configUtils.getDatasourceRoutingPassword() : properties.determinePassword())
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, configUtils.getDatasourceRoutingMaxLagSeconds(),
+                configUtils.getDatasourceRoutingLagQuery());
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource-routing.lag-check-interval-ms:5000}")
+    public void checkReplicas() {
+        if (routingDataSource != null) {
+            routingDataSource.checkReplicas();
+        }
+    }
+
+    /**
+     * Health and lag of each replica as of the last check, served at /admin/datasource.
+     */
+    public Map<String, Object> getStats() {
+        return routingDataSource == null ? Map.of() : routingDataSource.getStats();
+    }
+
+    @PreDestroy
+    public void destroy() throws Exception {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.sentinelgate.contollers;
+
+import com.sentinelgate.manager.ApiKeyManager;
+import com.sentinelgate.request.ApiKeyRequest;
+import com.sentinelgate.response.ApiKeyResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Issues and revokes API keys. Like everything under /admin/**, only reachable with the admin
+ * credential, AuthFilter rejects other callers before the request gets here.
+ */
+@RestController
+@RequestMapping("/admin/api-keys")
+public class ApiKeyAdminController {
+
+    @Autowired
+    ApiKeyManager apiKeyManager;
+
+    @PostMapping
+    public ResponseEntity<ApiKeyResponse> create(@RequestBody ApiKeyRequest request) {
+        return apiKeyManager.create(request.getOwner(), request.getTier());
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ApiKeyResponse>> list() {
+        return apiKeyManager.list();
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiKeyResponse> revoke(@PathVariable Long id) {
+        return apiKeyManager.revoke(id);
+    }
+
+}
@@ -3,6 +3,8 @@ package com.sentinelgate.contollers;
 import com.sentinelgate.manager.AuthManager;
 import com.sentinelgate.request.AuthRequest;
 import com.sentinelgate.response.AuthResponse;
+import com.sentinelgate.utils.IpFilterUtils;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,14 +19,18 @@ public class AuthController {
     @Autowired
     AuthManager authManager;
 
+    @Autowired
+    IpFilterUtils ipFilterUtils;
+
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
-        return authManager.login(request.getUsername(), request.getPassword());
+    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request, HttpServletRequest httpRequest) {
+        // behind a load balancer every peer address is the proxy, throttling it would block everyone
+        return authManager.login(request.getUsername(), request.getPassword(), ipFilterUtils.clientAddress(httpRequest));
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<AuthResponse> signup(@RequestBody AuthRequest request) {
-        return authManager.signup(request.getUsername(), request.getPassword());
+    public ResponseEntity<AuthResponse> signup(@RequestBody AuthRequest request, HttpServletRequest httpRequest) {
+        return authManager.signup(request.getUsername(), request.getPassword(), ipFilterUtils.clientAddress(httpRequest));
     }
 
 }
@@ -0,0 +1,27 @@
+package com.sentinelgate.contollers;
+
+import com.sentinelgate.configs.ReplicaRoutingConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Read replica health, only registered while replica routing is on.
+ */
+@RestController
+@RequestMapping("/admin/datasource")
+@ConditionalOnProperty(name = "datasource-routing.enabled", havingValue = "true")
+public class DatasourceAdminController {
+
+    @Autowired
+    ReplicaRoutingConfiguration replicaRoutingConfiguration;
+
+    @GetMapping
+    public ResponseEntity<Object> replicas() {
+        return ResponseEntity.ok(replicaRoutingConfiguration.getStats());
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.sentinelgate.contollers;
+
+import com.sentinelgate.manager.UserProvisioningManager;
+import com.sentinelgate.utils.ConfigUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/admin/users")
+public class UserAdminController {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    UserProvisioningManager userProvisioningManager;
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    /**
+     * Bulk import, one {"username","password"} object per line in, one result object per line out.
+     */
+    @PostMapping(value = "/bulk", consumes = NDJSON, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> bulkImport(HttpServletRequest request) {
+        // results stream while the upload is read, the default async timeout of other endpoints would cut it off
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(configUtils.getBulkImportTimeoutMs());
+        return ResponseEntity.ok(output -> userProvisioningManager.bulkImport(request.getInputStream(), output));
+    }
+
+}
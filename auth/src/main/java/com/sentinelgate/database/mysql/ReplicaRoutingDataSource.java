@@ -0,0 +1,180 @@
+package com.sentinelgate.database.mysql;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to replicas, round robin over the ones that are reachable and
+ * within the allowed replication lag, everything else to the primary. Replicas start out
+ * unhealthy until the first lag check passed.
+ * <p>
+ * Must be wrapped in a LazyConnectionDataSourceProxy, the read-only flag of a transaction is only
+ * known after the transaction manager asked for a connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final long maxLagSeconds;
+
+    private final String lagQuery;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param lagQuery returns the lag in seconds, in a Seconds_Behind_Source/Seconds_Behind_Master
+     *                 column (SHOW REPLICA STATUS) or else the first column; no row or null means not replicating
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources, long maxLagSeconds, String lagQuery) {
+        this.primary = primary;
+        this.maxLagSeconds = maxLagSeconds;
+        this.lagQuery = lagQuery;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicaDataSources.get(i));
+            replicas.add(replica);
+            targets.put(replica.key, replica.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Runs the reads of a read-after-write flow on the primary, e.g. the lookup of a user that may
+     * just have been created on another node.
+     */
+    public static <T> T onPrimary(Supplier<T> supplier) {
+        Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_ONLY.remove();
+            } else {
+                PRIMARY_ONLY.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (PRIMARY_ONLY.get() != null || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica.key;
+            }
+        }
+        // every replica down or lagging, the primary serves the reads
+        return PRIMARY;
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            Long lag = null;
+            String error = null;
+            try {
+                lag = lagSeconds(replica.dataSource);
+            } catch (Exception e) {
+                error = e.toString();
+            }
+            boolean healthy = lag != null && lag <= maxLagSeconds;
+            if (healthy != replica.healthy) {
+                if (healthy) {
+                    log.info("Replica {} back in rotation, lag {}s", replica.key, lag);
+                } else {
+                    log.warn("Replica {} out of rotation, lag: {}s, err: {}", replica.key, lag, error);
+                }
+            }
+            replica.lagSeconds = lag;
+            replica.healthy = healthy;
+        }
+    }
+
+    private Long lagSeconds(DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int column = 1;
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                String label = metaData.getColumnLabel(i);
+                if ("Seconds_Behind_Source".equalsIgnoreCase(label) || "Seconds_Behind_Master".equalsIgnoreCase(label)) {
+                    column = i;
+                    break;
+                }
+            }
+            String lag = resultSet.getString(column);
+            return lag == null ? null : Long.parseLong(lag.trim());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (Replica replica : replicas) {
+            stats.put(replica.key, Map.of("healthy", replica.healthy, "lagSeconds", replica.lagSeconds == null ? -1 : replica.lagSeconds));
+        }
+        return stats;
+    }
+
+    /**
+     * Closes the pools of the primary and the replicas.
+     */
+    public void close() throws Exception {
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static class Replica {
+
+        private final String key;
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy;
+
+        private volatile Long lagSeconds;
+
+        Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.sentinelgate.database.mysql.dao;
+
+import com.sentinelgate.database.mysql.entity.ApiKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ApiKeyDao extends JpaRepository<ApiKey, Long> {
+
+    List<ApiKey> findAllByRevokedFalse();
+
+    List<ApiKey> findAllByKeyHashInAndRevokedFalse(Collection<String> keyHashes);
+
+}
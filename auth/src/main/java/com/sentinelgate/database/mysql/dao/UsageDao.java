@@ -0,0 +1,59 @@
+package com.sentinelgate.database.mysql.dao;
+
+import com.sentinelgate.database.mysql.entity.UsageCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Batched upserts of usage deltas, one statement per (identity, route, day). Every applied redis
+ * claim is recorded in usage_applied_claims, so a claim is never added twice.
+ */
+@Repository
+public class UsageDao {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds the deltas of a claim unless it was applied before. The claim id is written in the same
+     * transaction as the counters, a claim read again after its redis delete failed is skipped.
+     *
+     * @return false if the claim had already been applied
+     */
+    @Transactional
+    public boolean applyClaim(String claim, List<UsageCounter> deltas) {
+        try {
+            jdbcTemplate.update("INSERT INTO usage_applied_claims (claim_id, applied_at) VALUES (?, ?)", claim, Timestamp.from(Instant.now()));
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        if (!deltas.isEmpty()) {
+            batchAdd(deltas);
+        }
+        return true;
+    }
+
+    public int pruneAppliedClaims(Instant before) {
+        return jdbcTemplate.update("DELETE FROM usage_applied_claims WHERE applied_at < ?", Timestamp.from(before));
+    }
+
+    public void batchAdd(List<UsageCounter> deltas) {
+        jdbcTemplate.batchUpdate("INSERT INTO usage_counters (identity, route, day, request_count) VALUES (?, ?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE request_count = request_count + VALUES(request_count)",
+                deltas, deltas.size(),
+                (ps, delta) -> {
+                    ps.setString(1, delta.getIdentity());
+                    ps.setString(2, delta.getRoute());
+                    ps.setDate(3, Date.valueOf(delta.getDay()));
+                    ps.setLong(4, delta.getRequestCount());
+                });
+    }
+}
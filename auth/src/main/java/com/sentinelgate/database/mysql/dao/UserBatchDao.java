@@ -0,0 +1,52 @@
+package com.sentinelgate.database.mysql.dao;
+
+import com.sentinelgate.database.mysql.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set based reads and JDBC batch inserts for bulk provisioning, bypassing the per-entity
+ * persist path of {@link UserDao}.
+ */
+@Repository
+public class UserBatchDao {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public Set<String> findExistingUsernames(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT username FROM users WHERE username IN (:usernames)",
+                new MapSqlParameterSource("usernames", usernames),
+                String.class));
+    }
+
+    /**
+     * Inserts all users in one JDBC batch (a multi-row insert with rewriteBatchedStatements=true).
+     */
+    public void batchInsert(List<User> users) {
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password) VALUES (?, ?)", users, users.size(),
+                (ps, user) -> {
+                    ps.setString(1, user.getUsername());
+                    ps.setString(2, user.getPassword());
+                });
+    }
+
+    public void insert(User user) {
+        jdbcTemplate.update("INSERT INTO users (username, password) VALUES (?, ?)", user.getUsername(), user.getPassword());
+    }
+}
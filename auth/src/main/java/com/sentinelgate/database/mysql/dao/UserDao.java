@@ -2,11 +2,14 @@ package com.sentinelgate.database.mysql.dao;
 
 import com.sentinelgate.database.mysql.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface UserDao extends JpaRepository<User, Long> {
 
+    // read-only, served by a replica when datasource-routing is enabled
+    @Transactional(readOnly = true)
     Optional<User> findFirstByUsername(String username);
 
 }
@@ -0,0 +1,43 @@
+package com.sentinelgate.database.mysql.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@Table(name = "api_keys")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 of the key, the key itself is never stored
+    @Column(nullable = false, unique = true, length = 64)
+    private String keyHash;
+
+    // first characters of the key, to tell keys apart in listings
+    @Column(nullable = false, length = 12)
+    private String keyPrefix;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(nullable = false)
+    private String tier;
+
+    @Column(nullable = false)
+    private Boolean revoked;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
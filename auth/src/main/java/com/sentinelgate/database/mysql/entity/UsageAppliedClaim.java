@@ -0,0 +1,26 @@
+package com.sentinelgate.database.mysql.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A redis usage claim whose deltas are already in usage_counters, written by UsageDao in the same
+ * transaction as the counters.
+ */
+@Data
+@Entity
+@Table(name = "usage_applied_claims", indexes = @Index(name = "idx_usage_applied_claims_applied_at", columnList = "appliedAt"))
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UsageAppliedClaim {
+
+    @Id
+    @Column(length = 128)
+    private String claimId;
+
+    @Column(nullable = false)
+    private Instant appliedAt;
+}
@@ -0,0 +1,37 @@
+package com.sentinelgate.database.mysql.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Data
+@Entity
+@Table(name = "usage_counters", uniqueConstraints = @UniqueConstraint(columnNames = {"identity", "route", "day"}))
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UsageCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // "user:<username>"
+    @Column(nullable = false)
+    private String identity;
+
+    @Column(nullable = false)
+    private String route;
+
+    // UTC day, monthly usage is the sum over the month's days
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private Long requestCount;
+}
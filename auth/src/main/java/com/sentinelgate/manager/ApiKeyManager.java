@@ -0,0 +1,127 @@
+package com.sentinelgate.manager;
+
+import com.sentinelgate.database.mysql.dao.ApiKeyDao;
+import com.sentinelgate.database.mysql.entity.ApiKey;
+import com.sentinelgate.pojo.ApiKeyEntry;
+import com.sentinelgate.response.ApiKeyResponse;
+import com.sentinelgate.utils.ApiKeyIndex;
+import io.micrometer.common.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+public class ApiKeyManager {
+
+    public static final String KEY_PREFIX = "sgk_";
+
+    @Autowired
+    ApiKeyDao apiKeyDao;
+
+    @Autowired
+    ApiKeyIndex apiKeyIndex;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    Logger log = LoggerFactory.getLogger(ApiKeyManager.class);
+
+    public ResponseEntity<ApiKeyResponse> create(String owner, String tier) {
+        try {
+            if (StringUtils.isBlank(owner)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiKeyResponse.builder().message("owner cannot be empty.").build());
+            } else if (StringUtils.isBlank(tier) || !apiKeyIndex.isKnownTier(tier)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiKeyResponse.builder().message("unknown tier.").build());
+            }
+
+            byte[] random = new byte[32];
+            secureRandom.nextBytes(random);
+            String key = KEY_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+            ApiKey apiKey = ApiKey.builder()
+                    .keyHash(ApiKeyIndex.hash(key))
+                    .keyPrefix(key.substring(0, 12))
+                    .owner(owner)
+                    .tier(tier)
+                    .revoked(false)
+                    .createdAt(Instant.now())
+                    .build();
+            apiKey = apiKeyDao.save(apiKey);
+            publish(apiKey);
+
+            log.info("Created api key {} for {}", apiKey.getKeyPrefix(), owner);
+            return ResponseEntity.ok(toResponse(apiKey).key(key).message("Success").build());
+        } catch (Exception e) {
+            log.error("Error while creating api key err: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiKeyResponse.builder().message("Failed!").build());
+        }
+    }
+
+    public ResponseEntity<List<ApiKeyResponse>> list() {
+        return ResponseEntity.ok(apiKeyDao.findAll().stream().map(apiKey -> toResponse(apiKey).build()).toList());
+    }
+
+    public ResponseEntity<ApiKeyResponse> revoke(Long id) {
+        try {
+            Optional<ApiKey> apiKey = apiKeyDao.findById(id);
+            if (apiKey.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiKeyResponse.builder().message("Not found.").build());
+            }
+            apiKey.get().setRevoked(true);
+            apiKeyDao.save(apiKey.get());
+            try {
+                apiKeyIndex.remove(apiKey.get().getKeyHash());
+            } catch (Exception e) {
+                log.warn("Revoked api key {} not yet removed from redis, next sync retries: {}", apiKey.get().getKeyPrefix(), e.getMessage());
+            }
+            return ResponseEntity.ok(toResponse(apiKey.get()).message("Success").build());
+        } catch (Exception e) {
+            log.error("Error while revoking api key err: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiKeyResponse.builder().message("Failed!").build());
+        }
+    }
+
+    /**
+     * Rebuilds the redis key index from MySQL, repairing changes whose publish failed.
+     */
+    @Scheduled(fixedDelayString = "${api-key.sync-interval-ms:300000}", initialDelayString = "${api-key.sync-initial-delay-ms:30000}")
+    public void sync() {
+        try {
+            apiKeyIndex.replaceAll(apiKeyDao.findAllByRevokedFalse().stream()
+                    .map(apiKey -> new ApiKeyEntry(apiKey.getKeyHash(), apiKey.getTier(), apiKey.getOwner()))
+                    .toList(), hashes -> apiKeyDao.findAllByKeyHashInAndRevokedFalse(hashes).stream()
+                    .map(ApiKey::getKeyHash)
+                    .collect(Collectors.toSet()));
+        } catch (Exception e) {
+            log.warn("Api key sync failed: {}", e.getMessage());
+        }
+    }
+
+    private void publish(ApiKey apiKey) {
+        try {
+            apiKeyIndex.put(new ApiKeyEntry(apiKey.getKeyHash(), apiKey.getTier(), apiKey.getOwner()));
+        } catch (Exception e) {
+            log.warn("Api key {} not yet published to redis, next sync retries: {}", apiKey.getKeyPrefix(), e.getMessage());
+        }
+    }
+
+    private ApiKeyResponse.ApiKeyResponseBuilder toResponse(ApiKey apiKey) {
+        return ApiKeyResponse.builder()
+                .id(apiKey.getId())
+                .keyPrefix(apiKey.getKeyPrefix())
+                .owner(apiKey.getOwner())
+                .tier(apiKey.getTier())
+                .revoked(apiKey.getRevoked())
+                .createdAt(apiKey.getCreatedAt());
+    }
+}
@@ -0,0 +1,163 @@
+package com.sentinelgate.manager;
+
+import com.sentinelgate.database.mysql.ReplicaRoutingDataSource;
+import com.sentinelgate.database.mysql.dao.UserDao;
+import com.sentinelgate.database.mysql.entity.User;
+import com.sentinelgate.pojo.AuditEvent;
+import com.sentinelgate.response.AuthResponse;
+import com.sentinelgate.utils.AuditEventUtils;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.EncryptionUtils;
+import com.sentinelgate.utils.JwtUtils;
+import com.sentinelgate.utils.LoginThrottleUtils;
+import io.micrometer.common.util.StringUtils;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.Optional;
+
+@Service
+public class AuthManager {
+
+    @Autowired
+    UserDao userDao;
+
+    @Autowired
+    EncryptionUtils encryptionUtils;
+
+    @Autowired
+    JwtUtils jwtUtils;
+
+    @Autowired
+    AuditEventUtils auditEventUtils;
+
+    @Autowired
+    LoginThrottleUtils loginThrottleUtils;
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    Logger log = LoggerFactory.getLogger(AuthManager.class);
+
+    /**
+     * @param remoteAddress client ip, failures are throttled per username and per ip
+     */
+    public ResponseEntity<AuthResponse> login(String username, String password, String remoteAddress) {
+        try {
+            log.info("Login request for {}", username);
+
+            if (StringUtils.isBlank(username)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(AuthResponse.builder().message("username cannot be empty.").build());
+            } else if (StringUtils.isBlank(password)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(AuthResponse.builder().message("password cannot be empty.").build());
+            }
+
+            // before any db lookup or decrypt, blocked attempts stay cheap
+            long retryAfterMs = loginThrottleUtils.retryAfterMs(username, remoteAddress);
+            if (retryAfterMs > 0) {
+                recordLogin(AuditEvent.LOGIN_FAILURE, username, remoteAddress, "throttled");
+                return throttled(retryAfterMs);
+            }
+
+            Optional<User> user = userDao.findFirstByUsername(username);
+            if (user.isEmpty() && configUtils.getDatasourceRoutingEnabled()) {
+                // the replica may not have the user yet right after signup
+                user = ReplicaRoutingDataSource.onPrimary(() -> userDao.findFirstByUsername(username));
+            }
+            if (user.isEmpty()) {
+                loginThrottleUtils.recordFailure(username, remoteAddress);
+                recordLogin(AuditEvent.LOGIN_FAILURE, username, remoteAddress, "unknown user");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(AuthResponse.builder().message("Invalid credentials.").build());
+            }
+
+            String decryptedPassword = encryptionUtils.decrypt(user.get().getPassword());
+
+            if (!Objects.equals(decryptedPassword, password)){
+                loginThrottleUtils.recordFailure(username, remoteAddress);
+                recordLogin(AuditEvent.LOGIN_FAILURE, username, remoteAddress, "wrong password");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(AuthResponse.builder().message("Invalid credentials.").build());
+            }
+
+            String token = jwtUtils.generateToken(user.get());
+            loginThrottleUtils.recordSuccess(username);
+            recordLogin(AuditEvent.LOGIN_SUCCESS, username, remoteAddress, null);
+
+            return ResponseEntity.ok(AuthResponse.builder().token(token).message("Success").build());
+        } catch (Exception e) {
+            log.error("Error while logging in err: ", e);
+            recordLogin(AuditEvent.LOGIN_FAILURE, username, remoteAddress, "error: " + e.getClass().getSimpleName());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(AuthResponse.builder().message("Failed!").build());
+        }
+    }
+
+    private static ResponseEntity<AuthResponse> throttled(long retryAfterMs) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMs + 999) / 1000))
+                .body(AuthResponse.builder().message("Too many failed attempts, retry later.").build());
+    }
+
+    private void recordLogin(String type, String username, String remoteAddress, String detail) {
+        auditEventUtils.record(AuditEvent.builder()
+                .type(type)
+                .username(username)
+                .path("/auth/login")
+                .remoteAddress(remoteAddress)
+                .detail(detail)
+                .build());
+    }
+
+    /**
+     * Creates the user, an existing username is a 409: signup never checks a password, so it can't be
+     * used to guess one past the login throttle.
+     *
+     * @param remoteAddress client ip, blocked usernames and ips are turned away before the db lookup
+     */
+    public ResponseEntity<AuthResponse> signup(@NonNull String username, @NonNull String password, String remoteAddress) {
+        try {
+            log.info("Signup request for {}", username);
+
+            if (StringUtils.isBlank(username)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(AuthResponse.builder().message("username cannot be empty.").build());
+            } else if (StringUtils.isBlank(password)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(AuthResponse.builder().message("password cannot be empty.").build());
+            }
+
+            long retryAfterMs = loginThrottleUtils.retryAfterMs(username, remoteAddress);
+            if (retryAfterMs > 0) {
+                return throttled(retryAfterMs);
+            }
+
+            // must see the latest writes
+            if (ReplicaRoutingDataSource.onPrimary(() -> userDao.findFirstByUsername(username)).isPresent()) {
+                return usernameTaken();
+            }
+
+            User user = User.builder().username(username).password(encryptionUtils.encrypt(password)).build();
+            try {
+                user = userDao.save(user);
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent signup for the same name won, unique key on users.username
+                return usernameTaken();
+            }
+
+            String token = jwtUtils.generateToken(user);
+
+            return ResponseEntity.ok(AuthResponse.builder().token(token).message("Success").build());
+        } catch (Exception e) {
+            log.error("Error while signing up err: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(AuthResponse.builder().message("Failed!").build());
+        }
+    }
+
+    private static ResponseEntity<AuthResponse> usernameTaken() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(AuthResponse.builder().message("username already taken.").build());
+    }
+}
@@ -0,0 +1,121 @@
+package com.sentinelgate.manager;
+
+import com.sentinelgate.database.mysql.dao.UsageDao;
+import com.sentinelgate.database.mysql.entity.UsageCounter;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.UsageQuotaUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Drains the usage deltas collected in redis into MySQL for billing.
+ *
+ * A claim is deleted from redis only after its deltas were committed together with its id, so a
+ * claim that is read again (failed delete, restart, another node picking it up) is not counted twice.
+ */
+@Service
+public class UsagePersistenceManager {
+
+    @Autowired
+    UsageQuotaUtils usageQuotaUtils;
+
+    @Autowired
+    UsageDao usageDao;
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    // applied claim ids are kept this long, far beyond any redis outage a claim could outlive
+    private static final Duration APPLIED_CLAIM_RETENTION = Duration.ofDays(7);
+
+    // claims whose insert failed, retried before new ones
+    private final ConcurrentLinkedQueue<String> failedClaims = new ConcurrentLinkedQueue<>();
+
+    // claims left in redis by a previous run are looked up once redis is reachable
+    private volatile boolean leftoverClaimsRecovered;
+
+    Logger log = LoggerFactory.getLogger(UsagePersistenceManager.class);
+
+    @Scheduled(fixedDelayString = "${usage-quota.persist-interval-ms:60000}")
+    public void persist() {
+        if (!configUtils.getUsageQuotaEnabled()) {
+            return;
+        }
+        Set<String> claims = new LinkedHashSet<>();
+        String claim;
+        while ((claim = failedClaims.poll()) != null) {
+            claims.add(claim);
+        }
+        if (!leftoverClaimsRecovered) {
+            try {
+                List<String> leftover = usageQuotaUtils.findClaims();
+                if (!leftover.isEmpty()) {
+                    log.info("Recovering {} unpersisted usage claims", leftover.size());
+                }
+                claims.addAll(leftover);
+                leftoverClaimsRecovered = true;
+            } catch (Exception e) {
+                log.warn("Could not look up leftover usage claims: {}", e.getMessage());
+            }
+        }
+        try {
+            claim = usageQuotaUtils.claimPending();
+            if (claim != null) {
+                claims.add(claim);
+            }
+        } catch (Exception e) {
+            log.warn("Could not claim pending usage: {}", e.getMessage());
+        }
+
+        for (String pending : claims) {
+            try {
+                List<UsageCounter> deltas = toCounters(usageQuotaUtils.readClaim(pending));
+                if (usageDao.applyClaim(pending, deltas)) {
+                    log.info("Persisted {} usage counters", deltas.size());
+                } else {
+                    log.info("Usage claim {} was already persisted", pending);
+                }
+                usageQuotaUtils.deleteClaim(pending);
+            } catch (Exception e) {
+                failedClaims.add(pending);
+                log.error("Error while persisting usage, retrying later err: ", e);
+            }
+        }
+
+        try {
+            usageDao.pruneAppliedClaims(Instant.now().minus(APPLIED_CLAIM_RETENTION));
+        } catch (Exception e) {
+            log.warn("Could not prune applied usage claims: {}", e.getMessage());
+        }
+    }
+
+    private List<UsageCounter> toCounters(Map<String, Long> pending) {
+        List<UsageCounter> counters = new ArrayList<>(pending.size());
+        pending.forEach((field, count) -> {
+            // "yyyyMMdd|identity|route", the identity may itself contain '|'
+            int first = field.indexOf('|');
+            int last = field.lastIndexOf('|');
+            counters.add(UsageCounter.builder()
+                    .day(LocalDate.parse(field.substring(0, first), DateTimeFormatter.BASIC_ISO_DATE))
+                    .identity(field.substring(first + 1, last))
+                    .route(field.substring(last + 1))
+                    .requestCount(count)
+                    .build());
+        });
+        return counters;
+    }
+}
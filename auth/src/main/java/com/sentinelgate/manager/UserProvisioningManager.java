@@ -0,0 +1,209 @@
+package com.sentinelgate.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.database.mysql.dao.UserBatchDao;
+import com.sentinelgate.database.mysql.entity.User;
+import com.sentinelgate.request.AuthRequest;
+import com.sentinelgate.response.BulkUserResult;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.EncryptionUtils;
+import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bulk user import from NDJSON ({"username": "...", "password": "..."} per line).
+ *
+ * Lines are processed in chunks: repeats within a chunk are reported as duplicates, existing
+ * usernames (including ones created by an earlier chunk) are found with one IN query per chunk,
+ * passwords are encrypted in parallel, new users are written with one JDBC batch, and one result
+ * line per input line is streamed back as soon as its chunk is done.
+ */
+@Service
+public class UserProvisioningManager {
+
+    @Autowired
+    UserBatchDao userBatchDao;
+
+    @Autowired
+    EncryptionUtils encryptionUtils;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    private ForkJoinPool encryptionPool;
+
+    Logger log = LoggerFactory.getLogger(UserProvisioningManager.class);
+
+    @PostConstruct
+    public void init() {
+        encryptionPool = new ForkJoinPool(configUtils.getBulkImportEncryptParallelism());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        encryptionPool.shutdown();
+    }
+
+    public void bulkImport(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        int batchSize = configUtils.getBulkImportBatchSize();
+        List<Row> chunk = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        long created = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(parse(lineNumber, line));
+            if (chunk.size() >= batchSize) {
+                created += processChunk(chunk, output);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += processChunk(chunk, output);
+        }
+        log.info("Bulk import finished, lines: {}, created: {}", lineNumber, created);
+    }
+
+    private Row parse(long lineNumber, String line) {
+        try {
+            return new Row(lineNumber, objectMapper.readValue(line, AuthRequest.class));
+        } catch (Exception e) {
+            Row row = new Row(lineNumber, null);
+            row.result = result(row, BulkUserResult.INVALID, "Malformed JSON line");
+            return row;
+        }
+    }
+
+    private long processChunk(List<Row> chunk, OutputStream output) throws IOException {
+        // repeats across chunks find the earlier row's user in the lookup, or hit the unique key on insert
+        Set<String> seen = new HashSet<>();
+        List<Row> candidates = new ArrayList<>();
+        for (Row row : chunk) {
+            if (row.result != null) {
+                continue;
+            }
+            if (StringUtils.isBlank(row.request.getUsername()) || StringUtils.isBlank(row.request.getPassword())) {
+                row.result = result(row, BulkUserResult.INVALID, "username and password are required.");
+            } else if (!seen.add(row.request.getUsername())) {
+                row.result = result(row, BulkUserResult.DUPLICATE, "Username repeated in upload.");
+            } else {
+                candidates.add(row);
+            }
+        }
+
+        Set<String> existing = userBatchDao.findExistingUsernames(candidates.stream().map(row -> row.request.getUsername()).toList());
+        List<Row> toInsert = new ArrayList<>();
+        for (Row row : candidates) {
+            if (existing.contains(row.request.getUsername())) {
+                row.result = result(row, BulkUserResult.EXISTS, null);
+            } else {
+                toInsert.add(row);
+            }
+        }
+
+        long created = insert(toInsert);
+
+        for (Row row : chunk) {
+            output.write(objectMapper.writeValueAsBytes(row.result));
+            output.write('\n');
+        }
+        output.flush();
+        return created;
+    }
+
+    private long insert(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<User> users;
+        try {
+            users = encryptionPool.submit(() -> rows.parallelStream()
+                    .map(row -> User.builder().username(row.request.getUsername()).password(encrypt(row.request.getPassword())).build())
+                    .toList()).get();
+        } catch (Exception e) {
+            log.error("Error while encrypting bulk import chunk, err: ", e);
+            rows.forEach(row -> row.result = result(row, BulkUserResult.FAILED, "Failed!"));
+            return 0;
+        }
+
+        try {
+            userBatchDao.batchInsert(users);
+            rows.forEach(row -> row.result = result(row, BulkUserResult.CREATED, null));
+            return rows.size();
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent signup took one of the names, fall back to row by row for this chunk
+            log.info("Batch insert conflicted, retrying chunk row by row");
+        } catch (Exception e) {
+            log.error("Error while batch inserting users, err: ", e);
+            rows.forEach(row -> row.result = result(row, BulkUserResult.FAILED, "Failed!"));
+            return 0;
+        }
+
+        long created = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            try {
+                userBatchDao.insert(users.get(i));
+                row.result = result(row, BulkUserResult.CREATED, null);
+                created++;
+            } catch (DataIntegrityViolationException e) {
+                row.result = result(row, BulkUserResult.EXISTS, null);
+            } catch (Exception e) {
+                log.error("Error while inserting user {}, err: ", row.request.getUsername(), e);
+                row.result = result(row, BulkUserResult.FAILED, "Failed!");
+            }
+        }
+        return created;
+    }
+
+    private String encrypt(String password) {
+        try {
+            return encryptionUtils.encrypt(password);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BulkUserResult result(Row row, String status, String message) {
+        return BulkUserResult.builder()
+                .line(row.line)
+                .username(row.request == null ? null : row.request.getUsername())
+                .status(status)
+                .message(message)
+                .build();
+    }
+
+    private static class Row {
+        private final long line;
+        private final AuthRequest request;
+        private BulkUserResult result;
+
+        Row(long line, AuthRequest request) {
+            this.line = line;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.sentinelgate.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiKeyRequest {
+
+    private String owner;
+
+    // one of api-key.tiers
+    private String tier;
+
+}
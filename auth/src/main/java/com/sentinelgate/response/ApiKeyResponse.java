@@ -0,0 +1,33 @@
+package com.sentinelgate.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Builder
+public class ApiKeyResponse {
+
+    private Long id;
+
+    // only returned once, when the key is created
+    private String key;
+
+    private String keyPrefix;
+
+    private String owner;
+
+    private String tier;
+
+    private Boolean revoked;
+
+    private Instant createdAt;
+
+    private String message;
+
+}
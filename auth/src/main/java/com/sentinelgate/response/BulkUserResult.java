@@ -0,0 +1,33 @@
+package com.sentinelgate.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserResult {
+
+    public static final String CREATED = "CREATED";
+    public static final String EXISTS = "EXISTS";
+    public static final String DUPLICATE = "DUPLICATE";
+    public static final String INVALID = "INVALID";
+    public static final String FAILED = "FAILED";
+
+    // 1-based line number in the uploaded NDJSON
+    private Long line;
+
+    private String username;
+
+    private String status;
+
+    private String message;
+
+}
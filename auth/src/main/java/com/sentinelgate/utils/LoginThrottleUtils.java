@@ -0,0 +1,180 @@
+package com.sentinelgate.utils;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Failed-login tracking per username and per client ip, with exponential backoff once a
+ * threshold is crossed.
+ *
+ * The check before a login only reads a bounded local LRU map, so blocked attempts never reach
+ * MySQL or the password decrypt. Failures are counted in redis so all nodes see the same count,
+ * and a new block is pushed to the other nodes over pub/sub. Without redis every node counts on
+ * its own.
+ */
+@Component
+public class LoginThrottleUtils implements MessageListener {
+
+    // "B|key|blockedUntilMs|failures" block, "C|key" clear
+    public static final String CHANNEL = "login-throttle";
+
+    private static final String KEY_PREFIX = "LT_";
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    @Autowired
+    private RedisShardRouter redisShardRouter;
+
+    @Autowired
+    private RedisSubscriptions redisSubscriptions;
+
+    private Map<String, Attempts> attempts;
+
+    Logger log = LoggerFactory.getLogger(LoginThrottleUtils.class);
+
+    @PostConstruct
+    public void init() {
+        int maxEntries = configUtils.getLoginThrottleMaxEntries();
+        // access ordered, floods of distinct usernames evict the least recently seen entries
+        attempts = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Attempts> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        if (configUtils.getLoginThrottleEnabled()) {
+            redisSubscriptions.subscribe(this, CHANNEL);
+        }
+    }
+
+    /**
+     * @return milliseconds until the username or ip may try again, 0 if not blocked
+     */
+    public long retryAfterMs(String username, String remoteAddress) {
+        if (!configUtils.getLoginThrottleEnabled()) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        return Math.max(blockedFor(userKey(username), now), remoteAddress == null ? 0 : blockedFor(ipKey(remoteAddress), now));
+    }
+
+    public void recordFailure(String username, String remoteAddress) {
+        if (!configUtils.getLoginThrottleEnabled()) {
+            return;
+        }
+        fail(userKey(username), configUtils.getLoginThrottleUserThreshold());
+        if (remoteAddress != null) {
+            fail(ipKey(remoteAddress), configUtils.getLoginThrottleIpThreshold());
+        }
+    }
+
+    /**
+     * Clears the username's failures, the ip keeps its count since other users may share it.
+     */
+    public void recordSuccess(String username) {
+        if (!configUtils.getLoginThrottleEnabled()) {
+            return;
+        }
+        String key = userKey(username);
+        if (attempts.remove(key) == null) {
+            // nothing failed here recently, skip the redis round trip on the common path
+            return;
+        }
+        try {
+            String redisKey = RedisUtils.taggedKey(KEY_PREFIX, key);
+            RedisTemplate<String, String> template = redisShardRouter.templateFor(redisKey);
+            template.delete(redisKey);
+            template.convertAndSend(CHANNEL, "C|" + key);
+        } catch (Exception e) {
+            log.warn("Could not clear login failures in redis: {}", e.getMessage());
+        }
+    }
+
+    private long blockedFor(String key, long now) {
+        Attempts entry = attempts.get(key);
+        return entry == null ? 0 : Math.max(0, entry.blockedUntilMs - now);
+    }
+
+    private void fail(String key, int threshold) {
+        long now = System.currentTimeMillis();
+        long windowMs = configUtils.getLoginThrottleWindowMs();
+        String redisKey = RedisUtils.taggedKey(KEY_PREFIX, key);
+        RedisTemplate<String, String> template = redisShardRouter.templateFor(redisKey);
+        long failures;
+        boolean shared = true;
+        try {
+            failures = template.opsForValue().increment(redisKey);
+            template.expire(redisKey, Duration.ofMillis(windowMs));
+        } catch (Exception e) {
+            shared = false;
+            Attempts previous = attempts.get(key);
+            failures = previous == null || now - previous.lastFailureMs > windowMs ? 1 : previous.failures + 1;
+        }
+
+        long blockedUntilMs = failures >= threshold ? now + delayMs(failures - threshold) : 0;
+        attempts.put(key, new Attempts(failures, blockedUntilMs, now));
+        if (blockedUntilMs > 0 && shared) {
+            try {
+                template.convertAndSend(CHANNEL, "B|" + key + "|" + blockedUntilMs + "|" + failures);
+            } catch (Exception e) {
+                log.warn("Could not publish login block: {}", e.getMessage());
+            }
+        }
+    }
+
+    private long delayMs(long failuresOverThreshold) {
+        long base = configUtils.getLoginThrottleBaseDelayMs();
+        long max = configUtils.getLoginThrottleMaxDelayMs();
+        int shift = (int) Math.min(failuresOverThreshold, 30);
+        return Math.min(max, base << shift);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        // usernames may contain '|', the numbers are taken from the end
+        if (body.startsWith("B|")) {
+            int failuresAt = body.lastIndexOf('|');
+            int blockedUntilAt = body.lastIndexOf('|', failuresAt - 1);
+            String key = body.substring(2, blockedUntilAt);
+            Attempts update = new Attempts(Long.parseLong(body.substring(failuresAt + 1)),
+                    Long.parseLong(body.substring(blockedUntilAt + 1, failuresAt)), System.currentTimeMillis());
+            attempts.merge(key, update, (current, next) -> current.blockedUntilMs >= next.blockedUntilMs ? current : next);
+        } else if (body.startsWith("C|")) {
+            attempts.remove(body.substring(2));
+        }
+    }
+
+    private static String userKey(String username) {
+        return "u:" + username;
+    }
+
+    private static String ipKey(String remoteAddress) {
+        return "ip:" + remoteAddress;
+    }
+
+    private static class Attempts {
+        private final long failures;
+        private final long blockedUntilMs;
+        private final long lastFailureMs;
+
+        Attempts(long failures, long blockedUntilMs, long lastFailureMs) {
+            this.failures = failures;
+            this.blockedUntilMs = blockedUntilMs;
+            this.lastFailureMs = lastFailureMs;
+        }
+    }
+}
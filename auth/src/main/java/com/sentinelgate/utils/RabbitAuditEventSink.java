@@ -0,0 +1,47 @@
+package com.sentinelgate.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.AuditEvent;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.List;
+
+/**
+ * Publishes a batch as one persistent JSON array message and waits for the broker's publisher
+ * confirm (needs spring.rabbitmq.publisher-confirm-type=simple).
+ */
+public class RabbitAuditEventSink implements AuditEventSink {
+
+    public static final String EVENT_COUNT_HEADER = "x-event-count";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final ConfigUtils configUtils;
+
+    public RabbitAuditEventSink(RabbitTemplate rabbitTemplate, ObjectMapper objectMapper, ConfigUtils configUtils) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.configUtils = configUtils;
+    }
+
+    @Override
+    public void publish(List<AuditEvent> batch) throws Exception {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setHeader(EVENT_COUNT_HEADER, batch.size());
+        Message message = new Message(objectMapper.writeValueAsBytes(batch), properties);
+
+        // send and confirm on the same channel
+        rabbitTemplate.invoke(operations -> {
+            operations.send(configUtils.getAuditExchange(), configUtils.getAuditRoutingKey(), message);
+            operations.waitForConfirmsOrDie(configUtils.getAuditConfirmTimeoutMs());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,40 @@
+-- MySQL schema of the auth module. hibernate ddl-auto is off under the prod profile, apply this
+-- once per database (or boot one node with spring.sql.init.mode=always), every statement is idempotent.
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS api_keys (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    key_hash VARCHAR(64) NOT NULL,
+    key_prefix VARCHAR(12) NOT NULL,
+    owner VARCHAR(255) NOT NULL,
+    tier VARCHAR(255) NOT NULL,
+    revoked BIT(1) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_api_keys_key_hash UNIQUE (key_hash)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS usage_counters (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    identity VARCHAR(255) NOT NULL,
+    route VARCHAR(255) NOT NULL,
+    day DATE NOT NULL,
+    request_count BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_usage_counters_identity_route_day UNIQUE (identity, route, day)
+) ENGINE = InnoDB;
+
+-- redis usage claims already added to usage_counters, pruned after a week
+CREATE TABLE IF NOT EXISTS usage_applied_claims (
+    claim_id VARCHAR(128) NOT NULL,
+    applied_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (claim_id),
+    INDEX idx_usage_applied_claims_applied_at (applied_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,113 @@
+package com.sentinelgate.database.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    private ReplicaRoutingDataSource routing;
+
+    private JdbcTemplate jdbc;
+
+    private TransactionTemplate reads;
+
+    private TransactionTemplate writes;
+
+    @BeforeEach
+    void setUp() {
+        String id = UUID.randomUUID().toString();
+        DataSource primaryDataSource = new DriverManagerDataSource("jdbc:h2:mem:primary-" + id + ";DB_CLOSE_DELAY=-1");
+        DataSource replicaDataSource = new DriverManagerDataSource("jdbc:h2:mem:replica-" + id + ";DB_CLOSE_DELAY=-1");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        for (JdbcTemplate db : List.of(primary, replica)) {
+            db.execute("CREATE TABLE users (username VARCHAR(64))");
+        }
+        replica.execute("CREATE TABLE replica_lag (seconds INT)");
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+
+        routing = new ReplicaRoutingDataSource(primaryDataSource, List.of(replicaDataSource), 5, "SELECT seconds FROM replica_lag");
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        reads = new TransactionTemplate(transactionManager);
+        reads.setReadOnly(true);
+        writes = new TransactionTemplate(transactionManager);
+    }
+
+    private Integer countOnRead(String username) {
+        return reads.execute(status -> jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE username = ?", Integer.class, username));
+    }
+
+    @Test
+    void writesGoToPrimaryAndReadsToHealthyReplica() {
+        routing.checkReplicas();
+        writes.executeWithoutResult(status -> jdbc.update("INSERT INTO users VALUES ('alice')"));
+        replica.update("INSERT INTO users VALUES ('bob')");
+
+        assertEquals(1, primary.queryForObject("SELECT COUNT(*) FROM users WHERE username = 'alice'", Integer.class));
+        assertEquals(0, countOnRead("alice"));
+        assertEquals(1, countOnRead("bob"));
+    }
+
+    @Test
+    void replicasAreSkippedUntilCheckedAndWhileLagging() {
+        primary.update("INSERT INTO users VALUES ('alice')");
+        assertEquals(1, countOnRead("alice"));
+
+        routing.checkReplicas();
+        assertEquals(0, countOnRead("alice"));
+
+        replica.update("UPDATE replica_lag SET seconds = 30");
+        routing.checkReplicas();
+        assertEquals(1, countOnRead("alice"));
+        assertEquals(Map.of("replica-0", Map.of("healthy", false, "lagSeconds", 30L)), routing.getStats());
+
+        replica.update("UPDATE replica_lag SET seconds = 1");
+        routing.checkReplicas();
+        assertEquals(0, countOnRead("alice"));
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() {
+        DataSource down = new DriverManagerDataSource("jdbc:h2:tcp://127.0.0.1:1/nowhere");
+        routing = new ReplicaRoutingDataSource(primary.getDataSource(), List.of(down), 5, "SELECT 0");
+        routing.afterPropertiesSet();
+        routing.checkReplicas();
+        jdbc = new JdbcTemplate(new LazyConnectionDataSourceProxy(routing));
+        reads = new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
+        reads.setReadOnly(true);
+
+        primary.update("INSERT INTO users VALUES ('alice')");
+        assertEquals(1, countOnRead("alice"));
+        // no lag known while unreachable
+        assertEquals(Map.of("replica-0", Map.of("healthy", false, "lagSeconds", -1L)), routing.getStats());
+    }
+
+    @Test
+    void readAfterWriteUsesPrimary() {
+        routing.checkReplicas();
+        writes.executeWithoutResult(status -> jdbc.update("INSERT INTO users VALUES ('alice')"));
+
+        assertEquals(0, countOnRead("alice"));
+        assertEquals(1, ReplicaRoutingDataSource.onPrimary(() -> countOnRead("alice")));
+        assertEquals(0, countOnRead("alice"));
+    }
+}
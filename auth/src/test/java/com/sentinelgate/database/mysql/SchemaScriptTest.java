@@ -0,0 +1,58 @@
+package com.sentinelgate.database.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Applies the shipped schema to H2 in MySQL mode, the prod profile relies on it instead of ddl-auto.
+ */
+class SchemaScriptTest {
+
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:schema-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=DAY;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        apply();
+    }
+
+    private void apply() {
+        new ResourceDatabasePopulator(new ClassPathResource("db/schema-mysql.sql")).execute(dataSource);
+    }
+
+    @Test
+    void scriptCanBeAppliedTwice() {
+        jdbc.update("INSERT INTO users (username, password) VALUES ('alice', 'x')");
+        apply();
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+
+    @Test
+    void usernamesAreUnique() {
+        jdbc.update("INSERT INTO users (username, password) VALUES ('alice', 'x')");
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbc.update("INSERT INTO users (username, password) VALUES ('alice', 'y')"));
+    }
+
+    @Test
+    void apiKeyHashesAreUnique() {
+        String insert = "INSERT INTO api_keys (key_hash, key_prefix, owner, tier, revoked, created_at) VALUES ('h1', 'sgk_abcdefgh', ?, 'free', FALSE, CURRENT_TIMESTAMP)";
+        jdbc.update(insert, "alice");
+        apply();
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM api_keys WHERE revoked = FALSE", Integer.class));
+        assertThrows(DataIntegrityViolationException.class, () -> jdbc.update(insert, "bob"));
+    }
+}
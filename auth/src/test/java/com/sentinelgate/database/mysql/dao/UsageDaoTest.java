@@ -0,0 +1,83 @@
+package com.sentinelgate.database.mysql.dao;
+
+import com.sentinelgate.database.mysql.entity.UsageCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against the shipped schema on H2 in MySQL mode.
+ */
+class UsageDaoTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 1, 15);
+
+    private UsageDao usageDao;
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        // "day" is only a keyword in H2
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:usage-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=DAY;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("db/schema-mysql.sql")).execute(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        usageDao = new UsageDao();
+        usageDao.jdbcTemplate = jdbc;
+    }
+
+    private static UsageCounter counter(String identity, String route, long count) {
+        return UsageCounter.builder().identity(identity).route(route).day(DAY).requestCount(count).build();
+    }
+
+    private long count(String identity, String route) {
+        return jdbc.queryForObject("SELECT request_count FROM usage_counters WHERE identity = ? AND route = ? AND day = ?",
+                Long.class, identity, route, DAY);
+    }
+
+    @Test
+    void claimsAreAppliedOnlyOnce() {
+        List<UsageCounter> deltas = List.of(counter("user:alice", "product", 3), counter("user:bob", "product", 1));
+
+        assertTrue(usageDao.applyClaim("claim-1", deltas));
+        assertFalse(usageDao.applyClaim("claim-1", deltas));
+        assertEquals(3, count("user:alice", "product"));
+        assertEquals(1, count("user:bob", "product"));
+
+        assertTrue(usageDao.applyClaim("claim-2", List.of(counter("user:alice", "product", 2))));
+        assertEquals(5, count("user:alice", "product"));
+    }
+
+    @Test
+    void countersAreUniquePerIdentityRouteAndDay() {
+        assertThrows(DataIntegrityViolationException.class, () -> jdbc.update(
+                "INSERT INTO usage_counters (identity, route, day, request_count) VALUES ('a', 'r', '2026-01-15', 1), ('a', 'r', '2026-01-15', 1)"));
+        usageDao.batchAdd(List.of(counter("a", "r", 1)));
+        usageDao.batchAdd(List.of(counter("a", "r", 4)));
+        assertEquals(5, count("a", "r"));
+    }
+
+    @Test
+    void oldClaimIdsArePruned() {
+        usageDao.applyClaim("old", List.of());
+        jdbc.update("UPDATE usage_applied_claims SET applied_at = ? WHERE claim_id = 'old'", Timestamp.from(Instant.now().minus(8, ChronoUnit.DAYS)));
+        usageDao.applyClaim("new", List.of());
+
+        assertEquals(1, usageDao.pruneAppliedClaims(Instant.now().minus(7, ChronoUnit.DAYS)));
+        assertEquals(List.of("new"), jdbc.queryForList("SELECT claim_id FROM usage_applied_claims", String.class));
+    }
+}
@@ -0,0 +1,112 @@
+package com.sentinelgate.manager;
+
+import com.sentinelgate.database.mysql.dao.ApiKeyDao;
+import com.sentinelgate.database.mysql.entity.ApiKey;
+import com.sentinelgate.pojo.ApiKeyEntry;
+import com.sentinelgate.response.ApiKeyResponse;
+import com.sentinelgate.utils.ApiKeyIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ApiKeyManagerTest {
+
+    private ApiKeyManager manager;
+
+    private ApiKeyDao apiKeyDao;
+
+    private ApiKeyIndex apiKeyIndex;
+
+    @BeforeEach
+    void setUp() {
+        manager = new ApiKeyManager();
+        apiKeyDao = mock(ApiKeyDao.class);
+        apiKeyIndex = mock(ApiKeyIndex.class);
+        when(apiKeyIndex.isKnownTier("free")).thenReturn(true);
+        when(apiKeyDao.save(any())).thenAnswer(invocation -> {
+            ApiKey apiKey = invocation.getArgument(0);
+            if (apiKey.getId() == null) {
+                apiKey.setId(7L);
+            }
+            return apiKey;
+        });
+        manager.apiKeyDao = apiKeyDao;
+        manager.apiKeyIndex = apiKeyIndex;
+    }
+
+    private static ApiKey stored(long id, String hash, boolean revoked) {
+        return ApiKey.builder().id(id).keyHash(hash).keyPrefix("sgk_abcdefgh").owner("alice").tier("free")
+                .revoked(revoked).createdAt(Instant.now()).build();
+    }
+
+    @Test
+    void createStoresOnlyTheHashAndPublishes() {
+        ResponseEntity<ApiKeyResponse> response = manager.create("alice", "free");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String key = response.getBody().getKey();
+        assertTrue(key.startsWith(ApiKeyManager.KEY_PREFIX));
+        ArgumentCaptor<ApiKey> saved = ArgumentCaptor.forClass(ApiKey.class);
+        verify(apiKeyDao).save(saved.capture());
+        assertEquals(ApiKeyIndex.hash(key), saved.getValue().getKeyHash());
+        assertEquals(key.substring(0, 12), saved.getValue().getKeyPrefix());
+        assertFalse(saved.getValue().getRevoked());
+        verify(apiKeyIndex).put(new ApiKeyEntry(ApiKeyIndex.hash(key), "free", "alice"));
+    }
+
+    @Test
+    void createRejectsMissingOwnerAndUnknownTier() {
+        assertEquals(HttpStatus.BAD_REQUEST, manager.create(" ", "free").getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, manager.create("alice", "gold").getStatusCode());
+        verifyNoInteractions(apiKeyDao);
+    }
+
+    @Test
+    void createSucceedsWhenRedisIsDown() {
+        doThrow(new IllegalStateException("redis down")).when(apiKeyIndex).put(any());
+        // the key is in MySQL, the next sync publishes it
+        assertEquals(HttpStatus.OK, manager.create("alice", "free").getStatusCode());
+    }
+
+    @Test
+    void revokeMarksTheRowAndRemovesTheHash() {
+        ApiKey apiKey = stored(3L, "h3", false);
+        when(apiKeyDao.findById(3L)).thenReturn(Optional.of(apiKey));
+
+        assertEquals(HttpStatus.OK, manager.revoke(3L).getStatusCode());
+        assertTrue(apiKey.getRevoked());
+        verify(apiKeyDao).save(apiKey);
+        verify(apiKeyIndex).remove("h3");
+
+        assertEquals(HttpStatus.NOT_FOUND, manager.revoke(4L).getStatusCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void syncRechecksDifferencesAgainstTheDatabase() {
+        when(apiKeyDao.findAllByRevokedFalse()).thenReturn(List.of(stored(1L, "h1", false)));
+        when(apiKeyDao.findAllByKeyHashInAndRevokedFalse(anyCollection())).thenReturn(List.of(stored(2L, "h2", false)));
+
+        manager.sync();
+
+        ArgumentCaptor<Collection<ApiKeyEntry>> active = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Function<Collection<String>, Set<String>>> stillActive = ArgumentCaptor.forClass(Function.class);
+        verify(apiKeyIndex).replaceAll(active.capture(), stillActive.capture());
+        assertEquals(List.of(new ApiKeyEntry("h1", "free", "alice")), List.copyOf(active.getValue()));
+        assertEquals(Set.of("h2"), stillActive.getValue().apply(List.of("h2", "h9")));
+        verify(apiKeyDao).findAllByKeyHashInAndRevokedFalse(List.of("h2", "h9"));
+    }
+}
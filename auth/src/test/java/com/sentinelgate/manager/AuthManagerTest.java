@@ -0,0 +1,130 @@
+package com.sentinelgate.manager;
+
+import com.sentinelgate.database.mysql.dao.UserDao;
+import com.sentinelgate.database.mysql.entity.User;
+import com.sentinelgate.pojo.AuditEvent;
+import com.sentinelgate.utils.AuditEventUtils;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.EncryptionUtils;
+import com.sentinelgate.utils.JwtUtils;
+import com.sentinelgate.utils.LoginThrottleUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AuthManagerTest {
+
+    private AuthManager authManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        authManager = new AuthManager();
+        authManager.userDao = mock(UserDao.class);
+        authManager.encryptionUtils = mock(EncryptionUtils.class);
+        authManager.jwtUtils = mock(JwtUtils.class);
+        authManager.auditEventUtils = mock(AuditEventUtils.class);
+        authManager.loginThrottleUtils = mock(LoginThrottleUtils.class);
+        authManager.configUtils = mock(ConfigUtils.class);
+        when(authManager.configUtils.getDatasourceRoutingEnabled()).thenReturn(false);
+        User alice = new User();
+        alice.setUsername("alice");
+        alice.setPassword("enc");
+        when(authManager.userDao.findFirstByUsername("alice")).thenReturn(Optional.of(alice));
+        when(authManager.userDao.findFirstByUsername("nobody")).thenReturn(Optional.empty());
+        when(authManager.encryptionUtils.decrypt("enc")).thenReturn("secret");
+        when(authManager.jwtUtils.generateToken(alice)).thenReturn("jwt");
+    }
+
+    private AuditEvent lastEvent() {
+        ArgumentCaptor<AuditEvent> event = ArgumentCaptor.forClass(AuditEvent.class);
+        verify(authManager.auditEventUtils).record(event.capture());
+        return event.getValue();
+    }
+
+    @Test
+    void successIsAudited() {
+        assertEquals(HttpStatus.OK, authManager.login("alice", "secret", "10.0.0.1").getStatusCode());
+        AuditEvent event = lastEvent();
+        assertEquals(AuditEvent.LOGIN_SUCCESS, event.getType());
+        assertEquals("10.0.0.1", event.getRemoteAddress());
+        verify(authManager.loginThrottleUtils).recordSuccess("alice");
+    }
+
+    @Test
+    void wrongPasswordAndUnknownUserAreAuditedAndThrottled() {
+        assertEquals(HttpStatus.UNAUTHORIZED, authManager.login("alice", "guess", "10.0.0.1").getStatusCode());
+        assertEquals("wrong password", lastEvent().getDetail());
+        reset(authManager.auditEventUtils);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, authManager.login("nobody", "guess", "10.0.0.1").getStatusCode());
+        assertEquals("unknown user", lastEvent().getDetail());
+        verify(authManager.loginThrottleUtils).recordFailure("alice", "10.0.0.1");
+        verify(authManager.loginThrottleUtils).recordFailure("nobody", "10.0.0.1");
+    }
+
+    @Test
+    void throttledAttemptsAreAudited() {
+        when(authManager.loginThrottleUtils.retryAfterMs("alice", "10.0.0.1")).thenReturn(1500L);
+        var response = authManager.login("alice", "secret", "10.0.0.1");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst("Retry-After"));
+        assertEquals("throttled", lastEvent().getDetail());
+        verifyNoInteractions(authManager.userDao);
+    }
+
+    @Test
+    void errorsAreAuditedAsFailures() {
+        when(authManager.userDao.findFirstByUsername("alice")).thenThrow(new QueryTimeoutException("db down"));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, authManager.login("alice", "secret", "10.0.0.1").getStatusCode());
+        AuditEvent event = lastEvent();
+        assertEquals(AuditEvent.LOGIN_FAILURE, event.getType());
+        assertEquals("alice", event.getUsername());
+        assertEquals("error: QueryTimeoutException", event.getDetail());
+    }
+
+    @Test
+    void signupOfExistingUserIsAConflictWithoutPasswordCheck() {
+        for (String password : new String[]{"secret", "guess"}) {
+            var response = authManager.signup("alice", password, "10.0.0.1");
+            assertEquals(HttpStatus.CONFLICT, response.getStatusCode(), password);
+            assertNull(response.getBody().getToken(), password);
+        }
+        verifyNoInteractions(authManager.encryptionUtils, authManager.jwtUtils);
+        verify(authManager.userDao, never()).save(any());
+    }
+
+    @Test
+    void signupIsTurnedAwayWhileThrottled() {
+        when(authManager.loginThrottleUtils.retryAfterMs("alice", "10.0.0.1")).thenReturn(1500L);
+        var response = authManager.signup("alice", "guess", "10.0.0.1");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst("Retry-After"));
+        verifyNoInteractions(authManager.userDao, authManager.encryptionUtils);
+    }
+
+    @Test
+    void signupCreatesNewUsers() throws Exception {
+        when(authManager.encryptionUtils.encrypt("pw")).thenReturn("enc-pw");
+        when(authManager.userDao.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(authManager.jwtUtils.generateToken(any())).thenReturn("jwt-new");
+        var response = authManager.signup("nobody", "pw", "10.0.0.1");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("jwt-new", response.getBody().getToken());
+    }
+
+    @Test
+    void concurrentSignupForTheSameNameIsAConflict() throws Exception {
+        when(authManager.encryptionUtils.encrypt("pw")).thenReturn("enc-pw");
+        when(authManager.userDao.save(any())).thenThrow(new DataIntegrityViolationException("uk_users_username"));
+        assertEquals(HttpStatus.CONFLICT, authManager.signup("nobody", "pw", "10.0.0.1").getStatusCode());
+    }
+}
@@ -0,0 +1,104 @@
+package com.sentinelgate.manager;
+
+import com.sentinelgate.database.mysql.dao.UsageDao;
+import com.sentinelgate.database.mysql.entity.UsageCounter;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.UsageQuotaUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UsagePersistenceManagerTest {
+
+    private UsagePersistenceManager manager;
+
+    private UsageQuotaUtils usageQuotaUtils;
+
+    private UsageDao usageDao;
+
+    @BeforeEach
+    void setUp() {
+        manager = new UsagePersistenceManager();
+        usageQuotaUtils = mock(UsageQuotaUtils.class);
+        usageDao = mock(UsageDao.class);
+        when(usageDao.applyClaim(anyString(), anyList())).thenReturn(true);
+        when(usageQuotaUtils.findClaims()).thenReturn(List.of());
+        when(usageQuotaUtils.readClaim(anyString())).thenReturn(Map.of("20260115|user:a|b|product", 3L));
+        manager.usageQuotaUtils = usageQuotaUtils;
+        manager.usageDao = usageDao;
+        manager.configUtils = mock(ConfigUtils.class);
+        when(manager.configUtils.getUsageQuotaEnabled()).thenReturn(true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claimIsParsedAppliedAndDeleted() {
+        when(usageQuotaUtils.claimPending()).thenReturn("claim-1");
+
+        manager.persist();
+
+        ArgumentCaptor<List<UsageCounter>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(usageDao).applyClaim(eq("claim-1"), deltas.capture());
+        UsageCounter counter = deltas.getValue().get(0);
+        assertEquals(LocalDate.of(2026, 1, 15), counter.getDay());
+        assertEquals("user:a|b", counter.getIdentity());
+        assertEquals("product", counter.getRoute());
+        assertEquals(3L, counter.getRequestCount());
+        verify(usageQuotaUtils).deleteClaim("claim-1");
+    }
+
+    @Test
+    void failedDeleteRetriesTheSameClaimWithoutCountingItAgain() {
+        when(usageQuotaUtils.claimPending()).thenReturn("claim-1", (String) null);
+        doThrow(new RedisConnectionFailureException("redis down")).doNothing().when(usageQuotaUtils).deleteClaim("claim-1");
+
+        manager.persist();
+        // committed, but still in redis; the dao recognizes the claim id
+        when(usageDao.applyClaim(eq("claim-1"), anyList())).thenReturn(false);
+        manager.persist();
+
+        verify(usageDao, times(2)).applyClaim(eq("claim-1"), anyList());
+        verify(usageQuotaUtils, times(2)).deleteClaim("claim-1");
+        verify(usageDao, never()).batchAdd(anyList());
+    }
+
+    @Test
+    void leftoverClaimsAreRecoveredOnceRedisIsReachable() {
+        when(usageQuotaUtils.findClaims())
+                .thenThrow(new RedisConnectionFailureException("redis down"))
+                .thenReturn(List.of("claim-old"));
+
+        manager.persist();
+        verify(usageDao, never()).applyClaim(anyString(), anyList());
+
+        manager.persist();
+        manager.persist();
+        verify(usageDao).applyClaim(eq("claim-old"), anyList());
+        verify(usageQuotaUtils).deleteClaim("claim-old");
+        verify(usageQuotaUtils, times(2)).findClaims();
+    }
+
+    @Test
+    void failedInsertIsRetriedBeforeNewClaims() {
+        when(usageQuotaUtils.claimPending()).thenReturn("claim-1", "claim-2");
+        when(usageDao.applyClaim(eq("claim-1"), anyList())).thenThrow(new IllegalStateException("db down")).thenReturn(true);
+
+        manager.persist();
+        verify(usageQuotaUtils, never()).deleteClaim("claim-1");
+
+        manager.persist();
+        var order = inOrder(usageDao);
+        order.verify(usageDao, times(2)).applyClaim(eq("claim-1"), anyList());
+        order.verify(usageDao).applyClaim(eq("claim-2"), anyList());
+        verify(usageQuotaUtils).deleteClaim("claim-1");
+    }
+}
@@ -0,0 +1,164 @@
+package com.sentinelgate.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.database.mysql.dao.UserBatchDao;
+import com.sentinelgate.database.mysql.entity.User;
+import com.sentinelgate.response.BulkUserResult;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.EncryptionUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserProvisioningManagerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private UserProvisioningManager manager;
+
+    private UserBatchDao userBatchDao;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        manager = new UserProvisioningManager();
+        userBatchDao = mock(UserBatchDao.class);
+        when(userBatchDao.findExistingUsernames(anyCollection())).thenReturn(Set.of());
+        manager.userBatchDao = userBatchDao;
+        manager.encryptionUtils = mock(EncryptionUtils.class);
+        when(manager.encryptionUtils.encrypt(anyString())).thenAnswer(invocation -> "enc:" + invocation.getArgument(0));
+        manager.objectMapper = objectMapper;
+        manager.configUtils = mock(ConfigUtils.class);
+        when(manager.configUtils.getBulkImportBatchSize()).thenReturn(3);
+        when(manager.configUtils.getBulkImportEncryptParallelism()).thenReturn(2);
+        manager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.destroy();
+    }
+
+    private static String user(String username) {
+        return "{\"username\":\"" + username + "\",\"password\":\"pw-" + username + "\"}";
+    }
+
+    // result lines and the number of lines written at every flush
+    private List<BulkUserResult> run(List<Integer> flushedLines, String... lines) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushedLines.add((int) toString(StandardCharsets.UTF_8).chars().filter(c -> c == '\n').count());
+            }
+        };
+        manager.bulkImport(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)), output);
+        List<BulkUserResult> results = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add(objectMapper.readValue(line, BulkUserResult.class));
+        }
+        return results;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void linesAreInsertedAndStreamedBackPerChunk() throws Exception {
+        List<Integer> flushes = new ArrayList<>();
+        List<BulkUserResult> results = run(flushes, user("u1"), user("u2"), user("u3"), user("u4"), user("u5"), user("u6"), user("u7"));
+
+        assertEquals(7, results.size());
+        for (int i = 0; i < 7; i++) {
+            assertEquals(i + 1, results.get(i).getLine());
+            assertEquals("u" + (i + 1), results.get(i).getUsername());
+            assertEquals(BulkUserResult.CREATED, results.get(i).getStatus());
+        }
+        // one lookup and one batch per chunk, results go out as soon as their chunk is done
+        assertEquals(List.of(3, 6, 7), flushes);
+        verify(userBatchDao, times(3)).findExistingUsernames(anyCollection());
+        ArgumentCaptor<List<User>> batches = ArgumentCaptor.forClass(List.class);
+        verify(userBatchDao, times(3)).batchInsert(batches.capture());
+        assertEquals(List.of(3, 3, 1), batches.getAllValues().stream().map(List::size).toList());
+        assertEquals("enc:pw-u1", batches.getAllValues().get(0).get(0).getPassword());
+        verify(userBatchDao, never()).insert(any());
+    }
+
+    @Test
+    void conflictingBatchFallsBackToRowByRow() throws Exception {
+        doThrow(new DataIntegrityViolationException("duplicate")).when(userBatchDao).batchInsert(anyList());
+        doThrow(new DataIntegrityViolationException("duplicate")).when(userBatchDao).insert(argThat(user -> "bob".equals(user.getUsername())));
+
+        List<BulkUserResult> results = run(new ArrayList<>(), user("alice"), user("bob"), user("carol"));
+
+        assertEquals(List.of(BulkUserResult.CREATED, BulkUserResult.EXISTS, BulkUserResult.CREATED),
+                results.stream().map(BulkUserResult::getStatus).toList());
+        verify(userBatchDao, times(3)).insert(any());
+    }
+
+    @Test
+    void otherBatchErrorsFailTheWholeChunkOnly() throws Exception {
+        doThrow(new QueryTimeoutException("timeout")).doNothing().when(userBatchDao).batchInsert(anyList());
+
+        List<BulkUserResult> results = run(new ArrayList<>(), user("a"), user("b"), user("c"), user("d"));
+
+        assertEquals(List.of(BulkUserResult.FAILED, BulkUserResult.FAILED, BulkUserResult.FAILED, BulkUserResult.CREATED),
+                results.stream().map(BulkUserResult::getStatus).toList());
+        verify(userBatchDao, never()).insert(any());
+    }
+
+    @Test
+    void everyBadLineGetsItsOwnResult() throws Exception {
+        when(userBatchDao.findExistingUsernames(anyCollection())).thenReturn(Set.of("taken"));
+
+        List<BulkUserResult> results = run(new ArrayList<>(),
+                user("ok"),
+                "{not json",
+                "",
+                user("ok"),
+                "{\"username\":\"nopass\"}",
+                user("taken"));
+
+        // the blank line has no result but still counts for line numbers
+        assertEquals(List.of(1L, 2L, 4L, 5L, 6L), results.stream().map(BulkUserResult::getLine).toList());
+        assertEquals(Arrays.asList(BulkUserResult.CREATED, BulkUserResult.INVALID, BulkUserResult.DUPLICATE, BulkUserResult.INVALID, BulkUserResult.EXISTS),
+                results.stream().map(BulkUserResult::getStatus).toList());
+        assertEquals("Malformed JSON line", results.get(1).getMessage());
+        assertNull(results.get(1).getUsername());
+        assertEquals("nopass", results.get(3).getUsername());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void repeatsInLaterChunksAreReportedAsExisting() throws Exception {
+        // stands in for the users table
+        Set<String> inserted = new HashSet<>();
+        doAnswer(invocation -> {
+            ((List<User>) invocation.getArgument(0)).forEach(user -> inserted.add(user.getUsername()));
+            return null;
+        }).when(userBatchDao).batchInsert(anyList());
+        when(userBatchDao.findExistingUsernames(anyCollection())).thenAnswer(invocation -> {
+            Set<String> existing = new HashSet<>((Collection<String>) invocation.getArgument(0));
+            existing.retainAll(inserted);
+            return existing;
+        });
+
+        List<BulkUserResult> results = run(new ArrayList<>(), user("a"), user("b"), user("c"), user("b"), user("d"));
+
+        assertEquals(List.of(BulkUserResult.CREATED, BulkUserResult.CREATED, BulkUserResult.CREATED, BulkUserResult.EXISTS, BulkUserResult.CREATED),
+                results.stream().map(BulkUserResult::getStatus).toList());
+    }
+}
@@ -0,0 +1,157 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoginThrottleUtilsTest {
+
+    private LoginThrottleUtils loginThrottleUtils;
+
+    private ConfigUtils configUtils;
+
+    private RedisTemplate<String, String> template;
+
+    // shared failure counts, what INCR would return
+    private final Map<String, Long> counts = new HashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        loginThrottleUtils = new LoginThrottleUtils();
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getLoginThrottleEnabled()).thenReturn(true);
+        when(configUtils.getLoginThrottleUserThreshold()).thenReturn(3);
+        when(configUtils.getLoginThrottleIpThreshold()).thenReturn(100);
+        when(configUtils.getLoginThrottleBaseDelayMs()).thenReturn(1000L);
+        when(configUtils.getLoginThrottleMaxDelayMs()).thenReturn(10_000L);
+        when(configUtils.getLoginThrottleWindowMs()).thenReturn(60_000L);
+        when(configUtils.getLoginThrottleMaxEntries()).thenReturn(3);
+
+        template = mock(RedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(values);
+        when(values.increment(anyString())).thenAnswer(invocation -> counts.merge(invocation.getArgument(0), 1L, Long::sum));
+        RedisShardRouter redisShardRouter = mock(RedisShardRouter.class);
+        when(redisShardRouter.templateFor(anyString())).thenReturn(template);
+
+        ReflectionTestUtils.setField(loginThrottleUtils, "configUtils", configUtils);
+        ReflectionTestUtils.setField(loginThrottleUtils, "redisShardRouter", redisShardRouter);
+        ReflectionTestUtils.setField(loginThrottleUtils, "redisSubscriptions", mock(RedisSubscriptions.class));
+        loginThrottleUtils.init();
+    }
+
+    private void fail(String username, int times) {
+        for (int i = 0; i < times; i++) {
+            loginThrottleUtils.recordFailure(username, null);
+        }
+    }
+
+    private void message(String body) {
+        loginThrottleUtils.onMessage(new DefaultMessage(LoginThrottleUtils.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    // retry-after rounded to whole seconds, the test runs well within a second
+    private long retryAfterSeconds(String username) {
+        return (loginThrottleUtils.retryAfterMs(username, null) + 999) / 1000;
+    }
+
+    @Test
+    void backoffDoublesFromTheThresholdUpToTheMaximum() {
+        fail("alice", 2);
+        assertEquals(0, loginThrottleUtils.retryAfterMs("alice", null));
+
+        fail("alice", 1);
+        assertEquals(1, retryAfterSeconds("alice"));
+        fail("alice", 1);
+        assertEquals(2, retryAfterSeconds("alice"));
+        fail("alice", 1);
+        assertEquals(4, retryAfterSeconds("alice"));
+        fail("alice", 1);
+        assertEquals(8, retryAfterSeconds("alice"));
+        fail("alice", 40);
+        assertEquals(10, retryAfterSeconds("alice"));
+
+        verify(template, atLeastOnce()).convertAndSend(eq(LoginThrottleUtils.CHANNEL), startsWith("B|u:alice|"));
+    }
+
+    @Test
+    void successClearsTheUsernameButNotTheIp() {
+        when(configUtils.getLoginThrottleIpThreshold()).thenReturn(3);
+        for (int i = 0; i < 3; i++) {
+            loginThrottleUtils.recordFailure("alice", "198.51.100.1");
+        }
+        assertTrue(loginThrottleUtils.retryAfterMs("alice", "203.0.113.1") > 0);
+
+        loginThrottleUtils.recordSuccess("alice");
+        assertEquals(0, loginThrottleUtils.retryAfterMs("alice", "203.0.113.1"));
+        assertTrue(loginThrottleUtils.retryAfterMs("bob", "198.51.100.1") > 0);
+        verify(template).delete(RedisUtils.taggedKey("LT_", "u:alice"));
+        verify(template).convertAndSend(LoginThrottleUtils.CHANNEL, "C|u:alice");
+    }
+
+    @Test
+    void leastRecentlySeenEntriesAreEvicted() {
+        fail("alice", 3);
+        fail("bob", 3);
+        fail("carol", 3);
+        // touching alice makes bob the eldest
+        loginThrottleUtils.retryAfterMs("alice", null);
+        fail("dave", 3);
+
+        assertTrue(loginThrottleUtils.retryAfterMs("alice", null) > 0);
+        assertEquals(0, loginThrottleUtils.retryAfterMs("bob", null));
+        assertTrue(loginThrottleUtils.retryAfterMs("carol", null) > 0);
+        assertTrue(loginThrottleUtils.retryAfterMs("dave", null) > 0);
+    }
+
+    @Test
+    void blocksFromOtherNodesMergeKeepingTheLongest() {
+        long now = System.currentTimeMillis();
+        // usernames may contain '|'
+        message("B|u:a|b|" + (now + 5_000) + "|7");
+        assertEquals(5, retryAfterSeconds("a|b"));
+
+        message("B|u:a|b|" + (now + 2_000) + "|8");
+        assertEquals(5, retryAfterSeconds("a|b"));
+        message("B|u:a|b|" + (now + 9_000) + "|9");
+        assertEquals(9, retryAfterSeconds("a|b"));
+
+        message("C|u:a|b");
+        assertEquals(0, loginThrottleUtils.retryAfterMs("a|b", null));
+    }
+
+    @Test
+    void withoutRedisEveryNodeCountsOnItsOwn() {
+        when(template.opsForValue()).thenThrow(new RedisConnectionFailureException("redis down"));
+        fail("alice", 2);
+        assertEquals(0, loginThrottleUtils.retryAfterMs("alice", null));
+        fail("alice", 1);
+        assertEquals(1, retryAfterSeconds("alice"));
+        fail("alice", 1);
+        assertEquals(2, retryAfterSeconds("alice"));
+        // local blocks are not published
+        verify(template, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void disabledThrottleNeverBlocks() {
+        when(configUtils.getLoginThrottleEnabled()).thenReturn(false);
+        fail("alice", 10);
+        assertEquals(0, loginThrottleUtils.retryAfterMs("alice", "198.51.100.1"));
+        verifyNoInteractions(template);
+    }
+}
@@ -0,0 +1,110 @@
+package com.sentinelgate.configs;
+
+
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.RedisShardRouter;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.time.Duration;
+
+@Configuration
+public class RedisConfiguration {
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    @Bean
+    public RedisConnectionFactory redisConnectionFactory(){
+        if (RedisShardRouter.MODE_CLUSTER.equalsIgnoreCase(configUtils.getRedisMode())) {
+            RedisClusterConfiguration config = new RedisClusterConfiguration(RedisShardRouter.parseNodes(configUtils.getRedisNodes()));
+            // pick up slot migrations and failovers without a restart
+            ClusterTopologyRefreshOptions topologyRefreshOptions = ClusterTopologyRefreshOptions.builder()
+                    .enablePeriodicRefresh(Duration.ofMillis(configUtils.getRedisClusterRefreshPeriodMs()))
+                    .enableAllAdaptiveRefreshTriggers()
+                    .build();
+            LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+                    .clientOptions(ClusterClientOptions.builder().topologyRefreshOptions(topologyRefreshOptions).build())
+                    .build();
+            return new LettuceConnectionFactory(config, clientConfig);
+        }
+
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration();
+        config.setHostName(configUtils.getRedisHost());
+        config.setPort(configUtils.getRedisPort());
+        return new LettuceConnectionFactory(config);
+    }
+
+    @Bean
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory){
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        // not started with the context, start() blocks until subscribed and fails the boot while
+        // redis is down. Subscribers start it through RedisSubscriptions.ensureListening instead.
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        container.setRecoveryInterval(5000L);
+        return container;
+    }
+
+    /**
+     * Redisson connects eagerly, so the client is only created when a feature first needs it.
+     * Sharded mode uses redis.host, the semaphores it backs don't need to be spread.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @Lazy
+    public RedissonClient redissonClient() {
+        Config config = new Config();
+        if (RedisShardRouter.MODE_CLUSTER.equalsIgnoreCase(configUtils.getRedisMode())) {
+            config.useClusterServers()
+                    .setScanInterval(configUtils.getRedisClusterRefreshPeriodMs().intValue())
+                    .setConnectTimeout(2000)
+                    .setTimeout(1000)
+                    .setRetryAttempts(1)
+                    .addNodeAddress(RedisShardRouter.parseNodes(configUtils.getRedisNodes()).stream().map(node -> "redis://" + node).toArray(String[]::new));
+        } else {
+            config.useSingleServer()
+                    .setAddress("redis://" + configUtils.getRedisHost() + ":" + configUtils.getRedisPort())
+                    // callers sit on the request path, fail fast and let them fall back
+                    .setConnectTimeout(2000)
+                    .setTimeout(1000)
+                    .setRetryAttempts(1);
+        }
+        return Redisson.create(config);
+    }
+
+}
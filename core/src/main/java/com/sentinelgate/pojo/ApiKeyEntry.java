@@ -0,0 +1,36 @@
+package com.sentinelgate.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiKeyEntry {
+
+    // SHA-256 of the key, hex
+    private String hash;
+
+    // rate-limit tier, one of api-key.tiers
+    private String tier;
+
+    private String owner;
+
+    /**
+     * Redis hash value, "tier|owner".
+     */
+    public String encode() {
+        return tier + "|" + owner;
+    }
+
+    public static ApiKeyEntry decode(String hash, String value) {
+        int separator = value.indexOf('|');
+        if (separator < 0) {
+            return new ApiKeyEntry(hash, value, null);
+        }
+        return new ApiKeyEntry(hash, value.substring(0, separator), value.substring(separator + 1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.sentinelgate.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AuditEvent {
+
+    public static final String LOGIN_SUCCESS = "LOGIN_SUCCESS";
+    public static final String LOGIN_FAILURE = "LOGIN_FAILURE";
+    public static final String UNAUTHORIZED = "UNAUTHORIZED";
+    public static final String RATE_LIMITED = "RATE_LIMITED";
+    // identity already has in-flight-quota.max-per-identity requests running
+    public static final String CONCURRENCY_LIMITED = "CONCURRENCY_LIMITED";
+    // daily or monthly usage quota used up
+    public static final String QUOTA_EXCEEDED = "QUOTA_EXCEEDED";
+    public static final String UPSTREAM_ERROR = "UPSTREAM_ERROR";
+
+    private String type;
+
+    // epoch milliseconds
+    private Long timestamp;
+
+    // "user:<username>" if the request was authenticated
+    private String identity;
+
+    private String username;
+
+    private String path;
+
+    private Integer status;
+
+    private String remoteAddress;
+
+    private String detail;
+
+}
@@ -0,0 +1,32 @@
+package com.sentinelgate.pojo;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CapturedRequest {
+
+    // wall clock at arrival, microseconds since epoch
+    private long epochMicros;
+
+    private String method;
+
+    // request uri plus query string
+    private String path;
+
+    // response status the gateway answered with
+    private int status;
+
+    // gateway time from auth filter entry to the end of the chain
+    private int latencyMicros;
+
+    // fingerprint of the credential (or remote address), never the credential itself
+    private long clientId;
+
+    private String contentType;
+
+    // null unless body capture is on, possibly truncated
+    private byte[] body;
+
+}
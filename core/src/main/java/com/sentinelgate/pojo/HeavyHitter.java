@@ -0,0 +1,19 @@
+package com.sentinelgate.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class HeavyHitter {
+
+    private String key;
+
+    // estimated requests in the current decay window
+    private Long count;
+
+}
@@ -0,0 +1,32 @@
+package com.sentinelgate.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MirrorStats {
+
+    private String serviceKey;
+
+    // mirrored requests that got a response from the shadow upstream
+    private Long completed;
+
+    // not mirrored because the mirror queue was full
+    private Long dropped;
+
+    // shadow upstream errors and timeouts
+    private Long failed;
+
+    // shadow status differed from the primary status
+    private Long statusMismatches;
+
+    private Double avgPrimaryLatencyMs;
+
+    private Double avgShadowLatencyMs;
+
+}
@@ -0,0 +1,18 @@
+package com.sentinelgate.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RateLimitTier {
+
+    private String name;
+
+    // bucket size
+    private Integer maxToken;
+
+    // tokens added per refill interval
+    private Integer tokensPerInterval;
+
+}
@@ -0,0 +1,28 @@
+package com.sentinelgate.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RequestDeadline {
+
+    public static final String ATTRIBUTE = RequestDeadline.class.getName();
+
+    // relative budget in milliseconds, both accepted from clients and passed on to upstreams
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    // System.nanoTime() when the request entered the gateway
+    private long arrivalNanos;
+
+    // budget sent by the client, null if the route default applies
+    private Long clientBudgetMs;
+
+    public long elapsedMs() {
+        return (System.nanoTime() - arrivalNanos) / 1_000_000L;
+    }
+
+    public long remainingMs(long budgetMs) {
+        return budgetMs - elapsedMs();
+    }
+}
@@ -0,0 +1,152 @@
+package com.sentinelgate.pojo;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Phase timings of one request.
+ *
+ * Unsampled requests share {@link #NOOP}: start() returns 0 without reading the clock and end()
+ * returns right away, so instrumented call sites cost a branch when tracing is off.
+ */
+@Getter
+public class RequestTrace {
+
+    public static final String ATTRIBUTE = RequestTrace.class.getName();
+
+    public static final String TRACEPARENT = "traceparent";
+
+    public static final RequestTrace NOOP = new RequestTrace(false, null, null, null);
+
+    private final boolean sampled;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    // sampled only because the caller's traceparent asked for it, timings are not returned to the caller
+    private final boolean externallySampled;
+    private final long startNanos;
+    private final long startEpochNanos;
+    private final List<TraceSpan> phases;
+
+    public RequestTrace(boolean sampled, String traceId, String spanId, String parentSpanId) {
+        this(sampled, traceId, spanId, parentSpanId, false);
+    }
+
+    public RequestTrace(boolean sampled, String traceId, String spanId, String parentSpanId, boolean externallySampled) {
+        this.sampled = sampled;
+        this.externallySampled = externallySampled;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        if (sampled) {
+            Instant now = Instant.now();
+            this.startNanos = System.nanoTime();
+            this.startEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+            this.phases = new ArrayList<>(8);
+        } else {
+            this.startNanos = 0;
+            this.startEpochNanos = 0;
+            this.phases = List.of();
+        }
+    }
+
+    public static RequestTrace from(HttpServletRequest request) {
+        Object trace = request.getAttribute(ATTRIBUTE);
+        return trace == null ? NOOP : (RequestTrace) trace;
+    }
+
+    public long start() {
+        return sampled ? System.nanoTime() : 0L;
+    }
+
+    public void end(String phase, long phaseStartNanos) {
+        if (sampled) {
+            end(phase, phaseStartNanos, newSpanId());
+        }
+    }
+
+    public void end(String phase, long phaseStartNanos, String phaseSpanId) {
+        if (!sampled) {
+            return;
+        }
+        phases.add(TraceSpan.builder()
+                .traceId(traceId)
+                .spanId(phaseSpanId)
+                .parentSpanId(spanId)
+                .name(phase)
+                .startTimeUnixNano(toEpochNanos(phaseStartNanos))
+                .endTimeUnixNano(toEpochNanos(System.nanoTime()))
+                .build());
+    }
+
+    /**
+     * W3C traceparent for a child span of this request, null when not sampled.
+     */
+    public String traceparent(String childSpanId) {
+        return sampled ? "00-" + traceId + "-" + childSpanId + "-01" : null;
+    }
+
+    /**
+     * Server-Timing header value with the phases recorded so far, durations in milliseconds.
+     */
+    public String serverTiming() {
+        if (!sampled) {
+            return null;
+        }
+        StringBuilder header = new StringBuilder();
+        for (TraceSpan phase : phases) {
+            header.append(phase.getName()).append(";dur=").append(millis(phase)).append(", ");
+        }
+        header.append("total;dur=").append(String.format(Locale.ROOT, "%.3f", (System.nanoTime() - startNanos) / 1_000_000.0));
+        return header.toString();
+    }
+
+    /**
+     * Closes the root span and returns it followed by the phase spans.
+     */
+    public List<TraceSpan> finish(String name, int status) {
+        if (!sampled) {
+            return List.of();
+        }
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("http.response.status_code", status);
+        List<TraceSpan> spans = new ArrayList<>(phases.size() + 1);
+        spans.add(TraceSpan.builder()
+                .traceId(traceId)
+                .spanId(spanId)
+                .parentSpanId(parentSpanId)
+                .name(name)
+                .startTimeUnixNano(startEpochNanos)
+                .endTimeUnixNano(toEpochNanos(System.nanoTime()))
+                .attributes(attributes)
+                .build());
+        spans.addAll(phases);
+        return spans;
+    }
+
+    private long toEpochNanos(long nanoTime) {
+        return startEpochNanos + (nanoTime - startNanos);
+    }
+
+    private static String millis(TraceSpan span) {
+        return String.format(Locale.ROOT, "%.3f", (span.getEndTimeUnixNano() - span.getStartTimeUnixNano()) / 1_000_000.0);
+    }
+
+    public static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return HexFormat.of().toHexDigits(random.nextLong()) + HexFormat.of().toHexDigits(random.nextLong());
+    }
+
+    public static String newSpanId() {
+        return HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+    }
+}
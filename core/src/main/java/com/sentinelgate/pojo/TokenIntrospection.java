@@ -0,0 +1,30 @@
+package com.sentinelgate.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TokenIntrospection {
+
+    public static final String EXPIRED = "expired";
+    public static final String MALFORMED = "malformed";
+    public static final String INVALID = "invalid";
+
+    private Boolean active;
+
+    private String username;
+
+    // epoch seconds
+    private Long iat;
+
+    private Long exp;
+
+    // why an inactive token was rejected, one of the constants above
+    private String error;
+
+}
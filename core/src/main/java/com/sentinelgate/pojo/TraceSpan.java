@@ -0,0 +1,37 @@
+package com.sentinelgate.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Finished span, field names follow the OpenTelemetry span data model.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TraceSpan {
+
+    private String traceId;
+
+    private String spanId;
+
+    private String parentSpanId;
+
+    private String name;
+
+    private Long startTimeUnixNano;
+
+    private Long endTimeUnixNano;
+
+    private Map<String, Object> attributes;
+
+}
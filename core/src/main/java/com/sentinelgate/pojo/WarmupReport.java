@@ -0,0 +1,43 @@
+package com.sentinelgate.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class WarmupReport {
+
+    public static final String DISABLED = "DISABLED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETE = "COMPLETE";
+    public static final String FAILED = "FAILED";
+
+    private String status;
+
+    private Long durationMs;
+
+    // stopped by warmup.max-duration-ms before all iterations ran
+    private Boolean timedOut;
+
+    // token, limiter and serialization rounds
+    private Integer iterations;
+
+    private Integer proxyRequests;
+
+    private Integer proxyErrors;
+
+    // average over the first and the last requests, the gap is what the warm-up saved
+    private Double firstProxyLatencyMs;
+
+    private Double lastProxyLatencyMs;
+
+    // time the JIT spent compiling while warming up, null if the jvm does not report it
+    private Long jitCompilationMs;
+
+    private String error;
+
+}
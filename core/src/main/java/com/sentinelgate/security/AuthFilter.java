@@ -0,0 +1,320 @@
+package com.sentinelgate.security;
+
+import com.sentinelgate.pojo.ApiKeyEntry;
+import com.sentinelgate.pojo.AuditEvent;
+import com.sentinelgate.pojo.RequestTrace;
+import com.sentinelgate.utils.ApiKeyIndex;
+import com.sentinelgate.utils.AuditEventUtils;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.ConsistentHashRing;
+import com.sentinelgate.utils.InFlightQuotaUtils;
+import com.sentinelgate.utils.IpFilterUtils;
+import com.sentinelgate.utils.HeavyHitterUtils;
+import com.sentinelgate.utils.JwtUtils;
+import com.sentinelgate.utils.RateLimitingUtils;
+import com.sentinelgate.utils.TracingUtils;
+import com.sentinelgate.utils.TrafficCaptureUtils;
+import com.sentinelgate.utils.UsageQuotaUtils;
+import com.sentinelgate.utils.WarmupUtils;
+import io.jsonwebtoken.Claims;
+import io.micrometer.common.util.StringUtils;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.Set;
+
+@Component
+// runs right before the gateway fast path, which is the last filter
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class AuthFilter extends OncePerRequestFilter {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    public static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+
+    public static final String ADMIN_IDENTITY = "admin";
+
+    public static final String INTROSPECT_TOKEN_HEADER = "X-Introspect-Token";
+
+    public static final String INTROSPECT_PATH = "/auth/introspect";
+
+    public static final String INTROSPECT_IDENTITY = "service:introspect";
+
+    // "user:<username>" of an authenticated request, unset for public paths
+    public static final String IDENTITY_ATTRIBUTE = AuthFilter.class.getName() + ".identity";
+
+    @Autowired
+    AuthClass authClass;
+
+    @Autowired
+    JwtUtils jwtUtils;
+
+    @Autowired
+    RateLimitingUtils rateLimitingUtils;
+
+    @Autowired
+    HeavyHitterUtils heavyHitterUtils;
+
+    @Autowired
+    IpFilterUtils ipFilterUtils;
+
+    @Autowired
+    TracingUtils tracingUtils;
+
+    @Autowired
+    TrafficCaptureUtils trafficCaptureUtils;
+
+    @Autowired
+    ApiKeyIndex apiKeyIndex;
+
+    @Autowired
+    InFlightQuotaUtils inFlightQuotaUtils;
+
+    @Autowired
+    UsageQuotaUtils usageQuotaUtils;
+
+    @Autowired
+    AuditEventUtils auditEventUtils;
+
+    @Autowired
+    WarmupUtils warmupUtils;
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    Logger log = LoggerFactory.getLogger(AuthFilter.class);
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher(); // lightweight, safe
+
+    private boolean shouldNotFilter(String path) {
+        Set<String> excludePath = authClass.getExcludingPaths();
+        return excludePath.stream().noneMatch(pattern -> antPathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (warmupUtils.isWarmupRequest(request)) {
+            authenticate(request, response, filterChain, true);
+            return;
+        }
+        if (WarmupUtils.isWarmupRoute(request.getRequestURI())) {
+            // the loopback stub is only for synthetic requests, real clients never reach it
+            createErrorResponse(request, response, RequestTrace.from(request), AuditEvent.UNAUTHORIZED, "Forbidden", HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        if (!trafficCaptureUtils.isEnabled()) {
+            authenticate(request, response, filterChain, false);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            authenticate(request, response, filterChain, false);
+        } finally {
+            trafficCaptureUtils.capture(request, response.getStatus(), Optional.ofNullable(apiKey(request)).orElseGet(() -> bearerToken(request)), start);
+        }
+    }
+
+    /**
+     * @param synthetic startup warm-up request, authenticated as usual but kept out of the shared
+     *                  heavy-hitter, limiter and quota state
+     */
+    private void authenticate(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain, boolean synthetic) throws ServletException, IOException {
+        String path = request.getRequestURI();
+        RequestTrace trace = RequestTrace.from(request);
+        String identity = null;
+        ApiKeyEntry apiKeyEntry = null;
+        if (antPathMatcher.match("/admin/**", path)) {
+            // user and key management, operational stats: signup is open, so a user jwt is not enough
+            if (!isAdmin(request)) {
+                createErrorResponse(request, response, trace, AuditEvent.UNAUTHORIZED, "Forbidden", HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+            // no per-user quotas for the admin credential, the path limiter still applies
+            request.setAttribute(IDENTITY_ATTRIBUTE, ADMIN_IDENTITY);
+        } else if (path.startsWith(INTROSPECT_PATH)) {
+            // verifies tokens in bulk for internal services, /auth/** is open to users but this is not;
+            // a prefix match so trailing slashes or path parameters don't slip past
+            if (!isIntrospectionService(request)) {
+                createErrorResponse(request, response, trace, AuditEvent.UNAUTHORIZED, "Forbidden", HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+            // batches are costly, limited by the path limiter below like any other request
+            request.setAttribute(IDENTITY_ATTRIBUTE, INTROSPECT_IDENTITY);
+        } else if (shouldNotFilter(path)) {
+            String apiKey = apiKey(request);
+            if (apiKey != null) {
+                // local hash lookup, no redis or db round trip
+                long start = trace.start();
+                apiKeyEntry = apiKeyIndex.lookup(apiKey);
+                trace.end("api-key", start);
+                if (apiKeyEntry == null) {
+                    createErrorResponse(request, response, trace, AuditEvent.UNAUTHORIZED, "Unauthorized", HttpServletResponse.SC_UNAUTHORIZED);
+                    return;
+                }
+                identity = StringUtils.isNotBlank(apiKeyEntry.getOwner()) ? "user:" + apiKeyEntry.getOwner() : "apikey:" + apiKeyEntry.getHash();
+            } else {
+                String token = bearerToken(request);
+                long start = trace.start();
+                Claims claims = jwtUtils.parse(token);
+                trace.end("jwt", start);
+                if (claims == null) {
+                    createErrorResponse(request, response, trace, AuditEvent.UNAUTHORIZED, "Unauthorized", HttpServletResponse.SC_UNAUTHORIZED);
+                    return;
+                }
+                String username = jwtUtils.username(claims);
+                identity = username != null ? "user:" + username : "token:" + Long.toHexString(ConsistentHashRing.hash(token));
+            }
+            request.setAttribute(IDENTITY_ATTRIBUTE, identity);
+        }
+
+        if (synthetic) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // apply rate limiting, api keys are limited per key by their tier
+        String scope = apiKeyEntry == null ? path : "apikey:" + apiKeyEntry.getHash();
+        String client = apiKeyEntry != null ? scope : Optional.ofNullable((String) request.getAttribute(IDENTITY_ATTRIBUTE))
+                .orElseGet(() -> "ip:" + ipFilterUtils.clientAddress(request));
+        heavyHitterUtils.record(scope, client);
+        boolean allowed = rateLimitingUtils.isRequestAllowed(scope, client, apiKeyEntry == null ? null : apiKeyIndex.tierOf(apiKeyEntry), trace);
+        if (!allowed) {
+            createErrorResponse(request, response, trace, AuditEvent.RATE_LIMITED, "Rate limit exceeded", 429);
+            return;
+        }
+
+        if (identity == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        InFlightQuotaUtils.Permit permit = inFlightQuotaUtils.tryAcquire(identity);
+        if (permit == null) {
+            createErrorResponse(request, response, trace, AuditEvent.CONCURRENCY_LIMITED, "Too many concurrent requests", 429);
+            return;
+        }
+        if (!usageQuotaUtils.tryConsume(identity, route(path))) {
+            permit.release();
+            createErrorResponse(request, response, trace, AuditEvent.QUOTA_EXCEEDED, "Quota exceeded", 429);
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // streamed responses finish after the filter chain returned
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(permit));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permit.release();
+            }
+        }
+    }
+
+    // first path segment, "product" for /product/items/1
+    private static String route(String path) {
+        int end = path.indexOf('/', 1);
+        return end < 0 ? path.substring(1) : path.substring(1, end);
+    }
+
+    private static class ReleaseOnCompletion implements AsyncListener {
+
+        private final InFlightQuotaUtils.Permit permit;
+
+        ReleaseOnCompletion(InFlightQuotaUtils.Permit permit) {
+            this.permit = permit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // keep listening on the next async cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private boolean isAdmin(HttpServletRequest request) {
+        return tokenMatches(configUtils.getAdminToken(), request.getHeader(ADMIN_TOKEN_HEADER));
+    }
+
+    // the admin credential is accepted too, so operators don't need a second secret
+    private boolean isIntrospectionService(HttpServletRequest request) {
+        return tokenMatches(configUtils.getIntrospectToken(), request.getHeader(INTROSPECT_TOKEN_HEADER)) || isAdmin(request);
+    }
+
+    private static boolean tokenMatches(String expected, String actual) {
+        if (StringUtils.isBlank(expected) || actual == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return key from "X-API-Key: key" or "Authorization: ApiKey key", null if neither is sent
+     */
+    private String apiKey(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        if (StringUtils.isNotBlank(apiKey)) {
+            return apiKey.trim();
+        }
+        String authHeader = request.getHeader("Authorization");
+        if (StringUtils.isNotBlank(authHeader) && authHeader.startsWith("ApiKey ")) {
+            return authHeader.substring("ApiKey ".length()).trim();
+        }
+        return null;
+    }
+
+    private String bearerToken(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (StringUtils.isNotBlank(authHeader) && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring("Bearer ".length()).trim();
+        } else if (StringUtils.isNotBlank(authHeader) && authHeader.startsWith("Basic ")) {
+            return authHeader.substring("Basic ".length()).trim();
+        }
+        return "";
+    }
+
+    /**
+     * @param auditType one of the {@link AuditEvent} types, tells the rejection reasons apart
+     */
+    private void createErrorResponse(HttpServletRequest request, HttpServletResponse response, RequestTrace trace, String auditType, String message, Integer status) throws IOException {
+        auditEventUtils.record(auditType, request, status, message);
+        response.setStatus(status);
+        if (tracingUtils.isServerTimingEnabled(trace)) {
+            response.setHeader("Server-Timing", trace.serverTiming());
+        }
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+}
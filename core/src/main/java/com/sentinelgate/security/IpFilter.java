@@ -0,0 +1,37 @@
+package com.sentinelgate.security;
+
+import com.sentinelgate.utils.IpFilterUtils;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * First filter in the chain, rejects blocked client addresses before any token parsing,
+ * redis call or tracing work is spent on them.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class IpFilter extends OncePerRequestFilter {
+
+    @Autowired
+    IpFilterUtils ipFilterUtils;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!ipFilterUtils.isAllowed(request)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"error\":\"Forbidden\"}");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,54 @@
+package com.sentinelgate.security;
+
+import com.sentinelgate.pojo.RequestDeadline;
+import com.sentinelgate.utils.ConfigUtils;
+import io.micrometer.common.util.StringUtils;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Runs right after the ip filter and records when the request entered the gateway together with the
+ * client's time budget, so time spent in auth and rate limiting counts against the deadline.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    Logger log = LoggerFactory.getLogger(RequestDeadlineFilter.class);
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        long arrivalNanos = System.nanoTime();
+        Long clientBudgetMs = null;
+        String header = request.getHeader(RequestDeadline.HEADER);
+        if (StringUtils.isNotBlank(header)) {
+            try {
+                long budgetMs = Long.parseLong(header.trim());
+                if (budgetMs > 0) {
+                    clientBudgetMs = Math.min(budgetMs, configUtils.getDeadlineMaxMs());
+                } else {
+                    // no budget at all would be an instant 504, the route deadline applies instead
+                    log.info("Ignoring non-positive {} header: {}", RequestDeadline.HEADER, header);
+                }
+            } catch (NumberFormatException e) {
+                log.info("Ignoring invalid {} header: {}", RequestDeadline.HEADER, header);
+            }
+        }
+        request.setAttribute(RequestDeadline.ATTRIBUTE, new RequestDeadline(arrivalNanos, clientBudgetMs));
+        filterChain.doFilter(request, response);
+    }
+}
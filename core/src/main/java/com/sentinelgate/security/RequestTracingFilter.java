@@ -0,0 +1,42 @@
+package com.sentinelgate.security;
+
+import com.sentinelgate.pojo.RequestTrace;
+import com.sentinelgate.utils.TracingUtils;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Starts the request trace right after the deadline filter and exports its spans once the
+ * response is complete.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RequestTracingFilter extends OncePerRequestFilter {
+
+    @Autowired
+    TracingUtils tracingUtils;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RequestTrace trace = tracingUtils.startTrace(request.getHeader(RequestTrace.TRACEPARENT));
+        if (!trace.isSampled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        request.setAttribute(RequestTrace.ATTRIBUTE, trace);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            tracingUtils.export(trace, request.getMethod() + " " + request.getRequestURI(), response.getStatus());
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.ApiKeyEntry;
+import com.sentinelgate.pojo.RateLimitTier;
+import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Local copy of all active API keys, keyed by the SHA-256 of the key.
+ *
+ * The source of truth is MySQL (auth module). Active keys are mirrored into the redis hash
+ * {@link #REDIS_KEY}, which every node loads at startup and every api-key.refresh-interval-ms.
+ * Changes in between are pushed on {@link #CHANNEL}. A request only costs one SHA-256 and a map
+ * lookup, no redis or database round trip.
+ */
+@Component
+public class ApiKeyIndex implements MessageListener {
+
+    public static final String REDIS_KEY = "API_KEYS";
+
+    // "U|hash|tier|owner" upsert, "D|hash" delete, "R" reload everything
+    public static final String CHANNEL = "api-keys";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisSubscriptions redisSubscriptions;
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    // replaced on every change, readers never lock
+    private volatile Map<String, ApiKeyEntry> keys = Map.of();
+
+    private final Map<String, RateLimitTier> tiers = new HashMap<>();
+
+    Logger log = LoggerFactory.getLogger(ApiKeyIndex.class);
+
+    @PostConstruct
+    public void init() {
+        for (String tier : configUtils.getApiKeyTiers().split(",")) {
+            String[] parts = tier.trim().split(":");
+            if (parts.length == 3) {
+                tiers.put(parts[0], new RateLimitTier(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+            }
+        }
+        if (!configUtils.getApiKeyEnabled()) {
+            return;
+        }
+        // the first load runs on the scheduler right after startup
+        redisSubscriptions.subscribe(this, CHANNEL);
+    }
+
+    public static String hash(String rawKey) {
+        byte[] digest = SHA_256.get().digest(rawKey.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * @return the key's entry, null if the key is unknown or revoked
+     */
+    public ApiKeyEntry lookup(String rawKey) {
+        if (StringUtils.isBlank(rawKey)) {
+            return null;
+        }
+        return keys.get(hash(rawKey));
+    }
+
+    /**
+     * @return limits of the entry's tier, null if the tier isn't configured
+     */
+    public RateLimitTier tierOf(ApiKeyEntry entry) {
+        return tiers.get(entry.getTier());
+    }
+
+    public boolean isKnownTier(String tier) {
+        return tiers.containsKey(tier);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    @Scheduled(fixedDelayString = "${api-key.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!configUtils.getApiKeyEnabled()) {
+            return;
+        }
+        try {
+            Map<String, ApiKeyEntry> loaded = new HashMap<>();
+            stringRedisTemplate.<String, String>opsForHash().entries(REDIS_KEY)
+                    .forEach((hash, value) -> loaded.put(hash, ApiKeyEntry.decode(hash, value)));
+            keys = loaded;
+            log.debug("Loaded {} api keys", loaded.size());
+        } catch (Exception e) {
+            // keep serving the last snapshot
+            log.warn("Could not refresh api keys from redis, keeping {} cached: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Adds or updates a key in redis and on every node.
+     */
+    public void put(ApiKeyEntry entry) {
+        stringRedisTemplate.opsForHash().put(REDIS_KEY, entry.getHash(), entry.encode());
+        apply(entry.getHash(), entry);
+        stringRedisTemplate.convertAndSend(CHANNEL, "U|" + entry.getHash() + "|" + entry.encode());
+    }
+
+    public void remove(String hash) {
+        stringRedisTemplate.opsForHash().delete(REDIS_KEY, hash);
+        apply(hash, null);
+        stringRedisTemplate.convertAndSend(CHANNEL, "D|" + hash);
+    }
+
+    /**
+     * Makes the redis hash match the given keys and has every node reload it.
+     *
+     * The snapshot is read from the database before this runs, so keys created or revoked in between
+     * must survive it: a hash is only deleted, or re-added, after the source of truth confirmed its
+     * current state.
+     *
+     * @param active      active keys at the time of the snapshot
+     * @param stillActive returns which of the given hashes are active right now
+     */
+    public void replaceAll(Collection<ApiKeyEntry> active, Function<Collection<String>, Set<String>> stillActive) {
+        Map<String, ApiKeyEntry> byHash = new HashMap<>();
+        for (ApiKeyEntry entry : active) {
+            byHash.put(entry.getHash(), entry);
+        }
+        Set<String> existing = stringRedisTemplate.<String, String>opsForHash().keys(REDIS_KEY);
+
+        // missing from redis, possibly because they were revoked after the snapshot
+        List<String> missing = byHash.keySet().stream().filter(hash -> !existing.contains(hash)).toList();
+        if (!missing.isEmpty()) {
+            Set<String> confirmed = stillActive.apply(missing);
+            Map<String, String> encoded = new HashMap<>();
+            for (String hash : missing) {
+                if (confirmed.contains(hash)) {
+                    encoded.put(hash, byHash.get(hash).encode());
+                } else {
+                    byHash.remove(hash);
+                }
+            }
+            if (!encoded.isEmpty()) {
+                stringRedisTemplate.opsForHash().putAll(REDIS_KEY, encoded);
+            }
+        }
+
+        // not in the snapshot, possibly because they were created after it
+        List<String> candidates = existing.stream().filter(hash -> !byHash.containsKey(hash)).toList();
+        if (!candidates.isEmpty()) {
+            Set<String> confirmed = stillActive.apply(candidates);
+            Object[] stale = candidates.stream().filter(hash -> !confirmed.contains(hash)).toArray();
+            if (stale.length > 0) {
+                stringRedisTemplate.opsForHash().delete(REDIS_KEY, stale);
+            }
+        }
+        stringRedisTemplate.convertAndSend(CHANNEL, "R");
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 3);
+        switch (parts[0]) {
+            case "U" -> apply(parts[1], ApiKeyEntry.decode(parts[1], parts[2]));
+            case "D" -> apply(parts[1], null);
+            case "R" -> refresh();
+            default -> log.warn("Unknown api key message {}", parts[0]);
+        }
+    }
+
+    private synchronized void apply(String hash, ApiKeyEntry entry) {
+        Map<String, ApiKeyEntry> updated = new HashMap<>(keys);
+        if (entry == null) {
+            updated.remove(hash);
+        } else {
+            updated.put(hash, entry);
+        }
+        keys = updated;
+    }
+}
@@ -0,0 +1,248 @@
+package com.sentinelgate.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.AuditEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory buffer between event producers and an {@link AuditEventSink}.
+ *
+ * {@link #offer} never blocks, a full buffer drops the event. One background thread sends
+ * batches of up to batchSize events, or whatever arrived within lingerMs of the first one. A batch
+ * the sink still refuses after publishAttempts tries is appended to the spill file (NDJSON) if one
+ * is configured and below its size cap, and dropped otherwise. The spill file is re-published
+ * after the next successful batch.
+ */
+public class AuditEventBuffer implements AutoCloseable {
+
+    private final AuditEventSink sink;
+
+    private final ObjectMapper objectMapper;
+
+    private final ArrayBlockingQueue<AuditEvent> queue;
+
+    private final int batchSize;
+
+    private final long lingerMs;
+
+    private final int publishAttempts;
+
+    // null disables spilling
+    private final Path spillFile;
+
+    private final long spillMaxBytes;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    // every event written to the spill file, including ones republished since
+    private final LongAdder spilled = new LongAdder();
+
+    Logger log = LoggerFactory.getLogger(AuditEventBuffer.class);
+
+    public AuditEventBuffer(AuditEventSink sink, ObjectMapper objectMapper, int capacity, int batchSize, long lingerMs,
+                            int publishAttempts, Path spillFile, long spillMaxBytes) {
+        this.sink = sink;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.lingerMs = lingerMs;
+        this.publishAttempts = Math.max(1, publishAttempts);
+        this.spillFile = spillFile;
+        this.spillMaxBytes = spillMaxBytes;
+        this.worker = new Thread(this::run, "audit-publisher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * @return false if the buffer was full and the event was dropped
+     */
+    public boolean offer(AuditEvent event) {
+        if (queue.offer(event)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    public long getQueued() {
+        return queue.size();
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    /**
+     * Stops accepting work and tries to send what is buffered within the timeout.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                List<AuditEvent> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    send(batch);
+                }
+            } catch (InterruptedException e) {
+                // close() wakes the worker, the loop drains what is left
+                if (running) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("Audit publisher error, err: ", e);
+            }
+        }
+    }
+
+    private List<AuditEvent> nextBatch() throws InterruptedException {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        AuditEvent first = running ? queue.poll(lingerMs, TimeUnit.MILLISECONDS) : queue.poll();
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !running) {
+                break;
+            }
+            AuditEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void send(List<AuditEvent> batch) throws InterruptedException {
+        for (int attempt = 1; attempt <= publishAttempts; attempt++) {
+            try {
+                sink.publish(batch);
+                published.add(batch.size());
+                republishSpill();
+                return;
+            } catch (Exception e) {
+                if (attempt == publishAttempts) {
+                    log.warn("Audit batch of {} not confirmed after {} attempts: {}", batch.size(), attempt, e.getMessage());
+                } else if (running) {
+                    Thread.sleep(100L << (attempt - 1));
+                }
+            }
+        }
+        spill(batch);
+    }
+
+    private void spill(List<AuditEvent> batch) {
+        try {
+            if (spillFile == null || (Files.exists(spillFile) && Files.size(spillFile) >= spillMaxBytes)) {
+                dropped.add(batch.size());
+                return;
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (AuditEvent event : batch) {
+                    writer.write(objectMapper.writeValueAsString(event));
+                    writer.newLine();
+                }
+            }
+            spilled.add(batch.size());
+        } catch (IOException e) {
+            dropped.add(batch.size());
+            log.error("Could not spill {} audit events, err: ", batch.size(), e);
+        }
+    }
+
+    private void republishSpill() {
+        if (spillFile == null) {
+            return;
+        }
+        // moved aside first, anything spilled while replaying goes to a fresh file. A leftover
+        // replay file from a crash is finished before the current spill file is picked up.
+        Path replaying = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+        try {
+            if (!Files.exists(replaying)) {
+                if (!Files.exists(spillFile)) {
+                    return;
+                }
+                Files.move(spillFile, replaying);
+            }
+            boolean sinkFailing = false;
+            List<AuditEvent> batch = new ArrayList<>(batchSize);
+            try (BufferedReader reader = Files.newBufferedReader(replaying, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        batch.add(objectMapper.readValue(line, AuditEvent.class));
+                    }
+                    if (batch.size() == batchSize) {
+                        sinkFailing = publishSpilled(batch, sinkFailing);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                publishSpilled(batch, sinkFailing);
+            }
+            Files.delete(replaying);
+        } catch (Exception e) {
+            log.warn("Could not republish spilled audit events: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return whether the sink is failing, once it failed the rest goes straight back to the spill file
+     */
+    private boolean publishSpilled(List<AuditEvent> batch, boolean sinkFailing) {
+        if (!sinkFailing) {
+            try {
+                sink.publish(batch);
+                published.add(batch.size());
+                return false;
+            } catch (Exception e) {
+                log.warn("Republishing spilled audit events failed: {}", e.getMessage());
+            }
+        }
+        spill(batch);
+        return true;
+    }
+}
@@ -0,0 +1,19 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.AuditEvent;
+
+import java.util.List;
+
+/**
+ * Destination of audit event batches, the auth module provides a RabbitMQ one.
+ */
+public interface AuditEventSink {
+
+    /**
+     * Publishes one batch and returns once the destination confirmed it.
+     *
+     * @throws Exception if the batch was not confirmed, it is then retried or spilled
+     */
+    void publish(List<AuditEvent> batch) throws Exception;
+
+}
@@ -0,0 +1,98 @@
+package com.sentinelgate.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.AuditEvent;
+import com.sentinelgate.security.AuthFilter;
+import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Entry point for audit events. Recording only enqueues into an {@link AuditEventBuffer}, so it
+ * never blocks the request. Without audit.enabled or without a sink (proxy-only build) events
+ * are ignored.
+ */
+@Component
+public class AuditEventUtils {
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<AuditEventSink> auditEventSinkProvider;
+
+    private AuditEventBuffer buffer;
+
+    Logger log = LoggerFactory.getLogger(AuditEventUtils.class);
+
+    @PostConstruct
+    public void init() {
+        if (!configUtils.getAuditEnabled()) {
+            return;
+        }
+        AuditEventSink sink = auditEventSinkProvider.getIfAvailable();
+        if (sink == null) {
+            log.warn("audit.enabled is set but no audit sink is available, events are ignored");
+            return;
+        }
+        buffer = new AuditEventBuffer(sink, objectMapper, configUtils.getAuditBufferSize(), configUtils.getAuditBatchSize(),
+                configUtils.getAuditLingerMs(), configUtils.getAuditPublishAttempts(),
+                StringUtils.isBlank(configUtils.getAuditSpillFile()) ? null : Path.of(configUtils.getAuditSpillFile()),
+                configUtils.getAuditSpillMaxBytes());
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    public void record(AuditEvent event) {
+        if (buffer == null) {
+            return;
+        }
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(System.currentTimeMillis());
+        }
+        buffer.offer(event);
+    }
+
+    public void record(String type, HttpServletRequest request, Integer status, String detail) {
+        if (buffer == null) {
+            return;
+        }
+        record(AuditEvent.builder()
+                .type(type)
+                .identity((String) request.getAttribute(AuthFilter.IDENTITY_ATTRIBUTE))
+                .path(request.getRequestURI())
+                .status(status)
+                .remoteAddress(request.getRemoteAddr())
+                .detail(detail)
+                .build());
+    }
+
+    public Map<String, Object> getStats() {
+        if (buffer == null) {
+            return Map.of("enabled", false);
+        }
+        return Map.of(
+                "enabled", true,
+                "queued", buffer.getQueued(),
+                "published", buffer.getPublished(),
+                "dropped", buffer.getDropped(),
+                "spilled", buffer.getSpilled());
+    }
+}
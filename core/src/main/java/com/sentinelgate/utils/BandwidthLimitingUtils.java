@@ -0,0 +1,198 @@
+package com.sentinelgate.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Byte based token buckets per identity, route and direction. Buckets may go into debt, the
+ * debt is returned as the time the caller has to wait, so transfers are paced instead of cut
+ * off. Only a wait above bandwidth.max-wait-ms is refused.
+ * <p>
+ * Buckets live in redis (one atomic script call per charged chunk) so the rate holds across
+ * nodes, with the same local fallback as the request limiter: while redis is unavailable each
+ * node enforces its cluster share of the rate in memory.
+ * <p>
+ * Pacing is a blocking sleep on the thread that copies the body, i.e. a servlet worker that also
+ * holds the caller's in-flight permit for as long as the transfer is slowed down. That keeps the
+ * proxy simple and the pacing exact, at the cost of one parked worker per paced transfer, so the
+ * number of transfers of one identity that may be paced at the same time is capped
+ * (bandwidth.max-paced-per-identity); beyond it transfers are refused like an overlong wait.
+ */
+@Service
+public class BandwidthLimitingUtils {
+
+    public static final String KEY_PREFIX = "BW_";
+
+    public static final String UPLOAD = "up";
+    public static final String DOWNLOAD = "down";
+
+    // refill, charge and return the wait in ms, -1 when the wait would exceed the limit (nothing charged then)
+    private static final RedisScript<Long> CHARGE_SCRIPT = new DefaultRedisScript<>(
+            "local rate = tonumber(ARGV[1]) " +
+            "local burst = tonumber(ARGV[2]) " +
+            "local bytes = tonumber(ARGV[3]) " +
+            "local maxWait = tonumber(ARGV[4]) " +
+            "local time = redis.call('TIME') " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+            "local state = redis.call('HMGET', KEYS[1], 't', 'ts') " +
+            "local tokens = tonumber(state[1]) or burst " +
+            "local ts = tonumber(state[2]) or now " +
+            "tokens = math.min(burst, tokens + (now - ts) * rate / 1000) - bytes " +
+            "local wait = 0 " +
+            "if tokens < 0 then wait = math.ceil(-tokens * 1000 / rate) end " +
+            "if wait > maxWait then return -1 end " +
+            "redis.call('HSET', KEYS[1], 't', tostring(tokens), 'ts', tostring(now)) " +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(burst * 1000 / rate) + wait + 1000) " +
+            "return wait",
+            Long.class);
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    @Autowired
+    private RedisShardRouter redisShardRouter;
+
+    @Autowired
+    private ClusterUtils clusterUtils;
+
+    private final ConcurrentHashMap<String, Bucket> localBuckets = new ConcurrentHashMap<>();
+
+    // identity -> transfers currently sleeping for it, node local like the worker threads they hold
+    private final ConcurrentHashMap<String, Integer> paced = new ConcurrentHashMap<>();
+
+    // after a redis error, local buckets are used until then
+    private volatile long redisRetryAtMs;
+
+    Logger log = LoggerFactory.getLogger(BandwidthLimitingUtils.class);
+
+    public boolean isEnabled() {
+        return configUtils.getBandwidthEnabled();
+    }
+
+    /**
+     * @return the stream, throttled against the scope's bucket when bandwidth limiting is enabled
+     */
+    public InputStream throttle(InputStream in, String identity, String route, String direction) {
+        if (!isEnabled() || in == null) {
+            return in;
+        }
+        return new ThrottledInputStream(in, this, RedisUtils.taggedKey(KEY_PREFIX, identity) + ":" + route + ":" + direction,
+                identity, configUtils.getBandwidthChargeBytes());
+    }
+
+    /**
+     * Takes one of the identity's pacing slots, a transfer takes it before its first wait.
+     *
+     * @return false if bandwidth.max-paced-per-identity transfers of the identity are paced already
+     */
+    public boolean tryAcquirePacing(String identity) {
+        int max = configUtils.getBandwidthMaxPacedPerIdentity();
+        if (max <= 0) {
+            return true;
+        }
+        boolean[] acquired = new boolean[1];
+        paced.compute(identity, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= max) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    public void releasePacing(String identity) {
+        paced.computeIfPresent(identity, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    int getPaced(String identity) {
+        return paced.getOrDefault(identity, 0);
+    }
+
+    /**
+     * Charges bytes that were already transferred.
+     *
+     * @return ms to wait before transferring more, -1 if that wait would exceed bandwidth.max-wait-ms
+     */
+    public long charge(String scope, long bytes) {
+        return charge(scope, bytes, configUtils.getBandwidthMaxWaitMs());
+    }
+
+    /**
+     * Charges bytes that can no longer be paced, those of a finished or refused transfer, however
+     * deep into debt that takes the bucket.
+     */
+    public void chargeUnpaced(String scope, long bytes) {
+        charge(scope, bytes, Long.MAX_VALUE);
+    }
+
+    private long charge(String scope, long bytes, long maxWait) {
+        long rate = configUtils.getBandwidthBytesPerSecond();
+        long burst = configUtils.getBandwidthBurstBytes();
+        if (configUtils.getBandwidthRedisEnabled() && System.currentTimeMillis() >= redisRetryAtMs) {
+            try {
+                Long wait = redisShardRouter.templateFor(scope).execute(CHARGE_SCRIPT, List.of(scope),
+                        String.valueOf(rate), String.valueOf(burst), String.valueOf(bytes), String.valueOf(maxWait));
+                return wait == null ? 0 : wait;
+            } catch (Exception e) {
+                redisShardRouter.reportFailure(scope, e);
+                redisRetryAtMs = System.currentTimeMillis() + configUtils.getBandwidthRedisRetryMs();
+                log.error("Bandwidth limiting falling back to local buckets, err: {}", e.getMessage());
+            }
+        }
+        // every node decides alone, each one paces to its share of the rate
+        int share = clusterUtils.share((int) Math.min(Integer.MAX_VALUE, rate));
+        double nodeRate = share;
+        double nodeBurst = burst * (double) share / rate;
+        long now = System.nanoTime();
+        return localBuckets.computeIfAbsent(scope, key -> new Bucket(nodeBurst, now)).charge(bytes, nodeRate, nodeBurst, maxWait, now);
+    }
+
+    // full buckets carry no state worth keeping
+    @Scheduled(fixedDelayString = "${bandwidth.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(configUtils.getBandwidthCleanupIntervalMs());
+        long now = System.nanoTime();
+        localBuckets.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+    }
+
+    // same math as CHARGE_SCRIPT, with the time passed in
+    static class Bucket {
+
+        private double tokens;
+
+        private long updatedNanos;
+
+        Bucket(double burst, long nowNanos) {
+            tokens = burst;
+            updatedNanos = nowNanos;
+        }
+
+        synchronized long charge(long bytes, double rate, double burst, long maxWaitMs, long now) {
+            double refilled = Math.min(burst, tokens + (now - updatedNanos) * rate / 1_000_000_000d);
+            double after = refilled - bytes;
+            long wait = after < 0 ? (long) Math.ceil(-after * 1000 / rate) : 0;
+            if (wait > maxWaitMs) {
+                return -1;
+            }
+            tokens = after;
+            updatedNanos = now;
+            return wait;
+        }
+
+        synchronized boolean isIdle(long now, long idleNanos) {
+            return tokens >= 0 && now - updatedNanos > idleNanos;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.CapturedRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only binary log of captured requests, written through fixed size memory-mapped segments.
+ *
+ * Segment layout: int magic, short version, then records until a zero length (the unused tail of
+ * a mapped file is zero-filled). Record: int length of the rest, long epochMicros, int status,
+ * int latencyMicros, long clientId, then method, path and content type as short-length-prefixed
+ * UTF-8 and the body as int-length-prefixed bytes. Segments are named capture-000001.seg and so
+ * on; once more than maxSegments exist the oldest is deleted.
+ *
+ * Appends are synchronous and may rotate (create, map and delete files), so the gateway never calls
+ * this from request threads; {@link TrafficCaptureUtils} feeds it from a single writer thread.
+ */
+public class CaptureLog implements Closeable {
+
+    public static final int MAGIC = 0x53474331; // "SGC1"
+
+    public static final short VERSION = 1;
+
+    private static final int SEGMENT_HEADER_BYTES = Integer.BYTES + Short.BYTES;
+
+    private static final int FIXED_RECORD_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES
+            + Short.BYTES * 3 + Integer.BYTES;
+
+    private static final String PREFIX = "capture-";
+
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+
+    private final int segmentSizeBytes;
+
+    private final int maxSegments;
+
+    private MappedByteBuffer segment;
+
+    private long sequence;
+
+    public CaptureLog(Path directory, int segmentSizeBytes, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSizeBytes = segmentSizeBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+        Files.createDirectories(directory);
+        List<Path> existing = segments(directory);
+        // never append into a segment of a previous run, its tail position is unknown
+        sequence = existing.isEmpty() ? 0 : sequenceOf(existing.get(existing.size() - 1));
+        rotate();
+    }
+
+    /**
+     * Appends one record, rotating to a new segment when it doesn't fit. Bodies that could never fit
+     * a segment are truncated.
+     */
+    public synchronized void append(CapturedRequest record) throws IOException {
+        byte[] method = utf8(record.getMethod());
+        byte[] path = utf8(record.getPath());
+        byte[] contentType = utf8(record.getContentType());
+        byte[] body = record.getBody() == null ? new byte[0] : record.getBody();
+
+        int fixed = FIXED_RECORD_BYTES + method.length + path.length + contentType.length;
+        int maxBody = segmentSizeBytes - SEGMENT_HEADER_BYTES - fixed - Integer.BYTES;
+        if (maxBody < 0) {
+            return;
+        }
+        int bodyLength = Math.min(body.length, maxBody);
+        int recordBytes = fixed + bodyLength;
+        // keep room for the zero length terminator
+        if (segment.remaining() < recordBytes + Integer.BYTES) {
+            rotate();
+        }
+
+        segment.putInt(recordBytes - Integer.BYTES);
+        segment.putLong(record.getEpochMicros());
+        segment.putInt(record.getStatus());
+        segment.putInt(record.getLatencyMicros());
+        segment.putLong(record.getClientId());
+        putShortString(method);
+        putShortString(path);
+        putShortString(contentType);
+        segment.putInt(bodyLength);
+        segment.put(body, 0, bodyLength);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        sequence++;
+        Path file = directory.resolve(String.format("%s%06d%s", PREFIX, sequence, SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSizeBytes);
+        }
+        segment.putInt(MAGIC);
+        segment.putShort(VERSION);
+
+        List<Path> existing = segments(directory);
+        for (int i = 0; i < existing.size() - maxSegments; i++) {
+            Files.deleteIfExists(existing.get(i));
+        }
+    }
+
+    private void putShortString(byte[] bytes) {
+        segment.putShort((short) bytes.length);
+        segment.put(bytes);
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            byte[] truncated = new byte[Short.MAX_VALUE];
+            System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+            return truncated;
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads every record of every segment in the directory, oldest first.
+     */
+    public static void read(Path directory, Consumer<CapturedRequest> consumer) throws IOException {
+        for (Path file : segments(directory)) {
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buffer.remaining() < SEGMENT_HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("Not a capture segment: " + file);
+            }
+            try {
+                while (buffer.remaining() >= Integer.BYTES) {
+                    int length = buffer.getInt();
+                    if (length <= 0) {
+                        break;
+                    }
+                    consumer.accept(CapturedRequest.builder()
+                            .epochMicros(buffer.getLong())
+                            .status(buffer.getInt())
+                            .latencyMicros(buffer.getInt())
+                            .clientId(buffer.getLong())
+                            .method(getShortString(buffer))
+                            .path(getShortString(buffer))
+                            .contentType(getShortString(buffer))
+                            .body(getBody(buffer))
+                            .build());
+                }
+            } catch (BufferUnderflowException e) {
+                // segment cut short by a crash, keep what was read
+            }
+        }
+    }
+
+    private static String getShortString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] getBody(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(file -> file.getFileName().toString().startsWith(PREFIX) && file.getFileName().toString().endsWith(SUFFIX))
+                    .toList());
+            segments.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+            return segments;
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,301 @@
+package com.sentinelgate.utils;
+
+import java.util.Arrays;
+
+/**
+ * Binary radix trie over IPv4 and IPv6 prefixes, longest prefix wins. Nodes live in flat arrays
+ * (two child slots per node), so a lookup is a walk of at most 32 or 128 steps over int arrays,
+ * and addresses are parsed in place from the string, a match does not allocate.
+ * <p>
+ * IPv4-mapped IPv6 addresses (::ffff:a.b.c.d) match IPv4 prefixes. A trie is immutable once
+ * built, reloads build a new one and swap the reference.
+ */
+public class CidrTrie {
+
+    public static final byte NONE = 0;
+    public static final byte ALLOW = 1;
+    public static final byte DENY = 2;
+
+    private static final int ROOT_V4 = 0;
+    private static final int ROOT_V6 = 1;
+
+    // per thread scratch for the two halves of an IPv6 address, reused across lookups
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+    // children[2 * node] for a 0 bit, children[2 * node + 1] for a 1 bit, 0 for none (roots are never children)
+    private int[] children;
+
+    private byte[] actions;
+
+    private int size;
+
+    private int prefixes;
+
+    public CidrTrie() {
+        children = new int[64];
+        actions = new byte[32];
+        size = 2;
+    }
+
+    /**
+     * @param cidr "10.0.0.0/8", "2001:db8::/32" or a single address
+     * @param action {@link #ALLOW} or {@link #DENY}, deny wins over allow for the same prefix
+     * @throws IllegalArgumentException if the prefix can't be parsed
+     */
+    public CidrTrie add(String cidr, byte action) {
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        int end = slash < 0 ? value.length() : slash;
+        long[] bits = new long[2];
+        int maxLength;
+        int root;
+        long v4 = parseV4(value, 0, end);
+        if (v4 >= 0) {
+            bits[0] = v4 << 32;
+            maxLength = 32;
+            root = ROOT_V4;
+        } else if (parseV6(value, 0, end, bits)) {
+            maxLength = 128;
+            root = ROOT_V6;
+        } else {
+            throw new IllegalArgumentException("Invalid address: " + cidr);
+        }
+        int length = maxLength;
+        if (slash >= 0) {
+            try {
+                length = Integer.parseInt(value.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+            if (length < 0 || length > maxLength) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+        }
+
+        if (root == ROOT_V6 && length >= 96 && bits[0] == 0 && (bits[1] >>> 32) == 0xFFFFL) {
+            // ::ffff:a.b.c.d/n is kept with the IPv4 prefixes, lookups map such addresses the same way
+            bits[0] = bits[1] << 32;
+            length -= 96;
+            root = ROOT_V4;
+        }
+        int node = root;
+        for (int i = 0; i < length; i++) {
+            int bit = bit(bits[0], bits[1], i);
+            int child = children[2 * node + bit];
+            if (child == 0) {
+                child = newNode();
+                children[2 * node + bit] = child;
+            }
+            node = child;
+        }
+        if (actions[node] == NONE) {
+            prefixes++;
+        }
+        actions[node] = (byte) Math.max(actions[node], action);
+        return this;
+    }
+
+    private int newNode() {
+        if (size == actions.length) {
+            actions = Arrays.copyOf(actions, size * 2);
+            children = Arrays.copyOf(children, size * 4);
+        }
+        return size++;
+    }
+
+    /**
+     * Trims the node arrays to their used size, call once after the last add.
+     */
+    public CidrTrie compact() {
+        actions = Arrays.copyOf(actions, size);
+        children = Arrays.copyOf(children, size * 2);
+        return this;
+    }
+
+    public int getPrefixes() {
+        return prefixes;
+    }
+
+    public int getNodes() {
+        return size;
+    }
+
+    public byte match(CharSequence address) {
+        return address == null ? NONE : match(address, 0, address.length());
+    }
+
+    /**
+     * @return action of the longest matching prefix, {@link #NONE} if nothing matches or the address is invalid
+     */
+    public byte match(CharSequence address, int from, int to) {
+        long v4 = parseV4(address, from, to);
+        if (v4 >= 0) {
+            return walk(ROOT_V4, v4 << 32, 0, 32);
+        }
+        long[] bits = SCRATCH.get();
+        if (!parseV6(address, from, to, bits)) {
+            return NONE;
+        }
+        if (bits[0] == 0 && (bits[1] >>> 32) == 0xFFFFL) {
+            return walk(ROOT_V4, bits[1] << 32, 0, 32);
+        }
+        return walk(ROOT_V6, bits[0], bits[1], 128);
+    }
+
+    private byte walk(int root, long hi, long lo, int length) {
+        int node = root;
+        byte best = actions[node];
+        for (int i = 0; i < length; i++) {
+            int child = children[2 * node + bit(hi, lo, i)];
+            if (child == 0) {
+                break;
+            }
+            node = child;
+            if (actions[node] != NONE) {
+                best = actions[node];
+            }
+        }
+        return best;
+    }
+
+    private static int bit(long hi, long lo, int index) {
+        return index < 64 ? (int) (hi >>> (63 - index)) & 1 : (int) (lo >>> (127 - index)) & 1;
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the address as an unsigned 32 bit value, -1 if it isn't dotted quad IPv4
+     */
+    static long parseV4(CharSequence s, int from, int to) {
+        long result = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 3) {
+                result = (result << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (value < 0 || octets != 3) {
+            return -1;
+        }
+        return (result << 8) | value;
+    }
+
+    /**
+     * Parses full, "::" compressed and IPv4-suffixed IPv6 addresses, a "%zone" suffix is ignored.
+     *
+     * @param out receives the upper and lower 64 bits
+     * @return false if it isn't an IPv6 address
+     */
+    static boolean parseV6(CharSequence s, int from, int to, long[] out) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == '%') {
+                to = i;
+                break;
+            }
+        }
+        if (to - from < 2) {
+            return false;
+        }
+        long headHi = 0, headLo = 0, tailHi = 0, tailLo = 0;
+        int headGroups = 0, tailGroups = 0;
+        boolean compressed = false;
+        int i = from;
+        if (s.charAt(i) == ':') {
+            if (s.charAt(i + 1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i += 2;
+        }
+        while (i < to) {
+            int start = i;
+            int group = 0;
+            while (i < to && i - start < 4 && hex(s.charAt(i)) >= 0) {
+                group = (group << 4) | hex(s.charAt(i));
+                i++;
+            }
+            if (i < to && s.charAt(i) == '.') {
+                // dotted IPv4 in the last 32 bits
+                long v4 = parseV4(s, start, to);
+                if (v4 < 0) {
+                    return false;
+                }
+                for (int half = 0; half < 2; half++) {
+                    int value = (int) (half == 0 ? v4 >>> 16 : v4 & 0xFFFF);
+                    if (compressed) {
+                        tailHi = (tailHi << 16) | (tailLo >>> 48);
+                        tailLo = (tailLo << 16) | value;
+                        tailGroups++;
+                    } else {
+                        headHi = (headHi << 16) | (headLo >>> 48);
+                        headLo = (headLo << 16) | value;
+                        headGroups++;
+                    }
+                }
+                i = to;
+                break;
+            }
+            if (i == start) {
+                return false;
+            }
+            if (compressed) {
+                tailHi = (tailHi << 16) | (tailLo >>> 48);
+                tailLo = (tailLo << 16) | group;
+                tailGroups++;
+            } else {
+                headHi = (headHi << 16) | (headLo >>> 48);
+                headLo = (headLo << 16) | group;
+                headGroups++;
+            }
+            if (i == to) {
+                break;
+            }
+            if (s.charAt(i) != ':') {
+                return false;
+            }
+            i++;
+            if (i < to && s.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            } else if (i == to) {
+                return false;
+            }
+        }
+        int groups = headGroups + tailGroups;
+        if (groups > 8 || (!compressed && groups != 8) || (compressed && groups == 8)) {
+            return false;
+        }
+        // head groups move to the top, the gap of a "::" stays zero
+        for (int shift = headGroups; shift < 8; shift++) {
+            headHi = (headHi << 16) | (headLo >>> 48);
+            headLo = headLo << 16;
+        }
+        out[0] = headHi | tailHi;
+        out[1] = headLo | tailLo;
+        return true;
+    }
+}
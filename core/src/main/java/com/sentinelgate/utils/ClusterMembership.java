@@ -0,0 +1,159 @@
+package com.sentinelgate.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Live gateway nodes as seen through heartbeats. Peers that were not heard from within the
+ * peer timeout are considered gone, a node that shuts down announces it so the others
+ * rebalance right away.
+ * <p>
+ * Message: {@code SGHB1|<H or L>|<nodeId>|<epochMs>|<hmac or ->}. With a secret, unsigned,
+ * forged or replayed (older than the peer timeout) heartbeats are ignored.
+ */
+public class ClusterMembership {
+
+    static final String PREFIX = "SGHB1";
+
+    private static final String HEARTBEAT = "H";
+
+    private static final String LEAVE = "L";
+
+    private final String nodeId;
+
+    private final HeartbeatTransport transport;
+
+    private final long peerTimeoutMs;
+
+    private final int maxPeers;
+
+    private final byte[] secret;
+
+    private final LongSupplier clock;
+
+    // peer node id -> last heartbeat, by the local clock
+    private final Map<String, Long> peers = new ConcurrentHashMap<>();
+
+    /**
+     * @param secret shared by all nodes, null or empty to accept unsigned heartbeats
+     */
+    public ClusterMembership(String nodeId, HeartbeatTransport transport, long peerTimeoutMs, int maxPeers, String secret, LongSupplier clock) {
+        this.nodeId = nodeId;
+        this.transport = transport;
+        this.peerTimeoutMs = peerTimeoutMs;
+        this.maxPeers = maxPeers;
+        this.secret = secret == null || secret.isEmpty() ? null : secret.getBytes(StandardCharsets.UTF_8);
+        this.clock = clock;
+    }
+
+    public void start() throws IOException {
+        transport.start(this::receive);
+    }
+
+    public void heartbeat() throws IOException {
+        transport.send(encode(HEARTBEAT));
+        long now = clock.getAsLong();
+        peers.values().removeIf(lastSeen -> now - lastSeen > peerTimeoutMs);
+    }
+
+    /**
+     * Tells the peers this node is gone and stops the transport.
+     */
+    public void leave() throws IOException {
+        try {
+            transport.send(encode(LEAVE));
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * @return live nodes including this one, at least 1
+     */
+    public int liveNodes() {
+        long now = clock.getAsLong();
+        int live = 1;
+        for (Long lastSeen : peers.values()) {
+            if (now - lastSeen <= peerTimeoutMs) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @return this node's part of a cluster-wide budget, never below 1 so a tiny budget still lets traffic through
+     */
+    public int share(int budget) {
+        return Math.max(1, budget / liveNodes());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public List<String> getPeers() {
+        long now = clock.getAsLong();
+        List<String> live = new ArrayList<>();
+        peers.forEach((peer, lastSeen) -> {
+            if (now - lastSeen <= peerTimeoutMs) {
+                live.add(peer);
+            }
+        });
+        return live;
+    }
+
+    void receive(String message) {
+        String[] parts = message.split("\\|", -1);
+        if (parts.length != 5 || !PREFIX.equals(parts[0]) || nodeId.equals(parts[2])) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (secret != null && !verify(parts, now)) {
+            return;
+        }
+        if (LEAVE.equals(parts[1])) {
+            peers.remove(parts[2]);
+        } else if (HEARTBEAT.equals(parts[1]) && (peers.containsKey(parts[2]) || peers.size() < maxPeers)) {
+            peers.put(parts[2], now);
+        }
+    }
+
+    private boolean verify(String[] parts, long now) {
+        long sentAt;
+        try {
+            sentAt = Long.parseLong(parts[3]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (Math.abs(now - sentAt) > peerTimeoutMs) {
+            return false;
+        }
+        String expected = sign(parts[1] + "|" + parts[2] + "|" + parts[3]);
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), parts[4].getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String encode(String type) {
+        String payload = type + "|" + nodeId + "|" + clock.getAsLong();
+        return PREFIX + "|" + payload + "|" + (secret == null ? "-" : sign(payload));
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
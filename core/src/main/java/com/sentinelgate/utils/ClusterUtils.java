@@ -0,0 +1,111 @@
+package com.sentinelgate.utils;
+
+import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Peer membership of the gateway nodes, used to split limits that are global in redis into
+ * per-node shares whenever a node has to decide locally. Without cluster.enabled a node
+ * assumes it is alone and gets the full budget, as before.
+ */
+@Component
+public class ClusterUtils {
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    private ClusterMembership membership;
+
+    // heartbeats failing, logged once per outage
+    private volatile boolean sendFailing;
+
+    Logger log = LoggerFactory.getLogger(ClusterUtils.class);
+
+    @PostConstruct
+    public void init() {
+        if (!configUtils.getClusterEnabled()) {
+            return;
+        }
+        List<String> peers = Arrays.stream(configUtils.getClusterPeers().split(","))
+                .map(String::trim)
+                .filter(StringUtils::isNotBlank)
+                .toList();
+        ClusterMembership candidate = new ClusterMembership(nodeId(), new UdpHeartbeatTransport(configUtils.getClusterUdpPort(), peers),
+                configUtils.getClusterPeerTimeoutMs(), configUtils.getClusterMaxPeers(), configUtils.getClusterSecret(), System::currentTimeMillis);
+        try {
+            candidate.start();
+            membership = candidate;
+            log.info("Cluster membership started, node: {}, peers: {}", membership.getNodeId(), peers);
+        } catch (Exception e) {
+            log.warn("Cluster membership not available, local limits use the full budget, err: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (membership == null) {
+            return;
+        }
+        try {
+            membership.leave();
+        } catch (Exception e) {
+            log.warn("Error while leaving the cluster, err: {}", e.toString());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-interval-ms:1000}")
+    public void heartbeat() {
+        if (membership == null) {
+            return;
+        }
+        try {
+            membership.heartbeat();
+            if (sendFailing) {
+                sendFailing = false;
+                log.info("Cluster heartbeats recovered");
+            }
+        } catch (Exception e) {
+            if (!sendFailing) {
+                sendFailing = true;
+                log.warn("Error while sending cluster heartbeat, err: {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * @return this node's share of a budget that is meant for the whole cluster
+     */
+    public int share(int budget) {
+        return membership == null ? budget : membership.share(budget);
+    }
+
+    public Map<String, Object> getStats() {
+        if (membership == null) {
+            return Map.of("enabled", false, "liveNodes", 1);
+        }
+        return Map.of("enabled", true, "nodeId", membership.getNodeId(), "liveNodes", membership.liveNodes(), "peers", membership.getPeers());
+    }
+
+    private static String nodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        // restarts get a new id, peers expire the old one
+        return host.replace('|', '_') + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,249 @@
+package com.sentinelgate.utils;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Response compression negotiation between upstream and client.
+ *
+ * Upstream bodies that are already compressed in an encoding the client accepts are passed through
+ * untouched. Otherwise bodies are decoded and/or gzip encoded as streams, so a body is never held
+ * uncompressed in memory just to re-encode it.
+ */
+@Component
+public class CompressionUtils {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String IDENTITY = "identity";
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    private Set<String> compressibleTypes = Set.of();
+
+    Logger log = LoggerFactory.getLogger(CompressionUtils.class);
+
+    @PostConstruct
+    public void init() {
+        compressibleTypes = Arrays.stream(configUtils.getCompressionMimeTypes().split(","))
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Accept-Encoding the gateway sends upstream, null if compression is disabled.
+     */
+    public String upstreamAcceptEncoding() {
+        return configUtils.getCompressionEnabled() ? GZIP + ", " + DEFLATE : null;
+    }
+
+    /**
+     * Adapts the upstream body to what the client accepts and fixes up the response headers.
+     *
+     * @param body            raw upstream body
+     * @param headers         response headers copied from upstream, updated in place
+     * @param acceptEncoding  client's Accept-Encoding header
+     */
+    public InputStream negotiate(InputStream body, HttpHeaders headers, String acceptEncoding) throws IOException {
+        String contentEncoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        boolean encoded = contentEncoding != null && !IDENTITY.equalsIgnoreCase(contentEncoding.trim());
+
+        if (encoded) {
+            String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+            if (accepts(acceptEncoding, encoding)) {
+                // passthrough: bytes go out exactly as the upstream compressed them
+                headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                return body;
+            }
+            if (!canDecode(encoding)) {
+                // e.g. br or a list of encodings, relayed as the upstream labelled them
+                log.warn("Passing through unsupported content encoding: {}", encoding);
+                return body;
+            }
+            body = decode(body, encoding);
+            headers.remove(HttpHeaders.CONTENT_ENCODING);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }
+
+        if (!configUtils.getCompressionEnabled() || !accepts(acceptEncoding, GZIP) || !isCompressible(headers.getFirst(HttpHeaders.CONTENT_TYPE))) {
+            return body;
+        }
+
+        long contentLength = headers.getContentLength();
+        int minSize = configUtils.getCompressionMinSizeBytes();
+        if (contentLength >= 0 && contentLength < minSize) {
+            return body;
+        }
+        if (contentLength < 0) {
+            // unknown length (chunked or just decoded): peek far enough to apply the threshold
+            PushbackInputStream pushback = new PushbackInputStream(body, Math.max(minSize, 1));
+            byte[] head = pushback.readNBytes(minSize);
+            pushback.unread(head);
+            body = pushback;
+            if (head.length < minSize) {
+                return body;
+            }
+        }
+
+        headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return new GzipCompressingInputStream(body, configUtils.getCompressionLevel());
+    }
+
+    public static boolean canDecode(String encoding) {
+        return GZIP.equals(encoding) || "x-gzip".equals(encoding) || DEFLATE.equals(encoding);
+    }
+
+    /**
+     * @throws IOException for an encoding {@link #canDecode} rejects, or a body that isn't valid in it
+     */
+    public InputStream decode(InputStream body, String encoding) throws IOException {
+        switch (encoding) {
+            case GZIP:
+            case "x-gzip":
+                return new GZIPInputStream(body);
+            case DEFLATE:
+                return new InflaterInputStream(body);
+            default:
+                throw new IOException("Unsupported content encoding: " + encoding);
+        }
+    }
+
+    public boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int paramsStart = contentType.indexOf(';');
+        String mimeType = (paramsStart >= 0 ? contentType.substring(0, paramsStart) : contentType).trim().toLowerCase(Locale.ROOT);
+        return compressibleTypes.contains(mimeType);
+    }
+
+    /**
+     * True if the Accept-Encoding header allows the encoding with a non-zero q value.
+     */
+    public static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String name = tokens[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals(encoding)) {
+                return q > 0;
+            }
+            if (name.equals("*")) {
+                wildcard = q > 0;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * Produces a gzip stream while reading from the uncompressed source.
+     */
+    static class GzipCompressingInputStream extends InputStream {
+
+        private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+        private final CRC32 crc = new CRC32();
+        private final Deflater deflater;
+        private final DeflaterInputStream deflated;
+
+        private byte[] pending = HEADER;
+        private int pendingPos = 0;
+        private boolean bodyDone = false;
+
+        GzipCompressingInputStream(InputStream source, int level) {
+            this.deflater = new Deflater(level, true);
+            this.deflated = new DeflaterInputStream(new CheckedInputStream(source, crc), deflater);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                if (pending != null) {
+                    if (pendingPos < pending.length) {
+                        int n = Math.min(len, pending.length - pendingPos);
+                        System.arraycopy(pending, pendingPos, b, off, n);
+                        pendingPos += n;
+                        return n;
+                    }
+                    pending = null;
+                    if (bodyDone) {
+                        return -1;
+                    }
+                }
+                int n = deflated.read(b, off, len);
+                if (n > 0) {
+                    return n;
+                }
+                if (n == -1) {
+                    bodyDone = true;
+                    pending = trailer();
+                    pendingPos = 0;
+                }
+            }
+        }
+
+        private byte[] trailer() {
+            long crcValue = crc.getValue();
+            long size = deflater.getBytesRead();
+            return new byte[]{
+                    (byte) crcValue, (byte) (crcValue >> 8), (byte) (crcValue >> 16), (byte) (crcValue >> 24),
+                    (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                deflated.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.sentinelgate.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive per-upstream concurrency limit (gradient style).
+ *
+ * The no-load latency is tracked as the minimum RTT seen since the last probe. Every sample moves
+ * the limit towards limit * (minRtt / rtt) + sqrt(limit), so the limit grows while latency stays
+ * near the minimum and shrinks as soon as a queue builds up upstream. Requests above the limit are
+ * rejected right away instead of waiting for the static timeout.
+ */
+@Service
+public class ConcurrencyLimitingUtils {
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    private final ConcurrentHashMap<String, AdaptiveLimit> limits = new ConcurrentHashMap<>();
+
+    Logger log = LoggerFactory.getLogger(ConcurrencyLimitingUtils.class);
+
+    public boolean tryAcquire(String serviceKey) {
+        if (!configUtils.getConcurrencyLimitEnabled()) {
+            return true;
+        }
+        boolean acquired = getLimit(serviceKey).tryAcquire();
+        if (!acquired) {
+            log.warn("Concurrency limit reached for service {}, shedding request", serviceKey);
+        }
+        return acquired;
+    }
+
+    /**
+     * Must be called exactly once for every successful tryAcquire.
+     *
+     * @param rttNanos time spent waiting on the upstream
+     * @param dropped  true if the upstream call failed or timed out
+     */
+    public void release(String serviceKey, long rttNanos, boolean dropped) {
+        if (!configUtils.getConcurrencyLimitEnabled()) {
+            return;
+        }
+        getLimit(serviceKey).release(rttNanos, dropped);
+    }
+
+    public int getCurrentLimit(String serviceKey) {
+        return (int) getLimit(serviceKey).limit;
+    }
+
+    private AdaptiveLimit getLimit(String serviceKey) {
+        return limits.computeIfAbsent(serviceKey, k -> new AdaptiveLimit(
+                configUtils.getConcurrencyLimitInitial(),
+                configUtils.getConcurrencyLimitMin(),
+                configUtils.getConcurrencyLimitMax(),
+                configUtils.getConcurrencyLimitSmoothing(),
+                configUtils.getConcurrencyLimitRttTolerance(),
+                configUtils.getConcurrencyLimitProbeInterval()));
+    }
+
+    static class AdaptiveLimit {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final int minLimit;
+        private final int maxLimit;
+        private final double smoothing;
+        private final double rttTolerance;
+        private final int probeInterval;
+
+        private volatile double limit;
+        private long minRttNanos = Long.MAX_VALUE;
+        private int samplesSinceProbe = 0;
+
+        AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, double rttTolerance, int probeInterval) {
+            this.limit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.smoothing = smoothing;
+            this.rttTolerance = rttTolerance;
+            this.probeInterval = probeInterval;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= (int) limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        double limit() {
+            return limit;
+        }
+
+        void release(long rttNanos, boolean dropped) {
+            int current = inFlight.getAndDecrement();
+            update(rttNanos, dropped, current);
+        }
+
+        private synchronized void update(long rttNanos, boolean dropped, int inFlightAtSample) {
+            if (dropped) {
+                limit = Math.max(minLimit, limit * 0.9);
+                return;
+            }
+
+            // periodically forget the minimum so a permanently slower upstream gets a new baseline
+            if (++samplesSinceProbe >= probeInterval) {
+                samplesSinceProbe = 0;
+                minRttNanos = rttNanos;
+            }
+            minRttNanos = Math.min(minRttNanos, Math.max(rttNanos, 1));
+
+            // don't grow the limit when the upstream is not the bottleneck (app limited)
+            if (inFlightAtSample < limit / 2) {
+                return;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * minRttNanos / (double) Math.max(rttNanos, 1)));
+            double queueSize = Math.sqrt(limit);
+            double newLimit = limit * gradient + queueSize;
+            newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+            limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        }
+    }
+}
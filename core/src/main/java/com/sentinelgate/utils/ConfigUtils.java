@@ -0,0 +1,465 @@
+package com.sentinelgate.utils;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+public class ConfigUtils {
+
+    @Value("${redis.host:null}")
+    private String redisHost;
+
+    @Value("${redis.port:null}")
+    private Integer redisPort;
+
+    // standalone | cluster | sharded
+    @Value("${redis.mode:standalone}")
+    private String redisMode;
+
+    // comma separated host:port list, used by cluster and sharded modes
+    @Value("${redis.nodes:}")
+    private String redisNodes;
+
+    @Value("${redis.cluster.refresh-period-ms:30000}")
+    private Long redisClusterRefreshPeriodMs;
+
+    @Value("${redis.sharding.virtual-nodes:160}")
+    private Integer redisShardingVirtualNodes;
+
+    // dead shards are taken off the ring, their keys move to the next shard until a ping succeeds again
+    @Value("${redis.sharding.health-check-interval-ms:1000}")
+    private Long redisShardingHealthCheckIntervalMs;
+
+    @Value("${redis.sharding.timeout-ms:500}")
+    private Long redisShardingTimeoutMs;
+
+    @Value("${jwt.secret:null}")
+    private String jwtSecret;
+
+    @Value("${services.product.host:null}")
+    private String productServiceHost;
+
+
+    @Value("${services.product.timeout:3000}")
+    private Integer productServiceTimeout;
+
+    // shadow upstream that receives a sampled copy of product traffic, empty disables mirroring
+    @Value("${services.product.mirror.host:}")
+    private String productServiceMirrorHost;
+
+    @Value("${services.product.mirror.sample-rate:0.0}")
+    private Double productServiceMirrorSampleRate;
+
+    @Value("${mirror.threads:4}")
+    private Integer mirrorThreads;
+
+    // mirrored requests waiting beyond this are dropped
+    @Value("${mirror.queue-size:1000}")
+    private Integer mirrorQueueSize;
+
+    // binary capture of traffic for offline replay, off by default
+    @Value("${capture.enabled:false}")
+    private Boolean captureEnabled;
+
+    @Value("${capture.dir:capture}")
+    private String captureDir;
+
+    @Value("${capture.segment-size-bytes:67108864}")
+    private Integer captureSegmentSizeBytes;
+
+    // oldest segments beyond this are deleted
+    @Value("${capture.max-segments:16}")
+    private Integer captureMaxSegments;
+
+    @Value("${capture.sample-rate:1.0}")
+    private Double captureSampleRate;
+
+    // proxied request bodies, truncated to capture.max-body-bytes
+    @Value("${capture.bodies:false}")
+    private Boolean captureBodies;
+
+    @Value("${capture.max-body-bytes:4096}")
+    private Integer captureMaxBodyBytes;
+
+    // records waiting for the capture writer beyond this are dropped
+    @Value("${capture.queue-size:8192}")
+    private Integer captureQueueSize;
+
+    // default end-to-end budget when the client doesn't send one
+    @Value("${services.product.deadline-ms:3000}")
+    private Long productServiceDeadlineMs;
+
+    // upper bound for client supplied deadlines
+    @Value("${deadline.max-ms:60000}")
+    private Long deadlineMaxMs;
+
+    //1 hour in milliseconds
+    @Value("${jwt.expiration-ms:3600000}")
+    private Long jwtExpirationMs;
+
+    @Value("${rate-limit.token-size-per-second:3}")
+    private Integer rateLimitingTokenSizePerSecond;
+
+    @Value("${rate-limit.max-token:7}")
+    private Integer rateLimitingMaxToken;
+
+    @Value("${rate-limit.ttl:3600}")
+    private Integer rateLimitingTtlMs;
+
+    @Value("${rate-limit.enabled:true}")
+    private Boolean rateLimitingEnabled;
+
+    @Value("${bulk-import.batch-size:1000}")
+    private Integer bulkImportBatchSize;
+
+    @Value("${bulk-import.encrypt-parallelism:4}")
+    private Integer bulkImportEncryptParallelism;
+
+    // async timeout of the streamed import only, results stream for as long as the upload takes; -1 for none
+    @Value("${bulk-import.timeout-ms:3600000}")
+    private Long bulkImportTimeoutMs;
+
+    @Value("${heavy-hitter.enabled:true}")
+    private Boolean heavyHitterEnabled;
+
+    // off | local | reject, what the limiter does with hot keys
+    @Value("${heavy-hitter.mode:local}")
+    private String heavyHitterMode;
+
+    // estimated requests per decay window above which a key counts as hot
+    @Value("${heavy-hitter.hot-threshold:5000}")
+    private Long heavyHitterHotThreshold;
+
+    @Value("${heavy-hitter.width:2048}")
+    private Integer heavyHitterWidth;
+
+    @Value("${heavy-hitter.depth:4}")
+    private Integer heavyHitterDepth;
+
+    @Value("${heavy-hitter.top-k:20}")
+    private Integer heavyHitterTopK;
+
+    // fraction of requests whose phases are timed, requests with a sampled traceparent are always timed
+    @Value("${tracing.sample-rate:0.0}")
+    private Double tracingSampleRate;
+
+    // none | log
+    @Value("${tracing.exporter:none}")
+    private String tracingExporter;
+
+    // spans are exported off the request thread, beyond this many queued spans they are dropped
+    @Value("${tracing.export-buffer-size:10000}")
+    private Integer tracingExportBufferSize;
+
+    @Value("${tracing.export-batch-size:100}")
+    private Integer tracingExportBatchSize;
+
+    @Value("${tracing.server-timing.enabled:false}")
+    private Boolean serverTimingEnabled;
+
+    // let a caller's sampled traceparent flag force sampling, only when every caller is trusted
+    @Value("${tracing.honor-parent-sampled:false}")
+    private Boolean tracingHonorParentSampled;
+
+    @Value("${compression.enabled:true}")
+    private Boolean compressionEnabled;
+
+    // bodies smaller than this are sent uncompressed
+    @Value("${compression.min-size-bytes:1024}")
+    private Integer compressionMinSizeBytes;
+
+    @Value("${compression.level:6}")
+    private Integer compressionLevel;
+
+    @Value("${compression.mime-types:application/json,application/xml,text/html,text/plain,text/css,text/xml,application/javascript,text/javascript}")
+    private String compressionMimeTypes;
+
+    @Value("${concurrency-limit.enabled:true}")
+    private Boolean concurrencyLimitEnabled;
+
+    @Value("${concurrency-limit.initial:20}")
+    private Integer concurrencyLimitInitial;
+
+    @Value("${concurrency-limit.min:2}")
+    private Integer concurrencyLimitMin;
+
+    @Value("${concurrency-limit.max:500}")
+    private Integer concurrencyLimitMax;
+
+    @Value("${concurrency-limit.smoothing:0.2}")
+    private Double concurrencyLimitSmoothing;
+
+    // how much slower than the no-load latency a sample can be before the limit starts shrinking
+    @Value("${concurrency-limit.rtt-tolerance:1.5}")
+    private Double concurrencyLimitRttTolerance;
+
+    // number of samples after which the no-load latency is re-estimated
+    @Value("${concurrency-limit.probe-interval:1000}")
+    private Integer concurrencyLimitProbeInterval;
+
+    @Value("${api-key.enabled:true}")
+    private Boolean apiKeyEnabled;
+
+    // full reload of the local key index from redis, pub/sub covers changes in between
+    @Value("${api-key.refresh-interval-ms:60000}")
+    private Long apiKeyRefreshIntervalMs;
+
+    // name:max-token:tokens-per-interval, comma separated, unknown tiers use rate-limit.*
+    @Value("${api-key.tiers:free:5:1,standard:50:10,premium:500:100}")
+    private String apiKeyTiers;
+
+    // max concurrent requests per user across all nodes, enforced with a redis semaphore
+    @Value("${in-flight-quota.enabled:false}")
+    private Boolean inFlightQuotaEnabled;
+
+    @Value("${in-flight-quota.max-per-identity:20}")
+    private Integer inFlightQuotaMaxPerIdentity;
+
+    // permits of a crashed node are freed after this, keep it above the longest request
+    @Value("${in-flight-quota.lease-ms:120000}")
+    private Long inFlightQuotaLeaseMs;
+
+    // after a redis failure only the local count is enforced for this long
+    @Value("${in-flight-quota.redis-retry-ms:30000}")
+    private Long inFlightQuotaRedisRetryMs;
+
+    // per user request quotas, counted locally and flushed to redis / mysql in batches
+    @Value("${usage-quota.enabled:false}")
+    private Boolean usageQuotaEnabled;
+
+    // 0 = unlimited
+    @Value("${usage-quota.daily-limit:0}")
+    private Long usageQuotaDailyLimit;
+
+    @Value("${usage-quota.monthly-limit:0}")
+    private Long usageQuotaMonthlyLimit;
+
+    // bounds what a crash loses and how far the cluster can over-admit past a quota
+    @Value("${usage-quota.flush-interval-ms:1000}")
+    private Long usageQuotaFlushIntervalMs;
+
+    @Value("${usage-quota.persist-interval-ms:60000}")
+    private Long usageQuotaPersistIntervalMs;
+
+    // auth/audit events published through the AuditEventSink of the auth module (RabbitMQ)
+    @Value("${audit.enabled:false}")
+    private Boolean auditEnabled;
+
+    // events beyond this are dropped, producers never wait
+    @Value("${audit.buffer-size:10000}")
+    private Integer auditBufferSize;
+
+    @Value("${audit.batch-size:100}")
+    private Integer auditBatchSize;
+
+    @Value("${audit.linger-ms:200}")
+    private Long auditLingerMs;
+
+    @Value("${audit.publish-attempts:3}")
+    private Integer auditPublishAttempts;
+
+    // batches the broker didn't confirm are appended here, empty drops them instead
+    @Value("${audit.spill-file:audit-spill.ndjson}")
+    private String auditSpillFile;
+
+    @Value("${audit.spill-max-bytes:67108864}")
+    private Long auditSpillMaxBytes;
+
+    @Value("${audit.exchange:sentinelgate.audit}")
+    private String auditExchange;
+
+    // durable queue bound to the exchange, so events are kept until a consumer shows up
+    @Value("${audit.queue:sentinelgate.audit}")
+    private String auditQueue;
+
+    @Value("${audit.routing-key:audit}")
+    private String auditRoutingKey;
+
+    @Value("${audit.confirm-timeout-ms:5000}")
+    private Long auditConfirmTimeoutMs;
+
+    // exponential backoff for failed logins per username and per client ip
+    @Value("${login-throttle.enabled:true}")
+    private Boolean loginThrottleEnabled;
+
+    // failures within the window before a username is blocked
+    @Value("${login-throttle.user-threshold:5}")
+    private Integer loginThrottleUserThreshold;
+
+    // higher than per user, many users can share one ip behind NAT
+    @Value("${login-throttle.ip-threshold:20}")
+    private Integer loginThrottleIpThreshold;
+
+    // first block, doubled for every further failure
+    @Value("${login-throttle.base-delay-ms:1000}")
+    private Long loginThrottleBaseDelayMs;
+
+    @Value("${login-throttle.max-delay-ms:900000}")
+    private Long loginThrottleMaxDelayMs;
+
+    // failures are forgotten after this long without a new one
+    @Value("${login-throttle.window-ms:900000}")
+    private Long loginThrottleWindowMs;
+
+    @Value("${login-throttle.max-entries:100000}")
+    private Integer loginThrottleMaxEntries;
+
+    // exercise the hot paths in-process before the app reports ready
+    @Value("${warmup.enabled:false}")
+    private Boolean warmupEnabled;
+
+    // upper bound for the whole warm-up, readiness flips when it runs out
+    @Value("${warmup.max-duration-ms:20000}")
+    private Long warmupMaxDurationMs;
+
+    // token, limiter and serialization rounds, no network
+    @Value("${warmup.iterations:20000}")
+    private Integer warmupIterations;
+
+    // requests through the filter chain to the loopback stub
+    @Value("${warmup.proxy-requests:3000}")
+    private Integer warmupProxyRequests;
+
+    @Value("${warmup.concurrency:4}")
+    private Integer warmupConcurrency;
+
+    // batch token introspection for internal services
+    @Value("${introspect.max-tokens:1000}")
+    private Integer introspectMaxTokens;
+
+    // 0 for one thread per cpu
+    @Value("${introspect.parallelism:0}")
+    private Integer introspectParallelism;
+
+    // smaller batches are verified on the request thread
+    @Value("${introspect.parallel-threshold:16}")
+    private Integer introspectParallelThreshold;
+
+    // POST /auth/introspect needs this (or the admin token) in X-Introspect-Token; empty closes the endpoint
+    @Value("${introspect.token:}")
+    private String introspectToken;
+
+    // peer membership over udp heartbeats, local limit fallbacks enforce this node's share
+    @Value("${cluster.enabled:false}")
+    private Boolean clusterEnabled;
+
+    @Value("${cluster.udp-port:7946}")
+    private Integer clusterUdpPort;
+
+    // comma separated host:port, a headless service name resolves to every node
+    @Value("${cluster.peers:}")
+    private String clusterPeers;
+
+    @Value("${cluster.heartbeat-interval-ms:1000}")
+    private Long clusterHeartbeatIntervalMs;
+
+    // a peer not heard from for this long is gone and its share is redistributed
+    @Value("${cluster.peer-timeout-ms:5000}")
+    private Long clusterPeerTimeoutMs;
+
+    // bounds how far unsigned heartbeats can shrink the local share
+    @Value("${cluster.max-peers:64}")
+    private Integer clusterMaxPeers;
+
+    // hmac key for heartbeats, empty to accept unsigned ones
+    @Value("${cluster.secret:}")
+    private String clusterSecret;
+
+    // read-only transactions (user lookups) go to read replicas, writes stay on spring.datasource
+    @Value("${datasource-routing.enabled:false}")
+    private Boolean datasourceRoutingEnabled;
+
+    // comma separated jdbc urls
+    @Value("${datasource-routing.replicas:}")
+    private String datasourceRoutingReplicas;
+
+    // empty to use the spring.datasource credentials
+    @Value("${datasource-routing.username:}")
+    private String datasourceRoutingUsername;
+
+    @Value("${datasource-routing.password:}")
+    private String datasourceRoutingPassword;
+
+    // replicas further behind are skipped until they caught up
+    @Value("${datasource-routing.max-lag-seconds:5}")
+    private Long datasourceRoutingMaxLagSeconds;
+
+    @Value("${datasource-routing.lag-query:SHOW REPLICA STATUS}")
+    private String datasourceRoutingLagQuery;
+
+    @Value("${datasource-routing.lag-check-interval-ms:5000}")
+    private Long datasourceRoutingLagCheckIntervalMs;
+
+    // cidr allow/deny lists checked first in the filter chain
+    @Value("${ip-filter.enabled:false}")
+    private Boolean ipFilterEnabled;
+
+    // "allow <cidr>" / "deny <cidr>" per line, a bare cidr is a deny, reloaded when modified
+    @Value("${ip-filter.rules-file:}")
+    private String ipFilterRulesFile;
+
+    // comma separated, added to the rules file
+    @Value("${ip-filter.allow:}")
+    private String ipFilterAllow;
+
+    @Value("${ip-filter.deny:}")
+    private String ipFilterDeny;
+
+    // allow or deny for addresses no rule matches, deny turns the allow list into an allowlist
+    @Value("${ip-filter.default-action:allow}")
+    private String ipFilterDefaultAction;
+
+    // X-Forwarded-For is only honoured from these, comma separated cidrs
+    @Value("${ip-filter.trusted-proxies:}")
+    private String ipFilterTrustedProxies;
+
+    @Value("${ip-filter.reload-interval-ms:10000}")
+    private Long ipFilterReloadIntervalMs;
+
+    // byte rate per identity, route and direction, request and response bodies are paced to it
+    @Value("${bandwidth.enabled:false}")
+    private Boolean bandwidthEnabled;
+
+    @Value("${bandwidth.bytes-per-second:1048576}")
+    private Long bandwidthBytesPerSecond;
+
+    @Value("${bandwidth.burst-bytes:4194304}")
+    private Long bandwidthBurstBytes;
+
+    // bytes read between two charges, one redis call per chunk
+    @Value("${bandwidth.charge-bytes:65536}")
+    private Long bandwidthChargeBytes;
+
+    // transfers that would have to wait longer are refused
+    @Value("${bandwidth.max-wait-ms:5000}")
+    private Long bandwidthMaxWaitMs;
+
+    // false for node local buckets only
+    @Value("${bandwidth.redis-enabled:true}")
+    private Boolean bandwidthRedisEnabled;
+
+    @Value("${bandwidth.redis-retry-ms:5000}")
+    private Long bandwidthRedisRetryMs;
+
+    @Value("${bandwidth.cleanup-interval-ms:60000}")
+    private Long bandwidthCleanupIntervalMs;
+
+    // paced transfers sleep on a request thread, this many may do so per identity at once; 0 for no cap
+    @Value("${bandwidth.max-paced-per-identity:2}")
+    private Integer bandwidthMaxPacedPerIdentity;
+
+    // gateway routes served by a servlet filter instead of the DispatcherServlet
+    @Value("${fast-path.enabled:false}")
+    private Boolean fastPathEnabled;
+
+    // first path segments that always stay on MVC
+    @Value("${fast-path.mvc-routes:auth,admin,health,error}")
+    private String fastPathMvcRoutes;
+
+    // /admin/** needs this in X-Admin-Token, a user jwt is not enough; empty disables the admin endpoints
+    @Value("${admin.token:}")
+    private String adminToken;
+
+}
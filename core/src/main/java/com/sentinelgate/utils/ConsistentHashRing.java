@@ -0,0 +1,81 @@
+package com.sentinelgate.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring with virtual nodes.
+ *
+ * Keys are hashed on their Redis hash tag (the part between the first '{' and the next '}'),
+ * so keys sharing a tag always land on the same node, same as in Redis Cluster.
+ */
+public class ConsistentHashRing<T> {
+
+    // copy-on-write: membership changes are rare, lookups happen on every redis call
+    private volatile TreeMap<Long, T> ring = new TreeMap<>();
+
+    private final int virtualNodes;
+
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = Math.max(1, virtualNodes);
+    }
+
+    public synchronized void addNode(String name, T node) {
+        TreeMap<Long, T> copy = new TreeMap<>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            copy.put(hash(name + "#" + i), node);
+        }
+        ring = copy;
+    }
+
+    public synchronized void removeNode(String name) {
+        TreeMap<Long, T> copy = new TreeMap<>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            copy.remove(hash(name + "#" + i));
+        }
+        ring = copy;
+    }
+
+    public T get(String key) {
+        TreeMap<Long, T> current = ring;
+        if (current.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, T> entry = current.ceilingEntry(hash(hashTag(key)));
+        return (entry == null ? current.firstEntry() : entry).getValue();
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    /**
+     * Returns the hash tag of a key as defined by Redis Cluster, or the key itself if it has none.
+     */
+    public static String hashTag(String key) {
+        int start = key.indexOf('{');
+        if (start >= 0) {
+            int end = key.indexOf('}', start + 1);
+            if (end > start + 1) {
+                return key.substring(start + 1, end);
+            }
+        }
+        return key;
+    }
+
+    // FNV-1a followed by the murmur3 finalizer for better avalanche on short keys
+    public static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,23 @@
+package com.sentinelgate.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries cluster heartbeats between gateway nodes, UDP in production and in-memory in tests.
+ * Delivery is best effort, a lost heartbeat only delays a rebalance.
+ */
+public interface HeartbeatTransport extends Closeable {
+
+    /**
+     * Starts delivering heartbeats of other nodes (and possibly this one's) to the listener.
+     */
+    void start(Consumer<String> listener) throws IOException;
+
+    /**
+     * Sends one heartbeat to every peer.
+     */
+    void send(String message) throws IOException;
+
+}
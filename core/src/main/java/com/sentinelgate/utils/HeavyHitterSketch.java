@@ -0,0 +1,98 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.HeavyHitter;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min sketch with a top-K table on top, memory is fixed by width, depth and k no matter how
+ * many distinct keys are seen.
+ *
+ * Counting is lock free. The top-K table is only locked when a key's estimate beats the smallest
+ * tracked count, which for skewed traffic is rare once the table has filled up.
+ */
+public class HeavyHitterSketch {
+
+    private final int width;
+    private final int depth;
+    private final int k;
+    private final AtomicLongArray counters;
+
+    private final ConcurrentHashMap<String, Long> topK = new ConcurrentHashMap<>();
+    private volatile long topKMin = 0;
+
+    public HeavyHitterSketch(int width, int depth, int k) {
+        this.width = width;
+        this.depth = depth;
+        this.k = k;
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    /**
+     * Counts one occurrence and returns the key's new estimate.
+     */
+    public long add(String key) {
+        long hash = ConsistentHashRing.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = Math.floorMod(h1 + row * h2, width);
+            estimate = Math.min(estimate, counters.incrementAndGet(row * width + column));
+        }
+        offer(key, estimate);
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long hash = ConsistentHashRing.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = Math.floorMod(h1 + row * h2, width);
+            estimate = Math.min(estimate, counters.get(row * width + column));
+        }
+        return estimate;
+    }
+
+    private void offer(String key, long estimate) {
+        if (topK.size() >= k && estimate <= topKMin && !topK.containsKey(key)) {
+            return;
+        }
+        synchronized (topK) {
+            topK.put(key, estimate);
+            if (topK.size() > k) {
+                topK.entrySet().stream()
+                        .min(Map.Entry.comparingByValue())
+                        .ifPresent(min -> topK.remove(min.getKey()));
+            }
+            topKMin = topK.size() >= k ? topK.values().stream().min(Long::compare).orElse(0L) : 0;
+        }
+    }
+
+    public List<HeavyHitter> getTopK() {
+        return topK.entrySet().stream()
+                .map(entry -> new HeavyHitter(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(HeavyHitter::getCount).reversed())
+                .toList();
+    }
+
+    /**
+     * Halves every counter so estimates follow recent traffic instead of all time totals.
+     */
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.updateAndGet(i, value -> value >> 1);
+        }
+        synchronized (topK) {
+            topK.replaceAll((key, value) -> value >> 1);
+            topK.values().removeIf(value -> value == 0);
+            topKMin = topK.size() >= k ? topK.values().stream().min(Long::compare).orElse(0L) : 0;
+        }
+    }
+}
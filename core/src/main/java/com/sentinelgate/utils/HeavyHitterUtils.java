@@ -0,0 +1,87 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.HeavyHitter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Tracks which rate-limit scopes (paths, api keys) and clients dominate traffic, and tells the limiter
+ * what to do with them. A hot scope is limited locally so it stays off the shared redis; in reject
+ * mode a hot client is turned away, everyone else on the same scope is not.
+ */
+@Service
+public class HeavyHitterUtils {
+
+    public static final String MODE_OFF = "off";
+    public static final String MODE_LOCAL = "local";
+    public static final String MODE_REJECT = "reject";
+
+    public enum Action {
+        NONE,
+        ENFORCE_LOCALLY,
+        REJECT
+    }
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    private HeavyHitterSketch scopeSketch;
+
+    private HeavyHitterSketch clientSketch;
+
+    Logger log = LoggerFactory.getLogger(HeavyHitterUtils.class);
+
+    @PostConstruct
+    public void init() {
+        scopeSketch = new HeavyHitterSketch(configUtils.getHeavyHitterWidth(), configUtils.getHeavyHitterDepth(), configUtils.getHeavyHitterTopK());
+        clientSketch = new HeavyHitterSketch(configUtils.getHeavyHitterWidth(), configUtils.getHeavyHitterDepth(), configUtils.getHeavyHitterTopK());
+    }
+
+    /**
+     * @param scope  rate-limit scope of the request, the path or "apikey:&lt;hash&gt;"
+     * @param client who sent it, e.g. "user:alice", "apikey:&lt;hash&gt;" or "ip:10.0.0.1"
+     */
+    public void record(String scope, String client) {
+        if (!configUtils.getHeavyHitterEnabled()) {
+            return;
+        }
+        scopeSketch.add(scope);
+        if (client != null) {
+            clientSketch.add(client);
+        }
+    }
+
+    /**
+     * @param client null if the caller is unknown, only the scope is considered then
+     */
+    public Action actionFor(String scope, String client) {
+        if (!configUtils.getHeavyHitterEnabled() || MODE_OFF.equalsIgnoreCase(configUtils.getHeavyHitterMode())) {
+            return Action.NONE;
+        }
+        long threshold = configUtils.getHeavyHitterHotThreshold();
+        if (MODE_REJECT.equalsIgnoreCase(configUtils.getHeavyHitterMode()) && client != null && clientSketch.estimate(client) >= threshold) {
+            return Action.REJECT;
+        }
+        return scopeSketch.estimate(scope) >= threshold ? Action.ENFORCE_LOCALLY : Action.NONE;
+    }
+
+    public List<HeavyHitter> getTopScopes() {
+        return scopeSketch.getTopK();
+    }
+
+    public List<HeavyHitter> getTopClients() {
+        return clientSketch.getTopK();
+    }
+
+    @Scheduled(fixedDelayString = "${heavy-hitter.decay-interval-ms:10000}")
+    public void decay() {
+        scopeSketch.decay();
+        clientSketch.decay();
+    }
+}
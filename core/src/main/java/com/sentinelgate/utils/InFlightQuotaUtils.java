@@ -0,0 +1,130 @@
+package com.sentinelgate.utils;
+
+import org.redisson.api.RPermitExpirableSemaphore;
+import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of requests a single identity has in flight across all nodes.
+ *
+ * Every identity has a redis semaphore with in-flight-quota.max-per-identity permits. Permits are
+ * leased, so the ones held by a crashed node come back after in-flight-quota.lease-ms. A local
+ * count per identity rejects without a redis round trip once this node alone is at the quota, and
+ * is the only check while redis is unavailable.
+ */
+@Component
+public class InFlightQuotaUtils {
+
+    public static final String KEY_PREFIX = "IFQ_";
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    @Autowired
+    private ObjectProvider<RedissonClient> redissonClientProvider;
+
+    private final ConcurrentHashMap<String, AtomicInteger> localInFlight = new ConcurrentHashMap<>();
+
+    // redis is skipped until then after a failure
+    private volatile long redisRetryAtMs;
+
+    Logger log = LoggerFactory.getLogger(InFlightQuotaUtils.class);
+
+    /**
+     * @return permit to release once the request is done, null if the identity is at its quota
+     */
+    public Permit tryAcquire(String identity) {
+        if (!configUtils.getInFlightQuotaEnabled()) {
+            return Permit.NONE;
+        }
+        int max = configUtils.getInFlightQuotaMaxPerIdentity();
+        AtomicInteger count = localInFlight.compute(identity, (k, v) -> {
+            AtomicInteger counter = v == null ? new AtomicInteger() : v;
+            counter.incrementAndGet();
+            return counter;
+        });
+        if (count.get() > max) {
+            decrementLocal(identity);
+            return null;
+        }
+
+        if (System.currentTimeMillis() < redisRetryAtMs) {
+            return new Permit(this, identity, null, null);
+        }
+        try {
+            long leaseMs = configUtils.getInFlightQuotaLeaseMs();
+            RPermitExpirableSemaphore semaphore = redissonClientProvider.getObject()
+                    .getPermitExpirableSemaphore(RedisUtils.taggedKey(KEY_PREFIX, identity));
+            String permitId = semaphore.tryAcquire(0, leaseMs, TimeUnit.MILLISECONDS);
+            if (permitId == null && semaphore.trySetPermits(max)) {
+                // first request of this identity, or its semaphore expired while idle
+                permitId = semaphore.tryAcquire(0, leaseMs, TimeUnit.MILLISECONDS);
+            }
+            if (permitId == null) {
+                decrementLocal(identity);
+                return null;
+            }
+            // idle identities disappear once every lease could have run out
+            semaphore.expireAsync(Duration.ofMillis(leaseMs * 2));
+            return new Permit(this, identity, semaphore, permitId);
+        } catch (Exception e) {
+            redisRetryAtMs = System.currentTimeMillis() + configUtils.getInFlightQuotaRedisRetryMs();
+            log.error("In-flight quota falling back to local counts, err: {}", e.getMessage());
+            return new Permit(this, identity, null, null);
+        }
+    }
+
+    public int getLocalInFlight(String identity) {
+        AtomicInteger count = localInFlight.get(identity);
+        return count == null ? 0 : count.get();
+    }
+
+    private void release(Permit permit) {
+        decrementLocal(permit.identity);
+        if (permit.semaphore != null) {
+            // a lost release is recovered by the lease
+            permit.semaphore.tryReleaseAsync(permit.permitId);
+        }
+    }
+
+    private void decrementLocal(String identity) {
+        localInFlight.computeIfPresent(identity, (k, v) -> v.decrementAndGet() <= 0 ? null : v);
+    }
+
+    public static final class Permit {
+
+        public static final Permit NONE = new Permit(null, null, null, null);
+
+        private final InFlightQuotaUtils owner;
+        private final String identity;
+        private final RPermitExpirableSemaphore semaphore;
+        private final String permitId;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(InFlightQuotaUtils owner, String identity, RPermitExpirableSemaphore semaphore, String permitId) {
+            this.owner = owner;
+            this.identity = identity;
+            this.semaphore = semaphore;
+            this.permitId = permitId;
+        }
+
+        /**
+         * Safe to call more than once, only the first call releases.
+         */
+        public void release() {
+            if (owner != null && released.compareAndSet(false, true)) {
+                owner.release(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.sentinelgate.utils;
+
+import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CIDR allow/deny decisions for the client address. Rules and trusted proxies are compiled into
+ * {@link CidrTrie}s and published as one immutable snapshot, a reload builds the next snapshot
+ * aside and swaps the reference, requests never see a half built list.
+ *
+ * The trusted proxies also decide {@link #clientAddress(HttpServletRequest)}, which other per-client
+ * decisions use whether or not the filter itself is enabled.
+ */
+@Component
+public class IpFilterUtils {
+
+    public static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    private volatile Snapshot snapshot;
+
+    // ip-filter.trusted-proxies, kept apart from the snapshot for clientAddress()
+    private CidrTrie trustedProxies;
+
+    // modification time of the rules file the current snapshot was built from
+    private volatile long rulesModifiedAt = Long.MIN_VALUE;
+
+    private final LongAdder denied = new LongAdder();
+
+    Logger log = LoggerFactory.getLogger(IpFilterUtils.class);
+
+    @PostConstruct
+    public void init() {
+        CidrTrie trusted = new CidrTrie();
+        addAll(trusted, configUtils.getIpFilterTrustedProxies(), CidrTrie.ALLOW);
+        trustedProxies = trusted.compact();
+        if (configUtils.getIpFilterEnabled()) {
+            load(modifiedAt());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ip-filter.reload-interval-ms:10000}")
+    public void reload() {
+        if (!configUtils.getIpFilterEnabled() || StringUtils.isBlank(configUtils.getIpFilterRulesFile())) {
+            return;
+        }
+        long modifiedAt = modifiedAt();
+        if (modifiedAt != rulesModifiedAt) {
+            load(modifiedAt);
+        }
+    }
+
+    public boolean isAllowed(HttpServletRequest request) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return true;
+        }
+        String remoteAddress = request.getRemoteAddr();
+        byte action = current.trusted.match(remoteAddress) == CidrTrie.ALLOW
+                ? forwardedAction(current, request.getHeader(FORWARDED_FOR), remoteAddress)
+                : current.rules.match(remoteAddress);
+        boolean allowed = action == CidrTrie.NONE ? !current.defaultDeny : action == CidrTrie.ALLOW;
+        if (!allowed) {
+            denied.increment();
+        }
+        return allowed;
+    }
+
+    /**
+     * @return the address the request came from, the X-Forwarded-For client when the connection
+     *         comes from a trusted proxy, the peer address otherwise
+     */
+    public String clientAddress(HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        if (trustedProxies.match(remoteAddress) != CidrTrie.ALLOW) {
+            return remoteAddress;
+        }
+        String forwardedFor = request.getHeader(FORWARDED_FOR);
+        long range = clientRange(trustedProxies, forwardedFor);
+        return range < 0 ? remoteAddress : forwardedFor.substring((int) (range >>> 32), (int) range);
+    }
+
+    private static byte forwardedAction(Snapshot current, String forwardedFor, String remoteAddress) {
+        long range = clientRange(current.trusted, forwardedFor);
+        return range < 0 ? current.rules.match(remoteAddress) : current.rules.match(forwardedFor, (int) (range >>> 32), (int) range);
+    }
+
+    /**
+     * Walks X-Forwarded-For from the right, skipping our own proxies, the first other entry is the
+     * client. Entries are matched in place, the header is never split.
+     *
+     * @return start and end of the client entry packed as start << 32 | end, -1 if there is none
+     */
+    private static long clientRange(CidrTrie trusted, String forwardedFor) {
+        if (StringUtils.isBlank(forwardedFor)) {
+            return -1;
+        }
+        int end = forwardedFor.length();
+        while (end > 0) {
+            int start = forwardedFor.lastIndexOf(',', end - 1) + 1;
+            int from = start;
+            int to = end;
+            while (from < to && Character.isWhitespace(forwardedFor.charAt(from))) {
+                from++;
+            }
+            while (to > from && Character.isWhitespace(forwardedFor.charAt(to - 1))) {
+                to--;
+            }
+            // the leftmost entry is the client even if it is a proxy address
+            if (start == 0 || trusted.match(forwardedFor, from, to) != CidrTrie.ALLOW) {
+                return (long) from << 32 | to;
+            }
+            end = start - 1;
+        }
+        return -1;
+    }
+
+    private long modifiedAt() {
+        if (StringUtils.isBlank(configUtils.getIpFilterRulesFile())) {
+            return 0;
+        }
+        try {
+            return Files.getLastModifiedTime(Path.of(configUtils.getIpFilterRulesFile())).toMillis();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private void load(long modifiedAt) {
+        long start = System.nanoTime();
+        CidrTrie rules = new CidrTrie();
+        CidrTrie trusted = new CidrTrie();
+        int invalid = addAll(rules, configUtils.getIpFilterAllow(), CidrTrie.ALLOW)
+                + addAll(rules, configUtils.getIpFilterDeny(), CidrTrie.DENY)
+                + addAll(trusted, configUtils.getIpFilterTrustedProxies(), CidrTrie.ALLOW);
+
+        if (StringUtils.isNotBlank(configUtils.getIpFilterRulesFile())) {
+            try {
+                List<String> lines = Files.readAllLines(Path.of(configUtils.getIpFilterRulesFile()));
+                for (String line : lines) {
+                    invalid += addRule(rules, line);
+                }
+            } catch (Exception e) {
+                if (snapshot != null) {
+                    // keep enforcing the last good list
+                    log.warn("Error while reading ip filter rules {}, keeping the current ones, err: {}", configUtils.getIpFilterRulesFile(), e.toString());
+                    rulesModifiedAt = modifiedAt;
+                    return;
+                }
+                log.warn("Error while reading ip filter rules {}, using the inline rules only, err: {}", configUtils.getIpFilterRulesFile(), e.toString());
+            }
+        }
+
+        snapshot = new Snapshot(rules.compact(), trusted.compact(), "deny".equalsIgnoreCase(configUtils.getIpFilterDefaultAction()),
+                System.currentTimeMillis());
+        rulesModifiedAt = modifiedAt;
+        log.info("Ip filter loaded, prefixes: {}, nodes: {}, trusted proxies: {}, invalid entries: {}, took {} ms",
+                rules.getPrefixes(), rules.getNodes(), trusted.getPrefixes(), invalid, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static int addAll(CidrTrie trie, String cidrs, byte action) {
+        int invalid = 0;
+        for (String cidr : cidrs.split(",")) {
+            if (StringUtils.isBlank(cidr)) {
+                continue;
+            }
+            try {
+                trie.add(cidr, action);
+            } catch (IllegalArgumentException e) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    // @return 1 if the line is invalid
+    private static int addRule(CidrTrie trie, String line) {
+        String rule = line.strip();
+        if (rule.isEmpty() || rule.startsWith("#")) {
+            return 0;
+        }
+        byte action = CidrTrie.DENY;
+        int space = rule.indexOf(' ');
+        if (space > 0) {
+            String verb = rule.substring(0, space);
+            if ("allow".equalsIgnoreCase(verb)) {
+                action = CidrTrie.ALLOW;
+            } else if (!"deny".equalsIgnoreCase(verb)) {
+                return 1;
+            }
+            rule = rule.substring(space + 1).strip();
+        }
+        try {
+            trie.add(rule, action);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            return 1;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", current != null);
+        if (current != null) {
+            stats.put("prefixes", current.rules.getPrefixes());
+            stats.put("nodes", current.rules.getNodes());
+            stats.put("trustedProxies", current.trusted.getPrefixes());
+            stats.put("defaultAction", current.defaultDeny ? "deny" : "allow");
+            stats.put("loadedAt", current.loadedAt);
+        }
+        stats.put("denied", denied.sum());
+        return stats;
+    }
+
+    private static class Snapshot {
+
+        private final CidrTrie rules;
+
+        private final CidrTrie trusted;
+
+        private final boolean defaultDeny;
+
+        private final long loadedAt;
+
+        Snapshot(CidrTrie rules, CidrTrie trusted, boolean defaultDeny, long loadedAt) {
+            this.rules = rules;
+            this.trusted = trusted;
+            this.defaultDeny = defaultDeny;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -2,10 +2,13 @@ package com.sentinelgate.utils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,13 +30,25 @@ public class JwtUtils {
 
     Logger log = LoggerFactory.getLogger(JwtUtils.class);
 
+    // key and parser are immutable and thread-safe, built once instead of per token
+    private Key key;
+
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        byte[] secret = Decoders.BASE64.decode(configUtils.getJwtSecret());
+        key = Keys.hmacShaKeyFor(secret);
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
+    }
+
     public String generateToken(Object object) {
         try {
             return Jwts.builder()
                     .setSubject(objectMapper.writeValueAsString(object))
                     .setIssuedAt(new Date(System.currentTimeMillis()))
                     .setExpiration(new Date(System.currentTimeMillis() + 60 * 60 * 1000L))
-                    .signWith(getKey(), SignatureAlgorithm.HS256)
+                    .signWith(key, SignatureAlgorithm.HS256)
                     .compact();
         } catch (Exception e) {
             log.error("Error while generating token: {}, err: ", object, e);
@@ -41,11 +56,6 @@ public class JwtUtils {
         return null;
     }
 
-    private Key getKey() {
-        byte[] key = Decoders.BASE64.decode(configUtils.getJwtSecret());
-        return Keys.hmacShaKeyFor(key);
-    }
-
     public <T> T extractPayload(String token, Class<T> clazz) {
         try {
             String subject = extractClaim(token, Claims::getSubject);
@@ -57,17 +67,13 @@ public class JwtUtils {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimClass) {
-        Claims claims = Jwts.parserBuilder().setSigningKey(getKey()).build().parseClaimsJws(token).getBody();
+        Claims claims = verify(token);
         return claimClass.apply(claims);
     }
 
     public boolean validate(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getKey())
-                    .build()
-                    .parseClaimsJws(token);
-
+            verify(token);
             return true;
         } catch (Exception e) {
             log.error("Error while validating token, err: ", e);
@@ -75,4 +81,36 @@ public class JwtUtils {
         }
     }
 
+    /**
+     * Validates the token and returns its claims, null if it isn't valid.
+     */
+    public Claims parse(String token) {
+        try {
+            return verify(token);
+        } catch (Exception e) {
+            log.error("Error while validating token, err: ", e);
+            return null;
+        }
+    }
+
+    /**
+     * Validates the token and returns its claims.
+     *
+     * @throws JwtException (e.g. ExpiredJwtException) or IllegalArgumentException if it isn't valid
+     */
+    public Claims verify(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * @return username of the user serialized into the subject, null if there is none
+     */
+    public String username(Claims claims) {
+        try {
+            return objectMapper.readTree(claims.getSubject()).path("username").asText(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,165 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.RateLimitRedisPojo;
+import com.sentinelgate.pojo.RateLimitTier;
+import com.sentinelgate.pojo.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class RateLimitingUtils {
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    @Autowired
+    private HeavyHitterUtils heavyHitterUtils;
+
+    @Autowired
+    private ClusterUtils clusterUtils;
+
+    private final ConcurrentHashMap<String, Deque<Long>> globalDequeMap;
+
+    RateLimitingUtils() {
+        globalDequeMap = new ConcurrentHashMap<>();
+    }
+
+    Logger log = LoggerFactory.getLogger(RateLimitingUtils.class);
+
+    public Boolean isRequestAllowed(String path) {
+        return isRequestAllowed(path, RequestTrace.NOOP);
+    }
+
+    public Boolean isRequestAllowed(String path, RequestTrace trace) {
+        return isRequestAllowed(path, null, trace);
+    }
+
+    public Boolean isRequestAllowed(String path, RateLimitTier tier, RequestTrace trace) {
+        return isRequestAllowed(path, null, tier, trace);
+    }
+
+    /**
+     * @param path   rate-limit scope, the request path or an api key scope
+     * @param client caller as recorded with the heavy hitters, a hot one is rejected in reject mode; null if unknown
+     * @param tier   limits for the scope, null for the rate-limit.* defaults
+     */
+    public Boolean isRequestAllowed(String path, String client, RateLimitTier tier, RequestTrace trace) {
+        int maxToken = tier == null ? configUtils.getRateLimitingMaxToken() : tier.getMaxToken();
+        int tokensPerInterval = tier == null ? configUtils.getRateLimitingTokenSizePerSecond() : tier.getTokensPerInterval();
+        long start = trace.start();
+        // hot keys are kept off the shared redis
+        switch (heavyHitterUtils.actionFor(path, client)) {
+            case REJECT:
+                trace.end("limiter-hot", start);
+                return false;
+            case ENFORCE_LOCALLY:
+                Boolean allowed = rateLimitLocally(path, clusterUtils.share(maxToken));
+                trace.end("limiter-local", start);
+                return allowed;
+            default:
+                break;
+        }
+        try {
+            Boolean allowed = rateLimitUsingRedis(path, maxToken, tokensPerInterval);
+            trace.end("limiter-redis", start);
+            return allowed;
+        } catch (Exception e) {
+            trace.end("limiter-redis", start);
+            log.error("Error while rate limiting using redis, err: ", e);
+        }
+        // every node decides alone now, each one enforces its share of the global limit
+        start = trace.start();
+        Boolean allowed = rateLimitLocally(path, clusterUtils.share(maxToken));
+        trace.end("limiter-local", start);
+        return allowed;
+    }
+
+    /**
+     * Runs the hot-key and local limiter decisions on a throwaway scope for the startup warm-up.
+     * The redis bucket is left out, every round there would be a write to shared state.
+     *
+     * @return number of allowed decisions
+     */
+    public int warmUp(int iterations) {
+        String scope = "warmup:" + UUID.randomUUID();
+        int allowed = 0;
+        try {
+            for (int i = 0; i < iterations; i++) {
+                heavyHitterUtils.actionFor(scope, scope);
+                if (rateLimitLocally(scope, configUtils.getRateLimitingMaxToken())) {
+                    allowed++;
+                }
+            }
+        } finally {
+            globalDequeMap.remove(scope);
+        }
+        return allowed;
+    }
+
+    private Boolean rateLimitUsingRedis(String path, int maxToken, int tokensPerInterval) throws Exception {
+        // token bucket, throw exception if connection to redis not established
+        if (!configUtils.getRateLimitingEnabled()) {
+            return true;
+        }
+
+        String RATE_LIMITING_REDIS_KEY = RedisUtils.taggedKey("RLP_", path);
+        RateLimitRedisPojo ratePojo = redisUtils.getOrThrow(RATE_LIMITING_REDIS_KEY, RateLimitRedisPojo.class);
+        Integer tokens;
+        Integer currentTime = (int) (System.currentTimeMillis() / 3000);
+        if (ratePojo == null) {
+            tokens = tokensPerInterval;
+        } else {
+            Integer lastRequestTime = ratePojo.getLastRequestTime();
+            tokens = Math.min(ratePojo.getCount() + (currentTime - lastRequestTime) * tokensPerInterval, maxToken);
+        }
+
+        log.info("time: {}, count: {}", currentTime, tokens);
+
+        if (tokens <= 0) {
+            return false;
+        }
+        redisUtils.set(RATE_LIMITING_REDIS_KEY, new RateLimitRedisPojo(tokens - 1, currentTime));
+        return true;
+    }
+
+    private Boolean rateLimitLocally(String path, int maxToken) {
+        try {
+            if (!configUtils.getRateLimitingEnabled()) {
+                return true;
+            }
+
+            // sliding window rate limiting
+            long currentTime = Instant.now().toEpochMilli();
+            Deque<Long> pathDeque = globalDequeMap.computeIfAbsent(path, k -> new ArrayDeque<>());
+
+            synchronized (pathDeque) {
+                while (!pathDeque.isEmpty() && pathDeque.peekFirst() < currentTime) {
+                    pathDeque.pollFirst();
+                }
+
+                int current = pathDeque.size();
+                if (current < maxToken) {
+                    pathDeque.addLast(currentTime + configUtils.getRateLimitingTtlMs());
+                    globalDequeMap.put(path, pathDeque);
+                    return true;
+                }
+                return false;
+            }
+
+        } catch (Exception e) {
+            log.error("Error while rate limiting locally, err: ", e);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,177 @@
+package com.sentinelgate.utils;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the redis template responsible for a key.
+ *
+ * In standalone and cluster mode every key goes through the default template (cluster slot
+ * routing is done by lettuce). In sharded mode keys are spread over the standalone nodes listed
+ * in redis.nodes with client side consistent hashing on the key's hash tag.
+ * <p>
+ * A shard that fails a health check or a call with a connection error is taken off the ring, only
+ * its keys move to the next shard (their state starts over there) until it answers a ping again.
+ * With every shard down keys stay on their own shard, callers fail and fall back to local limits.
+ */
+@Component
+public class RedisShardRouter {
+
+    public static final String MODE_STANDALONE = "standalone";
+    public static final String MODE_CLUSTER = "cluster";
+    public static final String MODE_SHARDED = "sharded";
+
+    Logger log = LoggerFactory.getLogger(RedisShardRouter.class);
+
+    @Autowired
+    RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    private final List<LettuceConnectionFactory> shardFactories = new ArrayList<>();
+
+    // all shards by name, in registration order
+    private final Map<String, RedisTemplate<String, String>> shards = new LinkedHashMap<>();
+
+    private final Set<String> downShards = ConcurrentHashMap.newKeySet();
+
+    private ConsistentHashRing<RedisTemplate<String, String>> ring;
+
+    // every shard, used when all of them are down
+    private ConsistentHashRing<RedisTemplate<String, String>> fullRing;
+
+    @PostConstruct
+    public void init() {
+        if (!MODE_SHARDED.equalsIgnoreCase(configUtils.getRedisMode())) {
+            return;
+        }
+        Duration timeout = Duration.ofMillis(configUtils.getRedisShardingTimeoutMs());
+        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+                .commandTimeout(timeout)
+                .clientOptions(ClientOptions.builder().socketOptions(SocketOptions.builder().connectTimeout(timeout).build()).build())
+                .build();
+        for (String node : parseNodes(configUtils.getRedisNodes())) {
+            String[] hostPort = node.split(":");
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(
+                    new RedisStandaloneConfiguration(hostPort[0], Integer.parseInt(hostPort[1])), clientConfig);
+            factory.afterPropertiesSet();
+            shardFactories.add(factory);
+            addShard(node, new StringRedisTemplate(factory));
+        }
+        log.info("Redis sharding enabled over {} nodes", shardFactories.size());
+    }
+
+    /**
+     * Registers a node directly, used to point the router at local stand-ins.
+     */
+    public synchronized void addShard(String name, RedisTemplate<String, String> template) {
+        if (ring == null) {
+            int virtualNodes = configUtils == null ? 160 : configUtils.getRedisShardingVirtualNodes();
+            ring = new ConsistentHashRing<>(virtualNodes);
+            fullRing = new ConsistentHashRing<>(virtualNodes);
+        }
+        shards.put(name, template);
+        ring.addNode(name, template);
+        fullRing.addNode(name, template);
+    }
+
+    public RedisTemplate<String, String> templateFor(String key) {
+        if (fullRing == null || fullRing.isEmpty()) {
+            return redisTemplate;
+        }
+        return ring.isEmpty() ? fullRing.get(key) : ring.get(key);
+    }
+
+    /**
+     * Called by callers whose redis call for the key failed, connection errors and timeouts take
+     * the key's shard off the ring right away instead of waiting for the next health check.
+     */
+    public void reportFailure(String key, Exception e) {
+        if (fullRing == null || !(e instanceof DataAccessResourceFailureException || e instanceof QueryTimeoutException)) {
+            return;
+        }
+        RedisTemplate<String, String> template = templateFor(key);
+        shards.forEach((name, shard) -> {
+            if (shard == template) {
+                markDown(name);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${redis.sharding.health-check-interval-ms:1000}")
+    public void checkShards() {
+        if (fullRing == null) {
+            return;
+        }
+        shards.forEach((name, template) -> {
+            if (ping(template)) {
+                markUp(name);
+            } else {
+                markDown(name);
+            }
+        });
+    }
+
+    boolean ping(RedisTemplate<String, String> template) {
+        try (RedisConnection connection = template.getRequiredConnectionFactory().getConnection()) {
+            return "PONG".equalsIgnoreCase(connection.ping());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private synchronized void markDown(String name) {
+        if (downShards.add(name)) {
+            ring.removeNode(name);
+            log.warn("Redis shard {} is down, its keys move to the next shard", name);
+        }
+    }
+
+    private synchronized void markUp(String name) {
+        if (downShards.remove(name)) {
+            ring.addNode(name, shards.get(name));
+            log.info("Redis shard {} is back", name);
+        }
+    }
+
+    public Set<String> getDownShards() {
+        return Set.copyOf(downShards);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        shardFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    public static List<String> parseNodes(String nodes) {
+        if (nodes == null || nodes.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(nodes.split(",")).map(String::trim).filter(n -> !n.isEmpty()).toList();
+    }
+}
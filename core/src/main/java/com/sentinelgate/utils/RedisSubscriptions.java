@@ -0,0 +1,53 @@
+package com.sentinelgate.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis pub/sub for local caches. The shared listener container is started from the scheduler
+ * and restarted while it isn't listening, so neither startup nor requests wait on redis.
+ */
+@Component
+public class RedisSubscriptions {
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile boolean hasListeners;
+
+    private volatile boolean failing;
+
+    Logger log = LoggerFactory.getLogger(RedisSubscriptions.class);
+
+    public void subscribe(MessageListener listener, String channel) {
+        redisMessageListenerContainer.addMessageListener(listener, new ChannelTopic(channel));
+        hasListeners = true;
+    }
+
+    @Scheduled(fixedDelayString = "${redis.pubsub.retry-interval-ms:5000}")
+    public void ensureListening() {
+        if (!hasListeners || redisMessageListenerContainer.isListening()) {
+            return;
+        }
+        try {
+            // a failed start leaves the container marked as started
+            redisMessageListenerContainer.stop();
+            redisMessageListenerContainer.start();
+            if (failing) {
+                log.info("Redis pub/sub subscribed");
+            }
+            failing = false;
+        } catch (Exception e) {
+            if (!failing) {
+                log.warn("Redis pub/sub not available, retrying: {}", e.getMessage());
+            }
+            failing = true;
+        }
+    }
+}
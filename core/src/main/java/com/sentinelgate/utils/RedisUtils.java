@@ -6,7 +6,6 @@ import io.micrometer.common.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.TimeUnit;
@@ -17,18 +16,26 @@ public class RedisUtils {
     Logger log = LoggerFactory.getLogger(RedisUtils.class);
 
     @Autowired
-    RedisTemplate<String, String> redisTemplate;
+    ObjectMapper objectMapper;
 
     @Autowired
-    ObjectMapper objectMapper;
+    RedisShardRouter redisShardRouter;
+
+    /**
+     * Builds a key whose id is wrapped in a hash tag, so all keys of one id share a cluster slot / shard.
+     */
+    public static String taggedKey(String prefix, String id) {
+        return prefix + "{" + id + "}";
+    }
 
     public <T> void set(String key, T value){
         try {
             if (StringUtils.isNotEmpty(key))
-                redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(value));
+                redisShardRouter.templateFor(key).opsForValue().set(key, objectMapper.writeValueAsString(value));
             else
                 log.info("Empty redis key");
         }catch (Exception e){
+            redisShardRouter.reportFailure(key, e);
             log.error("Error while saving to redis, key: {}, value: {}, err: ", key, value, e);
         }
     }
@@ -36,10 +43,11 @@ public class RedisUtils {
     public <T> void set(String key, T value, Integer expiry){
         try {
             if (StringUtils.isNotEmpty(key))
-                redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(value), expiry, TimeUnit.SECONDS);
+                redisShardRouter.templateFor(key).opsForValue().set(key, objectMapper.writeValueAsString(value), expiry, TimeUnit.SECONDS);
             else
                 log.info("Empty redis key");
         }catch (Exception e){
+            redisShardRouter.reportFailure(key, e);
             log.error("Error while saving to redis, key: {}, value: {}, expiry: {}, err: ", key, value, expiry, e);
         }
     }
@@ -48,13 +56,14 @@ public class RedisUtils {
         T response = null;
         try {
             if (StringUtils.isNotEmpty(key)){
-                String val = redisTemplate.opsForValue().get(key);
+                String val = redisShardRouter.templateFor(key).opsForValue().get(key);
                 if (val != null)
                     response = objectMapper.readValue(val, clazz);
             } else {
                 log.info("Empty redis key");
             }
         }catch (Exception e){
+            redisShardRouter.reportFailure(key, e);
             log.error("Error while getting from redis, key: {}, err: ", key, e);
         }
         log.info("key: {}, value: {}", key, response);
@@ -63,7 +72,13 @@ public class RedisUtils {
 
     public <T> T getOrThrow(String key, Class<T> clazz) throws Exception {
         if (StringUtils.isNotEmpty(key)) {
-            String val = redisTemplate.opsForValue().get(key);
+            String val;
+            try {
+                val = redisShardRouter.templateFor(key).opsForValue().get(key);
+            } catch (Exception e) {
+                redisShardRouter.reportFailure(key, e);
+                throw e;
+            }
             if (val != null)
                 return objectMapper.readValue(val, clazz);
         } else {
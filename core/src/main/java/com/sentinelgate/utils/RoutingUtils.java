@@ -0,0 +1,57 @@
+package com.sentinelgate.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class RoutingUtils {
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    // routes registered at runtime, e.g. the loopback stub of the startup warm-up
+    private final Map<String, String> runtimeHosts = new ConcurrentHashMap<>();
+
+    public void registerRoute(String serviceKey, String host) {
+        runtimeHosts.put(serviceKey, host);
+    }
+
+    public void removeRoute(String serviceKey) {
+        runtimeHosts.remove(serviceKey);
+    }
+
+    // inside your existing ConfigUtils
+    public String getServiceHost(String serviceKey) {
+        // Simple hardcoded map; replace with externalized config or discovery (Eureka/Consul)
+        // Example values could be read from application.properties: gateway.service.product = http://localhost:8081
+        String runtimeHost = runtimeHosts.get(serviceKey);
+        if (runtimeHost != null) return runtimeHost;
+        if ("product".equals(serviceKey)) return configUtils.getProductServiceHost(); // define productServiceHost field with @Value
+        // else return null
+        return null;
+    }
+
+    public Integer getServiceTimeout(String serviceKey) {
+        if ("product".equals(serviceKey)) return configUtils.getProductServiceTimeout();
+        return null;
+    }
+
+    public Long getServiceDeadlineMs(String serviceKey) {
+        if ("product".equals(serviceKey)) return configUtils.getProductServiceDeadlineMs();
+        return null;
+    }
+
+    public String getMirrorHost(String serviceKey) {
+        if ("product".equals(serviceKey)) return configUtils.getProductServiceMirrorHost();
+        return null;
+    }
+
+    public Double getMirrorSampleRate(String serviceKey) {
+        if ("product".equals(serviceKey)) return configUtils.getProductServiceMirrorSampleRate();
+        return null;
+    }
+
+}
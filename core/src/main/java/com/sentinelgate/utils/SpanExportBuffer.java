@@ -0,0 +1,98 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.TraceSpan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue in front of a {@link SpanExporter} that may block (e.g. write a log line).
+ *
+ * {@link #export} never blocks, spans that don't fit into the queue are dropped. One background
+ * thread hands them to the delegate in batches of up to batchSize.
+ */
+public class SpanExportBuffer implements SpanExporter, AutoCloseable {
+
+    private final SpanExporter delegate;
+
+    private final ArrayBlockingQueue<TraceSpan> queue;
+
+    private final int batchSize;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    Logger log = LoggerFactory.getLogger(SpanExportBuffer.class);
+
+    public SpanExportBuffer(SpanExporter delegate, int capacity, int batchSize) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.worker = new Thread(this::run, "span-exporter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void export(List<TraceSpan> spans) {
+        for (TraceSpan span : spans) {
+            if (!queue.offer(span)) {
+                dropped.increment();
+            }
+        }
+    }
+
+    public long getExported() {
+        return exported.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting work and exports what is queued within the timeout.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        List<TraceSpan> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                TraceSpan first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                delegate.export(batch);
+                exported.add(batch.size());
+            } catch (InterruptedException e) {
+                // close() wakes the worker, the loop drains what is left
+                if (running) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (Exception e) {
+                dropped.add(batch.size());
+                log.error("Span exporter error, err: ", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
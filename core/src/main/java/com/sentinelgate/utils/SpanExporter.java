@@ -0,0 +1,16 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.TraceSpan;
+
+import java.util.List;
+
+/**
+ * Receives finished spans of sampled requests. Implementations must not block the request thread.
+ */
+public interface SpanExporter {
+
+    SpanExporter NOOP = spans -> { };
+
+    void export(List<TraceSpan> spans);
+
+}
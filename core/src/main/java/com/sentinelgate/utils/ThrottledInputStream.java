@@ -0,0 +1,145 @@
+package com.sentinelgate.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Paces reads against a {@link BandwidthLimitingUtils} bucket. Bytes are charged after they were
+ * read, in chunks of at least chargeBytes (and at end of stream), and the reader sleeps for the
+ * returned wait, so the copy loop on top, and with it the socket write, runs at the bucket's rate.
+ * <p>
+ * The sleep blocks the calling request thread. Before its first wait a transfer takes one of the
+ * identity's pacing slots and holds it until end of stream, close or failure; without a free slot
+ * it is refused instead of parking yet another thread.
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    private final BandwidthLimitingUtils limiter;
+
+    private final String scope;
+
+    private final String identity;
+
+    private final long chargeBytes;
+
+    private long unpaid;
+
+    private boolean closed;
+
+    private boolean pacing;
+
+    public ThrottledInputStream(InputStream in, BandwidthLimitingUtils limiter, String scope, String identity, long chargeBytes) {
+        super(in);
+        this.limiter = limiter;
+        this.scope = scope;
+        this.identity = identity;
+        this.chargeBytes = chargeBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b;
+        try {
+            b = super.read();
+        } catch (IOException e) {
+            // e.g. the client went away, upload streams are not always closed
+            releasePacing();
+            throw e;
+        }
+        account(b < 0 ? -1 : 1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read;
+        try {
+            read = super.read(buffer, offset, length);
+        } catch (IOException e) {
+            releasePacing();
+            throw e;
+        }
+        account(read);
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        account((int) Math.min(Integer.MAX_VALUE, skipped));
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!closed && unpaid > 0) {
+                // charged without waiting, the transfer is over
+                limiter.chargeUnpaced(scope, unpaid);
+                unpaid = 0;
+            }
+        } finally {
+            closed = true;
+            releasePacing();
+            super.close();
+        }
+    }
+
+    private void releasePacing() {
+        if (pacing) {
+            pacing = false;
+            limiter.releasePacing(identity);
+        }
+    }
+
+    private void account(int read) throws IOException {
+        if (read < 0) {
+            // end of stream, the rest is charged against the next transfer of the scope
+            if (unpaid > 0) {
+                limiter.chargeUnpaced(scope, unpaid);
+                unpaid = 0;
+            }
+            releasePacing();
+            return;
+        }
+        unpaid += read;
+        if (unpaid < chargeBytes) {
+            return;
+        }
+        long waitMs = limiter.charge(scope, unpaid);
+        if (waitMs < 0) {
+            // nothing was taken, but the bytes went through all the same
+            limiter.chargeUnpaced(scope, unpaid);
+            unpaid = 0;
+            releasePacing();
+            throw new BandwidthExceededException();
+        }
+        unpaid = 0;
+        if (waitMs > 0) {
+            if (!pacing && !limiter.tryAcquirePacing(identity)) {
+                throw new BandwidthExceededException();
+            }
+            pacing = true;
+            try {
+                Thread.sleep(waitMs);
+            } catch (InterruptedException e) {
+                releasePacing();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling");
+            }
+        }
+    }
+
+    /**
+     * The scope is so far over its rate that pacing would stall the transfer beyond bandwidth.max-wait-ms,
+     * or the identity has bandwidth.max-paced-per-identity transfers paced already.
+     */
+    public static class BandwidthExceededException extends IOException {
+
+        public BandwidthExceededException() {
+            super("Bandwidth limit exceeded");
+        }
+    }
+}
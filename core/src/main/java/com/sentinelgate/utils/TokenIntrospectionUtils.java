@@ -0,0 +1,88 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.TokenIntrospection;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Verifies batches of tokens for internal services, one call instead of one per token.
+ * Large batches are split over a dedicated pool so they don't compete with the common pool.
+ */
+@Service
+public class TokenIntrospectionUtils {
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int parallelism = configUtils.getIntrospectParallelism();
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    /**
+     * @return one result per token, in the order of the tokens
+     */
+    public List<TokenIntrospection> introspect(List<String> tokens) {
+        if (tokens.size() < configUtils.getIntrospectParallelThreshold()) {
+            return tokens.stream().map(this::introspect).toList();
+        }
+        try {
+            // a parallel stream started from a pool task is split over that pool
+            return pool.submit(() -> tokens.parallelStream().map(this::introspect).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while introspecting tokens", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error while introspecting tokens", e.getCause());
+        }
+    }
+
+    public TokenIntrospection introspect(String token) {
+        if (StringUtils.isBlank(token)) {
+            return inactive(TokenIntrospection.MALFORMED);
+        }
+        try {
+            Claims claims = jwtUtils.verify(token);
+            return TokenIntrospection.builder()
+                    .active(true)
+                    .username(jwtUtils.username(claims))
+                    .iat(claims.getIssuedAt() == null ? null : claims.getIssuedAt().getTime() / 1000)
+                    .exp(claims.getExpiration() == null ? null : claims.getExpiration().getTime() / 1000)
+                    .build();
+        } catch (ExpiredJwtException e) {
+            return inactive(TokenIntrospection.EXPIRED);
+        } catch (MalformedJwtException | UnsupportedJwtException | IllegalArgumentException e) {
+            return inactive(TokenIntrospection.MALFORMED);
+        } catch (JwtException e) {
+            // bad signature, no details for callers
+            return inactive(TokenIntrospection.INVALID);
+        }
+    }
+
+    private static TokenIntrospection inactive(String error) {
+        return TokenIntrospection.builder().active(false).error(error).build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.sentinelgate.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.RequestTrace;
+import com.sentinelgate.pojo.TraceSpan;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampling, W3C trace context parsing and span export for per-request phase timing.
+ */
+@Component
+public class TracingUtils {
+
+    public static final String EXPORTER_NONE = "none";
+    public static final String EXPORTER_LOG = "log";
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private SpanExporter exporter = SpanExporter.NOOP;
+
+    Logger log = LoggerFactory.getLogger(TracingUtils.class);
+
+    private SpanExportBuffer exportBuffer;
+
+    @PostConstruct
+    public void init() {
+        if (EXPORTER_LOG.equalsIgnoreCase(configUtils.getTracingExporter())) {
+            // log appenders may block, the request thread only enqueues
+            exportBuffer = new SpanExportBuffer(spans -> spans.forEach(span -> {
+                try {
+                    log.info("span {}", objectMapper.writeValueAsString(span));
+                } catch (Exception e) {
+                    log.error("Error while exporting span, err: ", e);
+                }
+            }), configUtils.getTracingExportBufferSize(), configUtils.getTracingExportBatchSize());
+            exporter = exportBuffer;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        if (exportBuffer != null) {
+            exportBuffer.close();
+        }
+    }
+
+    public void setExporter(SpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    /**
+     * Starts a trace for a request. A valid traceparent's trace is continued when this request is
+     * sampled, its sampled flag only forces sampling with tracing.honor-parent-sampled (callers are
+     * trusted), otherwise any client could switch tracing on for its own requests.
+     */
+    public RequestTrace startTrace(String traceparent) {
+        String parentTraceId = null;
+        String parentSpanId = null;
+        boolean parentSampled = false;
+        if (isValidTraceparent(traceparent)) {
+            parentTraceId = traceparent.substring(3, 35);
+            parentSpanId = traceparent.substring(36, 52);
+            parentSampled = (Character.digit(traceparent.charAt(54), 16) & 1) == 1;
+        }
+
+        double sampleRate = configUtils.getTracingSampleRate();
+        boolean locallySampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        boolean forced = !locallySampled && parentSampled && configUtils.getTracingHonorParentSampled();
+        if (!locallySampled && !forced) {
+            return RequestTrace.NOOP;
+        }
+        return new RequestTrace(true, parentTraceId != null ? parentTraceId : RequestTrace.newTraceId(), RequestTrace.newSpanId(), parentSpanId, forced);
+    }
+
+    /**
+     * W3C Trace Context: &lt;2 hex version&gt;-&lt;32 hex trace id&gt;-&lt;16 hex parent id&gt;-&lt;2 hex flags&gt;, all
+     * lowercase. Version ff and all-zero ids are invalid, versions after 00 may append fields.
+     */
+    static boolean isValidTraceparent(String traceparent) {
+        if (traceparent == null || traceparent.length() < 55
+                || traceparent.charAt(2) != '-' || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return false;
+        }
+        String version = traceparent.substring(0, 2);
+        String traceId = traceparent.substring(3, 35);
+        String parentId = traceparent.substring(36, 52);
+        if (!isLowerHex(version) || "ff".equals(version) || !isLowerHex(traceparent.substring(53, 55))
+                || !isLowerHex(traceId) || isAllZeros(traceId) || !isLowerHex(parentId) || isAllZeros(parentId)) {
+            return false;
+        }
+        if (traceparent.length() > 55) {
+            return !"00".equals(version) && traceparent.charAt(55) == '-';
+        }
+        return true;
+    }
+
+    private static boolean isLowerHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAllZeros(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Server-Timing goes out for requests this gateway chose to sample, never for ones a caller forced.
+     */
+    public boolean isServerTimingEnabled(RequestTrace trace) {
+        return trace.isSampled() && !trace.isExternallySampled() && configUtils.getServerTimingEnabled();
+    }
+
+    public void export(RequestTrace trace, String name, int status) {
+        if (!trace.isSampled()) {
+            return;
+        }
+        List<TraceSpan> spans = trace.finish(name, status);
+        try {
+            exporter.export(spans);
+        } catch (Exception e) {
+            log.error("Error while exporting spans, err: ", e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.CapturedRequest;
+import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in capture of gateway traffic into a {@link CaptureLog} for offline replay
+ * (see com.sentinelgate.tools.TrafficReplay).
+ *
+ * Only a fingerprint of the credential is written. Bodies are only captured for proxied requests,
+ * never for /auth/** where they carry passwords.
+ *
+ * Request threads only offer the record to a bounded queue; a single background writer appends and
+ * rotates segments. When the writer falls behind, records are dropped rather than slowing requests.
+ */
+@Component
+public class TrafficCaptureUtils {
+
+    // raw request body set by the proxy once it has been read
+    public static final String BODY_ATTRIBUTE = TrafficCaptureUtils.class.getName() + ".body";
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    private CaptureLog captureLog;
+
+    private BlockingQueue<CapturedRequest> queue;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    Logger log = LoggerFactory.getLogger(TrafficCaptureUtils.class);
+
+    @PostConstruct
+    public void init() {
+        if (!configUtils.getCaptureEnabled()) {
+            return;
+        }
+        try {
+            captureLog = new CaptureLog(Path.of(configUtils.getCaptureDir()), configUtils.getCaptureSegmentSizeBytes(), configUtils.getCaptureMaxSegments());
+            queue = new ArrayBlockingQueue<>(configUtils.getCaptureQueueSize());
+            running = true;
+            writer = new Thread(this::writeLoop, "traffic-capture-writer");
+            writer.setDaemon(true);
+            writer.start();
+            log.info("Capturing traffic to {}", Path.of(configUtils.getCaptureDir()).toAbsolutePath());
+        } catch (Exception e) {
+            log.error("Traffic capture disabled, cannot open {}: {}", configUtils.getCaptureDir(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (captureLog != null) {
+            // whatever the writer didn't get to before the join timed out
+            writeQueued();
+            captureLog.close();
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                CapturedRequest record = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    write(record);
+                    writeQueued();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Appends everything currently queued. Only contended at shutdown, when destroy() drains what the
+     * writer left behind.
+     */
+    synchronized void writeQueued() {
+        CapturedRequest record;
+        while ((record = queue.poll()) != null) {
+            write(record);
+        }
+    }
+
+    private synchronized void write(CapturedRequest record) {
+        try {
+            captureLog.append(record);
+        } catch (Exception e) {
+            failures.increment();
+            if (failures.sum() == 1) {
+                log.warn("Traffic capture failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return captureLog != null;
+    }
+
+    public boolean isCapturingBodies() {
+        return captureLog != null && configUtils.getCaptureBodies();
+    }
+
+    /**
+     * Records not captured because the writer queue was full.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Called once per request after the filter chain, never throws and never blocks.
+     *
+     * @param token       credential of the request, only its hash is kept
+     * @param startNanos  System.nanoTime() when the request entered the auth filter
+     */
+    public void capture(HttpServletRequest request, int status, String token, long startNanos) {
+        if (captureLog == null) {
+            return;
+        }
+        double sampleRate = configUtils.getCaptureSampleRate();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        try {
+            long latencyMicros = (System.nanoTime() - startNanos) / 1_000L;
+            String query = request.getQueryString();
+            byte[] body = (byte[]) request.getAttribute(BODY_ATTRIBUTE);
+            if (body != null && body.length > configUtils.getCaptureMaxBodyBytes()) {
+                body = Arrays.copyOf(body, configUtils.getCaptureMaxBodyBytes());
+            }
+            CapturedRequest record = CapturedRequest.builder()
+                    .epochMicros(System.currentTimeMillis() * 1_000L - latencyMicros)
+                    .method(request.getMethod())
+                    .path(query == null ? request.getRequestURI() : request.getRequestURI() + "?" + query)
+                    .status(status)
+                    .latencyMicros((int) Math.min(latencyMicros, Integer.MAX_VALUE))
+                    .clientId(ConsistentHashRing.hash(StringUtils.isNotBlank(token) ? token : "ip:" + request.getRemoteAddr()))
+                    .contentType(request.getContentType())
+                    .body(body)
+                    .build();
+            if (!queue.offer(record)) {
+                dropped.increment();
+                if (dropped.sum() == 1) {
+                    log.warn("Traffic capture queue full, dropping records");
+                }
+            }
+        } catch (Exception e) {
+            failures.increment();
+            if (failures.sum() == 1) {
+                log.warn("Traffic capture failed: {}", e.getMessage());
+            }
+        }
+    }
+}
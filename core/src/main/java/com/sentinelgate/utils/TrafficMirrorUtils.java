@@ -0,0 +1,154 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.MirrorStats;
+import com.sentinelgate.pojo.RequestDeadline;
+import com.sentinelgate.pojo.RequestTrace;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fire-and-forget copies of sampled requests to a shadow upstream.
+ *
+ * Mirrored calls run on a small bounded pool. When its queue is full the copy is dropped, the
+ * primary request never waits on the mirror. Shadow responses are discarded, only status and
+ * latency are compared with the primary.
+ *
+ * The copy never carries the primary's per-request context: the remaining deadline would already be
+ * stale when the pool gets to it, and the primary's traceparent would attach shadow spans to the
+ * primary's upstream span. Both headers are stripped and the shadow call uses the route timeout.
+ */
+@Component
+public class TrafficMirrorUtils {
+
+    public static final String SHADOW_HEADER = "X-Shadow-Request";
+
+    @Autowired
+    private WebUtils webUtils;
+
+    @Autowired
+    private RoutingUtils routingUtils;
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    private ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    Logger log = LoggerFactory.getLogger(TrafficMirrorUtils.class);
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(configUtils.getMirrorThreads(), configUtils.getMirrorThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(configUtils.getMirrorQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "traffic-mirror-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a copy of a forwarded request if the route has a mirror and the request is sampled.
+     *
+     * @param pathAndQuery         "/{serviceKey}/..." plus query string, appended to the mirror host
+     * @param headers              headers sent to the primary, copied without the deadline and trace context
+     * @param primaryStatus        status the primary upstream answered with
+     * @param primaryLatencyNanos  primary time to response headers
+     */
+    public void mirror(String serviceKey, String method, String pathAndQuery, byte[] body, Map<String, String> headers,
+                       int primaryStatus, long primaryLatencyNanos) {
+        String mirrorHost = routingUtils.getMirrorHost(serviceKey);
+        if (mirrorHost == null || mirrorHost.isBlank()) {
+            return;
+        }
+        Double sampleRate = routingUtils.getMirrorSampleRate(serviceKey);
+        if (sampleRate == null || sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        Counters serviceCounters = counters.computeIfAbsent(serviceKey, k -> new Counters());
+        Map<String, String> shadowHeaders = new HashMap<>(headers);
+        shadowHeaders.keySet().removeIf(name -> RequestDeadline.HEADER.equalsIgnoreCase(name) || RequestTrace.TRACEPARENT.equalsIgnoreCase(name));
+        shadowHeaders.put(SHADOW_HEADER, "true");
+        Integer timeout = routingUtils.getServiceTimeout(serviceKey);
+        String url = mirrorHost + pathAndQuery;
+        try {
+            executor.execute(() -> send(serviceCounters, method, url, body, shadowHeaders, timeout, primaryStatus, primaryLatencyNanos));
+        } catch (Exception e) {
+            // queue full or shutting down
+            serviceCounters.dropped.increment();
+        }
+    }
+
+    private void send(Counters serviceCounters, String method, String url, byte[] body, Map<String, String> headers,
+                      Integer timeout, int primaryStatus, long primaryLatencyNanos) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = webUtils.exchange(method, url, body, headers, timeout);
+            long shadowLatencyNanos = System.nanoTime() - start;
+            try (InputStream ignored = response.body()) {
+                // body is discarded, closing releases the connection
+            }
+            serviceCounters.completed.increment();
+            serviceCounters.primaryLatencyNanos.add(primaryLatencyNanos);
+            serviceCounters.shadowLatencyNanos.add(shadowLatencyNanos);
+            if (response.statusCode() != primaryStatus) {
+                serviceCounters.statusMismatches.increment();
+                log.info("Shadow status mismatch for {} {}: primary {}, shadow {}", method, url, primaryStatus, response.statusCode());
+            }
+        } catch (Exception e) {
+            serviceCounters.failed.increment();
+            log.info("Shadow request failed for {} {}: {}", method, url, e.getMessage());
+        }
+    }
+
+    public List<MirrorStats> getStats() {
+        return counters.entrySet().stream().map(entry -> {
+            Counters c = entry.getValue();
+            long completed = c.completed.sum();
+            return MirrorStats.builder()
+                    .serviceKey(entry.getKey())
+                    .completed(completed)
+                    .dropped(c.dropped.sum())
+                    .failed(c.failed.sum())
+                    .statusMismatches(c.statusMismatches.sum())
+                    .avgPrimaryLatencyMs(completed == 0 ? null : c.primaryLatencyNanos.sum() / 1_000_000.0 / completed)
+                    .avgShadowLatencyMs(completed == 0 ? null : c.shadowLatencyNanos.sum() / 1_000_000.0 / completed)
+                    .build();
+        }).toList();
+    }
+
+    private static class Counters {
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder statusMismatches = new LongAdder();
+        private final LongAdder primaryLatencyNanos = new LongAdder();
+        private final LongAdder shadowLatencyNanos = new LongAdder();
+    }
+}
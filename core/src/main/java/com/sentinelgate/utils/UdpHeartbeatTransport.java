@@ -0,0 +1,89 @@
+package com.sentinelgate.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Heartbeats as UDP datagrams. Peers are "host:port" entries resolved on every send, so a
+ * headless service name that resolves to all gateway pods picks up scale-outs by itself.
+ */
+public class UdpHeartbeatTransport implements HeartbeatTransport {
+
+    private static final int MAX_DATAGRAM = 512;
+
+    private final Logger log = LoggerFactory.getLogger(UdpHeartbeatTransport.class);
+
+    private final int port;
+
+    private final List<String> peers;
+
+    private DatagramSocket socket;
+
+    private Thread receiver;
+
+    public UdpHeartbeatTransport(int port, List<String> peers) {
+        this.port = port;
+        this.peers = peers;
+    }
+
+    @Override
+    public void start(Consumer<String> listener) throws IOException {
+        socket = new DatagramSocket(port);
+        receiver = new Thread(() -> receive(listener), "cluster-heartbeat");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    private void receive(Consumer<String> listener) {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                listener.accept(new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8));
+            } catch (SocketException e) {
+                // closed on shutdown
+            } catch (Exception e) {
+                log.warn("Error while receiving heartbeat, err: {}", e.toString());
+            }
+        }
+    }
+
+    @Override
+    public void send(String message) throws IOException {
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        for (String peer : peers) {
+            int separator = peer.lastIndexOf(':');
+            String host = separator < 0 ? peer : peer.substring(0, separator);
+            int peerPort = separator < 0 ? port : Integer.parseInt(peer.substring(separator + 1));
+            InetAddress[] addresses;
+            try {
+                addresses = InetAddress.getAllByName(host);
+            } catch (UnknownHostException e) {
+                // peers that are not up yet have no dns record
+                continue;
+            }
+            for (InetAddress address : addresses) {
+                socket.send(new DatagramPacket(data, data.length, new InetSocketAddress(address, peerPort)));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            socket.close();
+        }
+    }
+}
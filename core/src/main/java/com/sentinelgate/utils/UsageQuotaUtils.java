@@ -0,0 +1,250 @@
+package com.sentinelgate.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Daily and monthly request quotas per user, without a write per request.
+ *
+ * Requests are counted in striped local counters per user and route. Every
+ * usage-quota.flush-interval-ms the deltas are added to redis in one pipeline, which also returns
+ * the cluster wide totals used for the next quota checks. The same deltas land in a pending hash
+ * that the auth module drains into MySQL in batches.
+ *
+ * A crash loses at most one flush interval of counts, and the cluster can admit at most one flush
+ * interval of traffic past a quota. While redis is down deltas stay local and are retried.
+ */
+@Component
+public class UsageQuotaUtils {
+
+    // all usage keys share one hash tag, so the flush pipeline hits a single slot / shard
+    private static final String TAG = "usage";
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final long IDLE_EVICT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    @Autowired
+    private RedisShardRouter redisShardRouter;
+
+    // "identity|route" -> requests not yet flushed
+    private final ConcurrentHashMap<String, LongAdder> unflushed = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Balance> balances = new ConcurrentHashMap<>();
+
+    private volatile boolean flushFailing;
+
+    // decides the day and month buckets
+    Clock clock = Clock.systemUTC();
+
+    Logger log = LoggerFactory.getLogger(UsageQuotaUtils.class);
+
+    /**
+     * Counts the request if the identity is within its quotas.
+     *
+     * @return false if the daily or monthly quota is used up
+     */
+    public boolean tryConsume(String identity, String route) {
+        if (!configUtils.getUsageQuotaEnabled()) {
+            return true;
+        }
+        Balance balance = balances.computeIfAbsent(identity, k -> new Balance());
+        balance.lastSeenMs = System.currentTimeMillis();
+        long used = balance.unflushed.sum();
+        long dailyLimit = configUtils.getUsageQuotaDailyLimit();
+        long monthlyLimit = configUtils.getUsageQuotaMonthlyLimit();
+        if ((dailyLimit > 0 && balance.dailyUsed + used >= dailyLimit)
+                || (monthlyLimit > 0 && balance.monthlyUsed + used >= monthlyLimit)) {
+            return false;
+        }
+        balance.unflushed.increment();
+        unflushed.computeIfAbsent(identity + "|" + route, k -> new LongAdder()).increment();
+        return true;
+    }
+
+    /**
+     * @return {"daily", "monthly"} requests as of the last flush plus this node's unflushed ones
+     */
+    public Map<String, Long> getUsage(String identity) {
+        Balance balance = balances.get(identity);
+        if (balance == null) {
+            return Map.of("daily", 0L, "monthly", 0L);
+        }
+        long local = balance.unflushed.sum();
+        return Map.of("daily", balance.dailyUsed + local, "monthly", balance.monthlyUsed + local);
+    }
+
+    @Scheduled(fixedDelayString = "${usage-quota.flush-interval-ms:1000}")
+    public void flush() {
+        if (!configUtils.getUsageQuotaEnabled()) {
+            return;
+        }
+        LocalDate today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+        String day = today.format(DAY);
+        String month = today.format(MONTH);
+
+        // take the deltas out with add(-sum), increments racing with the flush stay for the next one
+        Map<String, Long> deltas = new HashMap<>();
+        Map<String, Long> identityDeltas = new HashMap<>();
+        unflushed.forEach((field, adder) -> {
+            long delta = adder.sum();
+            if (delta == 0) {
+                unflushed.remove(field, adder);
+                return;
+            }
+            adder.add(-delta);
+            deltas.put(field, delta);
+            identityDeltas.merge(field.substring(0, field.lastIndexOf('|')), delta, Long::sum);
+        });
+
+        long now = System.currentTimeMillis();
+        balances.entrySet().removeIf(entry -> now - entry.getValue().lastSeenMs > IDLE_EVICT_MS
+                && entry.getValue().unflushed.sum() == 0 && !identityDeltas.containsKey(entry.getKey()));
+        if (deltas.isEmpty() && balances.isEmpty()) {
+            return;
+        }
+
+        List<String> identities = new ArrayList<>(balances.keySet());
+        identityDeltas.keySet().stream().filter(identity -> !balances.containsKey(identity)).forEach(identities::add);
+        String dayTotals = key("USAGE_DT_", day);
+        String monthTotals = key("USAGE_MT_", month);
+        RedisTemplate<String, String> template = redisShardRouter.templateFor(dayTotals);
+        List<Object> results;
+        try {
+            results = template.executePipelined((RedisCallback<Object>) connection -> {
+                // totals first, their replies come back in this order
+                for (String identity : identities) {
+                    long delta = identityDeltas.getOrDefault(identity, 0L);
+                    connection.hashCommands().hIncrBy(bytes(dayTotals), bytes(identity), delta);
+                    connection.hashCommands().hIncrBy(bytes(monthTotals), bytes(identity), delta);
+                }
+                String dayDetail = key("USAGE_D_", day);
+                String monthDetail = key("USAGE_M_", month);
+                String pending = key("USAGE_PENDING", "");
+                deltas.forEach((field, delta) -> {
+                    connection.hashCommands().hIncrBy(bytes(dayDetail), bytes(field), delta);
+                    connection.hashCommands().hIncrBy(bytes(monthDetail), bytes(field), delta);
+                    connection.hashCommands().hIncrBy(bytes(pending), bytes(day + "|" + field), delta);
+                });
+                expire(connection, dayTotals, 3);
+                expire(connection, dayDetail, 3);
+                expire(connection, monthTotals, 62);
+                expire(connection, monthDetail, 62);
+                return null;
+            });
+        } catch (Exception e) {
+            // keep the counts for the next flush
+            deltas.forEach((field, delta) -> unflushed.computeIfAbsent(field, k -> new LongAdder()).add(delta));
+            if (!flushFailing) {
+                log.warn("Usage flush to redis failed, counters kept locally: {}", e.getMessage());
+            }
+            flushFailing = true;
+            return;
+        }
+        if (flushFailing) {
+            log.info("Usage flush to redis recovered");
+        }
+        flushFailing = false;
+
+        for (int i = 0; i < identities.size(); i++) {
+            String identity = identities.get(i);
+            Balance balance = balances.get(identity);
+            if (balance == null) {
+                continue;
+            }
+            balance.dailyUsed = (Long) results.get(i * 2);
+            balance.monthlyUsed = (Long) results.get(i * 2 + 1);
+            balance.unflushed.add(-identityDeltas.getOrDefault(identity, 0L));
+        }
+    }
+
+    /**
+     * Moves the pending deltas aside for persisting, so new flushes don't touch them.
+     *
+     * @return the claimed key, null if there is nothing pending
+     */
+    public String claimPending() {
+        String pending = key("USAGE_PENDING", "");
+        RedisTemplate<String, String> template = redisShardRouter.templateFor(pending);
+        if (!Boolean.TRUE.equals(template.hasKey(pending))) {
+            return null;
+        }
+        String claim = key("USAGE_PENDING_", UUID.randomUUID().toString());
+        template.rename(pending, claim);
+        return claim;
+    }
+
+    /**
+     * @return "yyyyMMdd|identity|route" -> requests
+     */
+    public Map<String, Long> readClaim(String claim) {
+        Map<String, Long> counts = new HashMap<>();
+        redisShardRouter.templateFor(claim).<String, String>opsForHash().entries(claim)
+                .forEach((field, count) -> counts.put(field, Long.parseLong(count)));
+        return counts;
+    }
+
+    public void deleteClaim(String claim) {
+        redisShardRouter.templateFor(claim).delete(claim);
+    }
+
+    /**
+     * @return claims that were never deleted, left behind by a node that stopped while persisting
+     */
+    public List<String> findClaims() {
+        String prefix = key("USAGE_PENDING_", "");
+        List<String> claims = new ArrayList<>();
+        try (Cursor<String> cursor = redisShardRouter.templateFor(prefix).scan(ScanOptions.scanOptions().match(prefix + "*").count(100).build())) {
+            cursor.forEachRemaining(claims::add);
+        }
+        return claims;
+    }
+
+    private static String key(String prefix, String suffix) {
+        return RedisUtils.taggedKey(prefix, TAG) + suffix;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void expire(RedisConnection connection, String key, int days) {
+        connection.keyCommands().expire(bytes(key), TimeUnit.DAYS.toSeconds(days));
+    }
+
+    private static class Balance {
+        // cluster wide totals as of the last flush
+        private volatile long dailyUsed;
+        private volatile long monthlyUsed;
+        // counted here, not yet in the totals
+        private final LongAdder unflushed = new LongAdder();
+        private volatile long lastSeenMs;
+    }
+}
@@ -0,0 +1,70 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.WarmupReport;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * State of the startup warm-up. Synthetic requests carry a per-process secret in {@link #HEADER}
+ * and are only recognised from loopback while the warm-up runs, so they can skip shared limiter,
+ * quota and capture state without opening a bypass for real clients.
+ */
+@Component
+public class WarmupUtils {
+
+    public static final String HEADER = "X-Warmup";
+
+    // synthetic routes are registered under this service key for the duration of the warm-up
+    public static final String SERVICE_KEY = "__warmup";
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    private final String secret = UUID.randomUUID().toString();
+
+    private volatile boolean complete;
+
+    private volatile WarmupReport report;
+
+    @PostConstruct
+    public void init() {
+        complete = !configUtils.getWarmupEnabled();
+        report = WarmupReport.builder().status(complete ? WarmupReport.DISABLED : WarmupReport.RUNNING).build();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public WarmupReport getReport() {
+        return report;
+    }
+
+    public void complete(WarmupReport report) {
+        this.report = report;
+        complete = true;
+    }
+
+    /**
+     * @return true for paths of the synthetic route, whether or not it is currently registered
+     */
+    public static boolean isWarmupRoute(String path) {
+        return path != null && path.startsWith("/" + SERVICE_KEY) && (path.length() == SERVICE_KEY.length() + 1 || path.charAt(SERVICE_KEY.length() + 1) == '/');
+    }
+
+    public boolean isWarmupRequest(HttpServletRequest request) {
+        return !complete && secret.equals(request.getHeader(HEADER)) && isLoopback(request.getRemoteAddr());
+    }
+
+    private static boolean isLoopback(String address) {
+        return address != null && (address.startsWith("127.") || "::1".equals(address) || "0:0:0:0:0:0:0:1".equals(address));
+    }
+}
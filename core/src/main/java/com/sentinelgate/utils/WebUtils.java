@@ -5,11 +5,13 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -17,6 +19,7 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -40,7 +43,6 @@ public class WebUtils {
             // Must NOT forward (proxy-specific, unsafe)
             "host",                // MUST NOT forward
             "content-length",      // recalc on outbound request
-            "content-encoding",    // inbound encoding, not outbound
             "accept-encoding",     // compression negotiation should be re-done by proxy
             "postman-token",       // Postman-only debug header
             "via",                 // internal proxy chain info
@@ -58,6 +60,23 @@ public class WebUtils {
     );
 
 
+    // hop-by-hop headers that must not be copied from an upstream response
+    private static final Set<String> RESPONSE_HOP_BY_HOP_HEADERS = Set.of(
+            "connection",
+            "keep-alive",
+            "proxy-authenticate",
+            "te",
+            "trailer",
+            "transfer-encoding",
+            "upgrade"
+    );
+
+    // shared client for proxied calls, keeps upstream connections pooled between requests
+    private final HttpClient proxyClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(3000))
+            .build();
+
     Logger log = LoggerFactory.getLogger(WebUtils.class);
 
     public HashMap<String, String > getHeaders(){
@@ -75,6 +94,7 @@ public class WebUtils {
             }
             HttpRequest.Builder builder = HttpRequest.newBuilder()
                     .uri(URI.create(url)).GET();
+            builder.timeout(requestTimeout(timeout));
 
             if(ObjectUtils.isEmpty(headers) || headers.isEmpty())
                 headers = getHeaders();
@@ -101,6 +121,7 @@ public class WebUtils {
             String jsonString = objectMapper.writeValueAsString(jsonObject);
             HttpRequest.Builder builder = HttpRequest.newBuilder()
                     .uri(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString(jsonString));
+            builder.timeout(requestTimeout(timeout));
 
             if(ObjectUtils.isEmpty(headers) || headers.isEmpty())
                 headers = getHeaders();
@@ -128,6 +149,7 @@ public class WebUtils {
 
             HttpRequest.Builder builder = HttpRequest.newBuilder().uri(URI.create(url))
                             .PUT(HttpRequest.BodyPublishers.ofString(jsonString));
+            builder.timeout(requestTimeout(timeout));
 
             if(ObjectUtils.isEmpty(headers) || headers.isEmpty())
                 headers = getHeaders();
@@ -153,6 +175,7 @@ public class WebUtils {
 
             HttpRequest.Builder builder = HttpRequest.newBuilder().uri(URI.create(url))
                             .DELETE();
+            builder.timeout(requestTimeout(timeout));
 
             if(ObjectUtils.isEmpty(headers) || headers.isEmpty())
                 headers = getHeaders();
@@ -166,6 +189,11 @@ public class WebUtils {
         return null;
     }
 
+    // bounds the whole exchange, not only the connect phase
+    private Duration requestTimeout(Integer timeout) {
+        return Duration.ofMillis(ObjectUtils.isEmpty(timeout) || timeout <= 0 ? 3000 : timeout);
+    }
+
     private String execute(HttpRequest request, Integer timeout) {
         try {
             if(ObjectUtils.isEmpty(timeout))
@@ -180,13 +208,44 @@ public class WebUtils {
         }
     }
 
+    /**
+     * Sends a request with a raw body and hands back the upstream response unread, so the caller
+     * can stream it (including already compressed bytes) without inflating it into a String.
+     */
+    public HttpResponse<InputStream> exchange(String method, String url, byte[] body, Map<String, String> headers, Integer timeout) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = (body == null || body.length == 0)
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(body);
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .method(method, publisher)
+                .timeout(requestTimeout(timeout));
+
+        if(ObjectUtils.isEmpty(headers) || headers.isEmpty())
+            headers = getHeaders();
+
+        headers.forEach(builder::header);
+        return proxyClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    public HttpHeaders getResponseHeaders(HttpResponse<?> response) {
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach((name, values) -> {
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            if (!lowerName.startsWith(":") && !RESPONSE_HOP_BY_HOP_HEADERS.contains(lowerName)) {
+                headers.addAll(name, values);
+            }
+        });
+        return headers;
+    }
+
     public HashMap<String, String> getHeaders(HttpServletRequest request) {
         HashMap<String, String> headers = new HashMap<>();
 
         Enumeration<String> headerNames = request.getHeaderNames();
         while (headerNames.hasMoreElements()) {
             String name = headerNames.nextElement();
-            if (!FORBIDDEN_HEADERS.contains(name)) {
+            if (!FORBIDDEN_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
                 headers.put(name, request.getHeader(name));
             }
         }
@@ -0,0 +1,303 @@
+package com.sentinelgate.security;
+
+import com.sentinelgate.pojo.ApiKeyEntry;
+import com.sentinelgate.pojo.AuditEvent;
+import com.sentinelgate.utils.ApiKeyIndex;
+import com.sentinelgate.utils.AuditEventUtils;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.HeavyHitterUtils;
+import com.sentinelgate.utils.InFlightQuotaUtils;
+import com.sentinelgate.utils.IpFilterUtils;
+import com.sentinelgate.utils.JwtUtils;
+import com.sentinelgate.utils.RateLimitingUtils;
+import com.sentinelgate.utils.TracingUtils;
+import com.sentinelgate.utils.TrafficCaptureUtils;
+import com.sentinelgate.utils.UsageQuotaUtils;
+import com.sentinelgate.utils.WarmupUtils;
+import org.junit.jupiter.api.BeforeEach;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AuthFilterTest {
+
+    private AuthFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new AuthFilter();
+        filter.authClass = mock(AuthClass.class);
+        when(filter.authClass.getExcludingPaths()).thenReturn(Set.of("/auth/**", "/health"));
+        filter.jwtUtils = mock(JwtUtils.class);
+        filter.rateLimitingUtils = mock(RateLimitingUtils.class);
+        when(filter.rateLimitingUtils.isRequestAllowed(anyString(), anyString(), any(), any())).thenReturn(true);
+        filter.heavyHitterUtils = mock(HeavyHitterUtils.class);
+        filter.ipFilterUtils = mock(IpFilterUtils.class);
+        when(filter.ipFilterUtils.clientAddress(any())).thenAnswer(invocation -> ((HttpServletRequest) invocation.getArgument(0)).getRemoteAddr());
+        filter.tracingUtils = mock(TracingUtils.class);
+        filter.trafficCaptureUtils = mock(TrafficCaptureUtils.class);
+        filter.apiKeyIndex = mock(ApiKeyIndex.class);
+        filter.inFlightQuotaUtils = mock(InFlightQuotaUtils.class);
+        filter.usageQuotaUtils = mock(UsageQuotaUtils.class);
+        filter.auditEventUtils = mock(AuditEventUtils.class);
+        filter.warmupUtils = mock(WarmupUtils.class);
+        filter.configUtils = mock(ConfigUtils.class);
+        when(filter.configUtils.getAdminToken()).thenReturn("s3cret");
+    }
+
+    private MockHttpServletResponse call(MockHttpServletRequest request, MockFilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    @Test
+    void adminPathsRejectUserTokens() throws Exception {
+        for (String path : new String[]{"/admin/usage/alice", "/admin/api-keys", "/admin/users/bulk"}) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+            request.addHeader("Authorization", "Bearer user-token");
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletResponse response = call(request, chain);
+            assertEquals(403, response.getStatus(), path);
+            assertNull(chain.getRequest(), path);
+        }
+        verify(filter.jwtUtils, never()).parse(anyString());
+        verify(filter.auditEventUtils, times(3)).record(eq(AuditEvent.UNAUTHORIZED), any(), eq(403), anyString());
+    }
+
+    @Test
+    void adminPathsRejectWrongToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/cluster");
+        request.addHeader(AuthFilter.ADMIN_TOKEN_HEADER, "s3cre");
+        MockFilterChain chain = new MockFilterChain();
+        assertEquals(403, call(request, chain).getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void adminPathsAreClosedWithoutConfiguredToken() throws Exception {
+        when(filter.configUtils.getAdminToken()).thenReturn("");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/cluster");
+        request.addHeader(AuthFilter.ADMIN_TOKEN_HEADER, "");
+        MockFilterChain chain = new MockFilterChain();
+        assertEquals(403, call(request, chain).getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void adminTokenPassesWithoutUserQuotas() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/admin/api-keys");
+        request.addHeader(AuthFilter.ADMIN_TOKEN_HEADER, "s3cret");
+        MockFilterChain chain = new MockFilterChain();
+        assertEquals(200, call(request, chain).getStatus());
+        assertSame(request, chain.getRequest());
+        assertEquals(AuthFilter.ADMIN_IDENTITY, request.getAttribute(AuthFilter.IDENTITY_ATTRIBUTE));
+        verify(filter.rateLimitingUtils).isRequestAllowed(eq("/admin/api-keys"), eq(AuthFilter.ADMIN_IDENTITY), isNull(), any());
+        verifyNoInteractions(filter.inFlightQuotaUtils, filter.usageQuotaUtils);
+    }
+
+    @Test
+    void introspectionNeedsServiceToken() throws Exception {
+        when(filter.configUtils.getIntrospectToken()).thenReturn("svc");
+        for (String path : new String[]{"/auth/introspect", "/auth/introspect/"}) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+            request.addHeader("Authorization", "Bearer user-token");
+            MockFilterChain chain = new MockFilterChain();
+            assertEquals(403, call(request, chain).getStatus(), path);
+            assertNull(chain.getRequest(), path);
+        }
+        // the rest of /auth/** stays open
+        MockFilterChain login = new MockFilterChain();
+        assertEquals(200, call(new MockHttpServletRequest("POST", "/auth/login"), login).getStatus());
+        assertNotNull(login.getRequest());
+    }
+
+    @Test
+    void introspectionIsClosedWithoutConfiguredToken() throws Exception {
+        when(filter.configUtils.getIntrospectToken()).thenReturn("");
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/introspect");
+        request.addHeader(AuthFilter.INTROSPECT_TOKEN_HEADER, "");
+        MockFilterChain chain = new MockFilterChain();
+        assertEquals(403, call(request, chain).getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void introspectionServiceTokenIsRateLimited() throws Exception {
+        when(filter.configUtils.getIntrospectToken()).thenReturn("svc");
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/introspect");
+        request.addHeader(AuthFilter.INTROSPECT_TOKEN_HEADER, "svc");
+        MockFilterChain chain = new MockFilterChain();
+        assertEquals(200, call(request, chain).getStatus());
+        assertEquals(AuthFilter.INTROSPECT_IDENTITY, request.getAttribute(AuthFilter.IDENTITY_ATTRIBUTE));
+
+        when(filter.rateLimitingUtils.isRequestAllowed(eq("/auth/introspect"), anyString(), any(), any())).thenReturn(false);
+        MockHttpServletRequest limited = new MockHttpServletRequest("POST", "/auth/introspect");
+        limited.addHeader(AuthFilter.INTROSPECT_TOKEN_HEADER, "svc");
+        MockFilterChain limitedChain = new MockFilterChain();
+        assertEquals(429, call(limited, limitedChain).getStatus());
+        assertNull(limitedChain.getRequest());
+    }
+
+    @Test
+    void introspectionAcceptsAdminToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/introspect");
+        request.addHeader(AuthFilter.ADMIN_TOKEN_HEADER, "s3cret");
+        MockFilterChain chain = new MockFilterChain();
+        assertEquals(200, call(request, chain).getStatus());
+        assertSame(request, chain.getRequest());
+    }
+
+    @Test
+    void heavyHittersAreTrackedPerLimitedScopeAndClient() throws Exception {
+        call(userRequest(), new MockFilterChain());
+        verify(filter.heavyHitterUtils).record("/product/items/1", "user:alice");
+        verify(filter.rateLimitingUtils).isRequestAllowed(eq("/product/items/1"), eq("user:alice"), isNull(), any());
+
+        MockHttpServletRequest anonymous = new MockHttpServletRequest("POST", "/auth/login");
+        anonymous.setRemoteAddr("10.0.0.7");
+        call(anonymous, new MockFilterChain());
+        verify(filter.heavyHitterUtils).record("/auth/login", "ip:10.0.0.7");
+
+        ApiKeyEntry entry = new ApiKeyEntry("abc", "gold", "bob");
+        when(filter.apiKeyIndex.lookup("key-1")).thenReturn(entry);
+        MockHttpServletRequest keyed = new MockHttpServletRequest("GET", "/product/items/1");
+        keyed.addHeader(AuthFilter.API_KEY_HEADER, "key-1");
+        call(keyed, new MockFilterChain());
+        verify(filter.heavyHitterUtils).record("apikey:abc", "apikey:abc");
+        verify(filter.rateLimitingUtils).isRequestAllowed(eq("apikey:abc"), eq("apikey:abc"), any(), any());
+    }
+
+    // local counts only, the redis client is unavailable
+    private InFlightQuotaUtils localInFlightQuota() {
+        InFlightQuotaUtils inFlightQuotaUtils = new InFlightQuotaUtils();
+        ConfigUtils configUtils = mock(ConfigUtils.class);
+        when(configUtils.getInFlightQuotaEnabled()).thenReturn(true);
+        when(configUtils.getInFlightQuotaMaxPerIdentity()).thenReturn(5);
+        when(configUtils.getInFlightQuotaRedisRetryMs()).thenReturn(60_000L);
+        ObjectProvider<?> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenThrow(new IllegalStateException("no redis"));
+        ReflectionTestUtils.setField(inFlightQuotaUtils, "configUtils", configUtils);
+        ReflectionTestUtils.setField(inFlightQuotaUtils, "redissonClientProvider", provider);
+        return inFlightQuotaUtils;
+    }
+
+    private MockHttpServletRequest userRequest() {
+        Claims claims = mock(Claims.class);
+        when(filter.jwtUtils.parse("user-token")).thenReturn(claims);
+        when(filter.jwtUtils.username(claims)).thenReturn("alice");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/items/1");
+        request.addHeader("Authorization", "Bearer user-token");
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    @Test
+    void inFlightPermitIsReleasedWhenTheChainReturns() throws Exception {
+        filter.inFlightQuotaUtils = localInFlightQuota();
+        when(filter.usageQuotaUtils.tryConsume("user:alice", "product")).thenReturn(true);
+        MockHttpServletRequest request = userRequest();
+
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                assertEquals(1, filter.inFlightQuotaUtils.getLocalInFlight("user:alice"));
+            }
+        });
+        assertEquals(200, call(request, chain).getStatus());
+        assertEquals(0, filter.inFlightQuotaUtils.getLocalInFlight("user:alice"));
+    }
+
+    @Test
+    void inFlightPermitIsHeldUntilAsyncCompletion() throws Exception {
+        filter.inFlightQuotaUtils = localInFlightQuota();
+        when(filter.usageQuotaUtils.tryConsume("user:alice", "product")).thenReturn(true);
+        MockHttpServletRequest request = userRequest();
+
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                // streamed response, written after the filter chain returned
+                req.startAsync();
+            }
+        });
+        call(request, chain);
+        assertTrue(request.isAsyncStarted());
+        assertEquals(1, filter.inFlightQuotaUtils.getLocalInFlight("user:alice"));
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(0, filter.inFlightQuotaUtils.getLocalInFlight("user:alice"));
+    }
+
+    @Test
+    void inFlightPermitIsReleasedWhenTheUsageQuotaRejects() throws Exception {
+        filter.inFlightQuotaUtils = localInFlightQuota();
+        when(filter.usageQuotaUtils.tryConsume("user:alice", "product")).thenReturn(false);
+        MockFilterChain chain = new MockFilterChain();
+
+        assertEquals(429, call(userRequest(), chain).getStatus());
+        assertNull(chain.getRequest());
+        assertEquals(0, filter.inFlightQuotaUtils.getLocalInFlight("user:alice"));
+        verify(filter.auditEventUtils).record(eq(AuditEvent.QUOTA_EXCEEDED), any(), eq(429), anyString());
+    }
+
+    @Test
+    void rejectionsAreAuditedByReason() throws Exception {
+        when(filter.inFlightQuotaUtils.tryAcquire("user:alice")).thenReturn(null);
+        assertEquals(429, call(userRequest(), new MockFilterChain()).getStatus());
+        verify(filter.auditEventUtils).record(eq(AuditEvent.CONCURRENCY_LIMITED), any(), eq(429), eq("Too many concurrent requests"));
+
+        when(filter.rateLimitingUtils.isRequestAllowed(anyString(), anyString(), any(), any())).thenReturn(false);
+        assertEquals(429, call(userRequest(), new MockFilterChain()).getStatus());
+        verify(filter.auditEventUtils).record(eq(AuditEvent.RATE_LIMITED), any(), eq(429), eq("Rate limit exceeded"));
+    }
+
+    @Test
+    void warmupRouteRejectsRealClients() throws Exception {
+        for (String path : new String[]{"/" + WarmupUtils.SERVICE_KEY, "/" + WarmupUtils.SERVICE_KEY + "/items/1"}) {
+            MockHttpServletRequest request = userRequest();
+            request.setRequestURI(path);
+            MockFilterChain chain = new MockFilterChain();
+            assertEquals(403, call(request, chain).getStatus(), path);
+            assertNull(chain.getRequest(), path);
+        }
+        verifyNoInteractions(filter.rateLimitingUtils, filter.usageQuotaUtils);
+
+        // a route that only shares the prefix is proxied as usual
+        when(filter.usageQuotaUtils.tryConsume(anyString(), anyString())).thenReturn(true);
+        when(filter.inFlightQuotaUtils.tryAcquire(anyString())).thenReturn(InFlightQuotaUtils.Permit.NONE);
+        MockHttpServletRequest request = userRequest();
+        request.setRequestURI("/" + WarmupUtils.SERVICE_KEY + "x/items");
+        MockFilterChain chain = new MockFilterChain();
+        assertEquals(200, call(request, chain).getStatus());
+        assertSame(request, chain.getRequest());
+    }
+
+    @Test
+    void warmupRequestsReachTheWarmupRoute() throws Exception {
+        MockHttpServletRequest request = userRequest();
+        request.setRequestURI("/" + WarmupUtils.SERVICE_KEY + "/items/1");
+        when(filter.warmupUtils.isWarmupRequest(request)).thenReturn(true);
+        MockFilterChain chain = new MockFilterChain();
+        assertEquals(200, call(request, chain).getStatus());
+        assertSame(request, chain.getRequest());
+        // synthetic requests stay out of the shared limiter and quota state
+        verifyNoInteractions(filter.rateLimitingUtils, filter.inFlightQuotaUtils, filter.usageQuotaUtils);
+    }
+}
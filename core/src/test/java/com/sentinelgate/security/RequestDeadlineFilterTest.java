@@ -0,0 +1,56 @@
+package com.sentinelgate.security;
+
+import com.sentinelgate.pojo.RequestDeadline;
+import com.sentinelgate.utils.ConfigUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RequestDeadlineFilterTest {
+
+    private RequestDeadlineFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RequestDeadlineFilter();
+        filter.configUtils = mock(ConfigUtils.class);
+        when(filter.configUtils.getDeadlineMaxMs()).thenReturn(60_000L);
+    }
+
+    private RequestDeadline deadline(String header) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/items/1");
+        if (header != null) {
+            request.addHeader(RequestDeadline.HEADER, header);
+        }
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertSame(request, chain.getRequest());
+        return (RequestDeadline) request.getAttribute(RequestDeadline.ATTRIBUTE);
+    }
+
+    @Test
+    void clientBudgetIsRecorded() throws Exception {
+        RequestDeadline deadline = deadline(" 1500 ");
+        assertEquals(1500L, deadline.getClientBudgetMs());
+        assertTrue(deadline.remainingMs(1500) <= 1500);
+    }
+
+    @Test
+    void clientBudgetIsCappedAtTheMaximum() throws Exception {
+        assertEquals(60_000L, deadline("3600000").getClientBudgetMs());
+    }
+
+    @Test
+    void missingInvalidAndNonPositiveBudgetsFallBackToTheRoute() throws Exception {
+        for (String header : new String[]{null, "", "soon", "0", "-5"}) {
+            RequestDeadline deadline = deadline(header);
+            assertNotNull(deadline, String.valueOf(header));
+            assertNull(deadline.getClientBudgetMs(), String.valueOf(header));
+        }
+    }
+}
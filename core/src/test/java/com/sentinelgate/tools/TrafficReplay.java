@@ -0,0 +1,169 @@
+package com.sentinelgate.tools;
+
+import com.sentinelgate.pojo.CapturedRequest;
+import com.sentinelgate.utils.CaptureLog;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Re-issues traffic captured with capture.enabled=true against a gateway.
+ *
+ *   mvn -pl core test-compile
+ *   java -cp core/target/classes:core/target/test-classes com.sentinelgate.tools.TrafficReplay &lt;capture-dir&gt; &lt;gateway-url&gt;
+ *        [--speed 1.0] [--tokens file] [--concurrency 256]
+ *
+ * --speed scales the captured inter-arrival times (2.0 replays twice as fast, 0 as fast as possible).
+ * Records are replayed in timestamp order, segments written across a clock step back included.
+ * Captured client fingerprints are mapped onto the tokens in --tokens (one per line), so the
+ * per-client distribution of the capture is kept. Prints status counts, latency percentiles and
+ * how far the replay fell behind schedule.
+ */
+public class TrafficReplay {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: TrafficReplay <capture-dir> <gateway-url> [--speed 1.0] [--tokens file] [--concurrency 256]");
+            System.exit(1);
+        }
+        Path captureDir = Path.of(args[0]);
+        String gatewayUrl = args[1].endsWith("/") ? args[1].substring(0, args[1].length() - 1) : args[1];
+        double speed = 1.0;
+        List<String> tokens = List.of();
+        int concurrency = 256;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--speed" -> speed = Double.parseDouble(args[i + 1]);
+                case "--tokens" -> tokens = Files.readAllLines(Path.of(args[i + 1])).stream().map(String::trim).filter(t -> !t.isEmpty()).toList();
+                case "--concurrency" -> concurrency = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        List<CapturedRequest> records = new ArrayList<>();
+        CaptureLog.read(captureDir, records::add);
+        if (records.isEmpty()) {
+            System.err.println("no records in " + captureDir);
+            return;
+        }
+        System.out.printf("replaying %d requests from %s at speed %s%n", records.size(), captureDir, speed == 0 ? "max" : speed);
+        new TrafficReplay(gatewayUrl, tokens, concurrency).replay(records, speed);
+    }
+
+    private final String gatewayUrl;
+
+    private final List<String> tokens;
+
+    private final Semaphore inFlight;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder matchingStatus = new LongAdder();
+
+    private long[] latenciesMicros;
+
+    private long maxLagMillis;
+
+    TrafficReplay(String gatewayUrl, List<String> tokens, int concurrency) {
+        this.gatewayUrl = gatewayUrl;
+        this.tokens = tokens;
+        this.inFlight = new Semaphore(concurrency);
+    }
+
+    void replay(List<CapturedRequest> captured, double speed) throws InterruptedException {
+        // segments are read in file order, the wall clock may have stepped back between them
+        List<CapturedRequest> records = new ArrayList<>(captured);
+        records.sort(Comparator.comparingLong(CapturedRequest::getEpochMicros));
+        latenciesMicros = new long[records.size()];
+        long firstMicros = records.get(0).getEpochMicros();
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<?>> pending = new ArrayList<>(records.size());
+
+        for (int i = 0; i < records.size(); i++) {
+            CapturedRequest record = records.get(i);
+            if (speed > 0) {
+                long dueNanos = startNanos + (long) ((record.getEpochMicros() - firstMicros) * 1_000L / speed);
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+                } else {
+                    maxLagMillis = Math.max(maxLagMillis, -waitNanos / 1_000_000L);
+                }
+            }
+            // too many outstanding requests also shows up as lag
+            inFlight.acquire();
+            pending.add(send(i, record));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        report(records.size(), System.nanoTime() - startNanos);
+    }
+
+    private CompletableFuture<?> send(int index, CapturedRequest record) {
+        HttpRequest.BodyPublisher publisher = record.getBody() == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(record.getBody());
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(gatewayUrl + record.getPath()))
+                .timeout(Duration.ofSeconds(30))
+                .method(record.getMethod(), publisher);
+        if (!tokens.isEmpty()) {
+            builder.header("Authorization", "Bearer " + tokens.get((int) Math.floorMod(record.getClientId(), (long) tokens.size())));
+        }
+        if (record.getContentType() != null && !record.getContentType().isEmpty()) {
+            builder.header("Content-Type", record.getContentType());
+        }
+
+        long start = System.nanoTime();
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    inFlight.release();
+                    latenciesMicros[index] = (System.nanoTime() - start) / 1_000L;
+                    if (error != null) {
+                        errors.increment();
+                        return;
+                    }
+                    statusCounts.computeIfAbsent(response.statusCode(), k -> new LongAdder()).increment();
+                    if (response.statusCode() == record.getStatus()) {
+                        matchingStatus.increment();
+                    }
+                })
+                .exceptionally(error -> null);
+    }
+
+    private void report(int total, long elapsedNanos) {
+        long[] sorted = latenciesMicros.clone();
+        Arrays.sort(sorted);
+        Map<Integer, Long> statuses = new TreeMap<>();
+        statusCounts.forEach((status, count) -> statuses.put(status, count.sum()));
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("sent %d in %.1fs (%.0f req/s), errors %d, max lag %d ms%n", total, seconds, total / seconds, errors.sum(), maxLagMillis);
+        System.out.printf("status %s, same as captured %d%n", statuses, matchingStatus.sum());
+        System.out.printf("latency ms p50 %.2f p90 %.2f p99 %.2f max %.2f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1000.0);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))] / 1000.0;
+    }
+}
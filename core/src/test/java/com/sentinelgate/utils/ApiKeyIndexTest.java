@@ -0,0 +1,135 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.ApiKeyEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ApiKeyIndexTest {
+
+    private ApiKeyIndex apiKeyIndex;
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        apiKeyIndex = new ApiKeyIndex();
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+        ConfigUtils configUtils = mock(ConfigUtils.class);
+        when(configUtils.getApiKeyTiers()).thenReturn("free:5:1, premium:500:100");
+        when(configUtils.getApiKeyEnabled()).thenReturn(true);
+        ReflectionTestUtils.setField(apiKeyIndex, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(apiKeyIndex, "redisSubscriptions", mock(RedisSubscriptions.class));
+        ReflectionTestUtils.setField(apiKeyIndex, "configUtils", configUtils);
+        apiKeyIndex.init();
+    }
+
+    private static ApiKeyEntry entry(String rawKey, String tier) {
+        return new ApiKeyEntry(ApiKeyIndex.hash(rawKey), tier, "owner|" + rawKey);
+    }
+
+    private static void message(ApiKeyIndex index, String body) {
+        index.onMessage(new DefaultMessage(ApiKeyIndex.CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    @Test
+    void lookupByRawKeyAndTierLimits() {
+        ApiKeyEntry entry = entry("sgk_one", "premium");
+        apiKeyIndex.put(entry);
+
+        verify(hashOperations).put(ApiKeyIndex.REDIS_KEY, entry.getHash(), "premium|owner|sgk_one");
+        assertEquals(entry, apiKeyIndex.lookup("sgk_one"));
+        assertEquals(500, apiKeyIndex.tierOf(apiKeyIndex.lookup("sgk_one")).getMaxToken());
+        assertNull(apiKeyIndex.lookup("sgk_other"));
+        assertNull(apiKeyIndex.lookup(" "));
+        assertTrue(apiKeyIndex.isKnownTier("free"));
+        assertFalse(apiKeyIndex.isKnownTier("gold"));
+    }
+
+    @Test
+    void changesFromOtherNodesAreApplied() {
+        ApiKeyEntry entry = entry("sgk_one", "free");
+        message(apiKeyIndex, "U|" + entry.getHash() + "|" + entry.encode());
+        assertEquals(entry, apiKeyIndex.lookup("sgk_one"));
+
+        message(apiKeyIndex, "D|" + entry.getHash());
+        assertNull(apiKeyIndex.lookup("sgk_one"));
+
+        when(hashOperations.entries(ApiKeyIndex.REDIS_KEY)).thenReturn(Map.of(entry.getHash(), entry.encode()));
+        message(apiKeyIndex, "R");
+        assertEquals(entry, apiKeyIndex.lookup("sgk_one"));
+    }
+
+    @Test
+    void failedRefreshKeepsTheLastSnapshot() {
+        apiKeyIndex.put(entry("sgk_one", "free"));
+        when(hashOperations.entries(ApiKeyIndex.REDIS_KEY)).thenThrow(new IllegalStateException("redis down"));
+        apiKeyIndex.refresh();
+        assertEquals(1, apiKeyIndex.size());
+    }
+
+    @Test
+    void replaceAllKeepsKeysCreatedAfterTheSnapshot() {
+        ApiKeyEntry old = entry("sgk_old", "free");
+        ApiKeyEntry revoked = entry("sgk_revoked", "free");
+        ApiKeyEntry created = entry("sgk_created", "free");
+        // created and published while the snapshot was being read
+        when(hashOperations.keys(ApiKeyIndex.REDIS_KEY)).thenReturn(new HashSet<>(List.of(old.getHash(), revoked.getHash(), created.getHash())));
+
+        List<Collection<String>> checked = new ArrayList<>();
+        apiKeyIndex.replaceAll(List.of(old), hashes -> {
+            checked.add(List.copyOf(hashes));
+            return Set.of(created.getHash());
+        });
+
+        assertEquals(1, checked.size());
+        assertEquals(Set.of(revoked.getHash(), created.getHash()), Set.copyOf(checked.get(0)));
+        verify(hashOperations).delete(ApiKeyIndex.REDIS_KEY, revoked.getHash());
+        verify(hashOperations, never()).putAll(any(), any());
+        verify(stringRedisTemplate).convertAndSend(ApiKeyIndex.CHANNEL, "R");
+    }
+
+    @Test
+    void replaceAllDoesNotResurrectKeysRevokedAfterTheSnapshot() {
+        ApiKeyEntry lost = entry("sgk_lost", "free");
+        ApiKeyEntry revoked = entry("sgk_revoked", "free");
+        // neither is in redis: one publish failed, the other was revoked after the snapshot
+        when(hashOperations.keys(ApiKeyIndex.REDIS_KEY)).thenReturn(Set.of());
+
+        apiKeyIndex.replaceAll(List.of(lost, revoked), hashes -> Set.of(lost.getHash()));
+
+        verify(hashOperations).putAll(ApiKeyIndex.REDIS_KEY, Map.of(lost.getHash(), lost.encode()));
+        verify(hashOperations, never()).delete(any(), any(Object[].class));
+    }
+
+    @Test
+    void replaceAllWithoutDifferencesSkipsTheDatabase() {
+        ApiKeyEntry entry = entry("sgk_one", "free");
+        when(hashOperations.keys(ApiKeyIndex.REDIS_KEY)).thenReturn(Set.of(entry.getHash()));
+
+        apiKeyIndex.replaceAll(List.of(entry), hashes -> fail("no recheck expected"));
+
+        verify(hashOperations, never()).putAll(any(), any());
+        verify(hashOperations, never()).delete(any(), any(Object[].class));
+    }
+}
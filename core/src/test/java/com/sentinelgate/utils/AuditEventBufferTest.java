@@ -0,0 +1,113 @@
+package com.sentinelgate.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.AuditEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditEventBufferTest {
+
+    @TempDir
+    Path directory;
+
+    // stands in for the broker, confirms by returning
+    private static class InMemorySink implements AuditEventSink {
+        final List<List<AuditEvent>> batches = new CopyOnWriteArrayList<>();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        volatile CountDownLatch blocked = new CountDownLatch(0);
+
+        @Override
+        public void publish(List<AuditEvent> batch) throws Exception {
+            blocked.await();
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new IllegalStateException("nack");
+            }
+            batches.add(List.copyOf(batch));
+        }
+
+        int events() {
+            return batches.stream().mapToInt(List::size).sum();
+        }
+    }
+
+    private static AuditEvent event(int i) {
+        return AuditEvent.builder().type(AuditEvent.RATE_LIMITED).path("/product/" + i).timestamp((long) i).build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void batchesBySizeThenByTime() throws Exception {
+        InMemorySink sink = new InMemorySink();
+        try (AuditEventBuffer buffer = new AuditEventBuffer(sink, new ObjectMapper(), 1000, 100, 300, 1, null, 0)) {
+            for (int i = 0; i < 250; i++) {
+                buffer.offer(event(i));
+            }
+            await(() -> sink.events() == 250);
+            assertEquals(100, sink.batches.get(0).size());
+            assertEquals(100, sink.batches.get(1).size());
+            assertEquals(50, sink.batches.get(2).size());
+            assertEquals(250, buffer.getPublished());
+        }
+    }
+
+    @Test
+    void fullBufferDropsWithoutBlocking() throws Exception {
+        InMemorySink sink = new InMemorySink();
+        sink.blocked = new CountDownLatch(1);
+        try (AuditEventBuffer buffer = new AuditEventBuffer(sink, new ObjectMapper(), 10, 5, 10, 1, null, 0)) {
+            long start = System.nanoTime();
+            int accepted = 0;
+            for (int i = 0; i < 100; i++) {
+                accepted += buffer.offer(event(i)) ? 1 : 0;
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+            assertEquals(100 - accepted, buffer.getDropped());
+            assertFalse(accepted > 15);
+            int published = accepted;
+            sink.blocked.countDown();
+            await(() -> sink.events() == published);
+        }
+    }
+
+    @Test
+    void unconfirmedBatchesAreSpilledAndRepublished() throws Exception {
+        InMemorySink sink = new InMemorySink();
+        sink.failuresLeft.set(1);
+        Path spillFile = directory.resolve("spill.ndjson");
+        try (AuditEventBuffer buffer = new AuditEventBuffer(sink, new ObjectMapper(), 100, 10, 20, 1, spillFile, 1 << 20)) {
+            for (int i = 0; i < 10; i++) {
+                buffer.offer(event(i));
+            }
+            await(() -> buffer.getSpilled() == 10);
+            assertTrue(Files.exists(spillFile));
+
+            // the next confirmed batch republishes the spill file
+            for (int i = 10; i < 20; i++) {
+                buffer.offer(event(i));
+            }
+            await(() -> sink.events() == 20);
+            assertEquals(0, buffer.getDropped());
+            assertFalse(Files.exists(spillFile));
+        }
+    }
+}
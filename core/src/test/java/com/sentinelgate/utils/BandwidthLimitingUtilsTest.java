@@ -0,0 +1,77 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BandwidthLimitingUtilsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    // 1000 bytes/s, 4000 bytes burst, waits up to 5 s
+    private static final double RATE = 1000;
+    private static final double BURST = 4000;
+    private static final long MAX_WAIT_MS = 5000;
+
+    private static long charge(BandwidthLimitingUtils.Bucket bucket, long bytes, long nowNanos) {
+        return bucket.charge(bytes, RATE, BURST, MAX_WAIT_MS, nowNanos);
+    }
+
+    @Test
+    void burstIsFreeThenDebtIsPaidInTime() {
+        BandwidthLimitingUtils.Bucket bucket = new BandwidthLimitingUtils.Bucket(BURST, 0);
+
+        assertEquals(0, charge(bucket, 4000, 0));
+        // 500 bytes of debt at 1000 bytes/s
+        assertEquals(500, charge(bucket, 500, 0));
+        // debt adds up: 1500 bytes owed
+        assertEquals(1500, charge(bucket, 1000, 0));
+    }
+
+    @Test
+    void refillsAtTheRateUpToTheBurst() {
+        BandwidthLimitingUtils.Bucket bucket = new BandwidthLimitingUtils.Bucket(BURST, 0);
+        assertEquals(0, charge(bucket, 4000, 0));
+
+        // half a second refills 500 bytes
+        assertEquals(0, charge(bucket, 500, SECOND / 2));
+        assertEquals(1, charge(bucket, 1, SECOND / 2));
+
+        // a long idle period refills no more than the burst
+        assertEquals(0, charge(bucket, 4000, 100 * SECOND));
+        assertEquals(1000, charge(bucket, 1000, 100 * SECOND));
+    }
+
+    @Test
+    void debtIsPaidOffByRefill() {
+        BandwidthLimitingUtils.Bucket bucket = new BandwidthLimitingUtils.Bucket(BURST, 0);
+        assertEquals(2000, charge(bucket, 6000, 0));
+
+        // two seconds later the debt is gone, the bucket is empty
+        assertEquals(100, charge(bucket, 100, 2 * SECOND));
+    }
+
+    @Test
+    void refusesAWaitAboveTheMaximumWithoutCharging() {
+        BandwidthLimitingUtils.Bucket bucket = new BandwidthLimitingUtils.Bucket(BURST, 0);
+
+        // 6000 bytes of debt would be a 6 s wait
+        assertEquals(-1, charge(bucket, 10_000, 0));
+        // nothing was taken, the burst is still there
+        assertEquals(0, charge(bucket, 4000, 0));
+        assertEquals(5000, charge(bucket, 5000, 0));
+        assertEquals(-1, charge(bucket, 1, 0));
+    }
+
+    @Test
+    void idleOnlyWithoutDebt() {
+        BandwidthLimitingUtils.Bucket bucket = new BandwidthLimitingUtils.Bucket(BURST, 0);
+        charge(bucket, 5000, 0);
+        assertFalse(bucket.isIdle(60 * SECOND, SECOND));
+
+        BandwidthLimitingUtils.Bucket full = new BandwidthLimitingUtils.Bucket(BURST, 0);
+        charge(full, 100, 0);
+        assertFalse(full.isIdle(SECOND / 2, SECOND));
+        assertTrue(full.isIdle(2 * SECOND, SECOND));
+    }
+}
@@ -0,0 +1,80 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.CapturedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static CapturedRequest record(int i, byte[] body) {
+        return CapturedRequest.builder()
+                .epochMicros(1_000_000L + i)
+                .method(i % 2 == 0 ? "GET" : "POST")
+                .path("/product/items/" + i + "?q=x")
+                .status(200)
+                .latencyMicros(i * 10)
+                .clientId(-i)
+                .contentType(body == null ? null : "application/json")
+                .body(body)
+                .build();
+    }
+
+    @Test
+    void recordsRoundTripAcrossSegments() throws Exception {
+        byte[] body = "{\"name\":\"ü\"}".getBytes(StandardCharsets.UTF_8);
+        try (CaptureLog log = new CaptureLog(directory, 1024, 100)) {
+            for (int i = 0; i < 50; i++) {
+                log.append(record(i, i % 2 == 0 ? null : body));
+            }
+        }
+        assertTrue(CaptureLog.segments(directory).size() > 1);
+
+        List<CapturedRequest> read = new ArrayList<>();
+        CaptureLog.read(directory, read::add);
+
+        assertEquals(50, read.size());
+        for (int i = 0; i < 50; i++) {
+            CapturedRequest expected = record(i, i % 2 == 0 ? null : body);
+            CapturedRequest actual = read.get(i);
+            assertEquals(expected.getEpochMicros(), actual.getEpochMicros());
+            assertEquals(expected.getMethod(), actual.getMethod());
+            assertEquals(expected.getPath(), actual.getPath());
+            assertEquals(expected.getLatencyMicros(), actual.getLatencyMicros());
+            assertEquals(expected.getClientId(), actual.getClientId());
+            if (expected.getBody() == null) {
+                assertNull(actual.getBody());
+            } else {
+                assertArrayEquals(body, actual.getBody());
+            }
+        }
+    }
+
+    @Test
+    void rotationKeepsOnlyNewestSegmentsAndTruncatesHugeBodies() throws Exception {
+        try (CaptureLog log = new CaptureLog(directory, 512, 2)) {
+            for (int i = 0; i < 40; i++) {
+                log.append(record(i, new byte[2048]));
+            }
+        }
+        assertEquals(2, CaptureLog.segments(directory).size());
+
+        List<CapturedRequest> read = new ArrayList<>();
+        CaptureLog.read(directory, read::add);
+        assertEquals(2, read.size());
+        assertEquals(39, read.get(1).getLatencyMicros() / 10);
+        assertTrue(read.get(1).getBody().length < 512);
+    }
+}
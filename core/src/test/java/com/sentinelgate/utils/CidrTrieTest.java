@@ -0,0 +1,71 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CidrTrieTest {
+
+    @Test
+    void longestPrefixWins() {
+        CidrTrie trie = new CidrTrie()
+                .add("10.0.0.0/8", CidrTrie.DENY)
+                .add("10.1.0.0/16", CidrTrie.ALLOW)
+                .add("10.1.2.3", CidrTrie.DENY)
+                .compact();
+
+        assertEquals(CidrTrie.DENY, trie.match("10.200.0.1"));
+        assertEquals(CidrTrie.ALLOW, trie.match("10.1.9.9"));
+        assertEquals(CidrTrie.DENY, trie.match("10.1.2.3"));
+        assertEquals(CidrTrie.NONE, trie.match("11.0.0.1"));
+        assertEquals(3, trie.getPrefixes());
+    }
+
+    @Test
+    void denyWinsForTheSamePrefix() {
+        CidrTrie trie = new CidrTrie().add("192.168.0.0/24", CidrTrie.DENY).add("192.168.0.0/24", CidrTrie.ALLOW);
+        assertEquals(CidrTrie.DENY, trie.match("192.168.0.7"));
+    }
+
+    @Test
+    void matchesIpv6InAllNotations() {
+        CidrTrie trie = new CidrTrie()
+                .add("2001:db8::/32", CidrTrie.DENY)
+                .add("::1", CidrTrie.ALLOW)
+                .add("::/0", CidrTrie.ALLOW);
+
+        assertEquals(CidrTrie.DENY, trie.match("2001:db8::1"));
+        assertEquals(CidrTrie.DENY, trie.match("2001:0DB8:0000:0000:0000:0000:0000:0001"));
+        assertEquals(CidrTrie.ALLOW, trie.match("0:0:0:0:0:0:0:1"));
+        assertEquals(CidrTrie.ALLOW, trie.match("fe80::1%eth0"));
+        assertEquals(CidrTrie.ALLOW, trie.match("2001:db9::"));
+        // the IPv6 default route does not cover IPv4
+        assertEquals(CidrTrie.NONE, trie.match("1.2.3.4"));
+    }
+
+    @Test
+    void ipv4MappedAddressesMatchIpv4Prefixes() {
+        CidrTrie trie = new CidrTrie().add("203.0.113.0/24", CidrTrie.DENY).add("::ffff:198.51.100.0/120", CidrTrie.DENY);
+        assertEquals(CidrTrie.DENY, trie.match("::ffff:203.0.113.9"));
+        assertEquals(CidrTrie.DENY, trie.match("198.51.100.20"));
+        assertEquals(CidrTrie.NONE, trie.match("::ffff:8.8.8.8"));
+    }
+
+    @Test
+    void matchesInsideALargerString() {
+        CidrTrie trie = new CidrTrie().add("198.51.100.0/24", CidrTrie.DENY);
+        String header = "203.0.113.1, 198.51.100.7";
+        assertEquals(CidrTrie.DENY, trie.match(header, 13, header.length()));
+        assertEquals(CidrTrie.NONE, trie.match(header, 0, 11));
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        CidrTrie trie = new CidrTrie().add("0.0.0.0/0", CidrTrie.DENY);
+        for (String address : new String[]{"", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "unknown", "1:2:3", "1::2::3", "12345::", ":1::", "1:2:3:4:5:6:7:8:9"}) {
+            assertEquals(CidrTrie.NONE, trie.match(address), address);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new CidrTrie().add("10.0.0.0/33", CidrTrie.DENY));
+        assertThrows(IllegalArgumentException.class, () -> new CidrTrie().add("example.com", CidrTrie.DENY));
+    }
+}
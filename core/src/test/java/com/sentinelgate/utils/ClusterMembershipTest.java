@@ -0,0 +1,89 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterMembershipTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private ClusterMembership node(String id, List<InMemoryHeartbeatTransport> bus, String secret) throws Exception {
+        ClusterMembership membership = new ClusterMembership(id, new InMemoryHeartbeatTransport(bus), 5000, 64, secret, clock::get);
+        membership.start();
+        return membership;
+    }
+
+    @Test
+    void sharesRebalanceWhenPeersJoinAndLeave() throws Exception {
+        List<InMemoryHeartbeatTransport> bus = InMemoryHeartbeatTransport.newBus();
+        ClusterMembership a = node("a", bus, null);
+        assertEquals(30, a.share(30));
+
+        ClusterMembership b = node("b", bus, null);
+        ClusterMembership c = node("c", bus, null);
+        a.heartbeat();
+        b.heartbeat();
+        c.heartbeat();
+        assertEquals(3, a.liveNodes());
+        assertEquals(10, a.share(30));
+        assertEquals(10, c.share(30));
+
+        c.leave();
+        assertEquals(2, a.liveNodes());
+        assertEquals(15, b.share(30));
+    }
+
+    @Test
+    void silentPeersExpire() throws Exception {
+        List<InMemoryHeartbeatTransport> bus = InMemoryHeartbeatTransport.newBus();
+        ClusterMembership a = node("a", bus, null);
+        ClusterMembership b = node("b", bus, null);
+        a.heartbeat();
+        b.heartbeat();
+        assertEquals(2, a.liveNodes());
+
+        clock.addAndGet(4000);
+        a.heartbeat();
+        assertEquals(2, b.liveNodes());
+
+        // b stopped sending, a still heard from it 4s ago
+        clock.addAndGet(2000);
+        assertEquals(1, a.liveNodes());
+        assertEquals(2, b.liveNodes());
+    }
+
+    @Test
+    void shareNeverDropsToZero() throws Exception {
+        List<InMemoryHeartbeatTransport> bus = InMemoryHeartbeatTransport.newBus();
+        ClusterMembership a = node("a", bus, null);
+        node("b", bus, null).heartbeat();
+        node("c", bus, null).heartbeat();
+        assertEquals(1, a.share(1));
+    }
+
+    @Test
+    void signedClusterIgnoresForgedAndReplayedHeartbeats() throws Exception {
+        List<InMemoryHeartbeatTransport> bus = InMemoryHeartbeatTransport.newBus();
+        ClusterMembership a = node("a", bus, "secret");
+        ClusterMembership b = node("b", bus, "secret");
+        node("intruder", bus, "other").heartbeat();
+        a.receive(ClusterMembership.PREFIX + "|H|unsigned|" + clock.get() + "|-");
+        assertEquals(1, a.liveNodes());
+
+        b.heartbeat();
+        assertEquals(2, a.liveNodes());
+
+        // a valid heartbeat of c, captured off the wire and replayed after the peer timeout
+        StringBuilder captured = new StringBuilder();
+        List<InMemoryHeartbeatTransport> tap = InMemoryHeartbeatTransport.newBus();
+        new InMemoryHeartbeatTransport(tap).start(captured::append);
+        new ClusterMembership("c", new InMemoryHeartbeatTransport(tap), 5000, 64, "secret", clock::get).heartbeat();
+        clock.addAndGet(6000);
+        a.receive(captured.toString());
+        assertFalse(a.getPeers().contains("c"));
+    }
+}
@@ -0,0 +1,207 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CompressionUtilsTest {
+
+    private static final byte[] JSON = "{\"id\":1,\"name\":\"product\"}".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+    private CompressionUtils compressionUtils;
+
+    private ConfigUtils configUtils;
+
+    @BeforeEach
+    void setUp() {
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getCompressionEnabled()).thenReturn(true);
+        when(configUtils.getCompressionMinSizeBytes()).thenReturn(1024);
+        when(configUtils.getCompressionLevel()).thenReturn(Deflater.DEFAULT_COMPRESSION);
+        when(configUtils.getCompressionMimeTypes()).thenReturn("application/json, text/plain");
+        compressionUtils = new CompressionUtils();
+        ReflectionTestUtils.setField(compressionUtils, "configUtils", configUtils);
+        compressionUtils.init();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+            deflate.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static HttpHeaders headers(String contentType, String contentEncoding, Long contentLength) {
+        HttpHeaders headers = new HttpHeaders();
+        if (contentType != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, contentType);
+        }
+        if (contentEncoding != null) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        }
+        if (contentLength != null) {
+            headers.setContentLength(contentLength);
+        }
+        return headers;
+    }
+
+    @Test
+    void gzipStreamRoundTrips() throws Exception {
+        byte[] original = "{\"id\":1,\"name\":\"product\"}".repeat(500).getBytes(StandardCharsets.UTF_8);
+        InputStream gzip = new CompressionUtils.GzipCompressingInputStream(new ByteArrayInputStream(original), Deflater.DEFAULT_COMPRESSION);
+        byte[] compressed = gzip.readAllBytes();
+
+        assertTrue(compressed.length < original.length);
+        assertArrayEquals(original, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+    }
+
+    @Test
+    void gzipStreamHandlesEmptyBody() throws Exception {
+        InputStream gzip = new CompressionUtils.GzipCompressingInputStream(new ByteArrayInputStream(new byte[0]), Deflater.DEFAULT_COMPRESSION);
+        assertEquals(0, new GZIPInputStream(new ByteArrayInputStream(gzip.readAllBytes())).readAllBytes().length);
+    }
+
+    @Test
+    void acceptEncodingHonoursQValues() {
+        assertTrue(CompressionUtils.accepts("gzip, deflate, br", "gzip"));
+        assertTrue(CompressionUtils.accepts("br;q=1.0, *;q=0.5", "gzip"));
+        assertFalse(CompressionUtils.accepts("gzip;q=0, deflate", "gzip"));
+        assertFalse(CompressionUtils.accepts("identity", "gzip"));
+        assertFalse(CompressionUtils.accepts(null, "gzip"));
+    }
+
+    @Test
+    void acceptedUpstreamEncodingIsPassedThrough() throws Exception {
+        byte[] compressed = gzip(JSON);
+        HttpHeaders headers = headers("application/json", "gzip", (long) compressed.length);
+        InputStream body = new ByteArrayInputStream(compressed);
+
+        assertSame(body, compressionUtils.negotiate(body, headers, "gzip, br"));
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(compressed.length, headers.getContentLength());
+        assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+    }
+
+    @Test
+    void unacceptedUpstreamEncodingIsDecoded() throws Exception {
+        for (String encoding : new String[]{"gzip", "deflate"}) {
+            byte[] compressed = encoding.equals("gzip") ? gzip(JSON) : deflate(JSON);
+            HttpHeaders headers = headers("application/json", encoding, (long) compressed.length);
+
+            InputStream body = compressionUtils.negotiate(new ByteArrayInputStream(compressed), headers, null);
+
+            assertArrayEquals(JSON, body.readAllBytes(), encoding);
+            assertNull(headers.getFirst(HttpHeaders.CONTENT_ENCODING), encoding);
+            assertEquals(-1, headers.getContentLength(), encoding);
+        }
+    }
+
+    @Test
+    void decodedBodyIsRecompressedInAnAcceptedEncoding() throws Exception {
+        byte[] compressed = deflate(JSON);
+        HttpHeaders headers = headers("application/json", "deflate", (long) compressed.length);
+
+        InputStream body = compressionUtils.negotiate(new ByteArrayInputStream(compressed), headers, "gzip");
+
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(JSON, new GZIPInputStream(body).readAllBytes());
+    }
+
+    @Test
+    void unknownUpstreamEncodingIsPassedThroughUnchanged() throws Exception {
+        HttpHeaders headers = headers("application/json", "br", 10L);
+        InputStream body = new ByteArrayInputStream(new byte[10]);
+
+        assertSame(body, compressionUtils.negotiate(body, headers, "gzip"));
+        assertEquals("br", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(10, headers.getContentLength());
+    }
+
+    @Test
+    void brokenGzipBodyFails() {
+        HttpHeaders headers = headers("application/json", "gzip", 4L);
+        assertThrows(IOException.class,
+                () -> compressionUtils.negotiate(new ByteArrayInputStream(new byte[]{1, 2, 3, 4}), headers, null));
+    }
+
+    @Test
+    void compressibleBodiesAreGzipped() throws Exception {
+        HttpHeaders headers = headers("application/json; charset=utf-8", null, (long) JSON.length);
+
+        InputStream body = compressionUtils.negotiate(new ByteArrayInputStream(JSON), headers, "gzip");
+
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(-1, headers.getContentLength());
+        assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+        assertArrayEquals(JSON, new GZIPInputStream(body).readAllBytes());
+    }
+
+    @Test
+    void otherContentTypesAreNotCompressed() throws Exception {
+        for (String contentType : new String[]{"image/png", "application/octet-stream", null}) {
+            HttpHeaders headers = headers(contentType, null, (long) JSON.length);
+            InputStream body = new ByteArrayInputStream(JSON);
+            assertSame(body, compressionUtils.negotiate(body, headers, "gzip"), String.valueOf(contentType));
+            assertNull(headers.getFirst(HttpHeaders.CONTENT_ENCODING), String.valueOf(contentType));
+        }
+    }
+
+    @Test
+    void nothingIsCompressedForClientsWithoutGzipOrWhenDisabled() throws Exception {
+        InputStream body = new ByteArrayInputStream(JSON);
+        assertSame(body, compressionUtils.negotiate(body, headers("application/json", null, null), "br, gzip;q=0"));
+
+        when(configUtils.getCompressionEnabled()).thenReturn(false);
+        HttpHeaders headers = headers("application/json", null, null);
+        assertSame(body, compressionUtils.negotiate(body, headers, "gzip"));
+        assertNull(headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void smallBodiesOfKnownLengthAreNotCompressed() throws Exception {
+        HttpHeaders headers = headers("application/json", null, 100L);
+        InputStream body = new ByteArrayInputStream(new byte[100]);
+        assertSame(body, compressionUtils.negotiate(body, headers, "gzip"));
+        assertEquals(100, headers.getContentLength());
+    }
+
+    @Test
+    void unknownLengthIsPeekedForTheThreshold() throws Exception {
+        // below the threshold: plain, nothing lost by peeking
+        byte[] small = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        HttpHeaders smallHeaders = headers("application/json", null, null);
+        InputStream smallBody = compressionUtils.negotiate(new ByteArrayInputStream(small), smallHeaders, "gzip");
+        assertNull(smallHeaders.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(small, smallBody.readAllBytes());
+
+        // at least the threshold: gzipped, the peeked bytes included
+        HttpHeaders largeHeaders = headers("application/json", null, null);
+        InputStream largeBody = compressionUtils.negotiate(new ByteArrayInputStream(JSON), largeHeaders, "gzip");
+        assertEquals("gzip", largeHeaders.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(JSON, new GZIPInputStream(largeBody).readAllBytes());
+    }
+}
@@ -0,0 +1,100 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitingUtilsTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static ConcurrencyLimitingUtils.AdaptiveLimit limit(int initial, int min, int max) {
+        return new ConcurrencyLimitingUtils.AdaptiveLimit(initial, min, max, 0.2, 1.5, 1000);
+    }
+
+    // fills the limit and completes every request with the same rtt, the first samples see the upstream saturated
+    private static void saturate(ConcurrencyLimitingUtils.AdaptiveLimit limit, long rttNanos) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limit.release(rttNanos, false);
+        }
+    }
+
+    @Test
+    void requestsAboveTheLimitAreRejected() {
+        ConcurrencyLimitingUtils.AdaptiveLimit limit = limit(5, 1, 100);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        assertFalse(limit.tryAcquire());
+        limit.release(RTT, false);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void limitGrowsWhileLatencyStaysAtTheMinimum() {
+        ConcurrencyLimitingUtils.AdaptiveLimit limit = limit(10, 1, 100_000);
+        for (int round = 0; round < 5; round++) {
+            double before = limit.limit();
+            saturate(limit, RTT);
+            assertTrue(limit.limit() > before, "round " + round + ": " + before + " -> " + limit.limit());
+        }
+    }
+
+    @Test
+    void limitIsNotGrownWhileTheUpstreamIsNotTheBottleneck() {
+        ConcurrencyLimitingUtils.AdaptiveLimit limit = limit(10, 1, 1000);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(RTT, false);
+        }
+        assertEquals(10, limit.limit());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRises() {
+        ConcurrencyLimitingUtils.AdaptiveLimit limit = limit(10, 1, 1000);
+        for (int round = 0; round < 3; round++) {
+            saturate(limit, RTT);
+        }
+        double grown = limit.limit();
+        for (int round = 0; round < 10; round++) {
+            double before = limit.limit();
+            saturate(limit, RTT * 10);
+            assertTrue(limit.limit() < before, "round " + round + ": " + before + " -> " + limit.limit());
+        }
+        assertTrue(limit.limit() < grown / 2);
+    }
+
+    @Test
+    void dropCutsTheLimitByTenPercent() {
+        ConcurrencyLimitingUtils.AdaptiveLimit limit = limit(20, 1, 100);
+        assertTrue(limit.tryAcquire());
+        limit.release(RTT, true);
+        assertEquals(18, limit.limit(), 1e-9);
+    }
+
+    @Test
+    void limitStaysWithinMinAndMax() {
+        ConcurrencyLimitingUtils.AdaptiveLimit limit = limit(10, 4, 30);
+        for (int round = 0; round < 200; round++) {
+            saturate(limit, RTT);
+        }
+        assertEquals(30, limit.limit(), 1e-9);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(RTT, true);
+        }
+        assertEquals(4, limit.limit(), 1e-9);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        assertFalse(limit.tryAcquire());
+    }
+}
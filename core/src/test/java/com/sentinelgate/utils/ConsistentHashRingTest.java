@@ -0,0 +1,62 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private ConsistentHashRing<String> ringOf(String... nodes) {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(160);
+        for (String node : nodes) {
+            ring.addNode(node, node);
+        }
+        return ring;
+    }
+
+    @Test
+    void keysWithSameHashTagLandOnSameNode() {
+        ConsistentHashRing<String> ring = ringOf("redis-a:6379", "redis-b:6379", "redis-c:6379");
+        for (int i = 0; i < 100; i++) {
+            String path = "/product/" + i;
+            assertEquals(ring.get(RedisUtils.taggedKey("RLP_", path)), ring.get(RedisUtils.taggedKey("RLC_", path)));
+        }
+    }
+
+    @Test
+    void keysAreSpreadOverAllNodes() {
+        ConsistentHashRing<String> ring = ringOf("redis-a:6379", "redis-b:6379", "redis-c:6379");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30000; i++) {
+            counts.merge(ring.get(RedisUtils.taggedKey("RLP_", "/product/" + i)), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 7000, "unbalanced ring: " + counts));
+    }
+
+    @Test
+    void removingNodeOnlyMovesItsOwnKeys() {
+        ConsistentHashRing<String> ring = ringOf("redis-a:6379", "redis-b:6379", "redis-c:6379");
+        Map<String, String> before = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String key = RedisUtils.taggedKey("RLP_", "/product/" + i);
+            before.put(key, ring.get(key));
+        }
+        ring.removeNode("redis-c:6379");
+        before.forEach((key, node) -> {
+            if (!"redis-c:6379".equals(node)) {
+                assertEquals(node, ring.get(key));
+            }
+        });
+    }
+
+    @Test
+    void hashTagFollowsRedisClusterRules() {
+        assertEquals("user1", ConsistentHashRing.hashTag("RLP_{user1}"));
+        assertEquals("RLP_{}", ConsistentHashRing.hashTag("RLP_{}"));
+        assertEquals("plain", ConsistentHashRing.hashTag("plain"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.HeavyHitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHitterSketchTest {
+
+    @Test
+    void findsDominantKeysAmongLongTail() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(1024, 4, 10);
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            int roll = random.nextInt(100);
+            if (roll < 30) {
+                sketch.add("/product/hot-1");
+            } else if (roll < 50) {
+                sketch.add("/product/hot-2");
+            } else {
+                sketch.add("/product/" + random.nextInt(100_000));
+            }
+        }
+
+        List<HeavyHitter> top = sketch.getTopK();
+        assertEquals("/product/hot-1", top.get(0).getKey());
+        assertEquals("/product/hot-2", top.get(1).getKey());
+        assertTrue(sketch.estimate("/product/hot-1") >= 60_000 * 0.95);
+    }
+
+    @Test
+    void decayHalvesEstimates() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(256, 4, 5);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("/product/1");
+        }
+        sketch.decay();
+        assertEquals(500, sketch.estimate("/product/1"));
+        assertEquals(500, sketch.getTopK().get(0).getCount());
+    }
+}
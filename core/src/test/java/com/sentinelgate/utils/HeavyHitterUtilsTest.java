@@ -0,0 +1,77 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HeavyHitterUtilsTest {
+
+    private static final String HOT_PATH = "/product/items/1";
+
+    private HeavyHitterUtils heavyHitterUtils;
+
+    private ConfigUtils configUtils;
+
+    @BeforeEach
+    void setUp() {
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getHeavyHitterEnabled()).thenReturn(true);
+        when(configUtils.getHeavyHitterMode()).thenReturn(HeavyHitterUtils.MODE_REJECT);
+        when(configUtils.getHeavyHitterHotThreshold()).thenReturn(100L);
+        when(configUtils.getHeavyHitterWidth()).thenReturn(1024);
+        when(configUtils.getHeavyHitterDepth()).thenReturn(4);
+        when(configUtils.getHeavyHitterTopK()).thenReturn(10);
+        heavyHitterUtils = new HeavyHitterUtils();
+        ReflectionTestUtils.setField(heavyHitterUtils, "configUtils", configUtils);
+        heavyHitterUtils.init();
+    }
+
+    // one noisy client plus a crowd of well-behaved ones on the same route
+    private void hotRoute() {
+        for (int i = 0; i < 200; i++) {
+            heavyHitterUtils.record(HOT_PATH, "user:mallory");
+            heavyHitterUtils.record(HOT_PATH, "user:u" + i);
+        }
+    }
+
+    @Test
+    void rejectModeTurnsAwayOnlyTheHotClient() {
+        hotRoute();
+        assertEquals(HeavyHitterUtils.Action.REJECT, heavyHitterUtils.actionFor(HOT_PATH, "user:mallory"));
+        // the rest of the route is limited locally, not rejected
+        assertEquals(HeavyHitterUtils.Action.ENFORCE_LOCALLY, heavyHitterUtils.actionFor(HOT_PATH, "user:u7"));
+        assertEquals(HeavyHitterUtils.Action.ENFORCE_LOCALLY, heavyHitterUtils.actionFor(HOT_PATH, null));
+        assertEquals(HeavyHitterUtils.Action.NONE, heavyHitterUtils.actionFor("/product/items/2", "user:u7"));
+    }
+
+    @Test
+    void localModeNeverRejects() {
+        when(configUtils.getHeavyHitterMode()).thenReturn(HeavyHitterUtils.MODE_LOCAL);
+        hotRoute();
+        assertEquals(HeavyHitterUtils.Action.ENFORCE_LOCALLY, heavyHitterUtils.actionFor(HOT_PATH, "user:mallory"));
+    }
+
+    @Test
+    void offModeAndDisabledTrackingDoNothing() {
+        hotRoute();
+        when(configUtils.getHeavyHitterMode()).thenReturn(HeavyHitterUtils.MODE_OFF);
+        assertEquals(HeavyHitterUtils.Action.NONE, heavyHitterUtils.actionFor(HOT_PATH, "user:mallory"));
+
+        when(configUtils.getHeavyHitterMode()).thenReturn(HeavyHitterUtils.MODE_REJECT);
+        when(configUtils.getHeavyHitterEnabled()).thenReturn(false);
+        assertEquals(HeavyHitterUtils.Action.NONE, heavyHitterUtils.actionFor(HOT_PATH, "user:mallory"));
+    }
+
+    @Test
+    void apiKeyScopesAreTracked() {
+        for (int i = 0; i < 150; i++) {
+            heavyHitterUtils.record("apikey:abc", "apikey:abc");
+        }
+        assertEquals("apikey:abc", heavyHitterUtils.getTopScopes().get(0).getKey());
+        assertEquals("apikey:abc", heavyHitterUtils.getTopClients().get(0).getKey());
+        assertEquals(HeavyHitterUtils.Action.REJECT, heavyHitterUtils.actionFor("apikey:abc", "apikey:abc"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RPermitExpirableSemaphore;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InFlightQuotaUtilsTest {
+
+    private InFlightQuotaUtils inFlightQuotaUtils;
+
+    private ConfigUtils configUtils;
+
+    private RedissonClient redissonClient;
+
+    private RPermitExpirableSemaphore semaphore;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        inFlightQuotaUtils = new InFlightQuotaUtils();
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getInFlightQuotaEnabled()).thenReturn(true);
+        when(configUtils.getInFlightQuotaMaxPerIdentity()).thenReturn(2);
+        when(configUtils.getInFlightQuotaLeaseMs()).thenReturn(1000L);
+        when(configUtils.getInFlightQuotaRedisRetryMs()).thenReturn(60_000L);
+        redissonClient = mock(RedissonClient.class);
+        semaphore = mock(RPermitExpirableSemaphore.class);
+        when(redissonClient.getPermitExpirableSemaphore(anyString())).thenReturn(semaphore);
+        when(semaphore.tryAcquire(0, 1000L, TimeUnit.MILLISECONDS)).thenReturn("p1", "p2", "p3");
+        ObjectProvider<RedissonClient> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(redissonClient);
+        ReflectionTestUtils.setField(inFlightQuotaUtils, "configUtils", configUtils);
+        ReflectionTestUtils.setField(inFlightQuotaUtils, "redissonClientProvider", provider);
+    }
+
+    @Test
+    void localCountRejectsWithoutRedisOnceThisNodeIsAtTheQuota() {
+        InFlightQuotaUtils.Permit first = inFlightQuotaUtils.tryAcquire("user:alice");
+        InFlightQuotaUtils.Permit second = inFlightQuotaUtils.tryAcquire("user:alice");
+        assertNotNull(first);
+        assertNotNull(second);
+
+        assertNull(inFlightQuotaUtils.tryAcquire("user:alice"));
+        assertEquals(2, inFlightQuotaUtils.getLocalInFlight("user:alice"));
+        verify(redissonClient, times(2)).getPermitExpirableSemaphore(anyString());
+
+        // other identities are unaffected
+        assertNotNull(inFlightQuotaUtils.tryAcquire("user:bob"));
+    }
+
+    @Test
+    void releaseIsIdempotentAndReturnsTheRedisPermit() {
+        InFlightQuotaUtils.Permit permit = inFlightQuotaUtils.tryAcquire("user:alice");
+        permit.release();
+        permit.release();
+
+        assertEquals(0, inFlightQuotaUtils.getLocalInFlight("user:alice"));
+        verify(semaphore, times(1)).tryReleaseAsync("p1");
+        verify(semaphore).expireAsync(Duration.ofMillis(2000));
+    }
+
+    @Test
+    void quotaHeldOnOtherNodesRejects() throws Exception {
+        when(semaphore.tryAcquire(0, 1000L, TimeUnit.MILLISECONDS)).thenReturn(null);
+        when(semaphore.trySetPermits(2)).thenReturn(false);
+
+        assertNull(inFlightQuotaUtils.tryAcquire("user:alice"));
+        assertEquals(0, inFlightQuotaUtils.getLocalInFlight("user:alice"));
+    }
+
+    @Test
+    void missingSemaphoreIsInitialisedOnFirstUse() throws Exception {
+        when(semaphore.tryAcquire(0, 1000L, TimeUnit.MILLISECONDS)).thenReturn(null, "p1");
+        when(semaphore.trySetPermits(2)).thenReturn(true);
+
+        assertNotNull(inFlightQuotaUtils.tryAcquire("user:alice"));
+        verify(semaphore).trySetPermits(2);
+    }
+
+    @Test
+    void redisFailureFallsBackToLocalCountsForTheRetryWindow() {
+        when(redissonClient.getPermitExpirableSemaphore(anyString())).thenThrow(new IllegalStateException("redis down"));
+
+        InFlightQuotaUtils.Permit first = inFlightQuotaUtils.tryAcquire("user:alice");
+        InFlightQuotaUtils.Permit second = inFlightQuotaUtils.tryAcquire("user:alice");
+        assertNotNull(first);
+        assertNotNull(second);
+        // the local quota still holds while redis is skipped
+        assertNull(inFlightQuotaUtils.tryAcquire("user:alice"));
+        verify(redissonClient, times(1)).getPermitExpirableSemaphore(anyString());
+
+        first.release();
+        second.release();
+        assertEquals(0, inFlightQuotaUtils.getLocalInFlight("user:alice"));
+
+        // retried once the window is over
+        ReflectionTestUtils.setField(inFlightQuotaUtils, "redisRetryAtMs", 0L);
+        inFlightQuotaUtils.tryAcquire("user:alice");
+        verify(redissonClient, times(2)).getPermitExpirableSemaphore(anyString());
+    }
+
+    @Test
+    void disabledQuotaHandsOutNoOpPermits() {
+        when(configUtils.getInFlightQuotaEnabled()).thenReturn(false);
+        InFlightQuotaUtils.Permit permit = inFlightQuotaUtils.tryAcquire("user:alice");
+        assertSame(InFlightQuotaUtils.Permit.NONE, permit);
+        permit.release();
+        verifyNoInteractions(redissonClient);
+    }
+}
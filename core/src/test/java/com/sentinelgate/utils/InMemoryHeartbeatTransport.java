@@ -0,0 +1,41 @@
+package com.sentinelgate.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers heartbeats synchronously to every transport on the same bus, stand-in for UDP in tests.
+ */
+class InMemoryHeartbeatTransport implements HeartbeatTransport {
+
+    private final List<InMemoryHeartbeatTransport> bus;
+
+    private Consumer<String> listener;
+
+    InMemoryHeartbeatTransport(List<InMemoryHeartbeatTransport> bus) {
+        this.bus = bus;
+    }
+
+    static List<InMemoryHeartbeatTransport> newBus() {
+        return new CopyOnWriteArrayList<>();
+    }
+
+    @Override
+    public void start(Consumer<String> listener) {
+        this.listener = listener;
+        bus.add(this);
+    }
+
+    @Override
+    public void send(String message) {
+        for (InMemoryHeartbeatTransport transport : bus) {
+            transport.listener.accept(message);
+        }
+    }
+
+    @Override
+    public void close() {
+        bus.remove(this);
+    }
+}
@@ -0,0 +1,67 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IpFilterUtilsTest {
+
+    private IpFilterUtils ipFilterUtils;
+
+    private ConfigUtils configUtils;
+
+    @BeforeEach
+    void setUp() {
+        ipFilterUtils = new IpFilterUtils();
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getIpFilterEnabled()).thenReturn(false);
+        when(configUtils.getIpFilterTrustedProxies()).thenReturn("10.0.0.0/8, 192.168.1.1/32");
+        when(configUtils.getIpFilterAllow()).thenReturn("");
+        when(configUtils.getIpFilterDeny()).thenReturn("203.0.113.7/32");
+        when(configUtils.getIpFilterRulesFile()).thenReturn("");
+        when(configUtils.getIpFilterDefaultAction()).thenReturn("allow");
+        ReflectionTestUtils.setField(ipFilterUtils, "configUtils", configUtils);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddress);
+        if (forwardedFor != null) {
+            request.addHeader(IpFilterUtils.FORWARDED_FOR, forwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    void clientAddressSkipsTrustedProxiesEvenWithTheFilterOff() {
+        ipFilterUtils.init();
+        assertEquals("203.0.113.7", ipFilterUtils.clientAddress(request("10.1.2.3", "203.0.113.7")));
+        assertEquals("203.0.113.7", ipFilterUtils.clientAddress(request("10.1.2.3", "198.51.100.1, 203.0.113.7 , 192.168.1.1")));
+        // the leftmost entry is the client even when it looks like a proxy
+        assertEquals("10.9.9.9", ipFilterUtils.clientAddress(request("10.1.2.3", "10.9.9.9, 10.1.1.1")));
+        assertEquals("10.1.2.3", ipFilterUtils.clientAddress(request("10.1.2.3", null)));
+        assertEquals("10.1.2.3", ipFilterUtils.clientAddress(request("10.1.2.3", " ")));
+    }
+
+    @Test
+    void forwardedForFromUntrustedPeersIsIgnored() {
+        ipFilterUtils.init();
+        assertEquals("198.51.100.1", ipFilterUtils.clientAddress(request("198.51.100.1", "203.0.113.9")));
+    }
+
+    @Test
+    void filterAndClientAddressAgreeOnTheClient() {
+        when(configUtils.getIpFilterEnabled()).thenReturn(true);
+        ipFilterUtils.init();
+        MockHttpServletRequest spoofed = request("198.51.100.1", "1.2.3.4, 203.0.113.7");
+        MockHttpServletRequest proxied = request("10.1.2.3", "1.2.3.4, 203.0.113.7");
+        assertTrue(ipFilterUtils.isAllowed(spoofed));
+        assertFalse(ipFilterUtils.isAllowed(proxied));
+        assertEquals("203.0.113.7", ipFilterUtils.clientAddress(proxied));
+    }
+}
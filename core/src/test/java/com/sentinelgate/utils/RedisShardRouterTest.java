@@ -0,0 +1,121 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RedisShardRouterTest {
+
+    private final Set<RedisTemplate<String, String>> dead = new HashSet<>();
+
+    private RedisShardRouter router;
+
+    private RedisTemplate<String, String> shardA;
+
+    private RedisTemplate<String, String> shardB;
+
+    private RedisTemplate<String, String> shardC;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // local stand-ins, "dead" ones fail the health check ping
+        router = new RedisShardRouter() {
+            @Override
+            boolean ping(RedisTemplate<String, String> template) {
+                return !dead.contains(template);
+            }
+        };
+        router.redisTemplate = mock(RedisTemplate.class);
+        shardA = mock(RedisTemplate.class);
+        shardB = mock(RedisTemplate.class);
+        shardC = mock(RedisTemplate.class);
+    }
+
+    private void addAll() {
+        router.addShard("redis-a:6379", shardA);
+        router.addShard("redis-b:6379", shardB);
+        router.addShard("redis-c:6379", shardC);
+    }
+
+    private Map<String, RedisTemplate<String, String>> owners() {
+        Map<String, RedisTemplate<String, String>> owners = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String key = RedisUtils.taggedKey("RLP_", "/product/" + i);
+            owners.put(key, router.templateFor(key));
+        }
+        return owners;
+    }
+
+    @Test
+    void withoutShardsEveryKeyUsesTheDefaultTemplate() {
+        assertSame(router.redisTemplate, router.templateFor("RLP_{/product/1}"));
+    }
+
+    @Test
+    void keysOfOneIdShareAShardAndAllShardsGetKeys() {
+        addAll();
+        Map<String, RedisTemplate<String, String>> owners = owners();
+        for (int i = 0; i < 100; i++) {
+            String path = "/product/" + i;
+            assertSame(router.templateFor(RedisUtils.taggedKey("RLP_", path)), router.templateFor(RedisUtils.taggedKey("RLC_", path)));
+        }
+        assertEquals(Set.of(shardA, shardB, shardC), new HashSet<>(owners.values()));
+    }
+
+    @Test
+    void deadShardOnlyMovesItsOwnKeysAndGetsThemBack() {
+        addAll();
+        Map<String, RedisTemplate<String, String>> before = owners();
+
+        dead.add(shardB);
+        router.checkShards();
+        assertEquals(Set.of("redis-b:6379"), router.getDownShards());
+        before.forEach((key, owner) -> {
+            RedisTemplate<String, String> now = router.templateFor(key);
+            if (owner == shardB) {
+                assertNotSame(shardB, now);
+            } else {
+                assertSame(owner, now);
+            }
+        });
+
+        dead.clear();
+        router.checkShards();
+        assertTrue(router.getDownShards().isEmpty());
+        assertEquals(before, owners());
+    }
+
+    @Test
+    void connectionFailureTakesTheShardOffRightAway() {
+        addAll();
+        String key = RedisUtils.taggedKey("RLP_", "/product/1");
+        RedisTemplate<String, String> owner = router.templateFor(key);
+
+        router.reportFailure(key, new IllegalStateException("not a connection problem"));
+        assertSame(owner, router.templateFor(key));
+
+        router.reportFailure(key, new RedisConnectionFailureException("refused"));
+        assertNotSame(owner, router.templateFor(key));
+        assertEquals(1, router.getDownShards().size());
+    }
+
+    @Test
+    void withEveryShardDownKeysStayOnTheirOwnShard() {
+        addAll();
+        Map<String, RedisTemplate<String, String>> before = owners();
+        dead.addAll(Set.of(shardA, shardB, shardC));
+        router.checkShards();
+        assertEquals(3, router.getDownShards().size());
+        assertEquals(before, owners());
+    }
+}
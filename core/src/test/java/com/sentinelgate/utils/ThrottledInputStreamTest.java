@@ -0,0 +1,173 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ThrottledInputStreamTest {
+
+    /**
+     * Records charges and answers with a fixed wait.
+     */
+    private static class RecordingLimiter extends BandwidthLimitingUtils {
+
+        private final List<Long> charges = new ArrayList<>();
+
+        private final List<Long> unpacedCharges = new ArrayList<>();
+
+        private final long waitMs;
+
+        RecordingLimiter(long waitMs) {
+            this(waitMs, 2);
+        }
+
+        RecordingLimiter(long waitMs, int maxPaced) {
+            this.waitMs = waitMs;
+            ConfigUtils configUtils = mock(ConfigUtils.class);
+            when(configUtils.getBandwidthMaxPacedPerIdentity()).thenReturn(maxPaced);
+            ReflectionTestUtils.setField(this, "configUtils", configUtils);
+        }
+
+        @Override
+        public long charge(String scope, long bytes) {
+            charges.add(bytes);
+            return waitMs;
+        }
+
+        @Override
+        public void chargeUnpaced(String scope, long bytes) {
+            charges.add(bytes);
+            unpacedCharges.add(bytes);
+        }
+    }
+
+    @Test
+    void chargesInChunksAndTheRestAtEndOfStream() throws Exception {
+        RecordingLimiter limiter = new RecordingLimiter(0);
+        InputStream in = new ThrottledInputStream(new ByteArrayInputStream(new byte[10_000]), limiter, "scope", "alice", 4096);
+
+        assertEquals(10_000, in.readAllBytes().length);
+        assertEquals(10_000, limiter.charges.stream().mapToLong(Long::longValue).sum());
+        assertTrue(limiter.charges.size() >= 2);
+        limiter.charges.subList(0, limiter.charges.size() - 1).forEach(bytes -> assertTrue(bytes >= 4096));
+    }
+
+    @Test
+    void sleepsForTheReturnedWait() throws Exception {
+        RecordingLimiter limiter = new RecordingLimiter(50);
+        InputStream in = new ThrottledInputStream(new ByteArrayInputStream(new byte[3 * 1024]), limiter, "scope", "alice", 1024);
+
+        long start = System.nanoTime();
+        byte[] buffer = new byte[1024];
+        while (in.read(buffer) >= 0) {
+            // three paced chunks
+        }
+        assertTrue(System.nanoTime() - start >= 3 * 50 * 1_000_000L);
+    }
+
+    @Test
+    void refusesWhenTheWaitIsTooLong() {
+        RecordingLimiter limiter = new RecordingLimiter(-1);
+        InputStream in = new ThrottledInputStream(new ByteArrayInputStream(new byte[8192]), limiter, "scope", "alice", 1024);
+
+        assertThrows(ThrottledInputStream.BandwidthExceededException.class, in::readAllBytes);
+    }
+
+    @Test
+    void refusedBytesAreStillCharged() throws Exception {
+        RecordingLimiter limiter = new RecordingLimiter(-1);
+        InputStream in = new ThrottledInputStream(new ByteArrayInputStream(new byte[8192]), limiter, "scope", "alice", 1024);
+
+        assertThrows(ThrottledInputStream.BandwidthExceededException.class, () -> in.read(new byte[2048]));
+        assertEquals(List.of(2048L), limiter.unpacedCharges);
+        // and not a second time on close
+        in.close();
+        assertEquals(List.of(2048L), limiter.unpacedCharges);
+    }
+
+    @Test
+    void smallBodiesAreChargedOnceWithoutWaiting() throws Exception {
+        RecordingLimiter limiter = new RecordingLimiter(10_000);
+        InputStream in = new ThrottledInputStream(new ByteArrayInputStream(new byte[100]), limiter, "scope", "alice", 65536);
+
+        long start = System.nanoTime();
+        assertEquals(100, in.readAllBytes().length);
+        assertEquals(List.of(100L), limiter.charges);
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test
+    void pacedTransferHoldsASlotUntilEndOfStream() throws Exception {
+        RecordingLimiter limiter = new RecordingLimiter(1);
+        InputStream in = new ThrottledInputStream(new ByteArrayInputStream(new byte[4096]), limiter, "scope", "alice", 1024);
+
+        assertEquals(1024, in.read(new byte[1024]));
+        assertEquals(1, limiter.getPaced("alice"));
+        in.readAllBytes();
+        assertEquals(0, limiter.getPaced("alice"));
+    }
+
+    @Test
+    void refusesPacingBeyondTheCapPerIdentity() throws Exception {
+        RecordingLimiter limiter = new RecordingLimiter(1, 1);
+        InputStream first = new ThrottledInputStream(new ByteArrayInputStream(new byte[4096]), limiter, "scope", "alice", 1024);
+        InputStream second = new ThrottledInputStream(new ByteArrayInputStream(new byte[4096]), limiter, "scope", "alice", 1024);
+        InputStream other = new ThrottledInputStream(new ByteArrayInputStream(new byte[4096]), limiter, "scope", "bob", 1024);
+
+        assertEquals(1024, first.read(new byte[1024]));
+        assertThrows(ThrottledInputStream.BandwidthExceededException.class, () -> second.read(new byte[1024]));
+        // other identities have their own slots
+        assertEquals(4096, other.readAllBytes().length);
+
+        first.close();
+        assertEquals(0, limiter.getPaced("alice"));
+        InputStream third = new ThrottledInputStream(new ByteArrayInputStream(new byte[4096]), limiter, "scope", "alice", 1024);
+        assertEquals(4096, third.readAllBytes().length);
+    }
+
+    @Test
+    void unpacedTransfersTakeNoSlot() throws Exception {
+        RecordingLimiter limiter = new RecordingLimiter(0, 1);
+        InputStream first = new ThrottledInputStream(new ByteArrayInputStream(new byte[4096]), limiter, "scope", "alice", 1024);
+        InputStream second = new ThrottledInputStream(new ByteArrayInputStream(new byte[4096]), limiter, "scope", "alice", 1024);
+
+        assertEquals(1024, first.read(new byte[1024]));
+        assertEquals(4096, second.readAllBytes().length);
+        assertEquals(0, limiter.getPaced("alice"));
+    }
+
+    @Test
+    void failedReadReleasesTheSlot() throws Exception {
+        RecordingLimiter limiter = new RecordingLimiter(1);
+        InputStream failing = new InputStream() {
+            private int reads;
+
+            @Override
+            public int read() {
+                return 0;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (reads++ > 0) {
+                    throw new IOException("client went away");
+                }
+                return length;
+            }
+        };
+        InputStream in = new ThrottledInputStream(failing, limiter, "scope", "alice", 1024);
+
+        assertEquals(1024, in.read(new byte[1024]));
+        assertEquals(1, limiter.getPaced("alice"));
+        assertThrows(IOException.class, () -> in.read(new byte[1024]));
+        assertEquals(0, limiter.getPaced("alice"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.sentinelgate.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.TokenIntrospection;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenIntrospectionUtilsTest {
+
+    private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private TokenIntrospectionUtils tokenIntrospectionUtils;
+
+    private ConfigUtils configUtils;
+
+    @BeforeEach
+    void setUp() {
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getJwtSecret()).thenReturn(Encoders.BASE64.encode(key.getEncoded()));
+        when(configUtils.getIntrospectParallelism()).thenReturn(4);
+        when(configUtils.getIntrospectParallelThreshold()).thenReturn(16);
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "configUtils", configUtils);
+        ReflectionTestUtils.setField(jwtUtils, "objectMapper", objectMapper);
+        jwtUtils.init();
+        tokenIntrospectionUtils = new TokenIntrospectionUtils();
+        ReflectionTestUtils.setField(tokenIntrospectionUtils, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(tokenIntrospectionUtils, "configUtils", configUtils);
+        tokenIntrospectionUtils.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenIntrospectionUtils.destroy();
+    }
+
+    private String token(String username, Key signingKey, long expiresInMs) throws Exception {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject(objectMapper.writeValueAsString(Map.of("username", username)))
+                .setIssuedAt(new Date(now - 1000))
+                .setExpiration(new Date(now + expiresInMs))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Test
+    void validTokenReturnsCompactClaims() throws Exception {
+        TokenIntrospection result = tokenIntrospectionUtils.introspect(token("alice", key, 60_000));
+        assertTrue(result.getActive());
+        assertEquals("alice", result.getUsername());
+        assertNotNull(result.getIat());
+        assertTrue(result.getExp() > result.getIat());
+        assertNull(result.getError());
+    }
+
+    @Test
+    void expiredTokenIsClassifiedAsExpired() throws Exception {
+        TokenIntrospection result = tokenIntrospectionUtils.introspect(token("alice", key, -60_000));
+        assertFalse(result.getActive());
+        assertEquals(TokenIntrospection.EXPIRED, result.getError());
+        assertNull(result.getUsername());
+    }
+
+    @Test
+    void garbageAndBlankTokensAreMalformed() {
+        for (String token : new String[]{"not-a-jwt", "a.b.c", "", "  ", null}) {
+            TokenIntrospection result = tokenIntrospectionUtils.introspect(token);
+            assertFalse(result.getActive(), String.valueOf(token));
+            assertEquals(TokenIntrospection.MALFORMED, result.getError(), String.valueOf(token));
+        }
+    }
+
+    @Test
+    void foreignSignatureIsInvalid() throws Exception {
+        Key other = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        TokenIntrospection result = tokenIntrospectionUtils.introspect(token("alice", other, 60_000));
+        assertFalse(result.getActive());
+        assertEquals(TokenIntrospection.INVALID, result.getError());
+        assertNull(result.getUsername());
+    }
+
+    @Test
+    void parallelBatchKeepsTokenOrder() throws Exception {
+        Key other = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tokens.add(switch (i % 4) {
+                case 0 -> token("user" + i, key, 60_000);
+                case 1 -> token("user" + i, key, -60_000);
+                case 2 -> "garbage-" + i;
+                default -> token("user" + i, other, 60_000);
+            });
+        }
+        assertTrue(tokens.size() >= configUtils.getIntrospectParallelThreshold());
+
+        List<TokenIntrospection> results = tokenIntrospectionUtils.introspect(tokens);
+
+        assertEquals(tokens.size(), results.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenIntrospection result = results.get(i);
+            switch (i % 4) {
+                case 0 -> assertEquals("user" + i, result.getUsername(), "index " + i);
+                case 1 -> assertEquals(TokenIntrospection.EXPIRED, result.getError(), "index " + i);
+                case 2 -> assertEquals(TokenIntrospection.MALFORMED, result.getError(), "index " + i);
+                default -> assertEquals(TokenIntrospection.INVALID, result.getError(), "index " + i);
+            }
+        }
+    }
+
+    @Test
+    void smallBatchMatchesParallelResults() throws Exception {
+        List<String> tokens = List.of(token("alice", key, 60_000), "garbage", token("bob", key, -60_000));
+        List<TokenIntrospection> results = tokenIntrospectionUtils.introspect(tokens);
+        assertEquals(List.of(true, false, false), results.stream().map(TokenIntrospection::getActive).toList());
+        assertEquals("alice", results.get(0).getUsername());
+        assertEquals(TokenIntrospection.MALFORMED, results.get(1).getError());
+        assertEquals(TokenIntrospection.EXPIRED, results.get(2).getError());
+    }
+}
@@ -0,0 +1,171 @@
+package com.sentinelgate.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.RequestTrace;
+import com.sentinelgate.pojo.TraceSpan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TracingUtilsTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private static final String SAMPLED_PARENT = "00-" + TRACE_ID + "-00f067aa0ba902b7-01";
+
+    private TracingUtils tracingUtils;
+
+    private ConfigUtils configUtils;
+
+    @BeforeEach
+    void setUp() {
+        tracingUtils = new TracingUtils();
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getTracingSampleRate()).thenReturn(0.0);
+        when(configUtils.getTracingHonorParentSampled()).thenReturn(false);
+        when(configUtils.getServerTimingEnabled()).thenReturn(true);
+        when(configUtils.getTracingExporter()).thenReturn(TracingUtils.EXPORTER_NONE);
+        ReflectionTestUtils.setField(tracingUtils, "configUtils", configUtils);
+        ReflectionTestUtils.setField(tracingUtils, "objectMapper", new ObjectMapper());
+        tracingUtils.init();
+    }
+
+    @Test
+    void clientCannotForceSamplingByDefault() {
+        assertSame(RequestTrace.NOOP, tracingUtils.startTrace(SAMPLED_PARENT));
+        assertFalse(tracingUtils.isServerTimingEnabled(RequestTrace.NOOP));
+    }
+
+    @Test
+    void trustedParentForcesSamplingButGetsNoServerTiming() {
+        when(configUtils.getTracingHonorParentSampled()).thenReturn(true);
+        RequestTrace trace = tracingUtils.startTrace(SAMPLED_PARENT);
+        assertTrue(trace.isSampled());
+        assertTrue(trace.isExternallySampled());
+        assertEquals(TRACE_ID, trace.getTraceId());
+        assertEquals("00f067aa0ba902b7", trace.getParentSpanId());
+        assertFalse(tracingUtils.isServerTimingEnabled(trace));
+    }
+
+    @Test
+    void locallySampledRequestContinuesTheCallersTrace() {
+        when(configUtils.getTracingSampleRate()).thenReturn(1.0);
+        RequestTrace trace = tracingUtils.startTrace("00-" + TRACE_ID + "-00f067aa0ba902b7-00");
+        assertTrue(trace.isSampled());
+        assertFalse(trace.isExternallySampled());
+        assertEquals(TRACE_ID, trace.getTraceId());
+        assertEquals("00f067aa0ba902b7", trace.getParentSpanId());
+        assertTrue(tracingUtils.isServerTimingEnabled(trace));
+
+        when(configUtils.getServerTimingEnabled()).thenReturn(false);
+        assertFalse(tracingUtils.isServerTimingEnabled(trace));
+    }
+
+    @Test
+    void malformedTraceparentStartsANewTrace() {
+        when(configUtils.getTracingSampleRate()).thenReturn(1.0);
+        when(configUtils.getTracingHonorParentSampled()).thenReturn(true);
+        for (String traceparent : new String[]{null, "", "garbage", "00-" + TRACE_ID + "-00f067aa0ba902b7-1",
+                // uppercase hex, version ff, all-zero ids, trailing data on version 00, non-hex characters
+                "00-" + TRACE_ID.toUpperCase() + "-00f067aa0ba902b7-01",
+                "ff-" + TRACE_ID + "-00f067aa0ba902b7-01",
+                "00-00000000000000000000000000000000-00f067aa0ba902b7-01",
+                "00-" + TRACE_ID + "-0000000000000000-01",
+                SAMPLED_PARENT + "-extra",
+                "00-" + TRACE_ID + "-00f067aa0ba902bz-01",
+                "0x-" + TRACE_ID + "-00f067aa0ba902b7-01"}) {
+            RequestTrace trace = tracingUtils.startTrace(traceparent);
+            assertTrue(trace.isSampled());
+            assertNotEquals(TRACE_ID, trace.getTraceId());
+            assertEquals(32, trace.getTraceId().length());
+            assertNull(trace.getParentSpanId(), traceparent);
+        }
+    }
+
+    @Test
+    void laterVersionsMayAppendFields() {
+        when(configUtils.getTracingSampleRate()).thenReturn(1.0);
+        RequestTrace trace = tracingUtils.startTrace("01-" + TRACE_ID + "-00f067aa0ba902b7-01-what-the-future-holds");
+        assertEquals(TRACE_ID, trace.getTraceId());
+        assertEquals("00f067aa0ba902b7", trace.getParentSpanId());
+    }
+
+    @Test
+    void logExporterDoesNotExportOnTheCallingThread() throws Exception {
+        List<TraceSpan> exported = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        try (SpanExportBuffer buffer = new SpanExportBuffer(spans -> {
+            threads.add(Thread.currentThread());
+            exported.addAll(spans);
+        }, 2, 10)) {
+            when(configUtils.getTracingSampleRate()).thenReturn(1.0);
+            tracingUtils.setExporter(buffer);
+            RequestTrace trace = tracingUtils.startTrace(null);
+            trace.end("jwt", trace.start());
+            tracingUtils.export(trace, "GET /product/1", 200);
+        }
+        assertEquals(2, exported.size());
+        assertFalse(threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    void fullExportBufferDropsInsteadOfBlocking() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        try (SpanExportBuffer buffer = new SpanExportBuffer(spans -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1, 1)) {
+            TraceSpan span = new TraceSpan();
+            for (int i = 0; i < 10; i++) {
+                buffer.export(List.of(span));
+            }
+            // one span with the worker, at most one queued
+            assertTrue(buffer.getDropped() >= 8, "dropped " + buffer.getDropped());
+            blocked.countDown();
+        }
+    }
+
+    @Test
+    void phasesBecomeChildSpansAndServerTimingEntries() {
+        when(configUtils.getTracingSampleRate()).thenReturn(1.0);
+        List<TraceSpan> exported = new ArrayList<>();
+        tracingUtils.setExporter(exported::addAll);
+
+        RequestTrace trace = tracingUtils.startTrace(null);
+        trace.end("jwt", trace.start());
+        String upstreamSpan = RequestTrace.newSpanId();
+        trace.end("upstream", trace.start(), upstreamSpan);
+        assertEquals("00-" + trace.getTraceId() + "-" + upstreamSpan + "-01", trace.traceparent(upstreamSpan));
+        assertTrue(trace.serverTiming().matches("jwt;dur=\\d+\\.\\d{3}, upstream;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}"), trace.serverTiming());
+
+        tracingUtils.export(trace, "GET /product/1", 200);
+        assertEquals(3, exported.size());
+        assertEquals("GET /product/1", exported.get(0).getName());
+        assertEquals(trace.getSpanId(), exported.get(1).getParentSpanId());
+        assertEquals(upstreamSpan, exported.get(2).getSpanId());
+        exported.forEach(span -> assertTrue(span.getEndTimeUnixNano() >= span.getStartTimeUnixNano()));
+    }
+
+    @Test
+    void unsampledTraceRecordsNothing() {
+        RequestTrace trace = tracingUtils.startTrace(null);
+        assertSame(RequestTrace.NOOP, trace);
+        assertEquals(0L, trace.start());
+        trace.end("jwt", 0L);
+        assertNull(trace.serverTiming());
+        assertNull(trace.traceparent("x"));
+        assertTrue(trace.finish("GET /", 200).isEmpty());
+    }
+}
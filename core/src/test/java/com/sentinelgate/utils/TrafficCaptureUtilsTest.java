@@ -0,0 +1,107 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.CapturedRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrafficCaptureUtilsTest {
+
+    @TempDir
+    Path directory;
+
+    private TrafficCaptureUtils trafficCaptureUtils;
+
+    private ConfigUtils configUtils;
+
+    @BeforeEach
+    void setUp() {
+        trafficCaptureUtils = new TrafficCaptureUtils();
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getCaptureEnabled()).thenReturn(true);
+        when(configUtils.getCaptureDir()).thenReturn(directory.toString());
+        when(configUtils.getCaptureSegmentSizeBytes()).thenReturn(4096);
+        when(configUtils.getCaptureMaxSegments()).thenReturn(100);
+        when(configUtils.getCaptureSampleRate()).thenReturn(1.0);
+        when(configUtils.getCaptureMaxBodyBytes()).thenReturn(64);
+        when(configUtils.getCaptureQueueSize()).thenReturn(1024);
+        ReflectionTestUtils.setField(trafficCaptureUtils, "configUtils", configUtils);
+    }
+
+    private static MockHttpServletRequest request(int i) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/items/" + i);
+        request.setQueryString("q=" + i);
+        return request;
+    }
+
+    @Test
+    void backgroundWriterPersistsAndRotates() throws Exception {
+        trafficCaptureUtils.init();
+        for (int i = 0; i < 200; i++) {
+            trafficCaptureUtils.capture(request(i), 200, "token-" + i, System.nanoTime());
+        }
+        trafficCaptureUtils.destroy();
+
+        List<CapturedRequest> read = new ArrayList<>();
+        CaptureLog.read(directory, read::add);
+        assertEquals(200, read.size());
+        assertEquals("/product/items/199?q=199", read.get(199).getPath());
+        assertTrue(CaptureLog.segments(directory).size() > 1);
+        assertEquals(0, trafficCaptureUtils.getDropped());
+    }
+
+    @Test
+    void requestThreadDropsWhenWriterFallsBehind() throws Exception {
+        // log and queue without a writer thread, as if the writer were stuck
+        ReflectionTestUtils.setField(trafficCaptureUtils, "captureLog", new CaptureLog(directory, 4096, 100));
+        ReflectionTestUtils.setField(trafficCaptureUtils, "queue", new ArrayBlockingQueue<CapturedRequest>(2));
+
+        for (int i = 0; i < 5; i++) {
+            trafficCaptureUtils.capture(request(i), 200, null, System.nanoTime());
+        }
+        assertEquals(3, trafficCaptureUtils.getDropped());
+        assertEquals(1, CaptureLog.segments(directory).size());
+
+        trafficCaptureUtils.destroy();
+        List<CapturedRequest> read = new ArrayList<>();
+        CaptureLog.read(directory, read::add);
+        assertEquals(2, read.size());
+        assertEquals("/product/items/1?q=1", read.get(1).getPath());
+    }
+
+    @Test
+    void bodiesAreTruncatedBeforeQueueing() throws Exception {
+        trafficCaptureUtils.init();
+        MockHttpServletRequest request = request(1);
+        request.setAttribute(TrafficCaptureUtils.BODY_ATTRIBUTE, new byte[1000]);
+        trafficCaptureUtils.capture(request, 201, "token", System.nanoTime());
+        trafficCaptureUtils.destroy();
+
+        List<CapturedRequest> read = new ArrayList<>();
+        CaptureLog.read(directory, read::add);
+        assertEquals(1, read.size());
+        assertEquals(64, read.get(0).getBody().length);
+        assertEquals(201, read.get(0).getStatus());
+    }
+
+    @Test
+    void disabledCaptureIsANoop() {
+        when(configUtils.getCaptureEnabled()).thenReturn(false);
+        trafficCaptureUtils.init();
+        assertFalse(trafficCaptureUtils.isEnabled());
+        trafficCaptureUtils.capture(request(1), 200, null, System.nanoTime());
+        trafficCaptureUtils.destroy();
+        assertEquals(0, trafficCaptureUtils.getDropped());
+    }
+}
@@ -0,0 +1,157 @@
+package com.sentinelgate.utils;
+
+import com.sentinelgate.pojo.MirrorStats;
+import com.sentinelgate.pojo.RequestDeadline;
+import com.sentinelgate.pojo.RequestTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TrafficMirrorUtilsTest {
+
+    private static final String SERVICE = "product";
+
+    private TrafficMirrorUtils trafficMirrorUtils;
+
+    private WebUtils webUtils;
+
+    @BeforeEach
+    void setUp() {
+        trafficMirrorUtils = new TrafficMirrorUtils();
+        webUtils = mock(WebUtils.class);
+        RoutingUtils routingUtils = mock(RoutingUtils.class);
+        when(routingUtils.getMirrorHost(SERVICE)).thenReturn("http://shadow");
+        when(routingUtils.getMirrorSampleRate(SERVICE)).thenReturn(1.0);
+        when(routingUtils.getServiceTimeout(SERVICE)).thenReturn(3000);
+        ConfigUtils configUtils = mock(ConfigUtils.class);
+        when(configUtils.getMirrorThreads()).thenReturn(1);
+        when(configUtils.getMirrorQueueSize()).thenReturn(1);
+        ReflectionTestUtils.setField(trafficMirrorUtils, "webUtils", webUtils);
+        ReflectionTestUtils.setField(trafficMirrorUtils, "routingUtils", routingUtils);
+        ReflectionTestUtils.setField(trafficMirrorUtils, "configUtils", configUtils);
+        trafficMirrorUtils.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        trafficMirrorUtils.destroy();
+    }
+
+    @Test
+    void shadowCopyDropsDeadlineAndTraceContext() throws Exception {
+        HttpResponse<InputStream> response = response(200);
+        when(webUtils.exchange(any(), any(), any(), any(), any())).thenReturn(response);
+
+        trafficMirrorUtils.mirror(SERVICE, "POST", "/product/1?a=b", new byte[]{1}, Map.of(
+                "Authorization", "Bearer t",
+                "x-request-timeout-ms", "12",
+                RequestTrace.TRACEPARENT, "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"), 200, 1_000_000);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, String>> headers = ArgumentCaptor.forClass(Map.class);
+        verify(webUtils, timeout(2000)).exchange(eq("POST"), eq("http://shadow/product/1?a=b"), any(), headers.capture(), eq(3000));
+        Map<String, String> sent = headers.getValue();
+        assertEquals("Bearer t", sent.get("Authorization"));
+        assertEquals("true", sent.get(TrafficMirrorUtils.SHADOW_HEADER));
+        assertTrue(sent.keySet().stream().noneMatch(name -> name.equalsIgnoreCase(RequestDeadline.HEADER)));
+        assertFalse(sent.containsKey(RequestTrace.TRACEPARENT));
+    }
+
+    @Test
+    void copiesBeyondTheQueueAreDropped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        HttpResponse<InputStream> response = response(200);
+        when(webUtils.exchange(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return response;
+        });
+
+        // one running on the single thread, one queued, the rest rejected
+        trafficMirrorUtils.mirror(SERVICE, "GET", "/product/1", null, Map.of(), 200, 0);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            trafficMirrorUtils.mirror(SERVICE, "GET", "/product/1", null, Map.of(), 200, 0);
+        }
+        assertEquals(3L, stats().getDropped());
+
+        release.countDown();
+        awaitCompleted(2);
+        assertEquals(3L, stats().getDropped());
+        assertEquals(0L, stats().getFailed());
+    }
+
+    @Test
+    void statusMismatchesFailuresAndLatenciesAreAccounted() throws Exception {
+        HttpResponse<InputStream> ok = response(200);
+        HttpResponse<InputStream> error = response(500);
+        when(webUtils.exchange(any(), any(), any(), any(), any()))
+                .thenReturn(ok)
+                .thenReturn(error)
+                .thenThrow(new IOException("connection refused"));
+
+        trafficMirrorUtils.mirror(SERVICE, "GET", "/product/1", null, Map.of(), 200, 2_000_000);
+        awaitCompleted(1);
+        trafficMirrorUtils.mirror(SERVICE, "GET", "/product/1", null, Map.of(), 200, 4_000_000);
+        awaitCompleted(2);
+        trafficMirrorUtils.mirror(SERVICE, "GET", "/product/1", null, Map.of(), 200, 8_000_000);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (stats().getFailed() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        MirrorStats stats = stats();
+        assertEquals(2L, stats.getCompleted());
+        assertEquals(1L, stats.getFailed());
+        assertEquals(1L, stats.getStatusMismatches());
+        assertEquals(0L, stats.getDropped());
+        // failed calls do not count towards the latency averages
+        assertEquals(3.0, stats.getAvgPrimaryLatencyMs(), 1e-9);
+        assertNotNull(stats.getAvgShadowLatencyMs());
+    }
+
+    @Test
+    void routesWithoutMirrorAreIgnored() {
+        trafficMirrorUtils.mirror("other", "GET", "/other/1", null, Map.of(), 200, 0);
+        assertTrue(trafficMirrorUtils.getStats().isEmpty());
+        verifyNoInteractions(webUtils);
+    }
+
+    private MirrorStats stats() {
+        List<MirrorStats> stats = trafficMirrorUtils.getStats();
+        assertEquals(1, stats.size());
+        return stats.get(0);
+    }
+
+    private void awaitCompleted(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (stats().getCompleted() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, stats().getCompleted());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<InputStream> response(int status) {
+        HttpResponse<InputStream> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.body()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        return response;
+    }
+}
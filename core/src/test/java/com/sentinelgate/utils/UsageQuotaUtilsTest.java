@@ -0,0 +1,165 @@
+package com.sentinelgate.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UsageQuotaUtilsTest {
+
+    private UsageQuotaUtils usageQuotaUtils;
+
+    private ConfigUtils configUtils;
+
+    // key -> field -> value, what the pipelined HINCRBYs built up
+    private final Map<String, Map<String, Long>> redis = new HashMap<>();
+
+    private boolean redisDown;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        usageQuotaUtils = new UsageQuotaUtils();
+        usageQuotaUtils.clock = clock("2026-01-15T12:00:00Z");
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getUsageQuotaEnabled()).thenReturn(true);
+        when(configUtils.getUsageQuotaDailyLimit()).thenReturn(5L);
+        when(configUtils.getUsageQuotaMonthlyLimit()).thenReturn(8L);
+
+        RedisTemplate<String, String> template = mock(RedisTemplate.class);
+        when(template.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            if (redisDown) {
+                throw new RedisConnectionFailureException("redis down");
+            }
+            List<Object> results = new ArrayList<>();
+            RedisConnection connection = mock(RedisConnection.class);
+            RedisHashCommands hashCommands = mock(RedisHashCommands.class);
+            when(connection.hashCommands()).thenReturn(hashCommands);
+            when(connection.keyCommands()).thenReturn(mock(RedisKeyCommands.class));
+            when(hashCommands.hIncrBy(any(byte[].class), any(byte[].class), anyLong())).thenAnswer(call -> {
+                String key = new String((byte[]) call.getArgument(0), StandardCharsets.UTF_8);
+                String field = new String((byte[]) call.getArgument(1), StandardCharsets.UTF_8);
+                long value = redis.computeIfAbsent(key, k -> new HashMap<>()).merge(field, (long) call.getArgument(2), Long::sum);
+                results.add(value);
+                return null;
+            });
+            ((RedisCallback<Object>) invocation.getArgument(0)).doInRedis(connection);
+            return results;
+        });
+        RedisShardRouter redisShardRouter = mock(RedisShardRouter.class);
+        when(redisShardRouter.templateFor(anyString())).thenReturn(template);
+
+        ReflectionTestUtils.setField(usageQuotaUtils, "configUtils", configUtils);
+        ReflectionTestUtils.setField(usageQuotaUtils, "redisShardRouter", redisShardRouter);
+    }
+
+    private static Clock clock(String instant) {
+        return Clock.fixed(Instant.parse(instant), ZoneOffset.UTC);
+    }
+
+    private static String key(String prefix, String suffix) {
+        return RedisUtils.taggedKey(prefix, "usage") + suffix;
+    }
+
+    private int consume(String identity, int requests) {
+        int allowed = 0;
+        for (int i = 0; i < requests; i++) {
+            if (usageQuotaUtils.tryConsume(identity, "product")) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Test
+    void unflushedRequestsCountTowardsTheQuota() {
+        assertEquals(5, consume("user:alice", 7));
+        assertEquals(Map.of("daily", 5L, "monthly", 5L), usageQuotaUtils.getUsage("user:alice"));
+
+        usageQuotaUtils.flush();
+        // the totals now hold what was local, nothing is counted twice
+        assertEquals(Map.of("daily", 5L, "monthly", 5L), usageQuotaUtils.getUsage("user:alice"));
+        assertEquals(5L, redis.get(key("USAGE_DT_", "20260115")).get("user:alice"));
+        assertEquals(5L, redis.get(key("USAGE_PENDING", "")).get("20260115|user:alice|product"));
+        assertFalse(usageQuotaUtils.tryConsume("user:alice", "product"));
+    }
+
+    @Test
+    void totalsFromOtherNodesAreApplied() {
+        consume("user:alice", 1);
+        // another node already counted 4 today
+        redis.computeIfAbsent(key("USAGE_DT_", "20260115"), k -> new HashMap<>()).put("user:alice", 4L);
+        redis.computeIfAbsent(key("USAGE_MT_", "202601"), k -> new HashMap<>()).put("user:alice", 4L);
+
+        usageQuotaUtils.flush();
+        assertEquals(Map.of("daily", 5L, "monthly", 5L), usageQuotaUtils.getUsage("user:alice"));
+        assertEquals(0, consume("user:alice", 1));
+    }
+
+    @Test
+    void failedFlushKeepsTheDeltasForTheNextOne() {
+        consume("user:alice", 3);
+        redisDown = true;
+        usageQuotaUtils.flush();
+        assertTrue(redis.isEmpty());
+        // still enforced locally
+        assertEquals(2, consume("user:alice", 3));
+
+        redisDown = false;
+        usageQuotaUtils.flush();
+        assertEquals(5L, redis.get(key("USAGE_D_", "20260115")).get("user:alice|product"));
+        assertEquals(5L, redis.get(key("USAGE_PENDING", "")).get("20260115|user:alice|product"));
+        assertEquals(Map.of("daily", 5L, "monthly", 5L), usageQuotaUtils.getUsage("user:alice"));
+
+        // nothing left to send
+        usageQuotaUtils.flush();
+        assertEquals(5L, redis.get(key("USAGE_DT_", "20260115")).get("user:alice"));
+    }
+
+    @Test
+    void dailyQuotaResetsAtUtcMidnightMonthlyAtMonthEnd() {
+        usageQuotaUtils.clock = clock("2026-01-30T23:59:00Z");
+        assertEquals(5, consume("user:alice", 6));
+        usageQuotaUtils.flush();
+
+        usageQuotaUtils.clock = clock("2026-01-31T00:00:01Z");
+        usageQuotaUtils.flush();
+        // new day, only the monthly quota (8) is left to bound it
+        assertEquals(3, consume("user:alice", 5));
+        usageQuotaUtils.flush();
+        assertEquals(Map.of("daily", 3L, "monthly", 8L), usageQuotaUtils.getUsage("user:alice"));
+
+        usageQuotaUtils.clock = clock("2026-02-01T00:00:01Z");
+        usageQuotaUtils.flush();
+        assertEquals(5, consume("user:alice", 6));
+        usageQuotaUtils.flush();
+        assertEquals(5L, redis.get(key("USAGE_MT_", "202602")).get("user:alice"));
+        assertEquals(8L, redis.get(key("USAGE_MT_", "202601")).get("user:alice"));
+    }
+
+    @Test
+    void disabledQuotaAllowsEverything() {
+        when(configUtils.getUsageQuotaEnabled()).thenReturn(false);
+        assertEquals(10, consume("user:alice", 10));
+        usageQuotaUtils.flush();
+        assertTrue(redis.isEmpty());
+    }
+}
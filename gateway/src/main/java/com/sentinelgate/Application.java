@@ -1,17 +1,28 @@
 package com.sentinelgate;
 
+import com.sentinelgate.utils.WarmupUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @SpringBootApplication(scanBasePackages = "com.sentinelgate")
 @RestController
+@EnableScheduling
 public class Application {
 
+	@Autowired
+	WarmupUtils warmupUtils;
+
 	@RequestMapping("/health")
 	public ResponseEntity<String> healthCheck(){
+		// not ready while the startup warm-up runs
+		if (!warmupUtils.isComplete())
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Warming up");
 		return ResponseEntity.ok("Welcome");
 	}
 
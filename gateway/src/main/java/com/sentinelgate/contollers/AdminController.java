@@ -0,0 +1,81 @@
+package com.sentinelgate.contollers;
+
+import com.sentinelgate.utils.AuditEventUtils;
+import com.sentinelgate.utils.ClusterUtils;
+import com.sentinelgate.utils.HeavyHitterUtils;
+import com.sentinelgate.utils.IpFilterUtils;
+import com.sentinelgate.utils.TrafficMirrorUtils;
+import com.sentinelgate.utils.UsageQuotaUtils;
+import com.sentinelgate.utils.WarmupUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    @Autowired
+    HeavyHitterUtils heavyHitterUtils;
+
+    @Autowired
+    TrafficMirrorUtils trafficMirrorUtils;
+
+    @Autowired
+    UsageQuotaUtils usageQuotaUtils;
+
+    @Autowired
+    AuditEventUtils auditEventUtils;
+
+    @Autowired
+    WarmupUtils warmupUtils;
+
+    @Autowired
+    ClusterUtils clusterUtils;
+
+    @Autowired
+    IpFilterUtils ipFilterUtils;
+
+    @GetMapping("/heavy-hitters")
+    public ResponseEntity<Object> heavyHitters() {
+        return ResponseEntity.ok(Map.of(
+                "scopes", heavyHitterUtils.getTopScopes(),
+                "clients", heavyHitterUtils.getTopClients()));
+    }
+
+    @GetMapping("/mirror")
+    public ResponseEntity<Object> mirrorStats() {
+        return ResponseEntity.ok(trafficMirrorUtils.getStats());
+    }
+
+    @GetMapping("/ip-filter")
+    public ResponseEntity<Object> ipFilter() {
+        return ResponseEntity.ok(ipFilterUtils.getStats());
+    }
+
+    @GetMapping("/cluster")
+    public ResponseEntity<Object> cluster() {
+        return ResponseEntity.ok(clusterUtils.getStats());
+    }
+
+    @GetMapping("/warmup")
+    public ResponseEntity<Object> warmup() {
+        return ResponseEntity.ok(warmupUtils.getReport());
+    }
+
+    @GetMapping("/usage/{username}")
+    public ResponseEntity<Object> usage(@PathVariable String username) {
+        return ResponseEntity.ok(usageQuotaUtils.getUsage("user:" + username));
+    }
+
+    @GetMapping("/audit")
+    public ResponseEntity<Object> auditStats() {
+        return ResponseEntity.ok(auditEventUtils.getStats());
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.sentinelgate.contollers;
+
+import com.sentinelgate.request.IntrospectRequest;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.TokenIntrospectionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Token introspection for internal services, lives in the gateway module so it is also
+ * served by the proxy-only build. Callers need the service credential, see AuthFilter.
+ */
+@RestController
+@RequestMapping("/auth")
+public class IntrospectionController {
+
+    @Autowired
+    TokenIntrospectionUtils tokenIntrospectionUtils;
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    @PostMapping("/introspect")
+    public ResponseEntity<Object> introspect(@RequestBody IntrospectRequest request) {
+        if (request.getTokens() == null || request.getTokens().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "tokens are required"));
+        }
+        if (request.getTokens().size() > configUtils.getIntrospectMaxTokens()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Map.of("error", "At most " + configUtils.getIntrospectMaxTokens() + " tokens per request"));
+        }
+        return ResponseEntity.ok(Map.of("results", tokenIntrospectionUtils.introspect(request.getTokens())));
+    }
+}
@@ -0,0 +1,324 @@
+package com.sentinelgate.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.AuditEvent;
+import com.sentinelgate.pojo.RequestDeadline;
+import com.sentinelgate.pojo.RequestTrace;
+import com.sentinelgate.security.AuthFilter;
+import com.sentinelgate.utils.AuditEventUtils;
+import com.sentinelgate.utils.BandwidthLimitingUtils;
+import com.sentinelgate.utils.CompressionUtils;
+import com.sentinelgate.utils.ConcurrencyLimitingUtils;
+import com.sentinelgate.utils.IpFilterUtils;
+import com.sentinelgate.utils.RoutingUtils;
+import com.sentinelgate.utils.ThrottledInputStream;
+import com.sentinelgate.utils.TracingUtils;
+import com.sentinelgate.utils.TrafficCaptureUtils;
+import com.sentinelgate.utils.TrafficMirrorUtils;
+import com.sentinelgate.utils.WebUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * GatewayManager
+ * <p>
+ * Responsibilities:
+ * - Build outbound request (method, headers, querystring, body)
+ * - Forward to target service using the shared HttpClient in WebUtils
+ * - Preserve outbound response status, headers and body (streamed, compression negotiated by CompressionUtils)
+ * - Central place to add cross-cutting concerns (retries, circuit-breaker, metrics, auth, rate-limiting)
+ */
+@Service
+public class GatewayManager {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    private static final Set<String> ALLOWED_METHODS = Set.of("GET", "POST", "PUT", "DELETE");
+
+    // per thread copy buffer of the fast path, the MVC path allocates one per response
+    private static final ThreadLocal<byte[]> COPY_BUFFER = ThreadLocal.withInitial(() -> new byte[16384]);
+
+    private final Logger log = LoggerFactory.getLogger(GatewayManager.class);
+
+    @Autowired
+    private WebUtils webUtils;
+
+    @Autowired
+    private RoutingUtils routingUtils;                 // used for routing config
+
+    @Autowired
+    private CompressionUtils compressionUtils;
+
+    @Autowired
+    private TracingUtils tracingUtils;
+
+    @Autowired
+    private TrafficMirrorUtils trafficMirrorUtils;
+
+    @Autowired
+    private TrafficCaptureUtils trafficCaptureUtils;
+
+    @Autowired
+    private AuditEventUtils auditEventUtils;
+
+    @Autowired
+    private ConcurrencyLimitingUtils concurrencyLimitingUtils;
+
+    @Autowired
+    private BandwidthLimitingUtils bandwidthLimitingUtils;
+
+    @Autowired
+    private IpFilterUtils ipFilterUtils;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Forward request to a target service.
+     *
+     * @param serviceKey logical service id (e.g., "product") used to lookup target base URL
+     * @param pathSuffix path after service root (can be empty or include path params)
+     */
+    public ResponseEntity<Object> forward(String serviceKey, String pathSuffix, HttpServletRequest request) throws IOException {
+        return proxy(serviceKey, pathSuffix, request).toResponseEntity();
+    }
+
+    /**
+     * Fast path variant of {@link #forward(String, String, HttpServletRequest)}, writes status, headers and
+     * the streamed body straight to the servlet response, no handler mapping or message converters involved.
+     */
+    public void forward(String serviceKey, String pathSuffix, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ProxyResult result = proxy(serviceKey, pathSuffix, request);
+        response.setStatus(result.status);
+        if (result.headers != null) {
+            result.headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        }
+        if (result.error != null) {
+            if (result.error instanceof String message) {
+                // with a length, like the string converter on the MVC path
+                byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+                response.setContentType("text/plain;charset=UTF-8");
+                response.setContentLength(bytes.length);
+                response.getOutputStream().write(bytes);
+            } else {
+                response.setContentType("application/json");
+                objectMapper.writeValue(response.getOutputStream(), result.error);
+            }
+            return;
+        }
+        if (result.body == null) {
+            return;
+        }
+        try (InputStream in = result.body) {
+            if (response.getContentType() == null) {
+                response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            }
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = COPY_BUFFER.get();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.flush();
+        }
+    }
+
+    private ProxyResult proxy(String serviceKey, String pathSuffix, HttpServletRequest request) {
+        try {
+            Objects.requireNonNull(serviceKey, "serviceKey");
+
+            log.info("Redirecting to {} service", serviceKey);
+
+            String targetBase = routingUtils.getServiceHost(serviceKey);
+            if (targetBase == null || targetBase.isBlank()) {
+                log.error("No target configured for serviceKey={}", serviceKey);
+                return ProxyResult.error(HttpStatus.SERVICE_UNAVAILABLE, "Service not configured");
+            }
+
+            // build targetUrl safely (avoid double slashes)
+            String suffix = (pathSuffix == null) ? "" : pathSuffix;
+            String query = Optional.ofNullable(request.getQueryString()).map(q -> "?" + q).orElse("");
+            String targetUrl = targetBase + "/" + serviceKey + suffix + query;
+
+            HashMap<String, String> headers = webUtils.getHeaders(request); // assume webUtils returns a Map<String,String>
+            String upstreamAcceptEncoding = compressionUtils.upstreamAcceptEncoding();
+            if (upstreamAcceptEncoding != null) {
+                headers.put(HttpHeaders.ACCEPT_ENCODING, upstreamAcceptEncoding);
+            }
+            // determine method (case-insensitive)
+            String rawMethod = request.getMethod();
+            String method = (rawMethod == null || rawMethod.isBlank()) ? "GET" : rawMethod.toUpperCase(Locale.ROOT);
+            if (!ALLOWED_METHODS.contains(method)) {
+                return ProxyResult.error(HttpStatus.METHOD_NOT_ALLOWED, Map.of("error", "Method not allowed: " + method));
+            }
+
+            // Body is forwarded as raw bytes, Content-Encoding of the request is passed along unchanged
+            RequestTrace trace = RequestTrace.from(request);
+            String bandwidthIdentity = Optional.ofNullable((String) request.getAttribute(AuthFilter.IDENTITY_ATTRIBUTE))
+                    .orElseGet(() -> "ip:" + ipFilterUtils.clientAddress(request));
+            byte[] body = null;
+            if (!"GET".equals(method) && !"DELETE".equals(method)) {
+                long start = trace.start();
+                try {
+                    // uploads are paced while reading, the client is slowed down by tcp backpressure
+                    body = StreamUtils.copyToByteArray(bandwidthLimitingUtils.throttle(request.getInputStream(), bandwidthIdentity, serviceKey,
+                            BandwidthLimitingUtils.UPLOAD));
+                } catch (ThrottledInputStream.BandwidthExceededException e) {
+                    return ProxyResult.error(HttpStatus.TOO_MANY_REQUESTS, Map.of("error", "Bandwidth limit exceeded"));
+                }
+                trace.end("request-body", start);
+                if (trafficCaptureUtils.isCapturingBodies()) {
+                    request.setAttribute(TrafficCaptureUtils.BODY_ATTRIBUTE, body);
+                }
+            }
+
+            // drop work nobody is waiting for anymore, before any upstream I/O
+            Integer timeout = routingUtils.getServiceTimeout(serviceKey);
+            RequestDeadline deadline = (RequestDeadline) request.getAttribute(RequestDeadline.ATTRIBUTE);
+            if (deadline != null) {
+                Long budgetMs = Optional.ofNullable(deadline.getClientBudgetMs()).orElse(routingUtils.getServiceDeadlineMs(serviceKey));
+                if (budgetMs != null) {
+                    long remainingMs = deadline.remainingMs(budgetMs);
+                    if (remainingMs <= 0) {
+                        log.warn("Deadline exceeded before forwarding to {}, elapsed {} ms", serviceKey, deadline.elapsedMs());
+                        return ProxyResult.error(HttpStatus.GATEWAY_TIMEOUT, Map.of("error", "Deadline exceeded"));
+                    }
+                    headers.keySet().removeIf(RequestDeadline.HEADER::equalsIgnoreCase);
+                    headers.put(RequestDeadline.HEADER, String.valueOf(remainingMs));
+                    timeout = (int) Math.min(remainingMs, timeout == null ? Integer.MAX_VALUE : timeout);
+                }
+            }
+
+            // shed load right away instead of queueing behind a slow upstream
+            if (!concurrencyLimitingUtils.tryAcquire(serviceKey)) {
+                return ProxyResult.error(HttpStatus.SERVICE_UNAVAILABLE, Map.of("error", "Service overloaded"));
+            }
+
+            String upstreamSpanId = null;
+            if (trace.isSampled()) {
+                upstreamSpanId = RequestTrace.newSpanId();
+                headers.keySet().removeIf(RequestTrace.TRACEPARENT::equalsIgnoreCase);
+                headers.put(RequestTrace.TRACEPARENT, trace.traceparent(upstreamSpanId));
+            }
+
+            HttpResponse<InputStream> upstreamResponse = null;
+            long upstreamStart = System.nanoTime();
+            long upstreamLatencyNanos = 0;
+            try {
+                upstreamResponse = webUtils.exchange(method, targetUrl, body, headers, timeout);
+            } catch (HttpTimeoutException ex) {
+                log.error("Timeout calling upstream {} {} -> {}", method, targetUrl, ex.getMessage());
+                auditEventUtils.record(AuditEvent.UPSTREAM_ERROR, request, HttpStatus.GATEWAY_TIMEOUT.value(), "timeout");
+                return ProxyResult.error(HttpStatus.GATEWAY_TIMEOUT, Map.of("error", "Upstream service timeout"));
+            } catch (Exception ex) {
+                log.error("Error calling upstream {} {} -> {}", method, targetUrl, ex.getMessage(), ex);
+                auditEventUtils.record(AuditEvent.UPSTREAM_ERROR, request, HttpStatus.BAD_GATEWAY.value(), String.valueOf(ex.getMessage()));
+                return ProxyResult.error(HttpStatus.BAD_GATEWAY,
+                        Map.of("error", "Upstream service error", "detail", String.valueOf(ex.getMessage())));
+            } finally {
+                upstreamLatencyNanos = System.nanoTime() - upstreamStart;
+                concurrencyLimitingUtils.release(serviceKey, upstreamLatencyNanos, upstreamResponse == null);
+                // connect + time to first byte, the JDK client returns once response headers arrived
+                trace.end("upstream", upstreamStart, upstreamSpanId);
+            }
+
+            // shadow copy is queued only after the primary answered, it never delays the primary
+            trafficMirrorUtils.mirror(serviceKey, method, "/" + serviceKey + suffix + query, body, headers,
+                    upstreamResponse.statusCode(), upstreamLatencyNanos);
+
+            if (upstreamResponse.statusCode() >= 500) {
+                auditEventUtils.record(AuditEvent.UPSTREAM_ERROR, request, upstreamResponse.statusCode(), "upstream status");
+            }
+
+            HttpHeaders responseHeaders = webUtils.getResponseHeaders(upstreamResponse);
+            if (tracingUtils.isServerTimingEnabled(trace)) {
+                responseHeaders.set(SERVER_TIMING, trace.serverTiming());
+            }
+            if (upstreamResponse.statusCode() == HttpStatus.NO_CONTENT.value() || upstreamResponse.statusCode() == HttpStatus.NOT_MODIFIED.value()) {
+                // no body to negotiate, headers are relayed as they are
+                upstreamResponse.body().close();
+                return new ProxyResult(upstreamResponse.statusCode(), responseHeaders, null, null);
+            }
+
+            InputStream responseBody;
+            try {
+                responseBody = compressionUtils.negotiate(upstreamResponse.body(), responseHeaders, request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            } catch (IOException ex) {
+                // e.g. a gzip body with a broken header, the upstream connection is released
+                log.error("Invalid {} body from upstream {} {} -> {}", responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING),
+                        method, targetUrl, ex.getMessage());
+                upstreamResponse.body().close();
+                auditEventUtils.record(AuditEvent.UPSTREAM_ERROR, request, HttpStatus.BAD_GATEWAY.value(), "invalid content encoding");
+                return ProxyResult.error(HttpStatus.BAD_GATEWAY, Map.of("error", "Upstream service error", "detail", "Invalid content encoding"));
+            }
+            // paced on the bytes that go to the client, after compression
+            responseBody = bandwidthLimitingUtils.throttle(responseBody, bandwidthIdentity, serviceKey, BandwidthLimitingUtils.DOWNLOAD);
+            return new ProxyResult(upstreamResponse.statusCode(), responseHeaders, responseBody, null);
+        } catch (Exception e){
+            log.error("Error while proxying to {} err: ", serviceKey, e);
+            return new ProxyResult(HttpStatus.INTERNAL_SERVER_ERROR.value(), null, null, null);
+        }
+    }
+
+    /**
+     * Outcome of a proxied call, either an upstream response with its (possibly empty) streamed body
+     * or an error produced by the gateway itself.
+     */
+    private static class ProxyResult {
+
+        private final int status;
+
+        private final HttpHeaders headers;
+
+        private final InputStream body;
+
+        // Map rendered as json or a plain String
+        private final Object error;
+
+        ProxyResult(int status, HttpHeaders headers, InputStream body, Object error) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.error = error;
+        }
+
+        static ProxyResult error(HttpStatus status, Object error) {
+            return new ProxyResult(status.value(), null, null, error);
+        }
+
+        ResponseEntity<Object> toResponseEntity() {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(status).headers(headers);
+            if (error != null) {
+                return builder.body(error);
+            }
+            if (body == null) {
+                return builder.build();
+            }
+            if (headers == null || headers.getContentType() == null) {
+                // untyped upstream bodies would be negotiated to application/json, declared like on the fast path instead
+                builder.contentType(MediaType.APPLICATION_OCTET_STREAM);
+            }
+            // streamed to the client as-is, no String / JSON round trip
+            return builder.body(new InputStreamResource(body));
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+package com.sentinelgate.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.WarmupReport;
+import com.sentinelgate.utils.ApiKeyIndex;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.ConsistentHashRing;
+import com.sentinelgate.utils.JwtUtils;
+import com.sentinelgate.utils.RateLimitingUtils;
+import com.sentinelgate.utils.RoutingUtils;
+import com.sentinelgate.utils.WarmupUtils;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Startup warm-up, runs before the application reports ready so the first real requests do not pay
+ * for interpreted and C1 code in token validation, limiter decisions, header filtering and proxying.
+ * <p>
+ * In-process rounds exercise jwt, jackson and the limiter without network. Proxy rounds then send
+ * authenticated requests through the real server, filter chain and {@link GatewayManager} to a loopback
+ * stub registered as a temporary route. Both phases share one time budget (warmup.max-duration-ms).
+ * Spring Boot flips readiness only after all ApplicationRunners returned, /health answers 503 until then.
+ */
+@Service
+public class WarmupManager implements ApplicationRunner {
+
+    private static final String USERNAME = "__warmup";
+
+    // requests averaged for the first and the last latency in the report
+    private static final int LATENCY_WINDOW = 100;
+
+    private final Logger log = LoggerFactory.getLogger(WarmupManager.class);
+
+    @Autowired
+    private ConfigUtils configUtils;
+
+    @Autowired
+    private WarmupUtils warmupUtils;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private RateLimitingUtils rateLimitingUtils;
+
+    @Autowired
+    private RoutingUtils routingUtils;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!configUtils.getWarmupEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(configUtils.getWarmupMaxDurationMs());
+        Long compilationStart = compilationTimeMs();
+        WarmupReport.WarmupReportBuilder report = WarmupReport.builder();
+        try {
+            String token = jwtUtils.generateToken(Map.of("username", USERNAME));
+            int iterations = warmInProcess(token, deadline);
+            boolean timedOut = iterations < configUtils.getWarmupIterations();
+
+            int port = serverPort();
+            if (port > 0) {
+                timedOut |= !warmProxy(port, token, deadline, report);
+            }
+            report.iterations(iterations).timedOut(timedOut).status(WarmupReport.COMPLETE);
+        } catch (Exception e) {
+            // a failed warm-up only costs latency, it must not keep the app from becoming ready
+            log.warn("Warm-up failed, continuing cold, err: ", e);
+            report.status(WarmupReport.FAILED).error(e.getMessage());
+        } finally {
+            Long compilationEnd = compilationTimeMs();
+            if (compilationStart != null && compilationEnd != null) {
+                report.jitCompilationMs(compilationEnd - compilationStart);
+            }
+            WarmupReport result = report.durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).build();
+            warmupUtils.complete(result);
+            log.info("Warm-up {} in {} ms, iterations: {}, proxy requests: {}, first/last proxy latency: {}/{} ms",
+                    result.getStatus(), result.getDurationMs(), result.getIterations(), result.getProxyRequests(),
+                    result.getFirstProxyLatencyMs(), result.getLastProxyLatencyMs());
+        }
+    }
+
+    private int warmInProcess(String token, long deadline) throws Exception {
+        int iterations = configUtils.getWarmupIterations();
+        Map<String, Object> payload = Map.of("username", USERNAME, "roles", List.of("user"), "id", 1);
+        int i = 0;
+        for (; i < iterations && System.nanoTime() < deadline; i++) {
+            Claims claims = jwtUtils.parse(token);
+            jwtUtils.username(claims);
+            ConsistentHashRing.hash(token);
+            ApiKeyIndex.hash(token);
+            byte[] json = objectMapper.writeValueAsBytes(payload);
+            objectMapper.readValue(json, Map.class);
+            // issuing is the login path, cheaper to warm on a fraction of the rounds
+            if ((i & 15) == 0) {
+                jwtUtils.generateToken(payload);
+            }
+        }
+        rateLimitingUtils.warmUp(Math.min(i, iterations));
+        return i;
+    }
+
+    /**
+     * @return false if the time budget ran out before all requests were sent
+     */
+    private boolean warmProxy(int port, String token, long deadline, WarmupReport.WarmupReportBuilder report) throws Exception {
+        int total = configUtils.getWarmupProxyRequests();
+        int concurrency = Math.max(1, configUtils.getWarmupConcurrency());
+        long[] latencies = new long[total];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        byte[] body = objectMapper.writeValueAsBytes(Map.of("name", "warmup", "tags", List.of("a", "b", "c"), "description", "x".repeat(1024)));
+        byte[] stubBody = objectMapper.writeValueAsBytes(Map.of("items", List.of(Map.of("id", 1, "name", "warmup", "description", "y".repeat(2048)))));
+
+        HttpServer stub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService stubExecutor = Executors.newFixedThreadPool(concurrency);
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        stub.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, stubBody.length);
+            exchange.getResponseBody().write(stubBody);
+            exchange.close();
+        });
+        stub.setExecutor(stubExecutor);
+        stub.start();
+        routingUtils.registerRoute(WarmupUtils.SERVICE_KEY, "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + stub.getAddress().getPort());
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(2))
+                    .build();
+            String base = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port + "/" + WarmupUtils.SERVICE_KEY;
+            List<Future<?>> workers = new ArrayList<>();
+            for (int w = 0; w < concurrency; w++) {
+                workers.add(clients.submit(() -> {
+                    int n;
+                    while (System.nanoTime() < deadline && (n = next.getAndIncrement()) < total) {
+                        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                                .timeout(Duration.ofSeconds(5))
+                                .header("Authorization", "Bearer " + token)
+                                .header(WarmupUtils.HEADER, warmupUtils.getSecret())
+                                .header("Accept-Encoding", (n & 1) == 0 ? "gzip" : "identity");
+                        if ((n & 1) == 0) {
+                            builder.uri(URI.create(base + "/items/" + n + "?page=1&size=20")).GET();
+                        } else {
+                            builder.uri(URI.create(base + "/items")).header("Content-Type", "application/json")
+                                    .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+                        }
+                        long requestStart = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                log.debug("Warm-up request got {}: {}", response.statusCode(), new String(response.body(), StandardCharsets.UTF_8));
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[n] = System.nanoTime() - requestStart;
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            routingUtils.removeRoute(WarmupUtils.SERVICE_KEY);
+            stub.stop(0);
+            stubExecutor.shutdownNow();
+            clients.shutdownNow();
+        }
+
+        int sent = Math.min(next.get(), total);
+        int window = Math.min(LATENCY_WINDOW, Math.max(1, sent / 4));
+        report.proxyRequests(sent).proxyErrors(errors.get());
+        if (sent > 0) {
+            report.firstProxyLatencyMs(averageMs(latencies, 0, window))
+                    .lastProxyLatencyMs(averageMs(latencies, sent - window, sent));
+        }
+        return sent == total;
+    }
+
+    private static double averageMs(long[] latencies, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += latencies[i];
+        }
+        return Math.round(sum / (double) (to - from) / 10_000d) / 100d;
+    }
+
+    // -1 without an embedded server (mock web environment in tests), proxy rounds are skipped then
+    private int serverPort() {
+        if (applicationContext instanceof WebServerApplicationContext webContext && webContext.getWebServer() != null) {
+            return webContext.getWebServer().getPort();
+        }
+        return -1;
+    }
+
+    private static Long compilationTimeMs() {
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        if (compilation == null || !compilation.isCompilationTimeMonitoringSupported()) {
+            return null;
+        }
+        return compilation.getTotalCompilationTime();
+    }
+}
@@ -0,0 +1,73 @@
+package com.sentinelgate.security;
+
+import com.sentinelgate.manager.GatewayManager;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.RoutingUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Last filter in the chain, with fast-path.enabled=true proxies /{serviceKey}/** requests of configured
+ * services directly on the servlet request and response. Ip filtering, deadlines, tracing, auth and rate
+ * limiting already ran in the filters before, what is skipped is the DispatcherServlet: handler mapping,
+ * path variable binding and the ResponseEntity / message converter round trip.
+ * <p>
+ * /auth/**, /admin/**, /health and unknown service keys fall through to MVC unchanged.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class FastPathFilter extends OncePerRequestFilter {
+
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "DELETE");
+
+    @Autowired
+    ConfigUtils configUtils;
+
+    @Autowired
+    RoutingUtils routingUtils;
+
+    @Autowired
+    GatewayManager gatewayManager;
+
+    private Set<String> mvcRoutes;
+
+    @PostConstruct
+    public void init() {
+        mvcRoutes = Arrays.stream(configUtils.getFastPathMvcRoutes().split(","))
+                .map(String::trim)
+                .filter(route -> !route.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !configUtils.getFastPathEnabled() || !METHODS.contains(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        // same split as GatewayController: "/product/items/1" -> "product" + "/items/1"
+        String path = request.getRequestURI();
+        int end = path.indexOf('/', 1);
+        String serviceKey = end < 0 ? path.substring(1) : path.substring(1, end);
+        String host = serviceKey.isEmpty() || mvcRoutes.contains(serviceKey) ? null : routingUtils.getServiceHost(serviceKey);
+        if (host == null || host.isBlank()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        gatewayManager.forward(serviceKey, end < 0 ? "" : path.substring(end), request, response);
+    }
+}
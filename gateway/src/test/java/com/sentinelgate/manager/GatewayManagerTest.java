@@ -0,0 +1,198 @@
+package com.sentinelgate.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.RequestDeadline;
+import com.sentinelgate.utils.AuditEventUtils;
+import com.sentinelgate.utils.BandwidthLimitingUtils;
+import com.sentinelgate.utils.CompressionUtils;
+import com.sentinelgate.utils.ConcurrencyLimitingUtils;
+import com.sentinelgate.utils.IpFilterUtils;
+import com.sentinelgate.utils.RoutingUtils;
+import com.sentinelgate.utils.TracingUtils;
+import com.sentinelgate.utils.TrafficCaptureUtils;
+import com.sentinelgate.utils.TrafficMirrorUtils;
+import com.sentinelgate.utils.WebUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GatewayManagerTest {
+
+    private static final String SERVICE = "product";
+
+    private GatewayManager gatewayManager;
+
+    private WebUtils webUtils;
+
+    private RoutingUtils routingUtils;
+
+    private ConcurrencyLimitingUtils concurrencyLimitingUtils;
+
+    private CompressionUtils compressionUtils;
+
+    private HttpResponse<InputStream> upstream;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        webUtils = mock(WebUtils.class);
+        when(webUtils.getHeaders(any())).thenAnswer(invocation -> new HashMap<>(Map.of(RequestDeadline.HEADER, "999999")));
+        when(webUtils.getResponseHeaders(any())).thenAnswer(invocation -> new HttpHeaders());
+        upstream = mock(HttpResponse.class);
+        when(upstream.statusCode()).thenReturn(200);
+        when(upstream.body()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(webUtils.exchange(any(), any(), any(), any(), any())).thenReturn(upstream);
+        routingUtils = mock(RoutingUtils.class);
+        when(routingUtils.getServiceHost(SERVICE)).thenReturn("http://upstream");
+        when(routingUtils.getServiceTimeout(SERVICE)).thenReturn(3000);
+        when(routingUtils.getServiceDeadlineMs(SERVICE)).thenReturn(2000L);
+        compressionUtils = mock(CompressionUtils.class);
+        when(compressionUtils.negotiate(any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        BandwidthLimitingUtils bandwidthLimitingUtils = mock(BandwidthLimitingUtils.class);
+        when(bandwidthLimitingUtils.throttle(any(), any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        concurrencyLimitingUtils = mock(ConcurrencyLimitingUtils.class);
+        when(concurrencyLimitingUtils.tryAcquire(SERVICE)).thenReturn(true);
+
+        gatewayManager = new GatewayManager();
+        ReflectionTestUtils.setField(gatewayManager, "webUtils", webUtils);
+        ReflectionTestUtils.setField(gatewayManager, "routingUtils", routingUtils);
+        ReflectionTestUtils.setField(gatewayManager, "compressionUtils", compressionUtils);
+        ReflectionTestUtils.setField(gatewayManager, "tracingUtils", mock(TracingUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "trafficMirrorUtils", mock(TrafficMirrorUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "trafficCaptureUtils", mock(TrafficCaptureUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "auditEventUtils", mock(AuditEventUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "concurrencyLimitingUtils", concurrencyLimitingUtils);
+        ReflectionTestUtils.setField(gatewayManager, "bandwidthLimitingUtils", bandwidthLimitingUtils);
+        ReflectionTestUtils.setField(gatewayManager, "ipFilterUtils", mock(IpFilterUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "objectMapper", new ObjectMapper());
+    }
+
+    // a request that entered the gateway elapsedMs ago with the given client budget
+    private MockHttpServletRequest request(Long clientBudgetMs, long elapsedMs) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/items/1");
+        long arrivalNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(elapsedMs);
+        request.setAttribute(RequestDeadline.ATTRIBUTE, new RequestDeadline(arrivalNanos, clientBudgetMs));
+        return request;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> forwardedHeaders() throws Exception {
+        ArgumentCaptor<Map<String, String>> headers = ArgumentCaptor.forClass(Map.class);
+        verify(webUtils).exchange(eq("GET"), eq("http://upstream/product/items/1"), any(), headers.capture(), any());
+        return headers.getValue();
+    }
+
+    private Integer forwardedTimeout() throws Exception {
+        ArgumentCaptor<Integer> timeout = ArgumentCaptor.forClass(Integer.class);
+        verify(webUtils).exchange(any(), any(), any(), any(), timeout.capture());
+        return timeout.getValue();
+    }
+
+    @Test
+    void spentBudgetIs504WithoutUpstreamCall() throws Exception {
+        ResponseEntity<Object> response = gatewayManager.forward(SERVICE, "/items/1", request(100L, 150));
+        assertEquals(504, response.getStatusCode().value());
+        verify(webUtils, never()).exchange(any(), any(), any(), any(), any());
+        // nothing acquired, nothing to release
+        verifyNoInteractions(concurrencyLimitingUtils);
+    }
+
+    @Test
+    void spentRouteDeadlineIs504() throws Exception {
+        ResponseEntity<Object> response = gatewayManager.forward(SERVICE, "/items/1", request(null, 2500));
+        assertEquals(504, response.getStatusCode().value());
+        verify(webUtils, never()).exchange(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void remainingBudgetReplacesTheClientHeader() throws Exception {
+        assertEquals(200, gatewayManager.forward(SERVICE, "/items/1", request(1000L, 400)).getStatusCode().value());
+
+        Map<String, String> headers = forwardedHeaders();
+        long forwarded = Long.parseLong(headers.get(RequestDeadline.HEADER));
+        assertTrue(forwarded > 0 && forwarded <= 600, "forwarded " + forwarded);
+        assertEquals(1, headers.keySet().stream().filter(RequestDeadline.HEADER::equalsIgnoreCase).count());
+    }
+
+    @Test
+    void upstreamTimeoutIsClampedToTheRemainingBudget() throws Exception {
+        gatewayManager.forward(SERVICE, "/items/1", request(1000L, 400));
+        int timeout = forwardedTimeout();
+        assertTrue(timeout > 0 && timeout <= 600, "timeout " + timeout);
+    }
+
+    @Test
+    void serviceTimeoutWinsWhenItIsShorter() throws Exception {
+        gatewayManager.forward(SERVICE, "/items/1", request(60_000L, 0));
+        assertEquals(3000, forwardedTimeout());
+        long forwarded = Long.parseLong(forwardedHeaders().get(RequestDeadline.HEADER));
+        assertTrue(forwarded > 59_000 && forwarded <= 60_000, "forwarded " + forwarded);
+    }
+
+    @Test
+    void routeDeadlineAppliesWithoutClientBudget() throws Exception {
+        gatewayManager.forward(SERVICE, "/items/1", request(null, 0));
+        long forwarded = Long.parseLong(forwardedHeaders().get(RequestDeadline.HEADER));
+        assertTrue(forwarded > 1000 && forwarded <= 2000, "forwarded " + forwarded);
+        assertTrue(forwardedTimeout() <= 2000);
+    }
+
+    @Test
+    void undecodableBodyIs502AndReleasesTheUpstreamStream() throws Exception {
+        InputStream body = spy(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        when(upstream.body()).thenReturn(body);
+        when(compressionUtils.negotiate(any(), any(), any())).thenThrow(new IOException("Not in GZIP format"));
+
+        ResponseEntity<Object> response = gatewayManager.forward(SERVICE, "/items/1", request(null, 0));
+
+        assertEquals(502, response.getStatusCode().value());
+        verify(body).close();
+    }
+
+    @Test
+    void emptyResponsesSkipNegotiation() throws Exception {
+        InputStream body = spy(new ByteArrayInputStream(new byte[0]));
+        when(upstream.body()).thenReturn(body);
+        when(upstream.statusCode()).thenReturn(304);
+        when(compressionUtils.negotiate(any(), any(), any())).thenThrow(new IOException("Unexpected end of ZLIB input stream"));
+
+        ResponseEntity<Object> response = gatewayManager.forward(SERVICE, "/items/1", request(null, 0));
+
+        assertEquals(304, response.getStatusCode().value());
+        assertNull(response.getBody());
+        verify(body).close();
+    }
+
+    @Test
+    void anonymousBandwidthIsChargedToTheResolvedClientAddress() throws Exception {
+        BandwidthLimitingUtils bandwidthLimitingUtils = mock(BandwidthLimitingUtils.class);
+        when(bandwidthLimitingUtils.throttle(any(), any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        IpFilterUtils ipFilterUtils = mock(IpFilterUtils.class);
+        ReflectionTestUtils.setField(gatewayManager, "bandwidthLimitingUtils", bandwidthLimitingUtils);
+        ReflectionTestUtils.setField(gatewayManager, "ipFilterUtils", ipFilterUtils);
+        MockHttpServletRequest request = request(null, 0);
+        request.setRemoteAddr("10.0.0.1");
+        // the client behind the trusted proxy, not the proxy itself
+        when(ipFilterUtils.clientAddress(request)).thenReturn("203.0.113.9");
+
+        gatewayManager.forward(SERVICE, "/items/1", request);
+
+        verify(bandwidthLimitingUtils).throttle(any(), eq("ip:203.0.113.9"), eq(SERVICE), eq(BandwidthLimitingUtils.DOWNLOAD));
+    }
+}
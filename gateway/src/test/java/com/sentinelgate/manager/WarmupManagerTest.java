@@ -0,0 +1,183 @@
+package com.sentinelgate.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.pojo.WarmupReport;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.JwtUtils;
+import com.sentinelgate.utils.RateLimitingUtils;
+import com.sentinelgate.utils.RoutingUtils;
+import com.sentinelgate.utils.WarmupUtils;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WarmupManagerTest {
+
+    private WarmupManager warmupManager;
+
+    private ConfigUtils configUtils;
+
+    private WarmupUtils warmupUtils;
+
+    private JwtUtils jwtUtils;
+
+    private RateLimitingUtils rateLimitingUtils;
+
+    private RoutingUtils routingUtils;
+
+    private HttpServer gateway;
+
+    @BeforeEach
+    void setUp() {
+        warmupManager = new WarmupManager();
+        configUtils = mock(ConfigUtils.class);
+        when(configUtils.getWarmupEnabled()).thenReturn(true);
+        when(configUtils.getWarmupMaxDurationMs()).thenReturn(20_000L);
+        when(configUtils.getWarmupIterations()).thenReturn(50);
+        when(configUtils.getWarmupProxyRequests()).thenReturn(40);
+        when(configUtils.getWarmupConcurrency()).thenReturn(2);
+        warmupUtils = new WarmupUtils();
+        ReflectionTestUtils.setField(warmupUtils, "configUtils", configUtils);
+        warmupUtils.init();
+        jwtUtils = mock(JwtUtils.class);
+        when(jwtUtils.generateToken(any())).thenReturn("warmup-token");
+        when(jwtUtils.parse("warmup-token")).thenReturn(mock(Claims.class));
+        rateLimitingUtils = mock(RateLimitingUtils.class);
+        routingUtils = mock(RoutingUtils.class);
+
+        ReflectionTestUtils.setField(warmupManager, "configUtils", configUtils);
+        ReflectionTestUtils.setField(warmupManager, "warmupUtils", warmupUtils);
+        ReflectionTestUtils.setField(warmupManager, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(warmupManager, "rateLimitingUtils", rateLimitingUtils);
+        ReflectionTestUtils.setField(warmupManager, "routingUtils", routingUtils);
+        ReflectionTestUtils.setField(warmupManager, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(warmupManager, "applicationContext", mock(ApplicationContext.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (gateway != null) {
+            gateway.stop(0);
+        }
+    }
+
+    // stands in for the embedded server, answers like the proxy would
+    private void startGateway(int status, Set<String> paths, AtomicInteger withSecret) throws Exception {
+        gateway = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        gateway.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            paths.add(exchange.getRequestURI().getPath());
+            if (warmupUtils.getSecret().equals(exchange.getRequestHeaders().getFirst(WarmupUtils.HEADER))
+                    && "Bearer warmup-token".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                withSecret.incrementAndGet();
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        gateway.start();
+        WebServer webServer = mock(WebServer.class);
+        when(webServer.getPort()).thenReturn(gateway.getAddress().getPort());
+        WebServerApplicationContext context = mock(WebServerApplicationContext.class);
+        when(context.getWebServer()).thenReturn(webServer);
+        ReflectionTestUtils.setField(warmupManager, "applicationContext", context);
+    }
+
+    @Test
+    void disabledWarmupDoesNothing() {
+        when(configUtils.getWarmupEnabled()).thenReturn(false);
+        warmupUtils.init();
+        warmupManager.run(null);
+        assertEquals(WarmupReport.DISABLED, warmupUtils.getReport().getStatus());
+        verifyNoInteractions(jwtUtils, rateLimitingUtils, routingUtils);
+    }
+
+    @Test
+    void inProcessRoundsRunWithoutAServer() {
+        assertFalse(warmupUtils.isComplete());
+        warmupManager.run(null);
+
+        WarmupReport report = warmupUtils.getReport();
+        assertTrue(warmupUtils.isComplete());
+        assertEquals(WarmupReport.COMPLETE, report.getStatus());
+        assertEquals(50, report.getIterations());
+        assertFalse(report.getTimedOut());
+        assertNull(report.getProxyRequests());
+        verify(jwtUtils, times(50)).parse("warmup-token");
+        verify(rateLimitingUtils).warmUp(50);
+        verifyNoInteractions(routingUtils);
+    }
+
+    @Test
+    void proxyRoundsGoThroughTheServerToTheTemporaryRoute() throws Exception {
+        Set<String> paths = ConcurrentHashMap.newKeySet();
+        AtomicInteger withSecret = new AtomicInteger();
+        startGateway(200, paths, withSecret);
+
+        warmupManager.run(null);
+
+        WarmupReport report = warmupUtils.getReport();
+        assertEquals(WarmupReport.COMPLETE, report.getStatus());
+        assertEquals(40, report.getProxyRequests());
+        assertEquals(0, report.getProxyErrors());
+        assertEquals(40, withSecret.get());
+        assertTrue(paths.stream().allMatch(path -> WarmupUtils.isWarmupRoute(path)), paths.toString());
+        assertNotNull(report.getFirstProxyLatencyMs());
+        assertNotNull(report.getLastProxyLatencyMs());
+        verify(routingUtils).registerRoute(eq(WarmupUtils.SERVICE_KEY), startsWith("http://"));
+        verify(routingUtils).removeRoute(WarmupUtils.SERVICE_KEY);
+    }
+
+    @Test
+    void proxyErrorsAreCountedAndTheRouteIsRemoved() throws Exception {
+        startGateway(502, ConcurrentHashMap.newKeySet(), new AtomicInteger());
+
+        warmupManager.run(null);
+
+        WarmupReport report = warmupUtils.getReport();
+        assertEquals(WarmupReport.COMPLETE, report.getStatus());
+        assertEquals(40, report.getProxyErrors());
+        verify(routingUtils).removeRoute(WarmupUtils.SERVICE_KEY);
+        // the secret only works while the warm-up runs
+        assertTrue(warmupUtils.isComplete());
+    }
+
+    @Test
+    void exhaustedBudgetIsReportedAsTimedOut() {
+        when(configUtils.getWarmupMaxDurationMs()).thenReturn(0L);
+        warmupManager.run(null);
+
+        WarmupReport report = warmupUtils.getReport();
+        assertEquals(WarmupReport.COMPLETE, report.getStatus());
+        assertTrue(report.getTimedOut());
+        assertTrue(report.getIterations() < 50);
+    }
+
+    @Test
+    void failureStillCompletesSoTheAppBecomesReady() {
+        when(jwtUtils.generateToken(any())).thenThrow(new IllegalStateException("no signing key"));
+        warmupManager.run(null);
+
+        assertTrue(warmupUtils.isComplete());
+        assertEquals(WarmupReport.FAILED, warmupUtils.getReport().getStatus());
+        assertEquals("no signing key", warmupUtils.getReport().getError());
+    }
+}
@@ -0,0 +1,239 @@
+package com.sentinelgate.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelgate.contollers.GatewayController;
+import com.sentinelgate.manager.GatewayManager;
+import com.sentinelgate.utils.AuditEventUtils;
+import com.sentinelgate.utils.BandwidthLimitingUtils;
+import com.sentinelgate.utils.CompressionUtils;
+import com.sentinelgate.utils.ConcurrencyLimitingUtils;
+import com.sentinelgate.utils.IpFilterUtils;
+import com.sentinelgate.utils.ConfigUtils;
+import com.sentinelgate.utils.RoutingUtils;
+import com.sentinelgate.utils.TracingUtils;
+import com.sentinelgate.utils.TrafficCaptureUtils;
+import com.sentinelgate.utils.TrafficMirrorUtils;
+import com.sentinelgate.utils.WebUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.request;
+
+/**
+ * The fast path must answer exactly like the MVC path: same status, headers and body for upstream
+ * responses and for errors produced by the gateway.
+ */
+class FastPathFilterTest {
+
+    private static final String SERVICE = "product";
+
+    private FastPathFilter filter;
+
+    private GatewayManager gatewayManager;
+
+    private MockMvc mvc;
+
+    private WebUtils webUtils;
+
+    private RoutingUtils routingUtils;
+
+    private ConcurrencyLimitingUtils concurrencyLimitingUtils;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        webUtils = mock(WebUtils.class);
+        when(webUtils.getHeaders(any())).thenAnswer(invocation -> new HashMap<>());
+        routingUtils = mock(RoutingUtils.class);
+        when(routingUtils.getServiceHost(SERVICE)).thenReturn("http://upstream");
+        CompressionUtils compressionUtils = mock(CompressionUtils.class);
+        when(compressionUtils.negotiate(any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        BandwidthLimitingUtils bandwidthLimitingUtils = mock(BandwidthLimitingUtils.class);
+        when(bandwidthLimitingUtils.throttle(any(), any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        concurrencyLimitingUtils = mock(ConcurrencyLimitingUtils.class);
+        when(concurrencyLimitingUtils.tryAcquire(SERVICE)).thenReturn(true);
+
+        gatewayManager = new GatewayManager();
+        ReflectionTestUtils.setField(gatewayManager, "webUtils", webUtils);
+        ReflectionTestUtils.setField(gatewayManager, "routingUtils", routingUtils);
+        ReflectionTestUtils.setField(gatewayManager, "compressionUtils", compressionUtils);
+        ReflectionTestUtils.setField(gatewayManager, "tracingUtils", mock(TracingUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "trafficMirrorUtils", mock(TrafficMirrorUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "trafficCaptureUtils", mock(TrafficCaptureUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "auditEventUtils", mock(AuditEventUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "concurrencyLimitingUtils", concurrencyLimitingUtils);
+        ReflectionTestUtils.setField(gatewayManager, "bandwidthLimitingUtils", bandwidthLimitingUtils);
+        ReflectionTestUtils.setField(gatewayManager, "ipFilterUtils", mock(IpFilterUtils.class));
+        ReflectionTestUtils.setField(gatewayManager, "objectMapper", objectMapper);
+
+        ConfigUtils configUtils = mock(ConfigUtils.class);
+        when(configUtils.getFastPathEnabled()).thenReturn(true);
+        when(configUtils.getFastPathMvcRoutes()).thenReturn("auth,admin,health");
+        filter = new FastPathFilter();
+        filter.configUtils = configUtils;
+        filter.routingUtils = routingUtils;
+        filter.gatewayManager = gatewayManager;
+        filter.init();
+
+        GatewayController controller = new GatewayController();
+        ReflectionTestUtils.setField(controller, "gatewayManager", gatewayManager);
+        // the converters spring boot registers, utf-8 strings and the application's object mapper
+        HttpMessageConverters converters = new HttpMessageConverters(
+                new StringHttpMessageConverter(StandardCharsets.UTF_8), new MappingJackson2HttpMessageConverter(objectMapper));
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setMessageConverters(converters.getConverters().toArray(new HttpMessageConverter[0]))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void upstreamAnswers(int status, Map<String, List<String>> headers, byte[] body) throws Exception {
+        when(webUtils.exchange(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            HttpResponse<InputStream> response = mock(HttpResponse.class);
+            when(response.statusCode()).thenReturn(status);
+            when(response.body()).thenReturn(new ByteArrayInputStream(body));
+            when(response.version()).thenReturn(HttpClient.Version.HTTP_1_1);
+            return response;
+        });
+        when(webUtils.getResponseHeaders(any())).thenAnswer(invocation -> {
+            HttpHeaders copy = new HttpHeaders();
+            headers.forEach(copy::addAll);
+            return copy;
+        });
+    }
+
+    private MockHttpServletRequest clientRequest(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (!"GET".equals(method)) {
+            request.setContent("{\"name\":\"pen\"}".getBytes(StandardCharsets.UTF_8));
+            request.setContentType("application/json");
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse fastPath(String method, String uri) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(clientRequest(method, uri), response, chain);
+        assertNull(chain.getRequest(), "fell through to MVC");
+        return response;
+    }
+
+    private MockHttpServletResponse mvc(String method, String uri) throws Exception {
+        MockHttpServletRequest template = clientRequest(method, uri);
+        return mvc.perform(request(HttpMethod.valueOf(method), uri).with(request -> {
+                    request.setContent(template.getContentAsByteArray());
+                    request.setContentType(template.getContentType());
+                    return request;
+                }))
+                .andReturn().getResponse();
+    }
+
+    // header names are case-insensitive
+    private static Map<String, List<String>> headers(MockHttpServletResponse response) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String name : response.getHeaderNames()) {
+            headers.put(name, response.getHeaders(name));
+        }
+        return headers;
+    }
+
+    private static void assertSameResponse(MockHttpServletResponse expected, MockHttpServletResponse actual) {
+        assertEquals(expected.getStatus(), actual.getStatus(), "status");
+        assertEquals(headers(expected), headers(actual), "headers");
+        assertArrayEquals(expected.getContentAsByteArray(), actual.getContentAsByteArray(), "body");
+    }
+
+    @Test
+    void upstreamSuccessIsIdentical() throws Exception {
+        byte[] body = "{\"id\":1,\"name\":\"pen\"}".getBytes(StandardCharsets.UTF_8);
+        upstreamAnswers(200, Map.of("Content-Type", List.of("application/json"), "ETag", List.of("\"v1\""),
+                "X-Upstream", List.of("a", "b")), body);
+        for (String method : new String[]{"GET", "POST", "PUT", "DELETE"}) {
+            MockHttpServletResponse viaMvc = mvc(method, "/product/items/1?x=1");
+            MockHttpServletResponse viaFastPath = fastPath(method, "/product/items/1?x=1");
+            assertSameResponse(viaMvc, viaFastPath);
+            assertArrayEquals(body, viaFastPath.getContentAsByteArray(), method);
+        }
+    }
+
+    @Test
+    void bodyWithoutContentTypeIsIdentical() throws Exception {
+        upstreamAnswers(201, Map.of("Location", List.of("/product/items/2")), new byte[]{0, 1, 2, (byte) 0xff});
+        assertSameResponse(mvc("POST", "/product/items"), fastPath("POST", "/product/items"));
+    }
+
+    @Test
+    void upstreamErrorStatusIsIdentical() throws Exception {
+        upstreamAnswers(503, Map.of("Content-Type", List.of("text/plain"), "Retry-After", List.of("5")),
+                "down".getBytes(StandardCharsets.UTF_8));
+        assertSameResponse(mvc("GET", "/product"), fastPath("GET", "/product"));
+    }
+
+    @Test
+    void emptyResponsesAreIdentical() throws Exception {
+        for (int status : new int[]{204, 304}) {
+            upstreamAnswers(status, Map.of("ETag", List.of("\"v1\"")), new byte[0]);
+            MockHttpServletResponse viaMvc = mvc("GET", "/product/items/1");
+            MockHttpServletResponse viaFastPath = fastPath("GET", "/product/items/1");
+            assertSameResponse(viaMvc, viaFastPath);
+            assertEquals(status, viaFastPath.getStatus());
+            assertEquals(0, viaFastPath.getContentAsByteArray().length);
+        }
+    }
+
+    @Test
+    void gatewayErrorsAreIdentical() throws Exception {
+        // json error: upstream overloaded
+        when(concurrencyLimitingUtils.tryAcquire(SERVICE)).thenReturn(false);
+        MockHttpServletResponse viaMvc = mvc("GET", "/product/items/1");
+        MockHttpServletResponse viaFastPath = fastPath("GET", "/product/items/1");
+        assertSameResponse(viaMvc, viaFastPath);
+        assertEquals(503, viaFastPath.getStatus());
+
+        // json error: upstream timeout
+        when(concurrencyLimitingUtils.tryAcquire(SERVICE)).thenReturn(true);
+        when(webUtils.exchange(any(), any(), any(), any(), any())).thenThrow(new HttpTimeoutException("slow"));
+        viaMvc = mvc("POST", "/product/items");
+        viaFastPath = fastPath("POST", "/product/items");
+        assertSameResponse(viaMvc, viaFastPath);
+        assertEquals(504, viaFastPath.getStatus());
+    }
+
+    @Test
+    void plainTextErrorIsIdentical() throws Exception {
+        // only reachable through the forward overloads, the filter hands unknown services to MVC
+        when(routingUtils.getServiceHost(SERVICE)).thenReturn(null);
+        MockHttpServletResponse viaMvc = mvc("GET", "/product/items/1");
+        MockHttpServletResponse direct = new MockHttpServletResponse();
+        gatewayManager.forward(SERVICE, "/items/1", clientRequest("GET", "/product/items/1"), direct);
+        assertSameResponse(viaMvc, direct);
+        assertEquals(503, direct.getStatus());
+        assertEquals("Service not configured", direct.getContentAsString());
+    }
+}
@@ -0,0 +1,247 @@
+package com.sentinelgate.tools;
+
+import com.sentinelgate.Application;
+import com.sentinelgate.utils.JwtUtils;
+import com.sentinelgate.utils.RoutingUtils;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the MVC proxy path with the fast path (fast-path.enabled=true). Boots the gateway in-process
+ * once per mode on a random port, routes a "bench" service to a loopback stub and sends alternating
+ * GET and POST requests from blocking clients.
+ *
+ *   mvn -pl gateway test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.sentinelgate.tools.ProxyBenchmark
+ *       -Dexec.args="[--requests 20000] [--concurrency 4] [--payload-bytes 2048] [--rounds 2] [--spring.property=value ...]"
+ *
+ * Lives in the test sources so it never ships in the gateway jar.
+ *
+ * Each run starts with an unmeasured warm-up of the same size. Allocations per request are summed over
+ * all threads of the JVM except the benchmark clients and the stub, so they cover tomcat, the filter chain
+ * and the upstream client. Modes alternate over the rounds, later rounds are the ones to compare.
+ * Rate limiting and the startup warm-up are turned off, other spring properties are passed through.
+ */
+public class ProxyBenchmark {
+
+    private static final String SERVICE_KEY = "bench";
+
+    // threads of the load generator and the stub, not counted as gateway allocations
+    private static final String THREAD_PREFIX = "bench-";
+
+    public static void main(String[] args) throws Exception {
+        int requests = 20000;
+        int concurrency = 4;
+        int payloadBytes = 2048;
+        int rounds = 2;
+        List<String> springArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--requests" -> requests = Integer.parseInt(args[++i]);
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--payload-bytes" -> payloadBytes = Integer.parseInt(args[++i]);
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                default -> {
+                    if (!args[i].startsWith("--") || !args[i].contains("=")) {
+                        System.err.println("usage: ProxyBenchmark [--requests 20000] [--concurrency 4] [--payload-bytes 2048] [--rounds 2] [--spring.property=value ...]");
+                        System.exit(1);
+                    }
+                    springArgs.add(args[i]);
+                }
+            }
+        }
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("per thread allocation counters not supported by this JVM");
+            System.exit(1);
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        byte[] stubBody = ("{\"items\":[{\"id\":1,\"description\":\"" + "y".repeat(payloadBytes) + "\"}]}").getBytes(StandardCharsets.UTF_8);
+        byte[] requestBody = ("{\"name\":\"bench\",\"description\":\"" + "x".repeat(Math.max(0, payloadBytes / 2)) + "\"}").getBytes(StandardCharsets.UTF_8);
+        // headers and body are separate writes, with Nagle each response would wait for a delayed ack
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer stub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService stubExecutor = Executors.newFixedThreadPool(concurrency, named("stub"));
+        stub.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, stubBody.length);
+            exchange.getResponseBody().write(stubBody);
+            exchange.close();
+        });
+        stub.setExecutor(stubExecutor);
+        stub.start();
+        String stubUrl = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + stub.getAddress().getPort();
+
+        System.out.printf("%-10s %5s %9s %7s %10s %12s%n", "mode", "round", "requests", "errors", "req/s", "alloc/req");
+        try {
+            for (int round = 1; round <= rounds; round++) {
+                for (boolean fastPath : new boolean[]{false, true}) {
+                    Result result = run(fastPath, springArgs, stubUrl, requests, concurrency, requestBody, threads);
+                    System.out.printf("%-10s %5d %9d %7d %10.0f %10.1f KB%n", fastPath ? "fast-path" : "mvc", round,
+                            result.requests, result.errors, result.requestsPerSecond, result.allocatedBytesPerRequest / 1024.0);
+                }
+            }
+        } finally {
+            stub.stop(0);
+            stubExecutor.shutdownNow();
+        }
+    }
+
+    private static Result run(boolean fastPath, List<String> springArgs, String stubUrl, int requests, int concurrency,
+                              byte[] requestBody, com.sun.management.ThreadMXBean threads) throws Exception {
+        List<String> properties = new ArrayList<>(List.of("--server.port=0", "--rate-limit.enabled=false",
+                "--warmup.enabled=false", "--logging.level.root=WARN", "--fast-path.enabled=" + fastPath));
+        properties.addAll(springArgs);
+        try (ConfigurableApplicationContext context = SpringApplication.run(Application.class, properties.toArray(new String[0]))) {
+            context.getBean(RoutingUtils.class).registerRoute(SERVICE_KEY, stubUrl);
+            String token = context.getBean(JwtUtils.class).generateToken(Map.of("username", "__bench"));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String base = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port + "/" + SERVICE_KEY;
+
+            ExecutorService clients = Executors.newFixedThreadPool(concurrency, named("client"));
+            try {
+                load(clients, base, token, requestBody, requests, concurrency);
+                Map<Long, Long> allocatedBefore = gatewayAllocatedBytes(threads);
+                long start = System.nanoTime();
+                long errors = load(clients, base, token, requestBody, requests, concurrency);
+                long elapsedNanos = System.nanoTime() - start;
+                long allocated = 0;
+                for (Map.Entry<Long, Long> thread : gatewayAllocatedBytes(threads).entrySet()) {
+                    allocated += thread.getValue() - allocatedBefore.getOrDefault(thread.getKey(), 0L);
+                }
+                return new Result(requests, errors, requests / (elapsedNanos / 1e9), allocated / (double) requests);
+            } finally {
+                clients.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @return requests that failed or did not get a 200
+     */
+    private static long load(ExecutorService clients, String base, String token, byte[] requestBody, int requests, int concurrency) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        LongAdder errors = new LongAdder();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            workers.add(clients.submit(() -> {
+                byte[] sink = new byte[8192];
+                int n;
+                while ((n = next.getAndIncrement()) < requests) {
+                    try {
+                        if (send(base, token, requestBody, n, sink) != 200) {
+                            errors.increment();
+                        }
+                    } catch (Exception e) {
+                        errors.increment();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        return errors.sum();
+    }
+
+    // HttpURLConnection runs on the calling thread and keeps connections alive, no extra client threads
+    private static int send(String base, String token, byte[] requestBody, int n, byte[] sink) throws Exception {
+        boolean post = (n & 1) == 1;
+        HttpURLConnection connection = (HttpURLConnection) new URL(post ? base + "/items" : base + "/items/" + n + "?page=1").openConnection();
+        connection.setRequestProperty("Authorization", "Bearer " + token);
+        connection.setRequestProperty("Accept-Encoding", "identity");
+        if (post) {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(requestBody);
+            }
+        }
+        int status = connection.getResponseCode();
+        // drained fully so the connection goes back to the keep-alive cache
+        try (InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            if (in != null) {
+                while (in.read(sink) != -1) {
+                    // discard
+                }
+            }
+        }
+        return status;
+    }
+
+    /**
+     * @return thread id -> allocated bytes, threads that exit during a run are not counted
+     */
+    private static Map<Long, Long> gatewayAllocatedBytes(com.sun.management.ThreadMXBean threads) {
+        long[] ids = threads.getAllThreadIds();
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        ThreadInfo[] infos = threads.getThreadInfo(ids);
+        Map<Long, Long> total = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] == null || allocated[i] < 0) {
+                continue;
+            }
+            String name = infos[i].getThreadName();
+            // the stub's dispatcher thread is named by the JDK
+            if (!name.startsWith(THREAD_PREFIX) && !name.startsWith("HTTP-Dispatcher") && !name.equals("main")) {
+                total.put(ids[i], allocated[i]);
+            }
+        }
+        return total;
+    }
+
+    private static ThreadFactory named(String role) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, THREAD_PREFIX + role + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Result {
+
+        private final int requests;
+
+        private final long errors;
+
+        private final double requestsPerSecond;
+
+        private final double allocatedBytesPerRequest;
+
+        Result(int requests, long errors, double requestsPerSecond, double allocatedBytesPerRequest) {
+            this.requests = requests;
+            this.errors = errors;
+            this.requestsPerSecond = requestsPerSecond;
+            this.allocatedBytesPerRequest = allocatedBytesPerRequest;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+#!/usr/bin/env bash
+#
+# Startup benchmark: time until /health answers and until the first request is proxied.
+#
+#   ./scripts/startup-benchmark.sh [runs] [mode]
+#
+#   mode = plain  -> java -jar gateway/target/<app>.jar              (mvn package)
+#          fast   -> AOT + CDS archive from gateway/target/cds       (mvn -Pfast-start package)
+#
+# A python http.server stands in for the product service, the bearer token is signed locally
+# with jwt.secret, so neither MySQL nor Redis has to be running (the limiter falls back to local).
+# Prints one line per run and the median of each metric.
+#
+# Regression gate, exits 1 when a median is too slow:
+#   MAX_HEALTH_MS, MAX_FIRST_PROXIED_MS   absolute limits in ms
+#   BASELINE_FILE                         medians of a known-good build ("health=<ms> first-proxied=<ms>"),
+#                                         a median more than TOLERANCE_PCT (default 20) above it fails
+#   UPDATE_BASELINE=1                     writes the current medians to BASELINE_FILE instead of comparing
+
+set -euo pipefail
+
+RUNS="${1:-5}"
+MODE="${2:-fast}"
+APP_PORT="${APP_PORT:-18080}"
+STUB_PORT="${STUB_PORT:-18081}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+TARGET="$ROOT/gateway/target"
+JAR_NAME="auth-gateway-service-0.0.1-SNAPSHOT.jar"
+JWT_SECRET="$(grep '^jwt.secret=' "$ROOT/gateway/src/main/resources/application.properties" | cut -d= -f2-)"
+
+case "$MODE" in
+  plain) JAVA_CMD=(java -jar "$TARGET/$JAR_NAME") ;;
+  fast)  JAVA_CMD=(java -XX:SharedArchiveFile="$TARGET/cds/application.jsa" -Xlog:cds=off -Dspring.aot.enabled=true -jar "$TARGET/cds/$JAR_NAME") ;;
+  *)     echo "unknown mode $MODE" >&2; exit 1 ;;
+esac
+
+b64url() { openssl base64 -A | tr '+/' '-_' | tr -d '='; }
+
+make_token() {
+  local now header payload key signature
+  now=$(date +%s)
+  header=$(printf '{"alg":"HS256"}' | b64url)
+  payload=$(printf '{"sub":"{\\"username\\":\\"bench\\"}","iat":%d,"exp":%d}' "$now" $((now + 3600)) | b64url)
+  key=$(printf '%s' "$JWT_SECRET" | openssl base64 -d -A | od -An -vtx1 | tr -d ' \n')
+  signature=$(printf '%s.%s' "$header" "$payload" | openssl dgst -sha256 -mac HMAC -macopt "hexkey:$key" -binary | b64url)
+  printf '%s.%s.%s' "$header" "$payload" "$signature"
+}
+
+now_ms() { date +%s%3N; }
+
+STUB_DIR="$(mktemp -d)"
+mkdir -p "$STUB_DIR/product"
+echo '{"status":"ok"}' > "$STUB_DIR/product/ping"
+python3 -m http.server "$STUB_PORT" --bind 127.0.0.1 --directory "$STUB_DIR" >/dev/null 2>&1 &
+STUB_PID=$!
+APP_PID=""
+cleanup() {
+  [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null || true
+  kill "$STUB_PID" 2>/dev/null || true
+  rm -rf "$STUB_DIR"
+}
+trap cleanup EXIT
+
+TOKEN="$(make_token)"
+HEALTH_RESULTS=()
+PROXY_RESULTS=()
+
+for run in $(seq 1 "$RUNS"); do
+  start=$(now_ms)
+  "${JAVA_CMD[@]}" --server.port="$APP_PORT" --services.product.host="http://127.0.0.1:$STUB_PORT" >/dev/null 2>&1 &
+  APP_PID=$!
+
+  until curl -sf "http://127.0.0.1:$APP_PORT/health" >/dev/null 2>&1; do sleep 0.02; done
+  health=$(( $(now_ms) - start ))
+
+  until curl -sf -H "Authorization: Bearer $TOKEN" "http://127.0.0.1:$APP_PORT/product/ping" >/dev/null 2>&1; do sleep 0.02; done
+  proxied=$(( $(now_ms) - start ))
+
+  echo "run $run: health ${health} ms, first proxied request ${proxied} ms"
+  HEALTH_RESULTS+=("$health")
+  PROXY_RESULTS+=("$proxied")
+
+  kill "$APP_PID"; wait "$APP_PID" 2>/dev/null || true
+  APP_PID=""
+done
+
+median() { printf '%s\n' "$@" | sort -n | awk '{a[NR]=$1} END {print (NR % 2) ? a[(NR+1)/2] : int((a[NR/2] + a[NR/2+1]) / 2)}'; }
+HEALTH_MEDIAN=$(median "${HEALTH_RESULTS[@]}")
+PROXY_MEDIAN=$(median "${PROXY_RESULTS[@]}")
+echo "mode=$MODE runs=$RUNS median health=${HEALTH_MEDIAN} ms median first-proxied=${PROXY_MEDIAN} ms"
+
+FAILED=0
+check() { # name, median, limit
+  if [ "$2" -gt "$3" ]; then
+    echo "REGRESSION: $1 median ${2} ms is above ${3} ms" >&2
+    FAILED=1
+  fi
+}
+[ -n "${MAX_HEALTH_MS:-}" ] && check health "$HEALTH_MEDIAN" "$MAX_HEALTH_MS"
+[ -n "${MAX_FIRST_PROXIED_MS:-}" ] && check first-proxied "$PROXY_MEDIAN" "$MAX_FIRST_PROXIED_MS"
+
+if [ -n "${BASELINE_FILE:-}" ]; then
+  if [ "${UPDATE_BASELINE:-0}" = "1" ]; then
+    echo "health=${HEALTH_MEDIAN} first-proxied=${PROXY_MEDIAN}" > "$BASELINE_FILE"
+    echo "baseline written to $BASELINE_FILE"
+  elif [ -f "$BASELINE_FILE" ]; then
+    TOLERANCE_PCT="${TOLERANCE_PCT:-20}"
+    baseline() { tr ' ' '\n' < "$BASELINE_FILE" | grep "^$1=" | cut -d= -f2; }
+    check health "$HEALTH_MEDIAN" $(( $(baseline health) * (100 + TOLERANCE_PCT) / 100 ))
+    check first-proxied "$PROXY_MEDIAN" $(( $(baseline first-proxied) * (100 + TOLERANCE_PCT) / 100 ))
+  else
+    echo "no baseline at $BASELINE_FILE, run with UPDATE_BASELINE=1 first" >&2
+    exit 1
+  fi
+fi
+exit "$FAILED"